@@ -0,0 +1,71 @@
+package edu.asu.commons.foraging.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.asu.commons.foraging.bot.BotType;
+import edu.asu.commons.foraging.model.GroupDataModel;
+
+/**
+ * $Id$
+ *
+ * Cost of one bot tick for a group, i.e., GroupDataModel.activateBots() which has every bot decide its action and
+ * then applies the actions in shuffled order.  Bot action counters are reset every 10 ticks and the group's diff
+ * lists are cleared every tick like the server does.  parallelBotDecisions compares deciding on the benchmark
+ * thread with deciding on the common fork join pool, see ServerDataModel.setParallelBotDecisions().
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Rev$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class BotBenchmark {
+
+    @Param({ "AGGRESSIVE", "COOPERATIVE", "RANDOM" })
+    public BotType botType;
+
+    @Param({ "1", "4", "16" })
+    public int botsPerGroup;
+
+    @Param({ "false", "true" })
+    public boolean parallelBotDecisions;
+
+    @Param({ "28", "112" })
+    public int boardSize;
+
+    private GroupDataModel group;
+    private int ticks;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        SimulationFixture fixture = new SimulationFixture(boardSize, 0.25d, "neighborhood-density-dependent", 1);
+        fixture.getServerDataModel().setNullEventChannel();
+        fixture.getServerDataModel().setParallelBotDecisions(parallelBotDecisions);
+        group = fixture.getServerDataModel().getOrderedGroups().get(0);
+        group.addBots(botsPerGroup, botType);
+        ticks = 0;
+    }
+
+    @Benchmark
+    public void act() {
+        group.activateBots(++ticks % 10 == 0);
+        group.clearDiffLists();
+    }
+
+}
@@ -0,0 +1,90 @@
+package edu.asu.commons.foraging.benchmark;
+
+import java.awt.Point;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.asu.commons.foraging.event.ClientPositionUpdateEvent;
+import edu.asu.commons.foraging.model.ClientData;
+import edu.asu.commons.foraging.model.GroupDataModel;
+import edu.asu.commons.foraging.model.Resource;
+import edu.asu.commons.net.Identifier;
+
+/**
+ * $Id$
+ *
+ * Java serialization cost of the per-tick ClientPositionUpdateEvent the server transmits to every client,
+ * with a regrowth tick's worth of added tokens and a configurable number of removed tokens.
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Rev$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ClientPositionUpdateEventBenchmark {
+
+    @Param({ "28", "112" })
+    public int boardSize;
+
+    @Param({ "0", "10", "100" })
+    public int removedTokens;
+
+    private ClientPositionUpdateEvent event;
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+
+    @Setup
+    public void setUp() {
+        SimulationFixture fixture = new SimulationFixture(boardSize, 0.25d, "neighborhood-density-dependent", 5);
+        GroupDataModel group = fixture.getServerDataModel().getOrderedGroups().get(0);
+        group.clearDiffLists();
+        fixture.getResourceDispenser().generateResources();
+        Set<Resource> addedTokens = group.getAddedResources();
+        List<Resource> removed = new ArrayList<Resource>();
+        for (Resource resource: group.getResourceDistribution().values()) {
+            if (removed.size() == removedTokens) {
+                break;
+            }
+            removed.add(resource);
+        }
+        Map<Identifier, Integer> clientTokens = group.getClientTokens();
+        Map<Identifier, Point> clientPositions = group.getClientPositions();
+        ClientData clientData = group.getClientDataMap().values().iterator().next();
+        event = new ClientPositionUpdateEvent(clientData,
+                addedTokens.toArray(new Resource[addedTokens.size()]),
+                removed.toArray(new Resource[removed.size()]),
+                clientTokens, clientPositions, 60000L);
+    }
+
+    @Benchmark
+    public int serialize() throws IOException {
+        bytes.reset();
+        // a fresh stream per invocation so class descriptors are written every time, the worst case
+        ObjectOutputStream output = new ObjectOutputStream(bytes);
+        output.writeObject(event);
+        output.flush();
+        return bytes.size();
+    }
+
+}
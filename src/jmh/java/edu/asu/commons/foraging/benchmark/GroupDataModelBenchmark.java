@@ -0,0 +1,115 @@
+package edu.asu.commons.foraging.benchmark;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.asu.commons.foraging.model.Cell;
+import edu.asu.commons.foraging.model.ClientData;
+import edu.asu.commons.foraging.model.Direction;
+import edu.asu.commons.foraging.model.GroupDataModel;
+import edu.asu.commons.foraging.model.ServerDataModel;
+
+/**
+ * $Id$
+ *
+ * Per-action costs on the server's hot path: GroupDataModel.moveClient(), collectToken() and isCellAvailable().
+ * Clients walk back and forth across the board so moves keep landing on valid cells and collecting tokens,
+ * collectToken() puts a token back under the client first so it always measures a successful collection.
+ * Moves and occupancy checks work on packed Cells and should report a gc.alloc.rate.norm of 0 bytes per operation
+ * under the gc profiler the benchmarks profile runs with.
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Rev$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class GroupDataModelBenchmark {
+
+    @Param({ "28", "112" })
+    public int boardSize;
+
+    @Param({ "0.25" })
+    public double initialDistribution;
+
+    private SimulationFixture fixture;
+    private GroupDataModel group;
+    private List<ClientData> clients;
+    private int nextClient;
+    private int steps;
+    private Direction direction = Direction.RIGHT;
+    private Point probe = new Point();
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        fixture = new SimulationFixture(boardSize, initialDistribution, "neighborhood-density-dependent", 5);
+        ServerDataModel serverDataModel = fixture.getServerDataModel();
+        serverDataModel.setNullEventChannel();
+        group = serverDataModel.getOrderedGroups().get(0);
+        clients = new ArrayList<ClientData>(group.getClientDataMap().values());
+        nextClient = 0;
+        steps = 0;
+    }
+
+    @Benchmark
+    public void moveClient() {
+        ClientData clientData = clients.get(nextClient);
+        nextClient = (nextClient + 1) % clients.size();
+        if (nextClient == 0 && ++steps % (boardSize - 1) == 0) {
+            direction = direction.opposite();
+        }
+        group.moveClient(clientData.getId(), direction);
+        clearDiffs(clientData);
+    }
+
+    @Benchmark
+    public void collectToken() {
+        ClientData clientData = clients.get(nextClient);
+        nextClient = (nextClient + 1) % clients.size();
+        group.addResource(clientData.getPoint());
+        group.collectToken(clientData);
+        clearDiffs(clientData);
+    }
+
+    @Benchmark
+    public boolean isCellAvailable() {
+        probe.x = steps % boardSize;
+        probe.y = (steps / boardSize) % boardSize;
+        steps++;
+        return group.isCellAvailable(probe);
+    }
+
+    @Benchmark
+    public boolean isPackedCellAvailable() {
+        int cell = Cell.pack(steps % boardSize, (steps / boardSize) % boardSize);
+        steps++;
+        return group.isCellAvailable(cell);
+    }
+
+    /**
+     * The server clears these every tick, without it they would grow for the whole iteration.
+     */
+    private void clearDiffs(ClientData clientData) {
+        group.clearDiffLists();
+        clientData.clearCollectedTokens();
+    }
+
+}
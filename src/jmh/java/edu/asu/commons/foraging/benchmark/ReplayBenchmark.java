@@ -0,0 +1,83 @@
+package edu.asu.commons.foraging.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.asu.commons.event.PersistableEvent;
+import edu.asu.commons.foraging.model.ClientData;
+import edu.asu.commons.foraging.model.Direction;
+import edu.asu.commons.foraging.model.ServerDataModel;
+
+/**
+ * $Id$
+ *
+ * Save-file replay throughput: reinitializes a ServerDataModel and applies a recorded round's events the same
+ * way the SaveFileProcessors do.  The round is recorded from a seeded simulation (random client moves every
+ * tick and a regrowth every second) so the benchmark does not depend on experiment data being present.
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Rev$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ReplayBenchmark {
+
+    private final static int TICKS_PER_SECOND = 10;
+
+    @Param({ "60", "240" })
+    public int roundDurationInSeconds;
+
+    @Param({ "5", "20" })
+    public int numberOfClients;
+
+    private SimulationFixture fixture;
+    private List<PersistableEvent> events;
+
+    @Setup
+    public void setUp() {
+        fixture = new SimulationFixture(28, 0.25d, "neighborhood-density-dependent", numberOfClients);
+        ServerDataModel serverDataModel = fixture.getServerDataModel();
+        Random random = new Random(0);
+        Direction[] directions = { Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT };
+        List<ClientData> clients = new ArrayList<ClientData>(serverDataModel.getClientDataMap().values());
+        for (int tick = 1; tick <= roundDurationInSeconds * TICKS_PER_SECOND; tick++) {
+            for (ClientData clientData: clients) {
+                Direction direction = directions[random.nextInt(directions.length)];
+                serverDataModel.moveClient(clientData.getId(), direction);
+            }
+            if (tick % TICKS_PER_SECOND == 0) {
+                fixture.getResourceDispenser().generateResources();
+            }
+        }
+        events = new ArrayList<PersistableEvent>(fixture.getEvents());
+    }
+
+    @Benchmark
+    public ServerDataModel replay() {
+        ServerDataModel serverDataModel = fixture.getServerDataModel();
+        serverDataModel.reinitialize(fixture.getRoundConfiguration());
+        for (PersistableEvent event: events) {
+            serverDataModel.apply(event);
+        }
+        return serverDataModel;
+    }
+
+}
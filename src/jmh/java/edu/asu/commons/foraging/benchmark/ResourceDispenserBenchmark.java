@@ -0,0 +1,81 @@
+package edu.asu.commons.foraging.benchmark;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.asu.commons.foraging.model.GroupDataModel;
+import edu.asu.commons.foraging.model.Resource;
+import edu.asu.commons.foraging.model.ServerDataModel;
+
+/**
+ * $Id$
+ *
+ * Cost of one regrowth tick (ResourceDispenser.generateResources()) for every resource generator across board
+ * sizes and initial token densities.  The initial distribution is restored before every invocation so each one
+ * measures regrowth from the same state.
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Rev$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ResourceDispenserBenchmark {
+
+    @Param({ "neighborhood-density-dependent", "top-bottom-patchy", "mobile" })
+    public String resourceGenerator;
+
+    @Param({ "14", "28", "56", "112" })
+    public int boardSize;
+
+    @Param({ "0.05", "0.25", "0.5" })
+    public double initialDistribution;
+
+    private SimulationFixture fixture;
+    private final Map<GroupDataModel, Set<Resource>> initialDistributions = new HashMap<GroupDataModel, Set<Resource>>();
+
+    @Setup
+    public void setUp() {
+        fixture = new SimulationFixture(boardSize, initialDistribution, resourceGenerator, 5);
+        ServerDataModel serverDataModel = fixture.getServerDataModel();
+        serverDataModel.setNullEventChannel();
+        for (GroupDataModel group: serverDataModel.getGroups()) {
+            initialDistributions.put(group, new HashSet<Resource>(group.getResourceDistribution().values()));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void restoreInitialDistribution() {
+        for (Map.Entry<GroupDataModel, Set<Resource>> entry: initialDistributions.entrySet()) {
+            GroupDataModel group = entry.getKey();
+            group.resetResourceDistribution();
+            group.addResources(entry.getValue());
+            group.clearDiffLists();
+        }
+    }
+
+    @Benchmark
+    public Map<GroupDataModel, Set<Resource>> generateResources() {
+        return fixture.getResourceDispenser().generateResources();
+    }
+
+}
@@ -0,0 +1,77 @@
+package edu.asu.commons.foraging.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.asu.commons.event.Event;
+import edu.asu.commons.event.EventTypeChannel;
+import edu.asu.commons.event.PersistableEvent;
+import edu.asu.commons.foraging.conf.RoundConfiguration;
+import edu.asu.commons.foraging.conf.ServerConfiguration;
+import edu.asu.commons.foraging.model.ClientData;
+import edu.asu.commons.foraging.model.ResourceDispenser;
+import edu.asu.commons.foraging.model.ServerDataModel;
+import edu.asu.commons.net.Identifier;
+
+/**
+ * $Id$
+ *
+ * Builds a server data model from the same treatment used by ResourceDispenserTest with the board size, initial
+ * density and resource generator overridden so the benchmarks can be parameterized over them.  Every persistable
+ * event the model emits is recorded so it can be replayed later.
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Rev$
+ */
+class SimulationFixture {
+
+    final static String CONFIGURATION_DIRECTORY = "configuration/asu/2011/t1";
+
+    private final List<PersistableEvent> events = new ArrayList<PersistableEvent>();
+    private final ServerDataModel serverDataModel;
+    private final RoundConfiguration roundConfiguration;
+    private final ResourceDispenser resourceDispenser;
+
+    SimulationFixture(int boardSize, double initialDistribution, String resourceGenerator, int numberOfClients) {
+        // bots and generators log at info/warning level on every tick, which would swamp the measurements
+        Logger.getLogger("").setLevel(Level.SEVERE);
+        ServerConfiguration serverConfiguration = new ServerConfiguration(CONFIGURATION_DIRECTORY);
+        roundConfiguration = serverConfiguration.getCurrentParameters();
+        roundConfiguration.setProperty("resource-width", String.valueOf(boardSize));
+        roundConfiguration.setProperty("resource-depth", String.valueOf(boardSize));
+        roundConfiguration.setProperty("initial-distribution", String.valueOf(initialDistribution));
+        roundConfiguration.setProperty("resource-generator", resourceGenerator);
+        serverDataModel = new ServerDataModel(new EventTypeChannel() {
+            public void handle(Event event) {
+                if (event instanceof PersistableEvent) {
+                    events.add((PersistableEvent) event);
+                }
+            }
+        });
+        serverDataModel.setRoundConfiguration(roundConfiguration);
+        for (int i = 0; i < numberOfClients; i++) {
+            serverDataModel.addClient(new ClientData(new Identifier.Base()));
+        }
+        resourceDispenser = new ResourceDispenser(serverDataModel);
+        resourceDispenser.initialize();
+    }
+
+    ServerDataModel getServerDataModel() {
+        return serverDataModel;
+    }
+
+    RoundConfiguration getRoundConfiguration() {
+        return roundConfiguration;
+    }
+
+    ResourceDispenser getResourceDispenser() {
+        return resourceDispenser;
+    }
+
+    List<PersistableEvent> getEvents() {
+        return events;
+    }
+
+}
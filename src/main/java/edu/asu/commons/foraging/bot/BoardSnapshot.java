@@ -0,0 +1,88 @@
+package edu.asu.commons.foraging.bot;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * $Id$
+ *
+ * Read-only view of a group's board taken once per bot tick.  Bots decide their next action against the snapshot
+ * instead of the live GroupDataModel so decisions can be computed concurrently while participants keep moving and
+ * collecting tokens.  The group's snapshot answers token queries from its BotNavigator, whose pending changes
+ * were applied when the snapshot was taken, instead of copying the token positions, and carries the cells that
+ * participants and bots currently fill up to the maximum occupancy.
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Rev$
+ */
+public class BoardSnapshot {
+
+    private final List<Point> resourcePositions;
+    private final Set<Point> blockedPositions;
+    private final BotNavigator navigator;
+    private final int width;
+    private final int depth;
+
+    /**
+     * @param resourcePositions the group's token positions, bots scan them for the nearest token
+     */
+    public BoardSnapshot(Set<Point> resourcePositions, int width, int depth) {
+        this.resourcePositions = new ArrayList<Point>(resourcePositions);
+        this.blockedPositions = Collections.emptySet();
+        this.navigator = null;
+        this.width = width;
+        this.depth = depth;
+    }
+
+    /**
+     * @param navigator the group's distance field with its changes applied, must not change until the bots
+     * are done with this snapshot
+     * @param blockedPositions a private copy of the cells bots can't move into
+     */
+    public BoardSnapshot(BotNavigator navigator, Set<Point> blockedPositions) {
+        this.resourcePositions = null;
+        this.blockedPositions = Collections.unmodifiableSet(blockedPositions);
+        this.navigator = navigator;
+        this.width = navigator.getWidth();
+        this.depth = navigator.getDepth();
+    }
+
+    public boolean isResourceAt(Point position) {
+        return navigator == null ? resourcePositions.contains(position) : navigator.isToken(position);
+    }
+
+    public int getNumberOfResources() {
+        return navigator == null ? resourcePositions.size() : navigator.getNumberOfTokens();
+    }
+
+    /**
+     * Returns the position of the index-th token, in no particular order.
+     */
+    public Point getResourcePosition(int index) {
+        return navigator == null ? resourcePositions.get(index) : navigator.getToken(index);
+    }
+
+    public boolean isBlocked(int x, int y) {
+        return ! blockedPositions.isEmpty() && blockedPositions.contains(new Point(x, y));
+    }
+
+    public boolean isBlocked(Point position) {
+        return blockedPositions.contains(position);
+    }
+
+    public BotNavigator getNavigator() {
+        return navigator;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+}
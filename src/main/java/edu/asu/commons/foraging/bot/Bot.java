@@ -9,18 +9,29 @@ import edu.asu.commons.net.Identifier;
 import java.awt.Point;
 import java.io.Serializable;
 import java.util.Random;
-import java.util.Set;
 import java.util.logging.Logger;
 
 public interface Bot extends Actor {
 
     /**
-     * The main entry point into a bot's behavior, invoked by the server every N milliseconds.
-     *
-     * FIXME: consider injecting the model / state of the world for the bot as a parameter
+     * Decides and immediately applies this bot's next action against its group, equivalent to a bot tick for a
+     * group with only this bot.  GroupDataModel.activateBots() uses decide / actionApplied instead.
      */
     public void act();
 
+    /**
+     * Decides this bot's next action from the board snapshot without modifying the group.  Only the bot's own
+     * state may change, so different bots can decide concurrently.
+     */
+    public Action decide(BoardSnapshot board);
+
+    /**
+     * Invoked after the group has tried to apply the action returned by decide().
+     *
+     * @param applied false if the move was blocked or the token was already gone
+     */
+    public void actionApplied(Action action, boolean applied, BoardSnapshot board);
+
     public BotType getBotType();
 
     public Identifier getId();
@@ -29,6 +40,8 @@ public interface Bot extends Actor {
 
     public int getCurrentTokens();
 
+    public void setCurrentTokens(int currentTokens);
+
     public void addToken(Point location);
 
     public void setCurrentPosition(Point location);
@@ -39,7 +52,7 @@ public interface Bot extends Actor {
 
     public double getMovementProbability();
 
-    public Direction getNextMove();
+    public Direction getNextMove(BoardSnapshot board);
 
     public void initialize(RoundConfiguration configuration);
 
@@ -53,6 +66,43 @@ public interface Bot extends Actor {
 
     public void setGroupDataModel(GroupDataModel model);
 
+    /**
+     * An action decided by a bot: do nothing, move in a direction, or harvest the token at its current position.
+     */
+    public final static class Action {
+
+        public enum Type {
+            NONE, MOVE, HARVEST;
+        }
+
+        public final static Action NONE = new Action(Type.NONE, Direction.NONE);
+        public final static Action HARVEST = new Action(Type.HARVEST, Direction.NONE);
+
+        private final Type type;
+        private final Direction direction;
+
+        private Action(Type type, Direction direction) {
+            this.type = type;
+            this.direction = direction;
+        }
+
+        public static Action move(Direction direction) {
+            return new Action(Type.MOVE, direction);
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public Direction getDirection() {
+            return direction;
+        }
+
+        public String toString() {
+            return (type == Type.MOVE) ? type + " " + direction : type.toString();
+        }
+    }
+
     /**
      * Provides simple default bot state and behavior.
      *
@@ -111,45 +161,55 @@ public interface Bot extends Actor {
          * 5. if movement was unsuccessful due to blockage, pick a new random location to visit.
          */
         public void act() {
+            BoardSnapshot board = model.createBoardSnapshot();
+            Action action = decide(board);
+            actionApplied(action, model.apply(this, action), board);
+        }
+
+        public Action decide(BoardSnapshot board) {
             // first, check number of actions taken vs actions per second
             if (numberOfActionsTaken > actionsPerSecond) {
                 logger.info(String.format("Number of actions taken %d exceeds allowable actions per second %d",
                             numberOfActionsTaken, actionsPerSecond));
-                return;
+                return Action.NONE;
             }
             // next, check if we have a wait enforced on us
             else if (ticksToWait > 0) {
                 logger.warning("waiting for " + ticksToWait);
                 ticksToWait--;
-                return;
+                return Action.NONE;
             }
+            Action action = Action.NONE;
             // if neither, check if we are sitting on top of a token
-            if (model.isResourceAt(getPosition())) {
+            if (board.isResourceAt(getPosition())) {
                 if (random.nextDouble() <= getHarvestProbability()) {
-                    model.collectToken(this);
+                    action = Action.HARVEST;
                 }
                 else {
                     // failed our harvest probability check, now for something completely different..
                     setTicksToWait(random.nextInt(DEFAULT_MAX_TICKS_TO_WAIT));
-                    this.targetLocation = getRandomTokenLocation();
+                    this.targetLocation = getRandomTokenLocation(board);
                 }
             }
             // or figure out our next move and roll the dice to see if we can go.
             else {
-                Direction nextMove = getNextMove();
+                Direction nextMove = getNextMove(board);
                 if (random.nextDouble() <= getMovementProbability()) {
-                    // FIXME: need a more sophisticated pathfinding algorithm if we want to enable 
-                    // max cell occupancy and blockage so the bot can move around a player if they are directly
-                    // in their way
-                    boolean successfulMove = model.move(this, nextMove);
-                    if (!successfulMove) {
-                        setTicksToWait(random.nextInt(2));
-                        this.targetLocation = getRandomTokenLocation();
-                    }
+                    // the distance field routes around full cells but explicit targets (random locations after a
+                    // failed harvest or a blocked move) still use Direction.towards and can be blocked by a player
+                    action = Action.move(nextMove);
                 }
                 setTicksToWait(1);
             }
             numberOfActionsTaken++;
+            return action;
+        }
+
+        public void actionApplied(Action action, boolean applied, BoardSnapshot board) {
+            if (action.getType() == Action.Type.MOVE && ! applied) {
+                // blocked, head somewhere else.  the wait set in decide() still applies.
+                this.targetLocation = getRandomTokenLocation(board);
+            }
         }
 
         public void resetActionsTakenPerSecond() {
@@ -164,9 +224,14 @@ public interface Bot extends Actor {
             this.currentPosition = currentPosition;
         }
 
-        public Direction getNextMove() {
+        public Direction getNextMove(BoardSnapshot board) {
+            BotNavigator navigator = board.getNavigator();
+            if (!hasTarget() && navigator != null && navigator.hasTokens()) {
+                // head downhill in the group's distance field towards whichever token is nearest now
+                return navigator.getNextStep(getPosition(), board);
+            }
             if (!hasTarget()) {
-                setNewTargetLocation();
+                setNewTargetLocation(board);
             }
             Direction nextMove = Direction.towards(getPosition(), getTargetLocation());
             if (nextMove == Direction.NONE) {
@@ -176,11 +241,11 @@ public interface Bot extends Actor {
             return nextMove;
         }
 
-        protected void setNewTargetLocation() {
-            targetLocation = getNearestToken();
+        protected void setNewTargetLocation(BoardSnapshot board) {
+            targetLocation = getNearestToken(board);
             if (targetLocation == null) {
                 // pick a random location on the board
-                targetLocation = getRandomLocation();
+                targetLocation = getRandomLocation(board);
             }
         }
 
@@ -190,29 +255,27 @@ public interface Bot extends Actor {
             this.ticksToWait = random.nextInt(DEFAULT_MAX_TICKS_TO_WAIT);
         }
 
-        protected Point getRandomLocation() {
-            int x = random.nextInt(model.getRoundConfiguration().getResourceWidth());
-            int y = random.nextInt(model.getRoundConfiguration().getResourceDepth());
+        protected Point getRandomLocation(BoardSnapshot board) {
+            int x = random.nextInt(board.getWidth());
+            int y = random.nextInt(board.getDepth());
             return new Point(x, y);
         }
 
-        protected Point getRandomTokenLocation() {
-            Set<Point> resourcePositions = model.getResourcePositions();
-            int randomIndex = random.nextInt(resourcePositions.size());
-            for (Point point: resourcePositions) {
-                if (randomIndex-- == 0) {
-                    return point;
-                }
+        protected Point getRandomTokenLocation(BoardSnapshot board) {
+            int numberOfResources = board.getNumberOfResources();
+            if (numberOfResources == 0) {
+                return getRandomLocation(board);
             }
-            return getRandomLocation();
+            return board.getResourcePosition(random.nextInt(numberOfResources));
         }
 
-        protected Point getNearestToken() {
+        protected Point getNearestToken(BoardSnapshot board) {
             Point currentLocation = getPosition();
             Point nearestToken = null;
             double nearestTokenDistance = Double.MAX_VALUE;
             // naive implementation, scans all positions
-            for (Point resourcePosition : model.getResourcePositions()) {
+            for (int i = 0; i < board.getNumberOfResources(); i++) {
+                Point resourcePosition = board.getResourcePosition(i);
                 double distance = currentLocation.distanceSq(resourcePosition);
                 if (distance < nearestTokenDistance) {
                     nearestTokenDistance = distance;
@@ -290,6 +353,10 @@ public interface Bot extends Actor {
             return currentTokens;
         }
 
+        public void setCurrentTokens(int currentTokens) {
+            this.currentTokens = currentTokens;
+        }
+
         public Point getCurrentPosition() {
             return currentPosition;
         }
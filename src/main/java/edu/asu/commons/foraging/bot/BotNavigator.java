@@ -0,0 +1,349 @@
+package edu.asu.commons.foraging.bot;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import edu.asu.commons.foraging.model.Direction;
+
+/**
+ * $Id$
+ *
+ * Per-group distance field for bot navigation: the number of moves from every cell to the nearest token, computed
+ * with a multi-source breadth first search over the 4-neighborhood bots move in.  A bot heading for the nearest
+ * token only has to look at its four neighbors to find its next step instead of scanning every token.
+ * <p>
+ * The group reports every token it gains or loses through tokenAdded() and tokenRemoved() as it happens, and the
+ * bot tick calls applyChanges() to repair the field incrementally: new tokens lower distances with a BFS that stops
+ * where distances don't improve, removed tokens invalidate only the cells whose shortest paths led to them, which
+ * are then refilled from the valid cells around them.
+ * <p>
+ * Distances only take tokens into account, not the cells participants and bots fill up to the maximum occupancy.
+ * Those change on nearly every tick and folding them into the field would mean repairing it around every moving
+ * avatar, so getNextStep() routes around them locally instead, which can lead a bot into a dead end behind a
+ * crowd that a search around blocked cells would have avoided.
+ * <p>
+ * Not thread safe, tokenAdded(), tokenRemoved() and applyChanges() must be serialized, e.g., on the group's token
+ * lock.  Recorded changes aren't visible until applyChanges(), so reads between two calls to it are safe to share
+ * between bots even while the group keeps recording changes.
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Rev$
+ */
+public class BotNavigator {
+
+    public final static int UNREACHABLE = Integer.MAX_VALUE;
+
+    // neighbors in the order steps are preferred, horizontal first like Direction.towards()
+    private final static Direction[] DIRECTIONS = { Direction.LEFT, Direction.RIGHT, Direction.UP, Direction.DOWN };
+    private final static int[] DX = { -1, 1, 0, 0 };
+    private final static int[] DY = { 0, 0, -1, 1 };
+
+    private final int width;
+    private final int depth;
+    private final int[] distances;
+    private final boolean[] tokens;
+    private int[] tokenCells = new int[64];
+    private int numberOfTokens;
+    // changes recorded since the last applyChanges(), the last one recorded for a cell wins
+    private final boolean[] pending;
+    private final boolean[] pendingTokens;
+    private int[] pendingCells = new int[64];
+    private int numberOfPendingCells;
+    // generation stamps used to mark invalidated cells without clearing arrays
+    private final int[] invalidated;
+    private int generation;
+    private final int[] queue;
+
+    public BotNavigator(int width, int depth) {
+        this.width = width;
+        this.depth = depth;
+        int cells = width * depth;
+        distances = new int[cells];
+        Arrays.fill(distances, UNREACHABLE);
+        tokens = new boolean[cells];
+        pending = new boolean[cells];
+        pendingTokens = new boolean[cells];
+        invalidated = new int[cells];
+        queue = new int[cells];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public boolean hasTokens() {
+        return numberOfTokens > 0;
+    }
+
+    public int getNumberOfTokens() {
+        return numberOfTokens;
+    }
+
+    /**
+     * Records that a token appeared at the given position.  Takes effect at the next applyChanges().  Positions
+     * outside the board are ignored.
+     */
+    public void tokenAdded(Point position) {
+        setPending(position, true);
+    }
+
+    /**
+     * Records that the token at the given position is gone.  Takes effect at the next applyChanges().
+     */
+    public void tokenRemoved(Point position) {
+        setPending(position, false);
+    }
+
+    private void setPending(Point position, boolean token) {
+        if (! isValid(position.x, position.y)) {
+            return;
+        }
+        int cell = toCell(position.x, position.y);
+        if (! pending[cell]) {
+            pending[cell] = true;
+            if (numberOfPendingCells == pendingCells.length) {
+                pendingCells = Arrays.copyOf(pendingCells, pendingCells.length * 2);
+            }
+            pendingCells[numberOfPendingCells++] = cell;
+        }
+        pendingTokens[cell] = token;
+    }
+
+    /**
+     * Repairs the distance field for the tokens added and removed since the last call, in time proportional to the
+     * cells whose distances change rather than to the number of tokens on the board.
+     */
+    public void applyChanges() {
+        if (numberOfPendingCells == 0) {
+            return;
+        }
+        int[] added = new int[numberOfPendingCells];
+        int numberOfAdded = 0;
+        int[] removed = new int[numberOfPendingCells];
+        int numberOfRemoved = 0;
+        for (int i = 0; i < numberOfPendingCells; i++) {
+            int cell = pendingCells[i];
+            pending[cell] = false;
+            // a token added and removed again before this call is no change at all
+            if (pendingTokens[cell] && ! tokens[cell]) {
+                added[numberOfAdded++] = cell;
+            }
+            else if (! pendingTokens[cell] && tokens[cell]) {
+                removed[numberOfRemoved++] = cell;
+            }
+        }
+        numberOfPendingCells = 0;
+        if (numberOfRemoved > 0) {
+            remove(removed, numberOfRemoved);
+        }
+        if (numberOfAdded > 0) {
+            add(added, numberOfAdded);
+        }
+    }
+
+    public boolean isToken(Point position) {
+        return isValid(position.x, position.y) && tokens[toCell(position.x, position.y)];
+    }
+
+    /**
+     * Returns the position of the index-th token, in no particular order, as of the last applyChanges().
+     */
+    public Point getToken(int index) {
+        int cell = tokenCells[index];
+        return new Point(cell % width, cell / width);
+    }
+
+    private void add(int[] added, int numberOfAdded) {
+        if (numberOfTokens + numberOfAdded > tokenCells.length) {
+            tokenCells = Arrays.copyOf(tokenCells, Math.max(numberOfTokens + numberOfAdded, tokenCells.length * 2));
+        }
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < numberOfAdded; i++) {
+            int cell = added[i];
+            tokens[cell] = true;
+            tokenCells[numberOfTokens++] = cell;
+            distances[cell] = 0;
+            queue[tail++] = cell;
+        }
+        // every source starts at 0 so a FIFO queue visits cells in distance order
+        while (head < tail) {
+            int cell = queue[head++];
+            int distance = distances[cell] + 1;
+            int x = cell % width;
+            int y = cell / width;
+            for (int i = 0; i < DX.length; i++) {
+                int nx = x + DX[i];
+                int ny = y + DY[i];
+                if (isValid(nx, ny)) {
+                    int neighbor = toCell(nx, ny);
+                    if (distances[neighbor] > distance) {
+                        distances[neighbor] = distance;
+                        queue[tail++] = neighbor;
+                    }
+                }
+            }
+        }
+    }
+
+    private void remove(int[] removed, int numberOfRemoved) {
+        generation++;
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < numberOfRemoved; i++) {
+            int cell = removed[i];
+            tokens[cell] = false;
+            invalidated[cell] = generation;
+            queue[tail++] = cell;
+        }
+        // compact the token list
+        int kept = 0;
+        for (int i = 0; i < numberOfTokens; i++) {
+            if (tokens[tokenCells[i]]) {
+                tokenCells[kept++] = tokenCells[i];
+            }
+        }
+        numberOfTokens = kept;
+        // invalidate every cell whose distance may have come from a removed token, i.e., everything downhill
+        // from the removed tokens along cells that are exactly one step further away.
+        while (head < tail) {
+            int cell = queue[head++];
+            int distance = distances[cell] + 1;
+            int x = cell % width;
+            int y = cell / width;
+            for (int i = 0; i < DX.length; i++) {
+                int nx = x + DX[i];
+                int ny = y + DY[i];
+                if (isValid(nx, ny)) {
+                    int neighbor = toCell(nx, ny);
+                    if (invalidated[neighbor] != generation && distances[neighbor] == distance) {
+                        invalidated[neighbor] = generation;
+                        queue[tail++] = neighbor;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < tail; i++) {
+            distances[queue[i]] = UNREACHABLE;
+        }
+        // refill the invalidated cells from their valid neighbors in distance order
+        PriorityQueue<Long> frontier = new PriorityQueue<Long>();
+        for (int i = 0; i < tail; i++) {
+            int cell = queue[i];
+            int x = cell % width;
+            int y = cell / width;
+            int best = UNREACHABLE;
+            for (int j = 0; j < DX.length; j++) {
+                int nx = x + DX[j];
+                int ny = y + DY[j];
+                if (isValid(nx, ny)) {
+                    int neighbor = toCell(nx, ny);
+                    if (invalidated[neighbor] != generation && distances[neighbor] != UNREACHABLE) {
+                        best = Math.min(best, distances[neighbor] + 1);
+                    }
+                }
+            }
+            if (best != UNREACHABLE) {
+                distances[cell] = best;
+                frontier.add(((long) best << 32) | cell);
+            }
+        }
+        while (! frontier.isEmpty()) {
+            long entry = frontier.poll();
+            int distance = (int) (entry >>> 32);
+            int cell = (int) entry;
+            if (distance > distances[cell]) {
+                continue;
+            }
+            int x = cell % width;
+            int y = cell / width;
+            for (int i = 0; i < DX.length; i++) {
+                int nx = x + DX[i];
+                int ny = y + DY[i];
+                if (isValid(nx, ny)) {
+                    int neighbor = toCell(nx, ny);
+                    if (distances[neighbor] > distance + 1) {
+                        distances[neighbor] = distance + 1;
+                        frontier.add(((long) (distance + 1) << 32) | neighbor);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of moves from the given position to the nearest token or UNREACHABLE if there are no tokens.
+     */
+    public int getDistance(Point position) {
+        if (! isValid(position.x, position.y)) {
+            return UNREACHABLE;
+        }
+        return distances[toCell(position.x, position.y)];
+    }
+
+    /**
+     * Returns the next step towards the nearest token from the given position, avoiding cells the board marks as
+     * blocked.  If every step towards a token is blocked, detours through the neighbor closest to a token that
+     * leads downhill again without coming back to the given position.  Returns Direction.NONE on a token, when
+     * there are no tokens, or when there's no way around, i.e., the bot should wait for the cell to clear.
+     */
+    public Direction getNextStep(Point position, BoardSnapshot board) {
+        int current = getDistance(position);
+        if (current == 0 || current == UNREACHABLE) {
+            return Direction.NONE;
+        }
+        Direction best = Direction.NONE;
+        int bestDistance = current;
+        for (int i = 0; i < DIRECTIONS.length; i++) {
+            int nx = position.x + DX[i];
+            int ny = position.y + DY[i];
+            if (isValid(nx, ny) && ! board.isBlocked(nx, ny) && distances[toCell(nx, ny)] < bestDistance) {
+                bestDistance = distances[toCell(nx, ny)];
+                best = DIRECTIONS[i];
+            }
+        }
+        if (best != Direction.NONE) {
+            return best;
+        }
+        // blocked, look for a detour
+        bestDistance = UNREACHABLE;
+        for (int i = 0; i < DIRECTIONS.length; i++) {
+            int nx = position.x + DX[i];
+            int ny = position.y + DY[i];
+            if (isValid(nx, ny) && ! board.isBlocked(nx, ny) && distances[toCell(nx, ny)] < bestDistance
+                    && hasWayDown(nx, ny, position, board)) {
+                bestDistance = distances[toCell(nx, ny)];
+                best = DIRECTIONS[i];
+            }
+        }
+        return best;
+    }
+
+    private boolean hasWayDown(int x, int y, Point excluded, BoardSnapshot board) {
+        int distance = distances[toCell(x, y)];
+        for (int i = 0; i < DX.length; i++) {
+            int nx = x + DX[i];
+            int ny = y + DY[i];
+            if ((nx != excluded.x || ny != excluded.y) && isValid(nx, ny) && ! board.isBlocked(nx, ny)
+                    && distances[toCell(nx, ny)] < distance) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isValid(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < depth;
+    }
+
+    private int toCell(int x, int y) {
+        return y * width + x;
+    }
+
+}
@@ -19,7 +19,7 @@ public class RandomBot extends Bot.SimpleBot {
     }
 
     @Override
-    public Direction getNextMove() {
+    public Direction getNextMove(BoardSnapshot board) {
         return Direction.random();
     }
 
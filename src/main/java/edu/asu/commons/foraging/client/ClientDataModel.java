@@ -3,8 +3,10 @@ package edu.asu.commons.foraging.client;
 import java.awt.Point;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.logging.Logger;
 import java.util.Map;
@@ -63,6 +65,12 @@ public class ClientDataModel extends ForagingDataModel {
 
     private Map<Point, Resource> resourceDistribution = new HashMap<>();
 
+    // back buffer for the published ResourceGrid, only modified while holding the resourceDistribution lock
+    private transient BitSet resourceCells = new BitSet();
+    private transient int resourceGridWidth;
+    private transient int resourceGridDepth;
+    private transient volatile ResourceGrid resourceGrid = ResourceGrid.EMPTY;
+
     private Logger logger = Logger.getLogger(getClass().getName());
 
     private boolean singlePlayer = false;
@@ -71,13 +79,26 @@ public class ClientDataModel extends ForagingDataModel {
 
     private int maximumOccupancyPerCell = 1;
 
+    private final transient MovementLatencyTracker movementLatencyTracker = new MovementLatencyTracker();
+
+    // cells whose tokens or occupants changed since the view last redrew them, see drainChangedCells()
+    private final transient Set<Point> changedCells = new HashSet<>();
+    private transient boolean allCellsChanged = true;
+
     public ClientDataModel(ForagingClient client) {
         super(client.getEventChannel());
         this.client = client;
     }
 
+    public MovementLatencyTracker getMovementLatencyTracker() {
+        return movementLatencyTracker;
+    }
+
     public void toggleExplicitCollectionMode() {
         explicitCollectionMode = !explicitCollectionMode;
+        synchronized (changedCells) {
+            changedCells.add(getCurrentPosition());
+        }
         client.transmit(new ExplicitCollectionModeRequest(client.getId(), explicitCollectionMode));
     }
 
@@ -115,6 +136,111 @@ public class ClientDataModel extends ForagingDataModel {
         return resourceDistribution;
     }
 
+    /**
+     * Returns the token positions as of the latest update. Safe to read from any thread without locking, e.g., from
+     * the event dispatch thread while the network thread applies the next update.
+     */
+    public ResourceGrid getResourceGrid() {
+        return resourceGrid;
+    }
+
+    public boolean isResourceAt(Point position) {
+        return resourceGrid.isResourceAt(position);
+    }
+
+    // must be invoked while holding the resourceDistribution lock
+    private void resetResourceGrid() {
+        resourceGridWidth = boardWidth;
+        resourceGridDepth = boardHeight;
+        resourceCells = new BitSet(resourceGridWidth * resourceGridDepth);
+        for (Point position : resourceDistribution.keySet()) {
+            setResourceCell(position, true);
+        }
+        publishResourceGrid();
+    }
+
+    private void setResourceCell(Point position, boolean resource) {
+        if (position.x >= 0 && position.x < resourceGridWidth && position.y >= 0 && position.y < resourceGridDepth) {
+            resourceCells.set(position.y * resourceGridWidth + position.x, resource);
+        }
+    }
+
+    private void publishResourceGrid() {
+        // published grids are never modified, so the back buffer is copied rather than swapped with a front buffer
+        // that the renderer could still be reading
+        resourceGrid = new ResourceGrid((BitSet) resourceCells.clone(), resourceGridWidth, resourceGridDepth);
+    }
+
+    /**
+     * Moves the cells whose tokens or occupants changed since the last call into the given set so the view can
+     * redraw just those cells.  Returns true without touching the set if the entire board needs to be redrawn,
+     * e.g., after a new token distribution was received.
+     */
+    public boolean drainChangedCells(Set<Point> cells) {
+        synchronized (changedCells) {
+            boolean all = allCellsChanged;
+            if (!all) {
+                cells.addAll(changedCells);
+            }
+            changedCells.clear();
+            allCellsChanged = false;
+            return all;
+        }
+    }
+
+    private void allCellsChanged() {
+        synchronized (changedCells) {
+            changedCells.clear();
+            allCellsChanged = true;
+        }
+    }
+
+    private void cellsChanged(Map<Identifier, Point> previousPositions, Map<Identifier, Point> currentPositions,
+            Resource[] addedResources, Resource[] removedResources) {
+        List<Identifier> flashing = new ArrayList<>();
+        synchronized (this) {
+            flashing.addAll(sanctioned.keySet());
+            flashing.addAll(sanctioners.keySet());
+        }
+        synchronized (changedCells) {
+            if (allCellsChanged) {
+                return;
+            }
+            for (Map.Entry<Identifier, Point> entry : currentPositions.entrySet()) {
+                Point previousPosition = previousPositions.get(entry.getKey());
+                if (!entry.getValue().equals(previousPosition)) {
+                    if (previousPosition != null) {
+                        changedCells.add(previousPosition);
+                    }
+                    changedCells.add(entry.getValue());
+                }
+            }
+            for (Map.Entry<Identifier, Point> entry : previousPositions.entrySet()) {
+                if (!currentPositions.containsKey(entry.getKey())) {
+                    changedCells.add(entry.getValue());
+                }
+            }
+            // avatars flash while sanctioned or sanctioning, isBeingSanctioned() and isSanctioning() drop expired
+            // sanctions when the avatar is painted
+            for (Identifier id : flashing) {
+                Point position = currentPositions.get(id);
+                if (position != null) {
+                    changedCells.add(position);
+                }
+            }
+            if (addedResources != null) {
+                for (Resource resource : addedResources) {
+                    changedCells.add(resource.getPosition());
+                }
+            }
+            if (removedResources != null) {
+                for (Resource resource : removedResources) {
+                    changedCells.add(resource.getPosition());
+                }
+            }
+        }
+    }
+
     public Point getClientPosition(Identifier sanctionee) {
         return clientPositions.get(sanctionee);
     }
@@ -176,7 +302,9 @@ public class ClientDataModel extends ForagingDataModel {
         }
         synchronized (resourceDistribution) {
             resourceDistribution = groupDataModel.getResourceDistribution();
+            resetResourceGrid();
         }
+        allCellsChanged();
         if (clientData == null || !singlePlayer) {
             // only update clientData if we are not in single player mode
             clientData = groupDataModel.getClientData(getId());
@@ -208,7 +336,19 @@ public class ClientDataModel extends ForagingDataModel {
      * Updates client positions, current tokens, etc.
      */
     public void update(ClientPositionUpdateEvent event) {
+        if (event.isResourceSnapshot()) {
+            // limited field of vision, the added tokens are everything this client can see
+            synchronized (resourceDistribution) {
+                resourceDistribution.clear();
+                resetResourceGrid();
+                allCellsChanged();
+            }
+        }
         update(event.getClientTokens(), event.getClientPositions(), event.getLatestSanctions(), event.getAddedTokens(), event.getRemovedTokens());
+        if (event.getClientData() != null) {
+            // periodic resynchronization of a limited field of vision, replaces the full SynchronizeClientEvent
+            clientData = event.getClientData();
+        }
         Identifier id = getId();
         clientData.setPosition(clientPositions.get(id));
         clientData.setCurrentTokens(clientTokens.get(id));
@@ -219,15 +359,24 @@ public class ClientDataModel extends ForagingDataModel {
         clientTokens = event.getClientTokens();
         // dirty hack to keep client position authoritative
         event.getClientPositions().put(id, clientData.getPoint());
+        Map<Identifier, Point> previousPositions = clientPositions;
         clientPositions = event.getClientPositions();
         clientData.setCurrentTokens(clientTokens.get(id));
         synchronized (resourceDistribution) {
             for (Point p : event.getRemovedResources()) {
                 resourceDistribution.remove(p);
+                setResourceCell(p, false);
             }
             for (Resource r : event.getAddedResources()) {
                 resourceDistribution.put(r.getPosition(), r);
+                setResourceCell(r.getPosition(), true);
             }
+            publishResourceGrid();
+            // mark cells only once the new tokens are published so the renderer never redraws them from stale ones
+            synchronized (changedCells) {
+                changedCells.addAll(Arrays.asList(event.getRemovedResources()));
+            }
+            cellsChanged(previousPositions, clientPositions, event.getAddedResources(), null);
         }
     }
 
@@ -237,19 +386,28 @@ public class ClientDataModel extends ForagingDataModel {
             Resource[] addedResources,
             Resource[] removedResources) {
         this.clientTokens = clientTokens;
+        Map<Identifier, Point> previousPositions = this.clientPositions;
         this.clientPositions = currentPositions;
         handleRealTimeSanctions(latestSanctions);
         synchronized (resourceDistribution) {
             if (removedResources != null) {
                 for (Resource resource : removedResources) {
                     resourceDistribution.remove(resource.getPosition());
+                    setResourceCell(resource.getPosition(), false);
                 }
             }
             if (addedResources != null) {
                 for (Resource resource : addedResources) {
                     resourceDistribution.put(resource.getPosition(), resource);
+                    setResourceCell(resource.getPosition(), true);
                 }
             }
+            if (removedResources != null || addedResources != null) {
+                publishResourceGrid();
+            }
+            // mark cells only once the new tokens are published, otherwise the renderer could drain and redraw them
+            // from the previous grid in between and keep a stale token in its retained layer
+            cellsChanged(previousPositions, currentPositions, addedResources, removedResources);
         }
     }
 
@@ -348,8 +506,13 @@ public class ClientDataModel extends ForagingDataModel {
         synchronized (clientPositions) {
             Point newLocation = direction.apply(getCurrentPosition());
             if (isValidPosition(newLocation) && isCellAvailable(newLocation)) {
+                Point previousLocation = getCurrentPosition();
                 clientData.setPosition(newLocation);
                 clientPositions.put(getId(), newLocation);
+                synchronized (changedCells) {
+                    changedCells.add(previousLocation);
+                    changedCells.add(newLocation);
+                }
             }
         }
     }
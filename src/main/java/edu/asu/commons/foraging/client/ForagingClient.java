@@ -5,6 +5,7 @@ import java.awt.Color;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import javax.swing.JFrame;
@@ -30,6 +31,7 @@ import edu.asu.commons.foraging.event.ClientPositionUpdateEvent;
 import edu.asu.commons.foraging.event.CollectTokenRequest;
 import edu.asu.commons.foraging.event.EndRoundEvent;
 import edu.asu.commons.foraging.event.MovementEvent;
+import edu.asu.commons.foraging.event.MovementLatencyEvent;
 import edu.asu.commons.foraging.event.PostRoundSanctionRequest;
 import edu.asu.commons.foraging.event.PostRoundSanctionUpdateEvent;
 import edu.asu.commons.foraging.event.RealTimeSanctionRequest;
@@ -187,6 +189,7 @@ public class ForagingClient extends BaseClient<ServerConfiguration, RoundConfigu
             public void handle(RoundStartedEvent event) {
                 setId(event.getId());
                 dataModel.initialize(event.getGroupDataModel());
+                dataModel.getMovementLatencyTracker().clear();
                 logger.info("initializing data model to group datamodel: " + dataModel.getClientData().getPosition());
                 messageQueue.start();
             }
@@ -211,6 +214,7 @@ public class ForagingClient extends BaseClient<ServerConfiguration, RoundConfigu
         addEventProcessor(new EventTypeProcessor<ClientPositionUpdateEvent>(ClientPositionUpdateEvent.class) {
             public void handle(ClientPositionUpdateEvent event) {
                 if (isRoundInProgress()) {
+                    dataModel.getMovementLatencyTracker().updateReceived(event);
                     dataModel.update(event);
                     getGameWindow2D().collectTokens(event.getCollectedTokenPositions());
                     getGameWindow().update(event.getTimeLeft());
@@ -290,6 +294,8 @@ public class ForagingClient extends BaseClient<ServerConfiguration, RoundConfigu
      */
     private class MessageQueue implements Runnable {
         private final static int DEFAULT_MESSAGES_PER_SECOND = 10;
+        // how often completed movement latency samples are sent to the server to be saved
+        private final static long LATENCY_REPORT_INTERVAL = TimeUnit.SECONDS.toNanos(5);
 
         private final LinkedList<Event> actions = new LinkedList<>();
 
@@ -304,6 +310,8 @@ public class ForagingClient extends BaseClient<ServerConfiguration, RoundConfigu
 
         private Duration secondTick = Duration.create(1);
 
+        private long nextLatencyReport;
+
         public MessageQueue() {
             EventChannel channel = ForagingClient.this.getEventChannel();
             channel.add(this, new EventTypeProcessor<RealTimeSanctionRequest>(RealTimeSanctionRequest.class) {
@@ -314,6 +322,7 @@ public class ForagingClient extends BaseClient<ServerConfiguration, RoundConfigu
             channel.add(this, new EventTypeProcessor<ClientMovementRequest>(ClientMovementRequest.class) {
                 public void handle(ClientMovementRequest request) {
                     if (isRoundInProgress()) {
+                        dataModel.getMovementLatencyTracker().stamp(request);
                         add(request);
                     }
                 }
@@ -344,7 +353,7 @@ public class ForagingClient extends BaseClient<ServerConfiguration, RoundConfigu
         private void add(Event request) {
             if (messagesSent == 0 && actions.isEmpty()) {
                 // first message this second, bypass the queue and send it right away.
-                transmit(request);
+                send(request);
                 messagesSent++;
             } else if (messagesSent < messagesPerSecond) {
                 actions.addLast(request);
@@ -354,6 +363,25 @@ public class ForagingClient extends BaseClient<ServerConfiguration, RoundConfigu
             }
         }
 
+        private void send(Event request) {
+            if (request instanceof ClientMovementRequest) {
+                dataModel.getMovementLatencyTracker().sent((ClientMovementRequest) request);
+            }
+            transmit(request);
+        }
+
+        private void sendLatencyReport() {
+            long now = System.nanoTime();
+            if (now - nextLatencyReport < 0) {
+                return;
+            }
+            nextLatencyReport = now + LATENCY_REPORT_INTERVAL;
+            MovementLatencyEvent report = dataModel.getMovementLatencyTracker().drain(getId());
+            if (report != null) {
+                transmit(report);
+            }
+        }
+
         public void start() {
             running = true;
             new Thread(this).start();
@@ -369,11 +397,13 @@ public class ForagingClient extends BaseClient<ServerConfiguration, RoundConfigu
             getGameWindow().startRound();
             state = ClientState.RUNNING;
             secondTick.start();
+            nextLatencyReport = System.nanoTime() + LATENCY_REPORT_INTERVAL;
             while (running) {
                 Event request = get();
                 if (request != null) {
-                    transmit(request);
+                    send(request);
                 }
+                sendLatencyReport();
                 Utils.sleep(ForagingServer.SERVER_SLEEP_INTERVAL);
                 Thread.yield();
             }
@@ -0,0 +1,141 @@
+package edu.asu.commons.foraging.client;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import edu.asu.commons.foraging.event.ClientMovementRequest;
+import edu.asu.commons.foraging.event.ClientPositionUpdateEvent;
+import edu.asu.commons.foraging.event.MovementLatencyEvent;
+import edu.asu.commons.net.Identifier;
+
+/**
+ * $Id$
+ * 
+ * Client side end-to-end latency tracing for movement requests.  Every accepted ClientMovementRequest gets a
+ * sequence number, the server echoes the latest one it applied in the next ClientPositionUpdateEvent along with
+ * its own processing time, and the sample is completed on the next repaint of the game board.  Requests that
+ * are discarded by throttling or superseded by a later request within the same server tick are never
+ * acknowledged and simply fall out of the ring buffer.
+ * 
+ * Called from the event dispatch, network and message queue threads, all methods are synchronized and cheap.
+ * 
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public class MovementLatencyTracker {
+
+    // must be larger than the number of requests that can be in flight at once
+    private final static int CAPACITY = 64;
+
+    private final long[] sequenceNumbers = new long[CAPACITY];
+    private final long[] inputTimes = new long[CAPACITY];
+    private final long[] sentTimes = new long[CAPACITY];
+    private long nextSequenceNumber = 1;
+
+    // acknowledged samples waiting for a repaint: { sequence number, queue, round trip, server time, received at }
+    private final ArrayDeque<long[]> awaitingRender = new ArrayDeque<>();
+
+    private long[] completedSequenceNumbers = new long[16];
+    private int[] queueTimes = new int[16];
+    private int[] roundTripTimes = new int[16];
+    private int[] serverTimes = new int[16];
+    private int[] renderTimes = new int[16];
+    private int numberOfSamples;
+
+    public synchronized void stamp(ClientMovementRequest request) {
+        long sequenceNumber = nextSequenceNumber++;
+        request.setSequenceNumber(sequenceNumber);
+        int slot = getSlot(sequenceNumber);
+        sequenceNumbers[slot] = sequenceNumber;
+        inputTimes[slot] = request.getClientTime();
+        sentTimes[slot] = 0;
+    }
+
+    public synchronized void sent(ClientMovementRequest request) {
+        int slot = getSlot(request.getSequenceNumber());
+        if (sequenceNumbers[slot] == request.getSequenceNumber()) {
+            sentTimes[slot] = System.nanoTime();
+        }
+    }
+
+    public synchronized void updateReceived(ClientPositionUpdateEvent event) {
+        long sequenceNumber = event.getMovementSequenceNumber();
+        if (sequenceNumber == 0) {
+            return;
+        }
+        int slot = getSlot(sequenceNumber);
+        if (sequenceNumbers[slot] != sequenceNumber || sentTimes[slot] == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        awaitingRender.add(new long[] { sequenceNumber, toMicroseconds(sentTimes[slot] - inputTimes[slot]),
+                toMicroseconds(now - sentTimes[slot]), event.getMovementServerTime(), now });
+        sequenceNumbers[slot] = 0;
+    }
+
+    public synchronized void rendered() {
+        if (awaitingRender.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (long[] sample : awaitingRender) {
+            ensureCapacity(numberOfSamples + 1);
+            completedSequenceNumbers[numberOfSamples] = sample[0];
+            queueTimes[numberOfSamples] = (int) sample[1];
+            roundTripTimes[numberOfSamples] = (int) sample[2];
+            serverTimes[numberOfSamples] = (int) sample[3];
+            renderTimes[numberOfSamples] = (int) toMicroseconds(now - sample[4]);
+            numberOfSamples++;
+        }
+        awaitingRender.clear();
+    }
+
+    public synchronized int getNumberOfSamples() {
+        return numberOfSamples;
+    }
+
+    /**
+     * Returns the completed samples since the last call as an event for the server to persist, or null if
+     * there are none.
+     */
+    public synchronized MovementLatencyEvent drain(Identifier id) {
+        if (numberOfSamples == 0) {
+            return null;
+        }
+        MovementLatencyEvent event = new MovementLatencyEvent(id,
+                Arrays.copyOf(completedSequenceNumbers, numberOfSamples),
+                Arrays.copyOf(queueTimes, numberOfSamples),
+                Arrays.copyOf(roundTripTimes, numberOfSamples),
+                Arrays.copyOf(serverTimes, numberOfSamples),
+                Arrays.copyOf(renderTimes, numberOfSamples));
+        numberOfSamples = 0;
+        return event;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(sequenceNumbers, 0);
+        awaitingRender.clear();
+        numberOfSamples = 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= completedSequenceNumbers.length) {
+            return;
+        }
+        int length = Math.max(capacity, completedSequenceNumbers.length * 2);
+        completedSequenceNumbers = Arrays.copyOf(completedSequenceNumbers, length);
+        queueTimes = Arrays.copyOf(queueTimes, length);
+        roundTripTimes = Arrays.copyOf(roundTripTimes, length);
+        serverTimes = Arrays.copyOf(serverTimes, length);
+        renderTimes = Arrays.copyOf(renderTimes, length);
+    }
+
+    private static int getSlot(long sequenceNumber) {
+        return (int) (sequenceNumber % CAPACITY);
+    }
+
+    private static long toMicroseconds(long nanoseconds) {
+        return nanoseconds / 1000L;
+    }
+
+}
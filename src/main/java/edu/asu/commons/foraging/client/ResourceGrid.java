@@ -0,0 +1,57 @@
+package edu.asu.commons.foraging.client;
+
+import java.awt.Point;
+import java.util.BitSet;
+
+/**
+ * $Id$
+ *
+ * Immutable snapshot of the token positions on the board as an occupancy bitset indexed by y * width + x.
+ * ClientDataModel applies token updates to a private bitset on the network thread and publishes a new snapshot after
+ * each update, so the renderer on the event dispatch thread can read the current tokens without taking any locks.
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public final class ResourceGrid {
+
+    public final static ResourceGrid EMPTY = new ResourceGrid(new BitSet(), 0, 0);
+
+    private final BitSet cells;
+    private final int width;
+    private final int depth;
+
+    ResourceGrid(BitSet cells, int width, int depth) {
+        this.cells = cells;
+        this.width = width;
+        this.depth = depth;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public boolean isResourceAt(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < depth && cells.get(y * width + x);
+    }
+
+    public boolean isResourceAt(Point position) {
+        return isResourceAt(position.x, position.y);
+    }
+
+    public int getNumberOfResources() {
+        return cells.cardinality();
+    }
+
+    /**
+     * Returns a copy of the occupancy bitset, indexed by y * width + x, that the caller is free to modify.
+     */
+    public BitSet toBitSet() {
+        return (BitSet) cells.clone();
+    }
+
+}
@@ -329,6 +329,10 @@ public class RoundConfiguration extends ExperimentRoundParameters.Base<ServerCon
         return getIntProperty("max-cell-occupancy", getParentConfiguration().getMaximumOccupancyPerCell());
     }
 
+    public int getMaximumMovesPerSecond() {
+        return getIntProperty("max-moves-per-second", getParentConfiguration().getMaximumMovesPerSecond());
+    }
+
     public boolean isChatAnonymized() {
         return getBooleanProperty("anonymous-chat", false);
     }
@@ -1032,6 +1036,14 @@ public class RoundConfiguration extends ExperimentRoundParameters.Base<ServerCon
         return getProperty("bot-type", getParentConfiguration().getBotType());
     }
 
+    /**
+     * Seed for the order in which bots are activated each bot tick, combined with the group id so every group
+     * gets its own sequence.
+     */
+    public int getBotActivationSeed() {
+        return getIntProperty("bot-activation-seed", 0);
+    }
+
     public static final Color DEFAULT_BROWN_BACKGROUND_COLOR = new Color(205, 175, 149);
     public Color getBackgroundColor() {
         String color = getProperty("background-color", "BLACK");
@@ -1,5 +1,6 @@
 package edu.asu.commons.foraging.conf;
 
+import java.io.File;
 import java.text.NumberFormat;
 import java.util.concurrent.TimeUnit;
 
@@ -256,6 +257,14 @@ public class ServerConfiguration extends ExperimentConfiguration.Base<ServerConf
         return getIntProperty("max-cell-occupancy", 1);
     }
 
+    /**
+     * @return the number of movement requests per second the server applies for each participant, moves over
+     * this budget are rejected.  0 disables the budget.
+     */
+    public int getMaximumMovesPerSecond() {
+        return getIntProperty("max-moves-per-second", 20);
+    }
+
     public boolean isOccupancyEnabled() {
         return getBooleanProperty("occupancy-enabled", true);
     }
@@ -267,4 +276,23 @@ public class ServerConfiguration extends ExperimentConfiguration.Base<ServerConf
     public double getRobotMovementProbability() {
         return getDoubleProperty("robot-movement-probability", 0.9d);
     }
+
+    /**
+     * Metrics sample the size of transmitted updates by serializing them on the experiment thread, so they are off
+     * unless explicitly turned on for a load test or a session that needs the report.
+     */
+    public boolean isMetricsEnabled() {
+        return getBooleanProperty("metrics-enabled", false);
+    }
+
+    /**
+     * @return how often, in seconds, the server sends a metrics summary to the facilitator, 0 to disable.
+     */
+    public int getMetricsReportInterval() {
+        return getIntProperty("metrics-report-interval", 30);
+    }
+
+    public String getMetricsDirectory() {
+        return getStringProperty("metrics-dir", new File(getPersistenceDirectory(), "metrics").getPath());
+    }
 }
@@ -3,6 +3,7 @@ package edu.asu.commons.foraging.data;
 import java.awt.Point;
 import java.io.PrintWriter;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.TreeSet;
@@ -16,12 +17,11 @@ import edu.asu.commons.foraging.event.MovementEvent;
 import edu.asu.commons.foraging.event.ResourceAddedEvent;
 import edu.asu.commons.foraging.event.ResourcesAddedEvent;
 import edu.asu.commons.foraging.event.TokenCollectedEvent;
+import edu.asu.commons.foraging.model.ActorSpatialIndex;
 import edu.asu.commons.foraging.model.ClientData;
 import edu.asu.commons.foraging.model.GroupDataModel;
 import edu.asu.commons.foraging.model.ServerDataModel;
-import edu.asu.commons.foraging.ui.Circle;
 import edu.asu.commons.net.Identifier;
-import edu.asu.commons.util.Utils;
 
 /**
  * $Id$
@@ -39,40 +39,45 @@ public class AggregateCollectedTokenNeighborProcessor extends SaveFileProcessor.
 		"0", "1", "2", "3", "4", "5", "6", "7", "8"
 	};
 	
+    // per group spatial hash of client positions for the field of vision checks
+    private final Map<GroupDataModel, ActorSpatialIndex> clientPositionIndexes = new HashMap<>();
+
     public AggregateCollectedTokenNeighborProcessor() {
 		setSecondsPerInterval(ForagingSaveFileConverter.DEFAULT_AGGREGATE_TIME_INTERVAL);
 	}
     
-    private boolean hasOtherSubjectsInView(Identifier id, Point location, GroupDataModel group) {
+    private boolean hasOtherSubjectsInView(Identifier id, Point location, GroupDataModel group, ActorSpatialIndex clientPositions) {
     	RoundConfiguration roundConfiguration = group.getRoundConfiguration();
     	if (roundConfiguration.isFieldOfVisionEnabled()) {
-    		Circle circle = new Circle(location, roundConfiguration.getViewSubjectsRadius());
-    		for (Map.Entry<Identifier, Point> entry : group.getClientPositions().entrySet()) {
-    			if (entry.getKey().equals(id)) {
-    				// skip if this is the same client
-    				continue;
-    			}
-    			if (circle.contains(entry.getValue())) {
-    				return true;
-    			}
-    		}
-    		return false;
+    		return clientPositions.isAnyActorWithin(location, roundConfiguration.getViewSubjectsRadius(), id);
     	}
     	// field of vision isn't enabled, everyone is in everyone else's field of view.
     	return true;
     }
+
+    private ActorSpatialIndex getClientPositions(GroupDataModel group, ServerDataModel serverDataModel) {
+        ActorSpatialIndex clientPositions = clientPositionIndexes.get(group);
+        if (clientPositions == null) {
+            clientPositions = new ActorSpatialIndex(serverDataModel.getBoardWidth(), serverDataModel.getBoardHeight(),
+                    Math.max(1, group.getRoundConfiguration().getViewSubjectsRadius()));
+            clientPositions.putAll(group.getClientPositions());
+            clientPositionIndexes.put(group, clientPositions);
+        }
+        return clientPositions;
+    }
 	
 	public void process(SavedRoundData savedRoundData, PrintWriter writer) {
         // populate the ordered identifiers, try directly from the participant tokens map that
         // is persisted in later versions of the experiment.
         ServerDataModel serverDataModel = (ServerDataModel) savedRoundData.getDataModel();
         TreeSet<Identifier> orderedIdentifiers = new TreeSet<>(serverDataModel.getClientDataMap().keySet());
+        CsvWriter csv = new CsvWriter(writer);
         // write out header for collected tokens statistics.  
         // second token header is the distribution for token harvests when other subjects are in the field of view.
-        writer.println(
-        		Utils.join(',', "Time", "Client ID", 
-        				Utils.join(',', NEIGHBORING_TOKEN_HEADER), 
-        				Utils.join(',', NEIGHBORING_TOKEN_HEADER)));
+        csv.append("Time").append("Client ID")
+            .appendAll(Arrays.asList(NEIGHBORING_TOKEN_HEADER))
+            .appendAll(Arrays.asList(NEIGHBORING_TOKEN_HEADER))
+            .endRow();
         Map<Identifier, Integer[]> collectedTokenNeighborsWithOtherSubjectsInView = new LinkedHashMap<>();
         Map<Identifier, Integer[]> collectedTokenNeighbors = new LinkedHashMap<>();
         for (Identifier id: orderedIdentifiers) {
@@ -87,13 +92,14 @@ public class AggregateCollectedTokenNeighborProcessor extends SaveFileProcessor.
         for (ClientData clientData: serverDataModel.getClientDataMap().values()) {
             clientData.initializePosition();
         }
+        clientPositionIndexes.clear();
         for (PersistableEvent event: savedRoundData.getActions()) {
         	if (event.getId() instanceof BotIdentifier) {
         	    continue;
             }
         	long elapsedTimeInSeconds = savedRoundData.getElapsedTimeInSeconds(event);
         	if (isIntervalElapsed(elapsedTimeInSeconds)) {
-        	    writeAggregateStatistics(writer, collectedTokenNeighbors, collectedTokenNeighborsWithOtherSubjectsInView);
+        	    writeAggregateStatistics(csv, collectedTokenNeighbors, collectedTokenNeighborsWithOtherSubjectsInView);
         	}
     		if (event instanceof ResourceAddedEvent) {
     			ResourceAddedEvent rae = (ResourceAddedEvent) event;
@@ -112,20 +118,23 @@ public class AggregateCollectedTokenNeighborProcessor extends SaveFileProcessor.
     			GroupDataModel group = serverDataModel.getGroup(id);
     			int numberOfNeighboringTokens = group.getNumberOfNeighboringTokens(location);
     			collectedTokenNeighbors.get(id)[numberOfNeighboringTokens]++;
-    			if (hasOtherSubjectsInView(id, location, group)) {
+    			if (hasOtherSubjectsInView(id, location, group, getClientPositions(group, serverDataModel))) {
     				collectedTokenNeighborsWithOtherSubjectsInView.get(id)[numberOfNeighboringTokens]++;
     			}
     		}
     		else if (event instanceof MovementEvent) {
     			MovementEvent movementEvent = (MovementEvent) event;
     			serverDataModel.moveClient(movementEvent.getId(), movementEvent.getDirection());
+    			GroupDataModel group = serverDataModel.getGroup(movementEvent.getId());
+    			getClientPositions(group, serverDataModel).put(movementEvent.getId(), group.getClientPosition(movementEvent.getId()));
     		}
         }
         // write out last interval
-        writeAggregateStatistics(writer, collectedTokenNeighbors, collectedTokenNeighborsWithOtherSubjectsInView);
+        writeAggregateStatistics(csv, collectedTokenNeighbors, collectedTokenNeighborsWithOtherSubjectsInView);
+        csv.flush();
 	}
 
-    private void writeAggregateStatistics(PrintWriter writer,
+    private void writeAggregateStatistics(CsvWriter csv,
             Map<Identifier, Integer[]> collectedTokenNeighbors,
             Map<Identifier, Integer[]> collectedTokenNeighborsWithOtherSubjectsInView) {
         // write all collected data
@@ -133,9 +142,11 @@ public class AggregateCollectedTokenNeighborProcessor extends SaveFileProcessor.
         	Identifier id = entry.getKey();
         	Integer[] neighboringTokens = entry.getValue();
         	Integer[] neighboringTokensWithOtherSubjectsInView = collectedTokenNeighborsWithOtherSubjectsInView.get(id);
-        	writer.println(Utils.join(',', getIntervalEnd(), id, 
-        			Utils.join(',', Arrays.asList(neighboringTokens)),
-        			Utils.join(',', Arrays.asList(neighboringTokensWithOtherSubjectsInView))));
+        	csv.append(getIntervalEnd())
+        	    .append(id)
+        	    .appendAll(Arrays.asList(neighboringTokens))
+        	    .appendAll(Arrays.asList(neighboringTokensWithOtherSubjectsInView))
+        	    .endRow();
             // clear old neighboring tokens 
         	Arrays.fill(neighboringTokens, 0);
         	Arrays.fill(neighboringTokensWithOtherSubjectsInView, 0);
@@ -1,9 +1,8 @@
 package edu.asu.commons.foraging.data;
 
-import java.awt.Point;
 import java.io.PrintWriter;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
@@ -19,26 +18,44 @@ import edu.asu.commons.foraging.event.MovementEvent;
 import edu.asu.commons.foraging.event.ResourceAddedEvent;
 import edu.asu.commons.foraging.event.ResourcesAddedEvent;
 import edu.asu.commons.foraging.event.TokenCollectedEvent;
+import edu.asu.commons.foraging.model.ActorSpatialIndex;
 import edu.asu.commons.foraging.model.ClientData;
 import edu.asu.commons.foraging.model.GroupDataModel;
-import edu.asu.commons.foraging.model.ResourceDispenser;
+import edu.asu.commons.foraging.model.Resource;
 import edu.asu.commons.foraging.model.ServerDataModel;
-import edu.asu.commons.foraging.model.StochasticGenerator;
 import edu.asu.commons.net.Identifier;
-import edu.asu.commons.util.Utils;
 
 /**
  * $Id$
  * 
  * Generates aggregate statistics 
  * 
+ * The expected token probabilities for each group are maintained incrementally in a
+ * TokenNeighborhoodDensity as tokens are added and collected during the replay and participant
+ * distances are read from a per group ActorSpatialIndex that only recomputes the rows of participants
+ * that moved during the interval.
+ * 
  * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
  * @version $Rev: 526 $
  */
-public class AggregateTimeIntervalProcessor extends SaveFileProcessor.Base {
+public class AggregateTimeIntervalProcessor extends SaveFileProcessor.Base implements ConversionManifest.Versioned {
+
+    private final Map<GroupDataModel, TokenNeighborhoodDensity> tokenDensities = new HashMap<GroupDataModel, TokenNeighborhoodDensity>();
+    private final Map<GroupDataModel, ActorSpatialIndex> clientPositionIndexes = new HashMap<GroupDataModel, ActorSpatialIndex>();
+    private double regrowthRate;
+    private int boardWidth;
+    private int boardHeight;
+
     public AggregateTimeIntervalProcessor() {
         setSecondsPerInterval(ForagingSaveFileConverter.DEFAULT_AGGREGATE_TIME_INTERVAL);
     }
+
+    @Override
+    public int getVersion() {
+        // version 2: expected token probabilities use the round's regrowth rate instead of an uninitialized generator.
+        return 2;
+    }
+
     public void process(SavedRoundData savedRoundData, PrintWriter writer) {
         // populate the ordered identifiers, try directly from the participant tokens map that
         // is persisted in later versions of the experiment.
@@ -50,6 +67,17 @@ public class AggregateTimeIntervalProcessor extends SaveFileProcessor.Base {
         RoundConfiguration roundConfiguration = (RoundConfiguration) savedRoundData.getRoundParameters();
         TreeSet<Identifier> orderedIdentifiers = new TreeSet<Identifier>(serverDataModel.getClientDataMap().keySet());
         List<GroupDataModel> groups = serverDataModel.getOrderedGroups();
+        regrowthRate = roundConfiguration.getRegrowthRate();
+        boardWidth = serverDataModel.getBoardWidth();
+        boardHeight = serverDataModel.getBoardHeight();
+        tokenDensities.clear();
+        clientPositionIndexes.clear();
+        for (GroupDataModel group: groups) {
+            getTokenDensity(group);
+            ActorSpatialIndex clientPositions = new ActorSpatialIndex(boardWidth, boardHeight);
+            clientPositions.putAll(group.getClientPositions());
+            clientPositionIndexes.put(group, clientPositions);
+        }
         
         List<String> movementHeader = new ArrayList<String>();
         List<String> collectedTokensHeader = new ArrayList<String>();
@@ -74,25 +102,25 @@ public class AggregateTimeIntervalProcessor extends SaveFileProcessor.Base {
                 Identifier id = ids.get(i);
                 for (int j = i+1; j < ids.size(); j++) {
                     Identifier secondId = ids.get(j);
-                    distanceHeader.add(String.format("%s (%s -> %s)", groupNumber, id, secondId));
+                    distanceHeader.add(groupNumber + " (" + id + " -> " + secondId + ")");
                 }
             }
         }
 
         // write out the header
-        String header = Utils.join(',', "Period",
-                // moves taken
-                Utils.join(',', movementHeader),
-                // tokens 
-                Utils.join(',', collectedTokensHeader),
-                // group token probabilities
-                Utils.join(',', tokenProbabilityGroupNumberHeader),
-                // group total tokens left
-                Utils.join(',', tokensLeftGroupNumberHeader),
-                // distance between participants
-                Utils.join(',', distanceHeader)
-        );
-        writer.println(header);
+        CsvWriter csv = new CsvWriter(writer);
+        csv.append("Period")
+            // moves taken
+            .appendAll(movementHeader)
+            // tokens 
+            .appendAll(collectedTokensHeader)
+            // group token probabilities
+            .appendAll(tokenProbabilityGroupNumberHeader)
+            // group total tokens left
+            .appendAll(tokensLeftGroupNumberHeader)
+            // distance between participants
+            .appendAll(distanceHeader)
+            .endRow();
 
         for (PersistableEvent event: savedRoundData.getActions()) {
             long secondsElapsed = savedRoundData.getElapsedTimeInSeconds(event);
@@ -101,19 +129,20 @@ public class AggregateTimeIntervalProcessor extends SaveFileProcessor.Base {
             // accumulated stats
             if (isIntervalElapsed(secondsElapsed)) {
                 // generate group expected token counts
-                writeAggregateStatistics(writer, serverDataModel,
-                        clientStatistics, orderedIdentifiers, groups);
+                writeAggregateStatistics(csv, clientStatistics, orderedIdentifiers, groups);
             }
             // next, process the current persistable event 
             ClientMovementTokenCount stats = clientStatistics.get(event.getId());
             if (event instanceof MovementEvent) {
                 MovementEvent movementEvent = (MovementEvent) event;
                 serverDataModel.moveClient(movementEvent.getId(), movementEvent.getDirection());
+                updateClientPosition(serverDataModel, movementEvent.getId());
                 stats.moves++;
             }
             else if (event instanceof ClientPoseUpdate) {
                 ClientPoseUpdate clientPoseUpdate = (ClientPoseUpdate) event;
                 serverDataModel.getClientDataMap().get(event.getId()).setPosition(clientPoseUpdate.getPosition());
+                updateClientPosition(serverDataModel, event.getId());
                 stats.moves++;
             }
             else if (event instanceof TokenCollectedEvent) {
@@ -122,6 +151,7 @@ public class AggregateTimeIntervalProcessor extends SaveFileProcessor.Base {
                 GroupDataModel group = serverDataModel.getGroup(tokenCollectedEvent.getId());
                 assert serverDataModel.getGroups().contains(group);
                 group.removeResource(tokenCollectedEvent.getLocation());
+                getTokenDensity(group).remove(tokenCollectedEvent.getLocation());
             }
             else if (event instanceof HarvestFruitRequest) {
 //                HarvestFruitRequest request = (HarvestFruitRequest) event;
@@ -135,85 +165,76 @@ public class AggregateTimeIntervalProcessor extends SaveFileProcessor.Base {
                 ResourceAddedEvent resourceAddedEvent = (ResourceAddedEvent) event;
                 assert serverDataModel.getGroups().contains(resourceAddedEvent.getGroup());
                 resourceAddedEvent.getGroup().addResource(resourceAddedEvent.getPosition());
+                getTokenDensity(resourceAddedEvent.getGroup()).add(resourceAddedEvent.getPosition());
             }
             else if (event instanceof ResourcesAddedEvent) {
                 ResourcesAddedEvent resourcesAddedEvent = (ResourcesAddedEvent) event;
                 assert serverDataModel.getGroups().contains(resourcesAddedEvent.getGroup());
                 resourcesAddedEvent.getGroup().addResources(resourcesAddedEvent.getResources());
+                TokenNeighborhoodDensity tokenDensity = getTokenDensity(resourcesAddedEvent.getGroup());
+                for (Resource resource: resourcesAddedEvent.getResources()) {
+                    tokenDensity.add(resource.getPosition());
+                }
             }
         }
-        writeAggregateStatistics(writer, serverDataModel,
-                clientStatistics, orderedIdentifiers, groups);
+        writeAggregateStatistics(csv, clientStatistics, orderedIdentifiers, groups);
+        csv.flush();
     }
 
-    private void writeAggregateStatistics(PrintWriter writer,
-            ServerDataModel serverDataModel,
+    private void writeAggregateStatistics(CsvWriter csv,
             Map<Identifier, ClientMovementTokenCount> clientStatistics,
             TreeSet<Identifier> orderedIdentifiers,
             List<GroupDataModel> groups) {
-        List<Double> expectedTokenProbabilities = getExpectedTokenProbabilities(serverDataModel);
         // report summary stats and reset
-        List<Integer> movesTaken = new ArrayList<Integer>();
-        List<Integer> harvestedTokens = new ArrayList<Integer>();
-        List<Integer> tokensLeft = getTokensLeft(groups);
-        List<Double> distances = getClientDistances(groups);
+        csv.append(getIntervalEnd());
+        for (Identifier id : orderedIdentifiers) {
+            csv.append(clientStatistics.get(id).moves);
+        }
         for (Identifier id : orderedIdentifiers) {
             ClientMovementTokenCount stats = clientStatistics.get(id);
-            movesTaken.add(stats.moves);
-            harvestedTokens.add(stats.tokens);
+            csv.append(stats.tokens);
             stats.reset();
         }
-        String dataline = 
-            Utils.join(',', getIntervalEnd(),
-                    Utils.join(',', movesTaken),
-                    Utils.join(',', harvestedTokens),
-                    Utils.join(',', expectedTokenProbabilities),
-                    Utils.join(',', tokensLeft),
-                    Utils.join(',', distances)
-            );
-        writer.println(dataline);
+        for (GroupDataModel group: groups) {
+            csv.append(getTokenDensity(group).getTokenProbabilitySum(regrowthRate));
+        }
+        for (GroupDataModel group: groups) {
+            csv.append(group.getResourceDistributionSize());
+        }
+        appendClientDistances(csv, groups);
+        csv.endRow();
     }
 
-    private List<Double> getClientDistances(List<GroupDataModel> groups) {
-        List<Double> distances = new ArrayList<Double>();
+    private void appendClientDistances(CsvWriter csv, List<GroupDataModel> groups) {
         for (GroupDataModel group: groups) {
+            ActorSpatialIndex clientPositions = clientPositionIndexes.get(group);
             List<Identifier> ids = new ArrayList<Identifier>(group.getOrderedClientIdentifiers());
             for (int i = 0; i < ids.size();  i++) {
                 Identifier id = ids.get(i);
                 for (int j = i+1; j < ids.size(); j++) {
                     Identifier secondId = ids.get(j);
-                    distances.add(group.getClientPosition(id).distance(group.getClientPosition(secondId)));
+                    csv.append(clientPositions.getDistance(id, secondId));
                 }
             }
         }
-        return distances;
     }
 
-    private List<Double> getExpectedTokenProbabilities(ServerDataModel serverDataModel) {
-        List<Double> expectedTokens = new ArrayList<Double>();
-        List<GroupDataModel> groups = serverDataModel.getOrderedGroups();
-        ResourceDispenser dispenser = new ResourceDispenser(serverDataModel);
-        StochasticGenerator generator = dispenser.getDensityDependentGenerator();
-        for (GroupDataModel group: groups) {
-            double tokenProbabilitySum = 0;
-            for (int x = 0; x < serverDataModel.getBoardWidth(); x++) {
-                for (int y = 0; y < serverDataModel.getBoardHeight(); y++) {
-                    if (! group.getResourcePositions().contains(new Point(x, y))) {
-                        tokenProbabilitySum += generator.getProbabilityForCell(group, x, y);    
-                    }
-                }
-            }
-            expectedTokens.add(tokenProbabilitySum);
+    private void updateClientPosition(ServerDataModel serverDataModel, Identifier id) {
+        GroupDataModel group = serverDataModel.getGroup(id);
+        ActorSpatialIndex clientPositions = clientPositionIndexes.get(group);
+        // bots aren't part of the distance matrix
+        if (clientPositions != null && clientPositions.contains(id)) {
+            clientPositions.put(id, group.getClientPosition(id));
         }
-        return expectedTokens;
     }
 
-    private List<Integer> getTokensLeft(Collection<GroupDataModel> groups) {
-        List<Integer> tokensLeft = new ArrayList<Integer>();
-        for (GroupDataModel group: groups) {
-            tokensLeft.add(group.getResourceDistributionSize());
+    private TokenNeighborhoodDensity getTokenDensity(GroupDataModel group) {
+        TokenNeighborhoodDensity tokenDensity = tokenDensities.get(group);
+        if (tokenDensity == null) {
+            tokenDensity = new TokenNeighborhoodDensity(boardWidth, boardHeight, group.getResourcePositions());
+            tokenDensities.put(group, tokenDensity);
         }
-        return tokensLeft;
+        return tokenDensity;
     }
 
     @Override
@@ -38,45 +38,51 @@ class AggregateTokenSpatialDistributionProcessor extends SaveFileProcessor.Base
             for (Identifier id: serverDataModel.getActorMap().keySet()) {
                 clientSpatialDistributionMap.put(id, new ClientSpatialDistribution(boardSize));
             }
+            CsvWriter csv = new CsvWriter(writer, ", ");
             for (PersistableEvent event : actions) {
             	long elapsedTime = savedRoundData.getElapsedTimeInSeconds(event);
             	if (isIntervalElapsed(elapsedTime)) {
-                    writeData(writer, serverDataModel, clientSpatialDistributionMap);	
+                    writeData(csv, serverDataModel, clientSpatialDistributionMap);	
             	}
                 if (event instanceof TokenCollectedEvent) {
                     TokenCollectedEvent tokenCollectedEvent = (TokenCollectedEvent) event;
                     Point point = tokenCollectedEvent.getLocation();
                     Identifier id = tokenCollectedEvent.getId();
                     ClientSpatialDistribution spatialDistribution = clientSpatialDistributionMap.get(id);
-                    spatialDistribution.columnCounts[point.x]++;
-                    spatialDistribution.rowCounts[point.y]++;
-                    spatialDistribution.tokens++;
+                    spatialDistribution.add(point);
                 }
             }
             // write last interval out
-            writeData(writer, serverDataModel, clientSpatialDistributionMap);
+            writeData(csv, serverDataModel, clientSpatialDistributionMap);
+            csv.flush();
         }
 
         private void writeData(
-                PrintWriter writer,
+                CsvWriter csv,
                 ServerDataModel serverDataModel,
                 Map<Identifier, ClientSpatialDistribution> clientSpatialDistributionMap) 
         {
             List<GroupDataModel> groups = serverDataModel.getOrderedGroups();
             for (GroupDataModel group: groups) {
                 String groupLabel = group.toString();
-                writer.println("Time, Identifier, Group, # tokens, row stdev, column stdev");
+                csv.append("Time, Identifier, Group, # tokens, row stdev, column stdev").endRow();
                 double groupWeightedSpatialMetric = 0.0d;
                 int totalTokens = 0;
                 for (Identifier id: group.getClientIdentifiers()) {
                     ClientSpatialDistribution spatialDistribution = clientSpatialDistributionMap.get(id);
                     spatialDistribution.calculateStandardDeviation();
                     groupWeightedSpatialMetric += spatialDistribution.weightedSpatialMetric;
-                    writer.println(String.format("%d, %s, %s, %s, %s, %s", getIntervalEnd(), id, groupLabel, spatialDistribution.tokens, spatialDistribution.rowStandardDeviation, spatialDistribution.columnStandardDeviation));
+                    csv.append(getIntervalEnd())
+                        .append(id)
+                        .append(groupLabel)
+                        .append(spatialDistribution.tokens)
+                        .append(spatialDistribution.rowStandardDeviation)
+                        .append(spatialDistribution.columnStandardDeviation)
+                        .endRow();
                     totalTokens += spatialDistribution.tokens;
                 }
                 groupWeightedSpatialMetric /= totalTokens;
-                writer.println(groupLabel + " weighted spatial metric: " + groupWeightedSpatialMetric);
+                csv.append(groupLabel + " weighted spatial metric: " + groupWeightedSpatialMetric).endRow();
             }
             // clear data after processing all groups.
             for (ClientSpatialDistribution spatialDistribution : clientSpatialDistributionMap.values()) {
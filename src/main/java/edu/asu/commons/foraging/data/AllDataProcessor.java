@@ -26,7 +26,6 @@ import edu.asu.commons.foraging.event.TokenCollectedEvent;
 import edu.asu.commons.foraging.model.*;
 import edu.asu.commons.foraging.ui.Circle;
 import edu.asu.commons.net.Identifier;
-import edu.asu.commons.util.Utils;
 
 /**
  * Serializes all data in the save file into a CSV string format, ordered by time.
@@ -60,6 +59,7 @@ class AllDataProcessor extends SaveFileProcessor.Base {
         boolean restrictedVisibility = roundConfiguration.isSubjectsFieldOfVisionEnabled();
         dataModel.reinitialize(roundConfiguration);
         Map<Identifier, Actor> actorMap = dataModel.getActorMap();
+        CsvWriter csv = new CsvWriter(writer, ", ");
         for (PersistableEvent event: actions) {
             if (event instanceof MovementEvent) {
                 MovementEvent movementEvent = (MovementEvent) event;
@@ -68,19 +68,15 @@ class AllDataProcessor extends SaveFileProcessor.Base {
                 ClientMovementTokenCount client = clientMovementTokenCounts.get(event.getId());
                 client.moves++;
                 GroupDataModel group = actor.getGroupDataModel();
-                String line = String.format("%s, %s, %s, %s, %d, %d, %s, %s, %s, %s",
-                        event.getCreationTime(),
-                        savedRoundData.toSecondString(event),
-                        savedRoundData.getElapsedTimeRelativeToMidnight(event),
-                        actor.getId(),
-                        group.getGroupId(),
-                        client.moves,
-                        actor.getPosition().x,
-                        actor.getPosition().y,
-                        movementEvent.getDirection(),
-                        "movement event"
-                );
-                writer.println(line);
+                appendTimestamps(csv, savedRoundData, event)
+                    .append(actor.getId())
+                    .append(group.getGroupId())
+                    .append(client.moves)
+                    .append(actor.getPosition().x)
+                    .append(actor.getPosition().y)
+                    .append(movementEvent.getDirection())
+                    .append("movement event")
+                    .endRow();
             }
             else if (event instanceof TokenCollectedEvent) {
                 TokenCollectedEvent tokenCollectedEvent = (TokenCollectedEvent) event;
@@ -89,28 +85,22 @@ class AllDataProcessor extends SaveFileProcessor.Base {
                 Point location = tokenCollectedEvent.getLocation();
                 client.tokens++;
                 GroupDataModel group = actor.getGroupDataModel();
-                String line = String.format("%s, %s, %s, %s, %d, %d, %d, %d, %s", 
-                        event.getCreationTime(),
-                        savedRoundData.toSecondString(event),
-                        savedRoundData.getElapsedTimeRelativeToMidnight(event),
-                        actor.getId(),
-                        location.x,
-                        location.y,
-                        group.getGroupId(),
-                        client.tokens,
-                "token collected event");
-                writer.println(line);
+                appendTimestamps(csv, savedRoundData, event)
+                    .append(actor.getId())
+                    .append(location.x)
+                    .append(location.y)
+                    .append(group.getGroupId())
+                    .append(client.tokens)
+                    .append("token collected event")
+                    .endRow();
             }
             else if (event instanceof ResourcesAddedEvent) {
                 ResourcesAddedEvent resourcesAddedEvent = (ResourcesAddedEvent) event;
-                String line = String.format("%s, %s, %s, %s, %s, %s",
-                        event.getCreationTime(),
-                        savedRoundData.toSecondString(event),
-                        savedRoundData.getElapsedTimeRelativeToMidnight(event),
-                        resourcesAddedEvent.getClass(),
-                        resourcesAddedEvent.getGroup().toString(),
-                        resourcesAddedEvent.getResourcePositions());
-                writer.println(line);
+                appendTimestamps(csv, savedRoundData, event)
+                    .append(resourcesAddedEvent.getClass())
+                    .append(resourcesAddedEvent.getGroup())
+                    .append(resourcesAddedEvent.getResourcePositions())
+                    .endRow();
             }
             else if (event instanceof ChatRequest) {
                 ChatRequest request = (ChatRequest) event;
@@ -138,59 +128,65 @@ class AllDataProcessor extends SaveFileProcessor.Base {
                 else {
                     targetStringBuilder.append(request.getTarget());
                 }
-                String line = String.format("%s, %s, %s, %s, %s, %s, Chat event",
-                        event.getCreationTime(),
-                        savedRoundData.toSecondString(event),
-                        savedRoundData.getElapsedTimeRelativeToMidnight(event),
-                        sourceId,
-                        targetStringBuilder.toString(),
-                        message);
-                writer.println(line);
+                appendTimestamps(csv, savedRoundData, event)
+                    .append(sourceId)
+                    .append(targetStringBuilder)
+                    .append(message)
+                    .append("Chat event")
+                    .endRow();
             }
             else if (event instanceof RealTimeSanctionRequest) {
                 RealTimeSanctionRequest request = (RealTimeSanctionRequest) event;
-                Identifier source = request.getSource();
-                Identifier target = request.getTarget();
-                String line = String.format("%s, %s, %s, %s, %s, %s",
-                        event.getCreationTime(),
-                        savedRoundData.toSecondString(event),
-                        savedRoundData.getElapsedTimeRelativeToMidnight(event),
-                        source, target, request.toString());
-                writer.println(line);
+                appendTimestamps(csv, savedRoundData, event)
+                    .append(request.getSource())
+                    .append(request.getTarget())
+                    .append(request)
+                    .endRow();
             }
             else if (event instanceof SanctionAppliedEvent) {
                 SanctionAppliedEvent sanctionAppliedEvent = (SanctionAppliedEvent) event;
-                Identifier source = sanctionAppliedEvent.getId();
-                Identifier target = sanctionAppliedEvent.getTarget();
-                String line = String.format("%s, %s, %s, %s", savedRoundData.toSecondString(event), source, target, sanctionAppliedEvent.toString());
-                writer.println(line);
+                csv.append(savedRoundData.toSecondString(event))
+                    .append(sanctionAppliedEvent.getId())
+                    .append(sanctionAppliedEvent.getTarget())
+                    .append(sanctionAppliedEvent)
+                    .endRow();
             }
             else if (event instanceof QuizResponseEvent) {
-                QuizResponseEvent response = (QuizResponseEvent) event;
-                String line = String.format("%s, %s", savedRoundData.toSecondString(event), response.toString());
-                writer.println(line);
+                csv.append(savedRoundData.toSecondString(event)).append(event).endRow();
             }
             else if (event instanceof EnforcementRankingRequest) {
-                EnforcementRankingRequest request = (EnforcementRankingRequest) event;
-                String line = String.format("%s, %s, %s", event.getCreationTime(), savedRoundData.toSecondString(event), request.toString());
-                writer.println(line);
+                csv.append(event.getCreationTime()).append(savedRoundData.toSecondString(event)).append(event).endRow();
             }
             else if (event instanceof RuleVoteRequest) {
                 RuleVoteRequest request = (RuleVoteRequest) event;
-                String line = String.format("%s, %s, %s, %s, Rule Vote Request", event.getCreationTime(), savedRoundData.toSecondString(event), request.getId(), request.getRule());
-                writer.println(line);
+                csv.append(event.getCreationTime())
+                    .append(savedRoundData.toSecondString(event))
+                    .append(request.getId())
+                    .append(request.getRule())
+                    .append("Rule Vote Request")
+                    .endRow();
             }
             else if (event instanceof RuleSelectedUpdateEvent) {
                 RuleSelectedUpdateEvent update = (RuleSelectedUpdateEvent) event;
-                String line = String.format("%s, %s, %s, \"%s\", \"%s\", Rule selected", 
-                        event.getCreationTime(),  savedRoundData.toSecondString(event),
-                        update.getGroup(), update.getSelectedStrategies(), update.getVotingResults());
-                writer.println(line);
+                csv.append(event.getCreationTime())
+                    .append(savedRoundData.toSecondString(event))
+                    .append(update.getGroup())
+                    .appendQuoted(update.getSelectedStrategies())
+                    .appendQuoted(update.getVotingResults())
+                    .append("Rule selected")
+                    .endRow();
             }
             else {
-                writer.println(String.format("%s, %s, %s", event.getCreationTime(), savedRoundData.toSecondString(event), event.toString()));
+                csv.append(event.getCreationTime()).append(savedRoundData.toSecondString(event)).append(event).endRow();
             }
         }
+        csv.flush();
+    }
+
+    private CsvWriter appendTimestamps(CsvWriter csv, SavedRoundData savedRoundData, PersistableEvent event) {
+        return csv.append(event.getCreationTime())
+            .append(savedRoundData.toSecondString(event))
+            .append(savedRoundData.getElapsedTimeRelativeToMidnight(event));
     }
 
     private void processData3d(SavedRoundData savedRoundData, PrintWriter writer) {
@@ -198,64 +194,58 @@ class AllDataProcessor extends SaveFileProcessor.Base {
         ServerDataModel dataModel = (ServerDataModel) savedRoundData.getDataModel();
         Map<Identifier, ClientMovementTokenCount> clientStatsMap = ClientMovementTokenCount.createMap(dataModel);
         SortedSet<PersistableEvent> actions = savedRoundData.getActions();
+        CsvWriter csv = new CsvWriter(writer, ", ");
         for (PersistableEvent event: actions) {
             if (event instanceof ChatRequest) {
                 ChatRequest request = (ChatRequest) event;
-                Identifier sourceId = request.getSource();
-                Identifier targetId = request.getTarget();
-                String message = request.toString();
-                String line = String.format("%s, %s, %s, %s", 
-                        savedRoundData.toSecondString(event), 
-                        sourceId, 
-                        targetId, 
-                        message);
-                writer.println(line);
+                csv.append(savedRoundData.toSecondString(event))
+                    .append(request.getSource())
+                    .append(request.getTarget())
+                    .append(request)
+                    .endRow();
             }
             else if (event instanceof ResourcesAddedEvent) {
                 ResourcesAddedEvent resourcesAddedEvent = (ResourcesAddedEvent) event;
-                String line = String.format("%s, %s, %s", 
-                        savedRoundData.toSecondString(event),
-                        resourcesAddedEvent.getGroup(),
-                        Utils.join(',', resourcesAddedEvent.getResourcePositions()));
-                System.err.println("resources added event: " + line);
-                writer.println(line);
+                csv.append(savedRoundData.toSecondString(event))
+                    .append(resourcesAddedEvent.getGroup())
+                    .appendAll(resourcesAddedEvent.getResourcePositions())
+                    .endRow();
             }
             else if (event instanceof HarvestFruitRequest) {
                 HarvestFruitRequest request = (HarvestFruitRequest) event;
                 ClientMovementTokenCount clientStats = clientStatsMap.get(event.getId());
                 clientStats.tokens += roundConfiguration.getTokensPerFruits();
                 Resource resource = request.getResource();
-                String line = String.format("%s, %s, %s, %d, %d, %d, %d, %d, %d, %s", 
-                        event.getCreationTime(),
-                        savedRoundData.toSecondString(event), 
-                        event.getId(),
-                        resource.getPosition().x,
-                        resource.getPosition().y,
-                        1,
-                        resource.getAge(),
-                        roundConfiguration.getTokensPerFruits(),
-                        clientStats.tokens,
-                "harvest fruit");
-                writer.println(line);
+                csv.append(event.getCreationTime())
+                    .append(savedRoundData.toSecondString(event))
+                    .append(event.getId())
+                    .append(resource.getPosition().x)
+                    .append(resource.getPosition().y)
+                    .append(1)
+                    .append(resource.getAge())
+                    .append(roundConfiguration.getTokensPerFruits())
+                    .append(clientStats.tokens)
+                    .append("harvest fruit")
+                    .endRow();
             }
             else if (event instanceof HarvestResourceRequest) {
                 HarvestResourceRequest request = (HarvestResourceRequest) event;
                 Resource resource = request.getResource();
                 ClientMovementTokenCount clientStats = clientStatsMap.get(event.getId());
                 clientStats.tokens += roundConfiguration.ageToTokens(resource.getAge());
-                String line = String.format("%s, %s, %s, %d, %d, %d, %d, %d, %d, %s", 
-                        event.getCreationTime(),
-                        savedRoundData.toSecondString(event), 
-                        event.getId(),
-                        resource.getPosition().x,
-                        resource.getPosition().y,
-                        0,
-                        resource.getAge(),
-                        roundConfiguration.ageToTokens(resource.getAge()),
-                        clientStats.tokens,
-                "harvest resource");
-                writer.println(line);
+                csv.append(event.getCreationTime())
+                    .append(savedRoundData.toSecondString(event))
+                    .append(event.getId())
+                    .append(resource.getPosition().x)
+                    .append(resource.getPosition().y)
+                    .append(0)
+                    .append(resource.getAge())
+                    .append(roundConfiguration.ageToTokens(resource.getAge()))
+                    .append(clientStats.tokens)
+                    .append("harvest resource")
+                    .endRow();
             }
         }
+        csv.flush();
     }   
 }
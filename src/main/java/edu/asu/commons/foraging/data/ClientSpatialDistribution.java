@@ -1,13 +1,17 @@
 package edu.asu.commons.foraging.data;
 
 import java.awt.Dimension;
+import java.awt.Point;
 import java.util.Arrays;
 
 /**
  *
  * Utility class to keep track of spatial distribution statistics.
- * 
- * 
+ *
+ * The row and column count moments (sum and sum of squares) are updated as each token is added
+ * so the standard deviations are available in constant time instead of rescanning the counts.
+ * The moments are kept as exact integers so there is no floating point drift over long rounds.
+ *
  */
 class ClientSpatialDistribution {
     int[] rowCounts;
@@ -18,48 +22,53 @@ class ClientSpatialDistribution {
     double rowStandardDeviation;
     double columnStandardDeviation;
     double weightedSpatialMetric;
+    // number of tokens counted since the last zeroRowColumnCounts(), i.e., the sum of rowCounts and of columnCounts
+    private long countedTokens;
+    private long rowSumOfSquares;
+    private long columnSumOfSquares;
 
     ClientSpatialDistribution(Dimension boardSize) {
         rowCounts = new int[boardSize.height];
         columnCounts = new int[boardSize.width];
         zeroRowColumnCounts();
     }
-    
+
+    public void add(Point point) {
+        // (c + 1)^2 - c^2 = 2c + 1
+        rowSumOfSquares += 2 * rowCounts[point.y]++ + 1;
+        columnSumOfSquares += 2 * columnCounts[point.x]++ + 1;
+        countedTokens++;
+        tokens++;
+    }
+
     public void zeroRowColumnCounts() {
         Arrays.fill(rowCounts, 0);
         Arrays.fill(columnCounts, 0);
+        countedTokens = 0;
+        rowSumOfSquares = 0;
+        columnSumOfSquares = 0;
     }
-    
+
     public String toString() {
         return String.format("tokens: %d, row: %s, col: %s", tokens, standardizedRowDistribution, standardizedColumnDistribution);
     }
-    
+
     void calculateStandardDeviation() {
-        rowStandardDeviation = stdDev(rowCounts);
-        columnStandardDeviation = stdDev(columnCounts);
+        rowStandardDeviation = stdDev(rowCounts.length, rowSumOfSquares);
+        columnStandardDeviation = stdDev(columnCounts.length, columnSumOfSquares);
         double averageTokens = (double) tokens / (double) rowCounts.length;
         standardizedRowDistribution = (rowStandardDeviation / averageTokens);
         standardizedColumnDistribution = (columnStandardDeviation / averageTokens);
         weightedSpatialMetric = tokens * (rowStandardDeviation + columnStandardDeviation);
     }
 
-    private double stdDev(int[] counts) {
-        // calculate mean
-        int totalTokensInRow = sum(counts);
-        double size = (double) counts.length;
-        double mean = (double) totalTokensInRow / size;
-        double sumOfSquares = 0;
-        for (int count : counts) {
-            double difference = count - mean;
-            sumOfSquares += (difference * difference); 
-        }
-        return Math.sqrt(sumOfSquares / size);
-    }
-    private int sum(int[] count) {
-        int total = 0;
-        for (int tokens: count) {
-            total += tokens;
-        }
-        return total;
+    /**
+     * Population standard deviation of n counts summing to countedTokens, computed from the running
+     * sum of squares as sqrt((n * sumOfSquares - sum^2) / n^2).
+     */
+    private double stdDev(int n, long sumOfSquares) {
+        long size = n;
+        long numerator = size * sumOfSquares - countedTokens * countedTokens;
+        return Math.sqrt((double) numerator) / size;
     }
-}
\ No newline at end of file
+}
@@ -42,34 +42,39 @@ class CollectedTokenSpatialDistributionProcessor extends SaveFileProcessor.Base
                     Point point = tokenCollectedEvent.getLocation();
                     Identifier id = tokenCollectedEvent.getId();
                     ClientSpatialDistribution spatialDistribution = clientSpatialDistributionMap.get(id);
-                    spatialDistribution.columnCounts[point.x]++;
-                    spatialDistribution.rowCounts[point.y]++;
-                    spatialDistribution.tokens++;
+                    spatialDistribution.add(point);
                 }
             }
             // calculate for group
-            writeData(writer, serverDataModel, clientSpatialDistributionMap);
+            CsvWriter csv = new CsvWriter(writer, ", ");
+            writeData(csv, serverDataModel, clientSpatialDistributionMap);
+            csv.flush();
         }
 
 		private void writeData(
-				PrintWriter writer,
+				CsvWriter csv,
 				ServerDataModel serverDataModel,
 				Map<Identifier, ClientSpatialDistribution> clientSpatialDistributionMap) {
 			List<GroupDataModel> groups = serverDataModel.getOrderedGroups();
             for (GroupDataModel group: groups) {
                 String groupLabel = group.toString();
-                writer.println("Identifier, Group, # tokens, row stdev, column stdev");
+                csv.append("Identifier, Group, # tokens, row stdev, column stdev").endRow();
                 double groupWeightedSpatialMetric = 0.0d;
                 int totalTokens = 0;
                 for (Identifier id: group.getClientIdentifiers()) {
                     ClientSpatialDistribution spatialDistribution = clientSpatialDistributionMap.get(id);
                     spatialDistribution.calculateStandardDeviation();
                     groupWeightedSpatialMetric += spatialDistribution.weightedSpatialMetric;
-                    writer.println(String.format("%s, %s, %s, %s, %s", id, groupLabel, spatialDistribution.tokens, spatialDistribution.rowStandardDeviation, spatialDistribution.columnStandardDeviation));
+                    csv.append(id)
+                        .append(groupLabel)
+                        .append(spatialDistribution.tokens)
+                        .append(spatialDistribution.rowStandardDeviation)
+                        .append(spatialDistribution.columnStandardDeviation)
+                        .endRow();
                     totalTokens += spatialDistribution.tokens;
                 }
                 groupWeightedSpatialMetric /= totalTokens;
-                writer.println(groupLabel + " weighted spatial metric: " + groupWeightedSpatialMetric);
+                csv.append(groupLabel + " weighted spatial metric: " + groupWeightedSpatialMetric).endRow();
             }
 		}
 
@@ -0,0 +1,168 @@
+package edu.asu.commons.foraging.data;
+
+import java.awt.Point;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.TreeSet;
+
+import edu.asu.commons.event.ChatRequest;
+import edu.asu.commons.event.PersistableEvent;
+import edu.asu.commons.experiment.SaveFileProcessor;
+import edu.asu.commons.experiment.SavedRoundData;
+import edu.asu.commons.foraging.conf.RoundConfiguration;
+import edu.asu.commons.foraging.data.ColumnarTable.ColumnType;
+import edu.asu.commons.foraging.event.MovementEvent;
+import edu.asu.commons.foraging.event.RealTimeSanctionRequest;
+import edu.asu.commons.foraging.event.ResourceAddedEvent;
+import edu.asu.commons.foraging.event.ResourcesAddedEvent;
+import edu.asu.commons.foraging.event.SanctionAppliedEvent;
+import edu.asu.commons.foraging.event.TokenCollectedEvent;
+import edu.asu.commons.foraging.model.Actor;
+import edu.asu.commons.foraging.model.GroupDataModel;
+import edu.asu.commons.foraging.model.ServerDataModel;
+import edu.asu.commons.net.Identifier;
+
+/**
+ * $Id$
+ *
+ * Exports the replayed event stream and per-participant interval aggregates as typed columnar tables
+ * (see ColumnarTable for the file layout) so R / Python analyses can load them without parsing the
+ * text outputs, src/main/scripts/read_fcol.R and read_fcol.py load them into data frames.  Identifiers
+ * and event types are dictionary encoded, the free text event details are stored as plain strings and
+ * timestamps are delta encoded.
+ *
+ * Two tables are written:
+ * <ul>
+ * <li>events: time, elapsed_ms, type, id, group, x, y, detail</li>
+ * <li>intervals: interval_end, id, group, moves, tokens, tokens_left for every participant at the end of each
+ * 5 second interval, in elapsed seconds</li>
+ * </ul>
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Rev$
+ */
+class ColumnarExportProcessor implements SaveFileProcessor {
+
+    private final int secondsPerInterval = ForagingSaveFileConverter.DEFAULT_AGGREGATE_TIME_INTERVAL;
+
+    @Override
+    public String getOutputFileExtension() {
+        return "-columnar.fcol";
+    }
+
+    @Override
+    public void process(SavedRoundData savedRoundData, OutputStream stream) {
+        ColumnarTable events = createEventTable();
+        ColumnarTable intervals = createIntervalTable();
+        RoundConfiguration roundConfiguration = (RoundConfiguration) savedRoundData.getRoundParameters();
+        ServerDataModel dataModel = (ServerDataModel) savedRoundData.getDataModel();
+        Map<Identifier, ClientMovementTokenCount> clientMovementTokenCounts = ClientMovementTokenCount.createMap(dataModel);
+        TreeSet<Identifier> orderedIdentifiers = new TreeSet<Identifier>(clientMovementTokenCounts.keySet());
+        dataModel.reinitialize(roundConfiguration);
+        Map<Identifier, Actor> actorMap = dataModel.getActorMap();
+        long intervalEnd = secondsPerInterval;
+        for (PersistableEvent event: savedRoundData.getActions()) {
+            while (savedRoundData.getElapsedTimeInSeconds(event) >= intervalEnd) {
+                addIntervalRows(intervals, intervalEnd, dataModel, clientMovementTokenCounts, orderedIdentifiers);
+                intervalEnd += secondsPerInterval;
+            }
+            dataModel.apply(event);
+            Actor actor = actorMap.get(event.getId());
+            ClientMovementTokenCount client = clientMovementTokenCounts.get(event.getId());
+            long groupId = actor == null ? -1 : actor.getGroupDataModel().getGroupId();
+            String type = event.getClass().getSimpleName();
+            long time = event.getCreationTime();
+            long elapsedTime = savedRoundData.getElapsedTime(event);
+            if (event instanceof MovementEvent) {
+                if (client != null) {
+                    client.moves++;
+                }
+                Point position = actor == null ? new Point(-1, -1) : actor.getPosition();
+                addEvent(events, time, elapsedTime, type, event.getId(), groupId, position.x, position.y, ((MovementEvent) event).getDirection());
+            }
+            else if (event instanceof TokenCollectedEvent) {
+                if (client != null) {
+                    client.tokens++;
+                }
+                Point location = ((TokenCollectedEvent) event).getLocation();
+                addEvent(events, time, elapsedTime, type, event.getId(), groupId, location.x, location.y, null);
+            }
+            else if (event instanceof ResourcesAddedEvent) {
+                ResourcesAddedEvent resourcesAddedEvent = (ResourcesAddedEvent) event;
+                addEvent(events, time, elapsedTime, type, null, resourcesAddedEvent.getGroup().getGroupId(), -1, -1, resourcesAddedEvent.getResources().size());
+            }
+            else if (event instanceof ResourceAddedEvent) {
+                ResourceAddedEvent resourceAddedEvent = (ResourceAddedEvent) event;
+                Point position = resourceAddedEvent.getPosition();
+                addEvent(events, time, elapsedTime, type, null, resourceAddedEvent.getGroup().getGroupId(), position.x, position.y, null);
+            }
+            else if (event instanceof ChatRequest) {
+                ChatRequest request = (ChatRequest) event;
+                addEvent(events, time, elapsedTime, type, request.getSource(), groupId, -1, -1, request.toString());
+            }
+            else if (event instanceof RealTimeSanctionRequest) {
+                RealTimeSanctionRequest request = (RealTimeSanctionRequest) event;
+                addEvent(events, time, elapsedTime, type, request.getSource(), groupId, -1, -1, request.getTarget());
+            }
+            else if (event instanceof SanctionAppliedEvent) {
+                SanctionAppliedEvent sanctionAppliedEvent = (SanctionAppliedEvent) event;
+                addEvent(events, time, elapsedTime, type, event.getId(), groupId, -1, -1, sanctionAppliedEvent.getTarget());
+            }
+            else {
+                addEvent(events, time, elapsedTime, type, event.getId(), groupId, -1, -1, event.toString());
+            }
+        }
+        addIntervalRows(intervals, intervalEnd, dataModel, clientMovementTokenCounts, orderedIdentifiers);
+        try {
+            ColumnarTable.write(stream, events, intervals);
+        }
+        catch (IOException exception) {
+            throw new RuntimeException("Unable to write columnar export for " + savedRoundData.getSaveFilePath(), exception);
+        }
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    private void addIntervalRows(ColumnarTable intervals, long intervalEnd, ServerDataModel dataModel,
+            Map<Identifier, ClientMovementTokenCount> clientMovementTokenCounts,
+            TreeSet<Identifier> orderedIdentifiers) {
+        for (Identifier id: orderedIdentifiers) {
+            ClientMovementTokenCount client = clientMovementTokenCounts.get(id);
+            GroupDataModel group = dataModel.getGroup(id);
+            intervals.append(intervalEnd).append(id).append(group.getGroupId()).append(client.moves).append(client.tokens)
+                .append(group.getResourceDistributionSize()).endRow();
+            client.reset();
+        }
+    }
+
+    private void addEvent(ColumnarTable events, long time, long elapsedTime, String type, Identifier id, long groupId,
+            int x, int y, Object detail) {
+        events.append(time).append(elapsedTime).append(type).append(id).append(groupId).append(x).append(y).append(detail).endRow();
+    }
+
+    static ColumnarTable createEventTable() {
+        return new ColumnarTable("events")
+            .addColumn("time", ColumnType.TIMESTAMP)
+            .addColumn("elapsed_ms", ColumnType.TIMESTAMP)
+            .addColumn("type", ColumnType.DICTIONARY)
+            .addColumn("id", ColumnType.DICTIONARY)
+            .addColumn("group", ColumnType.INT)
+            .addColumn("x", ColumnType.INT)
+            .addColumn("y", ColumnType.INT)
+            .addColumn("detail", ColumnType.STRING);
+    }
+
+    static ColumnarTable createIntervalTable() {
+        return new ColumnarTable("intervals")
+            .addColumn("interval_end", ColumnType.TIMESTAMP)
+            .addColumn("id", ColumnType.DICTIONARY)
+            .addColumn("group", ColumnType.INT)
+            .addColumn("moves", ColumnType.INT)
+            .addColumn("tokens", ColumnType.INT)
+            .addColumn("tokens_left", ColumnType.INT);
+    }
+
+}
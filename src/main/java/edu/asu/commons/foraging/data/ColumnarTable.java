@@ -0,0 +1,432 @@
+package edu.asu.commons.foraging.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * $Id$
+ *
+ * A typed, column oriented table that can be written to a compact binary file for downstream analysis
+ * without having to re-parse the text outputs.  Rows are appended cell by cell in column order with the
+ * typed append methods, numeric cells go straight into primitive arrays without boxing, and are buffered
+ * until the table is written.
+ * <p>
+ * Readers for R and Python are in src/main/scripts.
+ * <p>
+ * File layout (all integers big endian, strings are a varint byte length followed by UTF-8 bytes):
+ * <pre>
+ * "FCOL" magic, byte format version (1), int number of tables
+ * per table: string table name, int row count, int column count
+ *   per column: string column name, byte column type, int compressed length, compressed bytes (zlib deflate)
+ * </pre>
+ * Column payloads before compression:
+ * <ul>
+ * <li>TIMESTAMP: zigzag varint deltas from the previous row (the first row is a delta from 0)</li>
+ * <li>INT: zigzag varints</li>
+ * <li>DOUBLE: 8 byte IEEE 754 values</li>
+ * <li>DICTIONARY: varint dictionary size, the dictionary strings, then one varint dictionary index per row.
+ *     Dictionary indexes start at 1, index 0 is reserved for null values.  Meant for values that repeat,
+ *     e.g., identifiers and event types.</li>
+ * <li>STRING: one string per row for free text that rarely repeats, with the byte length stored plus one and
+ *     0 standing for null.</li>
+ * </ul>
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Rev$
+ */
+class ColumnarTable {
+
+    static final byte[] MAGIC = { 'F', 'C', 'O', 'L' };
+    static final byte FORMAT_VERSION = 1;
+
+    enum ColumnType {
+        TIMESTAMP, INT, DOUBLE, DICTIONARY, STRING;
+    }
+
+    private final String name;
+    private final Map<String, Column> columns = new LinkedHashMap<String, Column>();
+    // columns in order for the append methods and the index of the column the next cell goes to
+    private Column[] rowColumns = new Column[0];
+    private int nextColumn;
+    private int rows;
+
+    public ColumnarTable(String name) {
+        this.name = name;
+    }
+
+    public ColumnarTable addColumn(String columnName, ColumnType type) {
+        if (rows > 0) {
+            throw new IllegalStateException("Can't add column " + columnName + " to table " + name + " after rows have been added");
+        }
+        columns.put(columnName, new Column(columnName, type));
+        rowColumns = columns.values().toArray(new Column[columns.size()]);
+        return this;
+    }
+
+    /**
+     * Appends the next cell of the current row to a TIMESTAMP, INT or DOUBLE column.
+     */
+    public ColumnarTable append(long value) {
+        Column column = nextColumn();
+        if (column.type == ColumnType.DOUBLE) {
+            column.addDouble(value);
+        }
+        else {
+            column.addLong(value, ColumnType.TIMESTAMP, ColumnType.INT);
+        }
+        return this;
+    }
+
+    /**
+     * Appends the next cell of the current row to a DOUBLE column.
+     */
+    public ColumnarTable append(double value) {
+        Column column = nextColumn();
+        column.checkType(ColumnType.DOUBLE, ColumnType.DOUBLE);
+        column.addDouble(value);
+        return this;
+    }
+
+    /**
+     * Appends the next cell of the current row to a DICTIONARY or STRING column, the value's toString() is
+     * stored and null is allowed.
+     */
+    public ColumnarTable append(Object value) {
+        Column column = nextColumn();
+        String string = (value == null) ? null : value.toString();
+        column.checkType(ColumnType.DICTIONARY, ColumnType.STRING);
+        if (column.type == ColumnType.STRING) {
+            column.addString(string);
+        }
+        else {
+            column.addLong(column.getDictionaryIndex(string), ColumnType.DICTIONARY, ColumnType.DICTIONARY);
+        }
+        return this;
+    }
+
+    /**
+     * Finishes the current row, every column must have been appended to.
+     */
+    public void endRow() {
+        if (nextColumn != rowColumns.length) {
+            throw new IllegalStateException(String.format("table %s has %d columns but row has %d values", name, rowColumns.length, nextColumn));
+        }
+        nextColumn = 0;
+        rows++;
+    }
+
+    private Column nextColumn() {
+        if (nextColumn == rowColumns.length) {
+            throw new IllegalStateException(String.format("table %s only has %d columns, use endRow() to start a new row", name, rowColumns.length));
+        }
+        return rowColumns[nextColumn++];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRowCount() {
+        return rows;
+    }
+
+    public List<String> getColumnNames() {
+        return new ArrayList<String>(columns.keySet());
+    }
+
+    public ColumnType getColumnType(String columnName) {
+        return getColumn(columnName).type;
+    }
+
+    public long getLong(String columnName, int row) {
+        return getColumn(columnName).longs[row];
+    }
+
+    public double getDouble(String columnName, int row) {
+        return getColumn(columnName).doubles[row];
+    }
+
+    public String getString(String columnName, int row) {
+        Column column = getColumn(columnName);
+        if (column.type == ColumnType.STRING) {
+            return column.strings[row];
+        }
+        return column.dictionary.get((int) column.longs[row]);
+    }
+
+    private Column getColumn(String columnName) {
+        Column column = columns.get(columnName);
+        if (column == null) {
+            throw new IllegalArgumentException("No column " + columnName + " in table " + name);
+        }
+        return column;
+    }
+
+    public static void write(OutputStream stream, ColumnarTable... tables) throws IOException {
+        DataOutputStream output = new DataOutputStream(stream);
+        output.write(MAGIC);
+        output.writeByte(FORMAT_VERSION);
+        output.writeInt(tables.length);
+        for (ColumnarTable table: tables) {
+            table.write(output);
+        }
+        output.flush();
+    }
+
+    private void write(DataOutputStream output) throws IOException {
+        writeString(output, name);
+        output.writeInt(rows);
+        output.writeInt(columns.size());
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        for (Column column: columns.values()) {
+            buffer.reset();
+            try (DataOutputStream compressed = new DataOutputStream(new DeflaterOutputStream(buffer))) {
+                column.write(compressed, rows);
+            }
+            writeString(output, column.name);
+            output.writeByte(column.type.ordinal());
+            output.writeInt(buffer.size());
+            buffer.writeTo(output);
+        }
+    }
+
+    public static List<ColumnarTable> read(InputStream stream) throws IOException {
+        DataInputStream input = new DataInputStream(stream);
+        byte[] magic = new byte[MAGIC.length];
+        input.readFully(magic);
+        if (! Arrays.equals(MAGIC, magic)) {
+            throw new IOException("Not a columnar export file");
+        }
+        byte version = input.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported columnar export version " + version);
+        }
+        int numberOfTables = input.readInt();
+        List<ColumnarTable> tables = new ArrayList<ColumnarTable>(numberOfTables);
+        for (int i = 0; i < numberOfTables; i++) {
+            ColumnarTable table = new ColumnarTable(readString(input));
+            int rows = input.readInt();
+            int numberOfColumns = input.readInt();
+            for (int c = 0; c < numberOfColumns; c++) {
+                Column column = new Column(readString(input), ColumnType.values()[input.readByte()]);
+                byte[] compressed = new byte[input.readInt()];
+                input.readFully(compressed);
+                try (DataInputStream columnInput = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(compressed)))) {
+                    column.read(columnInput, rows);
+                }
+                table.columns.put(column.name, column);
+            }
+            table.rowColumns = table.columns.values().toArray(new Column[numberOfColumns]);
+            table.rows = rows;
+            tables.add(table);
+        }
+        return tables;
+    }
+
+    static void writeVarLong(DataOutputStream output, long value) throws IOException {
+        // zigzag so small negative deltas stay small
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            output.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        output.writeByte((int) zigzag);
+    }
+
+    static long readVarLong(DataInputStream input) throws IOException {
+        long zigzag = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = input.readByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    /**
+     * Writes the string as its UTF-8 byte length and bytes, unlike DataOutputStream.writeUTF() this isn't
+     * limited to 64K bytes.
+     */
+    static void writeString(DataOutputStream output, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(output, bytes.length);
+        output.write(bytes);
+    }
+
+    static String readString(DataInputStream input) throws IOException {
+        return readString(input, (int) readVarLong(input));
+    }
+
+    private static String readString(DataInputStream input, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class Column {
+        private final String name;
+        private final ColumnType type;
+        // TIMESTAMP and INT values and DICTIONARY indexes
+        private long[] longs = new long[64];
+        private double[] doubles;
+        private String[] strings;
+        private List<String> dictionary;
+        private Map<String, Integer> dictionaryIndexes;
+        private int size;
+
+        Column(String name, ColumnType type) {
+            this.name = name;
+            this.type = type;
+            if (type == ColumnType.DOUBLE) {
+                doubles = new double[64];
+                longs = null;
+            }
+            else if (type == ColumnType.STRING) {
+                strings = new String[64];
+                longs = null;
+            }
+            else if (type == ColumnType.DICTIONARY) {
+                dictionary = new ArrayList<String>();
+                dictionaryIndexes = new HashMap<String, Integer>();
+                // index 0 is reserved for null
+                dictionary.add(null);
+            }
+        }
+
+        void checkType(ColumnType expected, ColumnType alternative) {
+            if (type != expected && type != alternative) {
+                throw new IllegalArgumentException(String.format("column %s is a %s column", name, type));
+            }
+        }
+
+        void addDouble(double value) {
+            if (size == doubles.length) {
+                doubles = Arrays.copyOf(doubles, size * 2);
+            }
+            doubles[size++] = value;
+        }
+
+        void addLong(long value, ColumnType expected, ColumnType alternative) {
+            checkType(expected, alternative);
+            if (size == longs.length) {
+                longs = Arrays.copyOf(longs, size * 2);
+            }
+            longs[size++] = value;
+        }
+
+        void addString(String value) {
+            if (size == strings.length) {
+                strings = Arrays.copyOf(strings, size * 2);
+            }
+            strings[size++] = value;
+        }
+
+        private int getDictionaryIndex(String string) {
+            if (string == null) {
+                return 0;
+            }
+            Integer index = dictionaryIndexes.get(string);
+            if (index == null) {
+                index = dictionary.size();
+                dictionary.add(string);
+                dictionaryIndexes.put(string, index);
+            }
+            return index;
+        }
+
+        void write(DataOutputStream output, int rows) throws IOException {
+            switch (type) {
+                case TIMESTAMP:
+                    long previous = 0;
+                    for (int i = 0; i < rows; i++) {
+                        writeVarLong(output, longs[i] - previous);
+                        previous = longs[i];
+                    }
+                    break;
+                case INT:
+                    for (int i = 0; i < rows; i++) {
+                        writeVarLong(output, longs[i]);
+                    }
+                    break;
+                case DOUBLE:
+                    for (int i = 0; i < rows; i++) {
+                        output.writeDouble(doubles[i]);
+                    }
+                    break;
+                case DICTIONARY:
+                    writeVarLong(output, dictionary.size() - 1);
+                    for (int i = 1; i < dictionary.size(); i++) {
+                        writeString(output, dictionary.get(i));
+                    }
+                    for (int i = 0; i < rows; i++) {
+                        writeVarLong(output, longs[i]);
+                    }
+                    break;
+                case STRING:
+                    for (int i = 0; i < rows; i++) {
+                        if (strings[i] == null) {
+                            writeVarLong(output, 0);
+                        }
+                        else {
+                            byte[] bytes = strings[i].getBytes(StandardCharsets.UTF_8);
+                            writeVarLong(output, bytes.length + 1);
+                            output.write(bytes);
+                        }
+                    }
+                    break;
+            }
+        }
+
+        void read(DataInputStream input, int rows) throws IOException {
+            size = rows;
+            if (type == ColumnType.DOUBLE) {
+                doubles = new double[rows];
+                for (int i = 0; i < rows; i++) {
+                    doubles[i] = input.readDouble();
+                }
+                return;
+            }
+            if (type == ColumnType.STRING) {
+                strings = new String[rows];
+                for (int i = 0; i < rows; i++) {
+                    int length = (int) readVarLong(input);
+                    strings[i] = (length == 0) ? null : readString(input, length - 1);
+                }
+                return;
+            }
+            longs = new long[rows];
+            if (type == ColumnType.DICTIONARY) {
+                long dictionarySize = readVarLong(input);
+                for (int i = 0; i < dictionarySize; i++) {
+                    dictionary.add(readString(input));
+                }
+            }
+            long previous = 0;
+            for (int i = 0; i < rows; i++) {
+                long value = readVarLong(input);
+                if (type == ColumnType.TIMESTAMP) {
+                    value += previous;
+                    previous = value;
+                }
+                longs[i] = value;
+            }
+        }
+    }
+
+}
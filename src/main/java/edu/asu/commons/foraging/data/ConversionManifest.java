@@ -0,0 +1,197 @@
+package edu.asu.commons.foraging.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import edu.asu.commons.experiment.SaveFileProcessor;
+
+/**
+ * $Id$
+ *
+ * Records which save file outputs have already been generated so that re-running the
+ * converter over an archive only recomputes outputs whose save file contents or
+ * processor version have changed.
+ *
+ * The manifest is a properties file stored at the root of the save data directory with
+ * three kinds of entries per save file, keyed by the save file's path relative to that root:
+ * <ul>
+ * <li>&lt;path&gt;.hash - SHA-1 of the save file contents</li>
+ * <li>&lt;path&gt;.stat - length and last modified time the hash was computed for and when it was computed, so unchanged
+ * files aren't re-hashed</li>
+ * <li>&lt;path&gt;|&lt;processor class&gt; - processor version, processor configuration and save file hash the output
+ * was generated from</li>
+ * </ul>
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Rev$
+ */
+class ConversionManifest {
+
+    /**
+     * Implemented by save file processors whose output format has changed over time.  Bump the
+     * version whenever the processor's output changes so previously converted files are regenerated.
+     * Processors that don't implement this are treated as version 1.
+     */
+    interface Versioned {
+        int getVersion();
+    }
+
+    /**
+     * Implemented by save file processors whose output depends on how they were configured, e.g., the aggregation
+     * windows.  Outputs generated with a different configuration are regenerated.
+     */
+    interface Configured {
+        /**
+         * @return a stable description of every setting that affects the output.
+         */
+        String getConfiguration();
+    }
+
+    static final String MANIFEST_FILE_NAME = ".conversion-manifest.properties";
+
+    // coarsest last modified time resolution of the file systems we archive to (FAT / SMB)
+    static final long MODIFICATION_TIME_GRANULARITY = 2000L;
+
+    private final static Logger logger = Logger.getLogger(ConversionManifest.class.getName());
+
+    private final File rootDirectory;
+    private final File manifestFile;
+    private final Properties entries = new Properties();
+
+    private ConversionManifest(File rootDirectory) {
+        this.rootDirectory = rootDirectory;
+        this.manifestFile = new File(rootDirectory, MANIFEST_FILE_NAME);
+    }
+
+    public static ConversionManifest load(File rootDirectory) {
+        ConversionManifest manifest = new ConversionManifest(rootDirectory);
+        if (manifest.manifestFile.isFile()) {
+            try (InputStream stream = new BufferedInputStream(new FileInputStream(manifest.manifestFile))) {
+                manifest.entries.load(stream);
+            }
+            catch (IOException exception) {
+                logger.warning("Unable to read conversion manifest " + manifest.manifestFile + ", regenerating all outputs: " + exception);
+                manifest.entries.clear();
+            }
+        }
+        return manifest;
+    }
+
+    public void save() {
+        try (OutputStream stream = new BufferedOutputStream(new FileOutputStream(manifestFile))) {
+            entries.store(stream, "foraging save file conversion manifest");
+        }
+        catch (IOException exception) {
+            logger.warning("Unable to write conversion manifest " + manifestFile + ": " + exception);
+        }
+    }
+
+    public static int getVersion(SaveFileProcessor processor) {
+        if (processor instanceof Versioned) {
+            return ((Versioned) processor).getVersion();
+        }
+        return 1;
+    }
+
+    public static String getConfiguration(SaveFileProcessor processor) {
+        if (processor instanceof Configured) {
+            return ((Configured) processor).getConfiguration();
+        }
+        return "";
+    }
+
+    /**
+     * Returns the SHA-1 of the given save file, reusing the hash recorded in the manifest when the
+     * file's length and last modified time haven't changed since it was computed.  A recorded hash is
+     * only trusted if it was computed well after the file was last modified, otherwise a rewrite of the
+     * same length within the file system's timestamp resolution would go unnoticed.
+     */
+    public String getHash(File saveFile) throws IOException {
+        String key = getKey(saveFile);
+        String stat = saveFile.length() + ":" + saveFile.lastModified();
+        String hash = entries.getProperty(key + ".hash");
+        String recordedStat = entries.getProperty(key + ".stat", "");
+        int separator = recordedStat.lastIndexOf('@');
+        if (hash != null && separator > 0 && stat.equals(recordedStat.substring(0, separator))) {
+            long hashedAt = Long.parseLong(recordedStat.substring(separator + 1));
+            if (hashedAt - saveFile.lastModified() > MODIFICATION_TIME_GRANULARITY) {
+                return hash;
+            }
+        }
+        long hashedAt = System.currentTimeMillis();
+        hash = computeHash(saveFile);
+        entries.setProperty(key + ".hash", hash);
+        entries.setProperty(key + ".stat", stat + "@" + hashedAt);
+        return hash;
+    }
+
+    /**
+     * Returns true if the output for the given save file and processor is missing or was generated
+     * from different save file contents or by a different version or configuration of the processor.
+     */
+    public boolean isStale(File saveFile, String saveFileHash, SaveFileProcessor processor, File outputFile) {
+        if (! outputFile.isFile()) {
+            return true;
+        }
+        String recorded = entries.getProperty(getKey(saveFile, processor));
+        return ! createEntry(saveFileHash, processor).equals(recorded);
+    }
+
+    public void markConverted(File saveFile, String saveFileHash, SaveFileProcessor processor) {
+        entries.setProperty(getKey(saveFile, processor), createEntry(saveFileHash, processor));
+    }
+
+    private String createEntry(String saveFileHash, SaveFileProcessor processor) {
+        String configuration = getConfiguration(processor);
+        if (configuration.isEmpty()) {
+            return getVersion(processor) + ":" + saveFileHash;
+        }
+        return getVersion(processor) + "[" + configuration + "]:" + saveFileHash;
+    }
+
+    private String getKey(File saveFile, SaveFileProcessor processor) {
+        return getKey(saveFile) + "|" + processor.getClass().getName();
+    }
+
+    private String getKey(File saveFile) {
+        String rootPath = rootDirectory.getAbsolutePath();
+        String path = saveFile.getAbsolutePath();
+        if (path.startsWith(rootPath)) {
+            path = path.substring(rootPath.length() + 1);
+        }
+        return path.replace(File.separatorChar, '/');
+    }
+
+    static String computeHash(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException exception) {
+            throw new IOException(exception);
+        }
+        byte[] buffer = new byte[8192];
+        try (InputStream stream = new FileInputStream(file)) {
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder builder = new StringBuilder();
+        for (byte b: digest.digest()) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+
+}
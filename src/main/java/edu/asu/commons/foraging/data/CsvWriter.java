@@ -0,0 +1,232 @@
+package edu.asu.commons.foraging.data;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * $Id$
+ *
+ * Row oriented text writer for the save file processors.  Cells are appended directly into a reusable
+ * char buffer that is flushed to the underlying Writer in large chunks and integers are formatted without
+ * going through String.format / locale lookups.  Rows end with the platform line separator, the same one
+ * PrintWriter.println() writes, so headers printed directly to the PrintWriter match the rows.
+ *
+ * With a bare "," separator string cells are quoted when they contain a comma, a quote or a line break.  The
+ * legacy ", " separated outputs were never quoted and are written as is, only appendQuoted() surrounds a cell
+ * with quotes there.
+ *
+ * Typical usage:
+ * <pre>
+ * csv.append(event.getCreationTime()).append(id).append(x).append(y).endRow();
+ * </pre>
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Rev$
+ */
+class CsvWriter {
+
+    static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private static final char[] LINE_SEPARATOR = System.lineSeparator().toCharArray();
+
+    private final Writer writer;
+    private final char[] separator;
+    // only a bare comma separator is proper CSV that quotes cells
+    private final boolean quoting;
+    private final char[] buffer;
+    // scratch space for formatting longs, Long.MIN_VALUE needs 20 chars
+    private final char[] digits = new char[20];
+    private int position = 0;
+    private boolean startOfRow = true;
+
+    public CsvWriter(Writer writer) {
+        this(writer, ",");
+    }
+
+    /**
+     * @param separator the text written between cells, e.g., ", " for the legacy all data output.
+     */
+    public CsvWriter(Writer writer, String separator) {
+        this(writer, separator, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CsvWriter(Writer writer, String separator, int bufferSize) {
+        this.writer = writer;
+        this.separator = separator.toCharArray();
+        this.quoting = separator.equals(",");
+        this.buffer = new char[Math.max(bufferSize, 64)];
+    }
+
+    public CsvWriter append(long value) {
+        startCell();
+        if (value == Long.MIN_VALUE) {
+            write(Long.toString(value));
+            return this;
+        }
+        boolean negative = value < 0;
+        if (negative) {
+            value = -value;
+        }
+        int index = digits.length;
+        do {
+            digits[--index] = (char) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        if (negative) {
+            digits[--index] = '-';
+        }
+        write(digits, index, digits.length - index);
+        return this;
+    }
+
+    public CsvWriter append(double value) {
+        startCell();
+        // Double.toString is locale independent and matches what String.valueOf / Utils.join produced.
+        write(Double.toString(value));
+        return this;
+    }
+
+    public CsvWriter append(boolean value) {
+        startCell();
+        write(value ? "true" : "false");
+        return this;
+    }
+
+    public CsvWriter append(Object value) {
+        startCell();
+        writeEscaped(String.valueOf(value), false);
+        return this;
+    }
+
+    /**
+     * Appends the cell surrounded by quotes regardless of its contents.
+     */
+    public CsvWriter appendQuoted(Object value) {
+        startCell();
+        writeEscaped(String.valueOf(value), true);
+        return this;
+    }
+
+    public CsvWriter appendAll(int[] values) {
+        for (int value: values) {
+            append(value);
+        }
+        return this;
+    }
+
+    public CsvWriter appendAll(double[] values) {
+        for (double value: values) {
+            append(value);
+        }
+        return this;
+    }
+
+    public CsvWriter appendAll(Iterable<?> values) {
+        for (Object value: values) {
+            append(value);
+        }
+        return this;
+    }
+
+    public CsvWriter endRow() {
+        write(LINE_SEPARATOR, 0, LINE_SEPARATOR.length);
+        startOfRow = true;
+        return this;
+    }
+
+    public void flush() {
+        try {
+            writer.write(buffer, 0, position);
+            writer.flush();
+            position = 0;
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private void startCell() {
+        if (startOfRow) {
+            startOfRow = false;
+        }
+        else {
+            write(separator, 0, separator.length);
+        }
+    }
+
+    private void writeEscaped(String value, boolean alwaysQuote) {
+        if (! alwaysQuote && ! (quoting && requiresQuotes(value))) {
+            write(value);
+            return;
+        }
+        write('"');
+        if (! quoting) {
+            write(value);
+            write('"');
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                write('"');
+            }
+            write(c);
+        }
+        write('"');
+    }
+
+    private boolean requiresQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\n' || c == '\r' || c == ',') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void write(char c) {
+        if (position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = c;
+    }
+
+    private void write(String value) {
+        int length = value.length();
+        int offset = 0;
+        while (offset < length) {
+            if (position == buffer.length) {
+                drain();
+            }
+            int count = Math.min(length - offset, buffer.length - position);
+            value.getChars(offset, offset + count, buffer, position);
+            position += count;
+            offset += count;
+        }
+    }
+
+    private void write(char[] chars, int offset, int length) {
+        if (position + length > buffer.length) {
+            drain();
+        }
+        if (length > buffer.length) {
+            write(new String(chars, offset, length));
+            return;
+        }
+        System.arraycopy(chars, offset, buffer, position, length);
+        position += length;
+    }
+
+    private void drain() {
+        try {
+            writer.write(buffer, 0, position);
+            position = 0;
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+}
@@ -1,22 +1,39 @@
 package edu.asu.commons.foraging.data;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.function.Function;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import edu.asu.commons.experiment.Persister;
+import edu.asu.commons.event.PersistableEvent;
 import edu.asu.commons.experiment.SaveFileProcessor;
+import edu.asu.commons.experiment.SavedRoundData;
 import edu.asu.commons.foraging.model.ServerDataModel;
 import edu.asu.commons.net.Identifier;
 
 /**
  * <p>
  * Save file processors used to convert binary data files from the foraging experiment.
+ * <p>
+ * Conversion is incremental by default: a {@link ConversionManifest} in the save data directory
+ * records the hash of every save file and the version of every processor that converted it, and
+ * only outputs that are missing or out of date are regenerated.  Pass "force" on the command line
+ * to regenerate everything.
  *
  * @author <a href='mailto:Allen.Lee@asu.edu'>Allen Lee</a>
  * @version $Rev: 526 $
@@ -25,38 +42,190 @@ public class ForagingSaveFileConverter {
     
     static final int DEFAULT_AGGREGATE_TIME_INTERVAL = 5;
 
+    static final String SAVE_FILE_SUFFIX = ".save";
+    static final String XML_SAVE_FILE_SUFFIX = ".save.xml";
+
+    private final static Logger logger = Logger.getLogger(ForagingSaveFileConverter.class.getName());
+
     public static boolean convert(String saveDataDirectory, boolean useXml) {
+        return convert(saveDataDirectory, useXml, false);
+    }
+
+    public static boolean convert(String saveDataDirectory, boolean useXml, boolean force) {
+        return convert(saveDataDirectory, useXml, force, MultiResolutionAggregateProcessor.DEFAULT_WINDOWS);
+    }
+
+    /**
+     * @param aggregateWindows comma separated window sizes in seconds for the multi resolution aggregates,
+     * e.g., "1,5,10,30,30/5" where 30/5 is a 30 second window sliding every 5 seconds.
+     */
+    public static boolean convert(String saveDataDirectory, boolean useXml, boolean force, String aggregateWindows) {
         File allSaveFilesDirectory = new File(saveDataDirectory);
         if (allSaveFilesDirectory.exists() && allSaveFilesDirectory.isDirectory()) {
-            List<SaveFileProcessor> processors = new ArrayList<>();
-            processors.addAll(Arrays.asList(
-                    new AllDataProcessor(),
-                    new ResourceOverTimeProcessor(),
-                    new AggregateTimeIntervalProcessor(), 
-                    new SummaryProcessor(),
-                    new AggregateTokenSpatialDistributionProcessor(),
-                    new CollectedTokenSpatialDistributionProcessor(),  
-                    new MovementStatisticsProcessor(),
-//                    new MovieCreatorProcessor(),
-                    new ForagingRuleProcessor(),
-                    new AggregateCollectedTokenNeighborProcessor()
-            ));
-            Persister.processSaveFiles(allSaveFilesDirectory, processors, useXml);
+            List<SaveFileProcessor> processors = createProcessors(aggregateWindows);
+            convert(allSaveFilesDirectory, processors, useXml, force);
             return true;
         }
         return false;
     }
 
+    static List<SaveFileProcessor> createProcessors(String aggregateWindows) {
+        List<SaveFileProcessor> processors = new ArrayList<>();
+        processors.addAll(Arrays.asList(
+                new AllDataProcessor(),
+                new ResourceOverTimeProcessor(),
+                new AggregateTimeIntervalProcessor(), 
+                new SummaryProcessor(),
+                new AggregateTokenSpatialDistributionProcessor(),
+                new CollectedTokenSpatialDistributionProcessor(),  
+                new ResourceSpatialStatisticsProcessor(),
+                new MultiResolutionAggregateProcessor(aggregateWindows),
+                new MovementStatisticsProcessor(),
+                new MovementLatencyProcessor(),
+//                    new MovieCreatorProcessor(),
+                new ForagingRuleProcessor(),
+                new AggregateCollectedTokenNeighborProcessor(),
+                new ColumnarExportProcessor()
+        ));
+        return processors;
+    }
+
+    /**
+     * Runs each processor over each save file under the given directory, skipping save file / processor
+     * pairs whose output is already up to date according to the conversion manifest unless force is set.
+     * Save files are only deserialized when at least one of their outputs needs to be regenerated, and then only
+     * once: processors replay events into the saved data model, so every processor after the first gets a fresh copy
+     * of the data model and the actions referring to it, restored from an in-memory snapshot taken before the first
+     * one ran.
+     */
+    static void convert(File allSaveFilesDirectory, List<SaveFileProcessor> processors, boolean useXml, boolean force) {
+        ConversionManifest manifest = ConversionManifest.load(allSaveFilesDirectory);
+        int converted = 0;
+        int skipped = 0;
+        for (File saveFile: findSaveFiles(allSaveFilesDirectory, useXml)) {
+            String saveFileHash;
+            try {
+                saveFileHash = manifest.getHash(saveFile);
+            }
+            catch (IOException exception) {
+                logger.warning("Unable to read save file " + saveFile + ", skipping: " + exception);
+                continue;
+            }
+            List<SaveFileProcessor> staleProcessors = new ArrayList<>();
+            for (SaveFileProcessor processor: processors) {
+                if (force || manifest.isStale(saveFile, saveFileHash, processor, getOutputFile(saveFile, processor))) {
+                    staleProcessors.add(processor);
+                }
+            }
+            skipped += processors.size() - staleProcessors.size();
+            if (staleProcessors.isEmpty()) {
+                continue;
+            }
+            SavedRoundData savedRoundData = SavedRoundData.create(saveFile.getPath(), useXml);
+            byte[] snapshot = null;
+            if (staleProcessors.size() > 1) {
+                try {
+                    snapshot = toByteArray(savedRoundData);
+                }
+                catch (IOException exception) {
+                    logger.warning("Unable to copy the data model of " + saveFile + ", skipping: " + exception);
+                    continue;
+                }
+            }
+            for (int i = 0; i < staleProcessors.size(); i++) {
+                SaveFileProcessor processor = staleProcessors.get(i);
+                if (i > 0) {
+                    restore(savedRoundData, snapshot);
+                }
+                try (OutputStream stream = new BufferedOutputStream(new FileOutputStream(getOutputFile(saveFile, processor)), CsvWriter.DEFAULT_BUFFER_SIZE)) {
+                    processor.process(savedRoundData, stream);
+                    manifest.markConverted(saveFile, saveFileHash, processor);
+                    converted++;
+                }
+                catch (IOException exception) {
+                    logger.warning("Unable to write " + processor.getOutputFileExtension() + " for " + saveFile + ": " + exception);
+                }
+            }
+            // persist progress after every save file so an interrupted conversion doesn't start over.
+            manifest.save();
+        }
+        for (SaveFileProcessor processor: processors) {
+            processor.dispose();
+        }
+        manifest.save();
+        logger.info(String.format("converted %d outputs, %d outputs already up to date", converted, skipped));
+    }
+
+    /**
+     * Snapshots the data model together with the actions.  Events such as ResourceAddedEvent refer to the data
+     * model's groups, writing both to the same object stream keeps those references pointing into the copied model.
+     */
+    static byte[] toByteArray(SavedRoundData savedRoundData) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream stream = new ObjectOutputStream(bytes)) {
+            stream.writeObject(savedRoundData.getDataModel());
+            stream.writeObject(new ArrayList<PersistableEvent>(savedRoundData.getActions()));
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Replaces the data model and actions of the saved round data with fresh copies from the snapshot.
+     */
+    @SuppressWarnings("unchecked")
+    static void restore(SavedRoundData savedRoundData, byte[] snapshot) {
+        try (ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(snapshot))) {
+            ServerDataModel serverDataModel = (ServerDataModel) stream.readObject();
+            SortedSet<PersistableEvent> actions = new TreeSet<PersistableEvent>(savedRoundData.getActions().comparator());
+            actions.addAll((List<PersistableEvent>) stream.readObject());
+            savedRoundData.setDataModel(serverDataModel);
+            savedRoundData.setActions(actions);
+        }
+        catch (IOException | ClassNotFoundException exception) {
+            // the snapshot was just written by this JVM
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    static List<File> findSaveFiles(File directory, boolean useXml) {
+        List<File> saveFiles = new ArrayList<>();
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return saveFiles;
+        }
+        Arrays.sort(files);
+        String suffix = useXml ? XML_SAVE_FILE_SUFFIX : SAVE_FILE_SUFFIX;
+        for (File file: files) {
+            if (file.isDirectory()) {
+                saveFiles.addAll(findSaveFiles(file, useXml));
+            }
+            else if (file.getName().endsWith(suffix)) {
+                saveFiles.add(file);
+            }
+        }
+        return saveFiles;
+    }
+
+    static File getOutputFile(File saveFile, SaveFileProcessor processor) {
+        return new File(saveFile.getPath() + processor.getOutputFileExtension());
+    }
+
     public static void main(String[] args) {
         if (args.length == 0) {
-            System.err.println("Usage: java " + ForagingSaveFileConverter.class + " <save-data-directory> <xml>");
+            System.err.println("Usage: java " + ForagingSaveFileConverter.class + " <save-data-directory> [xml] [force] [windows=1,5,10,30,30/5]");
             System.exit(0);
         }
         boolean useXml = false;
-        if (args.length == 2) {
-            useXml = "xml".equals(args[1]);
+        boolean force = false;
+        String aggregateWindows = MultiResolutionAggregateProcessor.DEFAULT_WINDOWS;
+        for (int i = 1; i < args.length; i++) {
+            useXml |= "xml".equals(args[i]);
+            force |= "force".equals(args[i]);
+            if (args[i].startsWith("windows=")) {
+                aggregateWindows = args[i].substring("windows=".length());
+            }
         }
-        if (convert(args[0], useXml)) {
+        if (convert(args[0], useXml, force, aggregateWindows)) {
         	System.err.println("Successfully converted files in " + args[0]);
         }
         else {
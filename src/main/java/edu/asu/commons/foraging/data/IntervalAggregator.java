@@ -0,0 +1,217 @@
+package edu.asu.commons.foraging.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * $Id$
+ *
+ * Keeps per-second base counters for a set of named series recorded during a single replay and derives
+ * aggregates over any window size from them afterwards, so one conversion run can emit 1s, 5s, 30s or
+ * sliding window aggregates without replaying the round again for each resolution.
+ *
+ * Counters are summed over a window via prefix sums (constant time per window), gauges report their
+ * last recorded value at or before the end of the window.  A window ending at second e of size w covers
+ * the events whose elapsed time in seconds falls in [e - w, e), matching SaveFileProcessor.Base intervals.
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Rev$
+ */
+class IntervalAggregator {
+
+    enum SeriesType {
+        COUNTER, GAUGE;
+    }
+
+    /**
+     * A window size and the step between consecutive window ends, tumbling windows have step == size.
+     */
+    static class Window {
+        private final int size;
+        private final int step;
+
+        Window(int size) {
+            this(size, size);
+        }
+
+        Window(int size, int step) {
+            if (size <= 0 || step <= 0) {
+                throw new IllegalArgumentException("window size and step must be positive: " + size + "/" + step);
+            }
+            this.size = size;
+            this.step = step;
+        }
+
+        /**
+         * Parses "30" as a 30 second tumbling window and "30/5" as a 30 second window sliding every 5 seconds.
+         */
+        static Window parse(String window) {
+            String[] sizeAndStep = window.trim().split("/");
+            int size = Integer.parseInt(sizeAndStep[0].trim());
+            int step = (sizeAndStep.length > 1) ? Integer.parseInt(sizeAndStep[1].trim()) : size;
+            return new Window(size, step);
+        }
+
+        static List<Window> parseAll(String windows) {
+            List<Window> parsed = new ArrayList<Window>();
+            for (String window: windows.split(",")) {
+                if (! window.trim().isEmpty()) {
+                    parsed.add(parse(window));
+                }
+            }
+            return parsed;
+        }
+
+        int getSize() {
+            return size;
+        }
+
+        int getStep() {
+            return step;
+        }
+
+        boolean isSliding() {
+            return step != size;
+        }
+
+        public String toString() {
+            return isSliding() ? String.format("%ds/%ds", size, step) : size + "s";
+        }
+    }
+
+    private static class Series {
+        private final SeriesType type;
+        private long[] values = new long[64];
+        // gauges need to distinguish unrecorded seconds from recorded zeros
+        private boolean[] recorded;
+
+        Series(SeriesType type) {
+            this.type = type;
+            if (type == SeriesType.GAUGE) {
+                recorded = new boolean[values.length];
+            }
+        }
+
+        void ensureCapacity(int second) {
+            if (second >= values.length) {
+                int length = Math.max(second + 1, values.length * 2);
+                values = Arrays.copyOf(values, length);
+                if (recorded != null) {
+                    recorded = Arrays.copyOf(recorded, length);
+                }
+            }
+        }
+    }
+
+    private final Map<String, Series> series = new LinkedHashMap<String, Series>();
+    // one past the last second with a recorded value
+    private int numberOfSeconds;
+
+    public void addSeries(String name, SeriesType type) {
+        series.put(name, new Series(type));
+    }
+
+    public List<String> getSeriesNames() {
+        return new ArrayList<String>(series.keySet());
+    }
+
+    public int getNumberOfSeconds() {
+        return numberOfSeconds;
+    }
+
+    /**
+     * Adds amount to the counter for the given second.
+     */
+    public void increment(String name, long second, long amount) {
+        Series counter = getSeries(name, SeriesType.COUNTER);
+        int index = toIndex(second);
+        counter.ensureCapacity(index);
+        counter.values[index] += amount;
+    }
+
+    /**
+     * Records the gauge value at the given second, later values in the same second replace earlier ones.
+     */
+    public void set(String name, long second, long value) {
+        Series gauge = getSeries(name, SeriesType.GAUGE);
+        int index = toIndex(second);
+        gauge.ensureCapacity(index);
+        gauge.values[index] = value;
+        gauge.recorded[index] = true;
+    }
+
+    /**
+     * Returns the window end times (in seconds) for the given window, the last window end is the
+     * first step multiple at or after the last recorded second.
+     */
+    public long[] getWindowEnds(Window window) {
+        int count = (numberOfSeconds + window.getStep() - 1) / window.getStep();
+        long[] ends = new long[count];
+        for (int i = 0; i < count; i++) {
+            ends[i] = (long) (i + 1) * window.getStep();
+        }
+        return ends;
+    }
+
+    /**
+     * Returns the aggregated value of the named series for every window end returned by getWindowEnds(window).
+     */
+    public long[] aggregate(String name, Window window) {
+        Series selected = series.get(name);
+        if (selected == null) {
+            throw new IllegalArgumentException("no series named " + name);
+        }
+        long[] ends = getWindowEnds(window);
+        long[] aggregates = new long[ends.length];
+        if (selected.type == SeriesType.COUNTER) {
+            long[] prefixSums = new long[numberOfSeconds + 1];
+            for (int second = 0; second < numberOfSeconds; second++) {
+                long value = (second < selected.values.length) ? selected.values[second] : 0;
+                prefixSums[second + 1] = prefixSums[second] + value;
+            }
+            for (int i = 0; i < ends.length; i++) {
+                int end = (int) Math.min(ends[i], numberOfSeconds);
+                int start = (int) Math.max(0, ends[i] - window.getSize());
+                aggregates[i] = (start >= end) ? 0 : prefixSums[end] - prefixSums[start];
+            }
+        }
+        else {
+            // carry the last recorded value forward
+            long[] lastValues = new long[numberOfSeconds];
+            long lastValue = 0;
+            for (int second = 0; second < numberOfSeconds; second++) {
+                if (second < selected.recorded.length && selected.recorded[second]) {
+                    lastValue = selected.values[second];
+                }
+                lastValues[second] = lastValue;
+            }
+            for (int i = 0; i < ends.length; i++) {
+                int last = (int) Math.min(ends[i], numberOfSeconds) - 1;
+                aggregates[i] = (last < 0) ? 0 : lastValues[last];
+            }
+        }
+        return aggregates;
+    }
+
+    private Series getSeries(String name, SeriesType type) {
+        Series selected = series.get(name);
+        if (selected == null) {
+            selected = new Series(type);
+            series.put(name, selected);
+        }
+        else if (selected.type != type) {
+            throw new IllegalArgumentException(name + " is a " + selected.type + " not a " + type);
+        }
+        return selected;
+    }
+
+    private int toIndex(long second) {
+        int index = (int) Math.max(0, second);
+        numberOfSeconds = Math.max(numberOfSeconds, index + 1);
+        return index;
+    }
+
+}
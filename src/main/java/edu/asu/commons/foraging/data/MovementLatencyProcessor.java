@@ -0,0 +1,110 @@
+package edu.asu.commons.foraging.data;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import edu.asu.commons.event.PersistableEvent;
+import edu.asu.commons.experiment.SaveFileProcessor;
+import edu.asu.commons.experiment.SavedRoundData;
+import edu.asu.commons.foraging.event.MovementLatencyEvent;
+import edu.asu.commons.foraging.model.ServerDataModel;
+import edu.asu.commons.net.Identifier;
+
+/**
+ * $Id$
+ *
+ * Per participant distributions of the end-to-end movement latency samples stored in MovementLatencyEvents,
+ * in milliseconds, so treatment differences can be checked against latency differences between participants.
+ * Network time is the round trip minus the time spent on the server.
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Rev$
+ */
+class MovementLatencyProcessor extends SaveFileProcessor.Base {
+
+    private final static String[] STAGES = { "input to render", "client queue", "round trip", "server", "network", "render" };
+
+    private static class Samples {
+        private final int[][] values = new int[STAGES.length][];
+        private int size;
+
+        Samples() {
+            for (int stage = 0; stage < STAGES.length; stage++) {
+                values[stage] = new int[64];
+            }
+        }
+
+        void add(MovementLatencyEvent event) {
+            for (int sample = 0; sample < event.size(); sample++) {
+                if (size == values[0].length) {
+                    for (int stage = 0; stage < STAGES.length; stage++) {
+                        values[stage] = Arrays.copyOf(values[stage], size * 2);
+                    }
+                }
+                values[0][size] = event.getInputToRenderTime(sample);
+                values[1][size] = event.getQueueTimes()[sample];
+                values[2][size] = event.getRoundTripTimes()[sample];
+                values[3][size] = event.getServerTimes()[sample];
+                values[4][size] = Math.max(0, event.getRoundTripTimes()[sample] - event.getServerTimes()[sample]);
+                values[5][size] = event.getRenderTimes()[sample];
+                size++;
+            }
+        }
+    }
+
+    @Override
+    public void process(SavedRoundData savedRoundData, PrintWriter writer) {
+        ServerDataModel serverDataModel = (ServerDataModel) savedRoundData.getDataModel();
+        Map<Identifier, Samples> samples = new HashMap<Identifier, Samples>();
+        for (PersistableEvent event: savedRoundData.getActions()) {
+            if (event instanceof MovementLatencyEvent) {
+                Samples participantSamples = samples.get(event.getId());
+                if (participantSamples == null) {
+                    participantSamples = new Samples();
+                    samples.put(event.getId(), participantSamples);
+                }
+                participantSamples.add((MovementLatencyEvent) event);
+            }
+        }
+        CsvWriter csv = new CsvWriter(writer, ", ");
+        csv.append("Participant").append("Group").append("Stage").append("Samples")
+            .append("Mean").append("Median").append("90th percentile").append("99th percentile").append("Max").endRow();
+        for (Identifier id: new TreeSet<Identifier>(samples.keySet())) {
+            Samples participantSamples = samples.get(id);
+            for (int stage = 0; stage < STAGES.length; stage++) {
+                int[] values = Arrays.copyOf(participantSamples.values[stage], participantSamples.size);
+                Arrays.sort(values);
+                long sum = 0;
+                for (int value: values) {
+                    sum += value;
+                }
+                csv.append(id).append(serverDataModel.getGroup(id)).append(STAGES[stage]).append(values.length)
+                    .append(toMilliseconds(sum / (double) values.length))
+                    .append(toMilliseconds(getPercentile(values, 50)))
+                    .append(toMilliseconds(getPercentile(values, 90)))
+                    .append(toMilliseconds(getPercentile(values, 99)))
+                    .append(toMilliseconds(values[values.length - 1]))
+                    .endRow();
+            }
+        }
+        csv.flush();
+    }
+
+    private static int getPercentile(int[] sortedValues, double percentile) {
+        int index = (int) Math.ceil(percentile / 100.0d * sortedValues.length) - 1;
+        return sortedValues[Math.max(0, index)];
+    }
+
+    private static double toMilliseconds(double microseconds) {
+        return microseconds / 1000.0d;
+    }
+
+    @Override
+    public String getOutputFileExtension() {
+        return "-movement-latency.txt";
+    }
+
+}
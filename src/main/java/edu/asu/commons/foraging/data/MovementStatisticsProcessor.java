@@ -16,7 +16,6 @@ import edu.asu.commons.foraging.event.TokenCollectedEvent;
 import edu.asu.commons.foraging.model.GroupDataModel;
 import edu.asu.commons.foraging.model.ServerDataModel;
 import edu.asu.commons.net.Identifier;
-import edu.asu.commons.util.Utils;
 
 /**
  * $Id$
@@ -83,13 +82,14 @@ class MovementStatisticsProcessor extends SaveFileProcessor.Base {
         }
 
         // write out the header line.
-        writer.println(Utils.join(',', "Identifier", Utils.join(',', Arrays.asList(movementHeader))));
+        CsvWriter csv = new CsvWriter(writer);
+        csv.append("Identifier").appendAll(Arrays.asList(movementHeader)).endRow();
 
         // and then write out each Identifier's movement distribution.
         for (Map.Entry<Identifier, ClientMovementStatistics> entry : clientStatisticsMap.entrySet()) {
-            writer.println(Utils.join(',', entry.getKey(), Utils.join(',', 
-                    Arrays.asList(entry.getValue().getMovementDistribution()))));   
+            csv.append(entry.getKey()).appendAll(Arrays.asList(entry.getValue().getMovementDistribution())).endRow();
         }
+        csv.flush();
     }
 
     @Override
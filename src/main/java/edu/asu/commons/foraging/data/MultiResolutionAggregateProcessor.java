@@ -0,0 +1,145 @@
+package edu.asu.commons.foraging.data;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import edu.asu.commons.event.PersistableEvent;
+import edu.asu.commons.experiment.SaveFileProcessor;
+import edu.asu.commons.experiment.SavedRoundData;
+import edu.asu.commons.foraging.conf.RoundConfiguration;
+import edu.asu.commons.foraging.data.IntervalAggregator.SeriesType;
+import edu.asu.commons.foraging.data.IntervalAggregator.Window;
+import edu.asu.commons.foraging.event.MovementEvent;
+import edu.asu.commons.foraging.event.ResourceAddedEvent;
+import edu.asu.commons.foraging.event.ResourcesAddedEvent;
+import edu.asu.commons.foraging.event.TokenCollectedEvent;
+import edu.asu.commons.foraging.model.Actor;
+import edu.asu.commons.foraging.model.GroupDataModel;
+import edu.asu.commons.foraging.model.ServerDataModel;
+import edu.asu.commons.net.Identifier;
+
+/**
+ * $Id$
+ *
+ * Replays a round once, recording per-second moves and collected tokens for every participant and tokens
+ * left for every group in an IntervalAggregator, then writes the aggregates for every requested window
+ * (e.g., 1s, 5s, 10s, 30s and a 30s window sliding every 5s) into a single file.
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Rev$
+ */
+class MultiResolutionAggregateProcessor extends SaveFileProcessor.Base implements ConversionManifest.Configured {
+
+    static final String DEFAULT_WINDOWS = "1,5,10,30,30/5";
+
+    private final List<Window> windows;
+
+    public MultiResolutionAggregateProcessor() {
+        this(DEFAULT_WINDOWS);
+    }
+
+    /**
+     * @param windows comma separated window sizes in seconds, a sliding window is written as size/step
+     */
+    public MultiResolutionAggregateProcessor(String windows) {
+        this.windows = Window.parseAll(windows);
+    }
+
+    /**
+     * The normalized window spec, so converting again with different windows regenerates the aggregates.
+     */
+    @Override
+    public String getConfiguration() {
+        StringBuilder builder = new StringBuilder("windows=");
+        for (int i = 0; i < windows.size(); i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(windows.get(i));
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public void process(SavedRoundData savedRoundData, PrintWriter writer) {
+        ServerDataModel serverDataModel = (ServerDataModel) savedRoundData.getDataModel();
+        RoundConfiguration roundConfiguration = (RoundConfiguration) savedRoundData.getRoundParameters();
+        TreeSet<Identifier> orderedIdentifiers = new TreeSet<Identifier>(serverDataModel.getClientDataMap().keySet());
+        List<GroupDataModel> groups = serverDataModel.getOrderedGroups();
+        serverDataModel.reinitialize(roundConfiguration);
+        Map<Identifier, Actor> actorMap = serverDataModel.getActorMap();
+
+        IntervalAggregator aggregator = new IntervalAggregator();
+        List<String> header = new ArrayList<String>();
+        header.add("Window");
+        header.add("Period");
+        for (Identifier id: orderedIdentifiers) {
+            aggregator.addSeries(id + " moves", SeriesType.COUNTER);
+            header.add(id + " moves");
+        }
+        for (Identifier id: orderedIdentifiers) {
+            aggregator.addSeries(id + " tokens collected", SeriesType.COUNTER);
+            header.add(id + " tokens collected");
+        }
+        for (GroupDataModel group: groups) {
+            aggregator.addSeries(group + " tokens left", SeriesType.GAUGE);
+            header.add(group + " tokens left");
+        }
+
+        for (PersistableEvent event: savedRoundData.getActions()) {
+            long second = savedRoundData.getElapsedTimeInSeconds(event);
+            serverDataModel.apply(event);
+            if (event instanceof MovementEvent) {
+                if (orderedIdentifiers.contains(event.getId())) {
+                    aggregator.increment(event.getId() + " moves", second, 1);
+                }
+            }
+            else if (event instanceof TokenCollectedEvent) {
+                if (orderedIdentifiers.contains(event.getId())) {
+                    aggregator.increment(event.getId() + " tokens collected", second, 1);
+                }
+                Actor actor = actorMap.get(event.getId());
+                if (actor != null) {
+                    GroupDataModel group = actor.getGroupDataModel();
+                    aggregator.set(group + " tokens left", second, group.getResourceDistributionSize());
+                }
+            }
+            else if (event instanceof ResourceAddedEvent) {
+                GroupDataModel group = ((ResourceAddedEvent) event).getGroup();
+                aggregator.set(group + " tokens left", second, group.getResourceDistributionSize());
+            }
+            else if (event instanceof ResourcesAddedEvent) {
+                GroupDataModel group = ((ResourcesAddedEvent) event).getGroup();
+                aggregator.set(group + " tokens left", second, group.getResourceDistributionSize());
+            }
+        }
+
+        CsvWriter csv = new CsvWriter(writer, ", ");
+        csv.appendAll(header).endRow();
+        List<String> seriesNames = aggregator.getSeriesNames();
+        for (Window window: windows) {
+            long[] ends = aggregator.getWindowEnds(window);
+            List<long[]> aggregates = new ArrayList<long[]>(seriesNames.size());
+            for (String name: seriesNames) {
+                aggregates.add(aggregator.aggregate(name, window));
+            }
+            for (int i = 0; i < ends.length; i++) {
+                csv.append(window).append(ends[i]);
+                for (long[] values: aggregates) {
+                    csv.append(values[i]);
+                }
+                csv.endRow();
+            }
+        }
+        csv.flush();
+    }
+
+    @Override
+    public String getOutputFileExtension() {
+        return "-multi-resolution-aggregates.txt";
+    }
+
+}
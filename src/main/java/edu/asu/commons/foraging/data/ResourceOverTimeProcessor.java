@@ -14,7 +14,6 @@ import edu.asu.commons.foraging.event.TokenCollectedEvent;
 import edu.asu.commons.foraging.model.ClientData;
 import edu.asu.commons.foraging.model.GroupDataModel;
 import edu.asu.commons.foraging.model.ServerDataModel;
-import edu.asu.commons.util.Utils;
 
 /**
  * $Id$
@@ -38,6 +37,7 @@ public class ResourceOverTimeProcessor extends SaveFileProcessor.Base {
         }
         List<GroupDataModel> groups = serverDataModel.getOrderedGroups();
         writer.println("Group, Time, Resource Size");
+        CsvWriter csv = new CsvWriter(writer);
         for (PersistableEvent event : savedRoundData.getActions()) {
             long secondsElapsed = savedRoundData.getElapsedTimeInSeconds(event);
             // see if the current persistable event is past the threshold,
@@ -46,7 +46,7 @@ public class ResourceOverTimeProcessor extends SaveFileProcessor.Base {
             if (isIntervalElapsed(secondsElapsed)) {
                 // generate group expected token counts
                 for (GroupDataModel group : groups) {
-                    writer.println(Utils.join(',', group.toString(), secondsElapsed, group.getResourceDistributionSize()));
+                    csv.append(group).append(secondsElapsed).append(group.getResourceDistributionSize()).endRow();
                 }
             }
             // next, process the current persistable event
@@ -75,6 +75,7 @@ public class ResourceOverTimeProcessor extends SaveFileProcessor.Base {
                 resourcesAddedEvent.getGroup().addResources(resourcesAddedEvent.getResources());
             }
         }
+        csv.flush();
     }
 
     @Override
@@ -0,0 +1,354 @@
+package edu.asu.commons.foraging.data;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * $Id$
+ *
+ * Incrementally maintained spatial statistics of a single group's resource field, using the same Moore
+ * neighborhood as the density dependent token generator:
+ * <ul>
+ * <li>Moran's I with binary neighbor weights.  The number of adjacent token pairs and the sum of the
+ * neighbor counts of occupied cells are updated in constant time per added or removed token so the
+ * statistic itself is available in constant time.</li>
+ * <li>The Clark-Evans nearest neighbor index, the mean distance from each token to its nearest other
+ * token over the mean expected for a random distribution of the same density.  Every token's squared nearest
+ * neighbor distance is kept up to date along with a histogram of them: adding or removing a token only revisits
+ * the tokens within the largest nearest neighbor distance r of it, i.e., O(r^2) cells, and the index itself
+ * takes O(r^2) to sum up the histogram.</li>
+ * <li>The number of patches (8-connected clusters of tokens) via union-find over the occupancy grid.  Added
+ * tokens are merged into the existing patches in near constant time.  Removing a token without neighbors
+ * takes constant time, otherwise the rest of its patch is relabeled since the removal may have split it,
+ * which takes time linear in the size of that patch rather than the board.</li>
+ * </ul>
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Rev$
+ */
+class ResourceSpatialStatistics {
+
+    // nearest neighbor distance of a token without any other token on the board
+    private final static int NONE = 0;
+
+    private final int width;
+    private final int height;
+    private final boolean[] occupied;
+    // number of valid cells in each cell's Moore neighborhood, excluding the cell itself
+    private final int[] neighbors;
+    // sum of neighbors over all cells, i.e., the total weight W for Moran's I
+    private final long totalWeight;
+    // union-find parents and patch sizes, only meaningful for occupied cells
+    private final int[] parents;
+    private final int[] sizes;
+    // breadth first search scratch space for relabeling a patch after a removal
+    private final int[] visited;
+    private final int[] queue;
+    private int generation;
+    // squared distance from each token to its nearest other token and the number of tokens by that distance
+    private final int[] nearest;
+    private final int[] nearestCounts;
+    private int maximumNearest;
+    private int numberOfTokens;
+    // number of unordered pairs of adjacent occupied cells
+    private long adjacentPairs;
+    // sum of neighbors over all occupied cells
+    private long occupiedNeighbors;
+    private int numberOfPatches;
+
+    public ResourceSpatialStatistics(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.occupied = new boolean[width * height];
+        this.neighbors = new int[width * height];
+        this.parents = new int[width * height];
+        this.sizes = new int[width * height];
+        this.visited = new int[width * height];
+        this.queue = new int[width * height];
+        this.nearest = new int[width * height];
+        this.nearestCounts = new int[(width - 1) * (width - 1) + (height - 1) * (height - 1) + 1];
+        long weight = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int count = -1;
+                for (int ny = Math.max(0, y - 1); ny <= Math.min(height - 1, y + 1); ny++) {
+                    count += Math.min(width - 1, x + 1) - Math.max(0, x - 1) + 1;
+                }
+                neighbors[y * width + x] = count;
+                weight += count;
+            }
+        }
+        totalWeight = weight;
+    }
+
+    public ResourceSpatialStatistics(int width, int height, Collection<Point> tokenPositions) {
+        this(width, height);
+        for (Point position: tokenPositions) {
+            add(position);
+        }
+    }
+
+    public boolean add(Point position) {
+        return add(position.x, position.y);
+    }
+
+    public boolean add(int x, int y) {
+        if (! isValid(x, y)) {
+            return false;
+        }
+        int cell = y * width + x;
+        if (occupied[cell]) {
+            return false;
+        }
+        // tokens that are closer to the new token than to their current nearest neighbor are within the largest
+        // nearest neighbor distance of it
+        int radius = (int) Math.sqrt(maximumNearest);
+        for (int ny = Math.max(0, y - radius); ny <= Math.min(height - 1, y + radius); ny++) {
+            for (int nx = Math.max(0, x - radius); nx <= Math.min(width - 1, x + radius); nx++) {
+                int neighbor = ny * width + nx;
+                int distance = getDistanceSquared(x, y, nx, ny);
+                if (occupied[neighbor] && distance < nearest[neighbor]) {
+                    setNearest(neighbor, distance);
+                }
+            }
+        }
+        occupied[cell] = true;
+        numberOfTokens++;
+        int nearestCell = findNearest(x, y);
+        if (nearestCell >= 0) {
+            int distance = getDistanceSquared(x, y, nearestCell % width, nearestCell / width);
+            setNearest(cell, distance);
+            if (nearest[nearestCell] == NONE) {
+                // the only other token on the board
+                setNearest(nearestCell, distance);
+            }
+        }
+        occupiedNeighbors += neighbors[cell];
+        parents[cell] = cell;
+        sizes[cell] = 1;
+        numberOfPatches++;
+        for (int ny = Math.max(0, y - 1); ny <= Math.min(height - 1, y + 1); ny++) {
+            for (int nx = Math.max(0, x - 1); nx <= Math.min(width - 1, x + 1); nx++) {
+                int neighbor = ny * width + nx;
+                if (neighbor != cell && occupied[neighbor]) {
+                    adjacentPairs++;
+                    union(cell, neighbor);
+                }
+            }
+        }
+        return true;
+    }
+
+    public boolean remove(Point position) {
+        return remove(position.x, position.y);
+    }
+
+    public boolean remove(int x, int y) {
+        if (! isValid(x, y)) {
+            return false;
+        }
+        int cell = y * width + x;
+        if (! occupied[cell]) {
+            return false;
+        }
+        occupied[cell] = false;
+        numberOfTokens--;
+        int radius = (int) Math.sqrt(maximumNearest);
+        setNearest(cell, NONE);
+        // tokens whose nearest neighbor was the removed token are within the largest nearest neighbor distance
+        for (int ny = Math.max(0, y - radius); ny <= Math.min(height - 1, y + radius); ny++) {
+            for (int nx = Math.max(0, x - radius); nx <= Math.min(width - 1, x + radius); nx++) {
+                int neighbor = ny * width + nx;
+                if (occupied[neighbor] && nearest[neighbor] == getDistanceSquared(x, y, nx, ny)) {
+                    int nearestCell = findNearest(nx, ny);
+                    setNearest(neighbor, (nearestCell < 0) ? NONE : getDistanceSquared(nx, ny, nearestCell % width, nearestCell / width));
+                }
+            }
+        }
+        occupiedNeighbors -= neighbors[cell];
+        boolean isolated = true;
+        for (int ny = Math.max(0, y - 1); ny <= Math.min(height - 1, y + 1); ny++) {
+            for (int nx = Math.max(0, x - 1); nx <= Math.min(width - 1, x + 1); nx++) {
+                int neighbor = ny * width + nx;
+                if (neighbor != cell && occupied[neighbor]) {
+                    adjacentPairs--;
+                    isolated = false;
+                }
+            }
+        }
+        numberOfPatches--;
+        if (! isolated) {
+            relabelPatch(x, y);
+        }
+        return true;
+    }
+
+    public boolean isTokenAt(int x, int y) {
+        return isValid(x, y) && occupied[y * width + x];
+    }
+
+    public int getNumberOfTokens() {
+        return numberOfTokens;
+    }
+
+    /**
+     * Returns Moran's I for the token occupancy field, or NaN if the field is empty or completely full.
+     */
+    public double getMoransI() {
+        long n = (long) width * height;
+        if (numberOfTokens == 0 || numberOfTokens == n || totalWeight == 0) {
+            return Double.NaN;
+        }
+        double mean = numberOfTokens / (double) n;
+        // sum over ordered neighbor pairs of (x_i - mean)(x_j - mean) expands into the pair count,
+        // the neighbor counts of occupied cells and the total weight.
+        double numerator = 2.0d * adjacentPairs - 2.0d * mean * occupiedNeighbors + mean * mean * totalWeight;
+        double denominator = numberOfTokens * (1.0d - mean);
+        return (n / (double) totalWeight) * (numerator / denominator);
+    }
+
+    /**
+     * Returns the Clark-Evans nearest neighbor index: values below 1 indicate clustering, 1 a random
+     * distribution and values above 1 a dispersed field.  NaN if there are fewer than two tokens.
+     */
+    public double getNearestNeighborIndex() {
+        if (numberOfTokens < 2) {
+            return Double.NaN;
+        }
+        double totalDistance = 0;
+        for (int distance = 1; distance <= maximumNearest; distance++) {
+            if (nearestCounts[distance] > 0) {
+                totalDistance += nearestCounts[distance] * Math.sqrt(distance);
+            }
+        }
+        double observed = totalDistance / numberOfTokens;
+        double density = numberOfTokens / ((double) width * height);
+        double expected = 0.5d / Math.sqrt(density);
+        return observed / expected;
+    }
+
+    private void setNearest(int cell, int distance) {
+        if (nearest[cell] != NONE) {
+            nearestCounts[nearest[cell]]--;
+        }
+        nearest[cell] = distance;
+        if (distance != NONE) {
+            nearestCounts[distance]++;
+            maximumNearest = Math.max(maximumNearest, distance);
+        }
+        while (maximumNearest > 0 && nearestCounts[maximumNearest] == 0) {
+            maximumNearest--;
+        }
+    }
+
+    /**
+     * Returns the cell of the token nearest to the given cell, excluding the cell itself, or -1 if there is none.
+     */
+    private int findNearest(int x, int y) {
+        int best = Integer.MAX_VALUE;
+        int bestCell = -1;
+        int maximumRadius = Math.max(width, height);
+        // search square rings of increasing Chebyshev radius, a token on ring r is at least r away so we
+        // can stop as soon as r^2 exceeds the best squared distance found so far.
+        for (int radius = 1; radius <= maximumRadius && radius * radius < best; radius++) {
+            for (int dy = -radius; dy <= radius; dy++) {
+                int ny = y + dy;
+                if (ny < 0 || ny >= height) {
+                    continue;
+                }
+                boolean edgeRow = (dy == -radius || dy == radius);
+                int step = edgeRow ? 1 : 2 * radius;
+                for (int dx = -radius; dx <= radius; dx += step) {
+                    int nx = x + dx;
+                    if (nx >= 0 && nx < width && occupied[ny * width + nx] && dx * dx + dy * dy < best) {
+                        best = dx * dx + dy * dy;
+                        bestCell = ny * width + nx;
+                    }
+                }
+            }
+        }
+        return bestCell;
+    }
+
+    private static int getDistanceSquared(int x, int y, int otherX, int otherY) {
+        return (x - otherX) * (x - otherX) + (y - otherY) * (y - otherY);
+    }
+
+    /**
+     * Returns the number of 8-connected patches of tokens.
+     */
+    public int getNumberOfPatches() {
+        return numberOfPatches;
+    }
+
+    /**
+     * Union-find can't split a patch, so after the token at the given cell was removed every remaining patch
+     * reachable from its neighbors gets a fresh root, adding to the patch count.
+     */
+    private void relabelPatch(int x, int y) {
+        if (++generation == 0) {
+            Arrays.fill(visited, 0);
+            generation = 1;
+        }
+        for (int ny = Math.max(0, y - 1); ny <= Math.min(height - 1, y + 1); ny++) {
+            for (int nx = Math.max(0, x - 1); nx <= Math.min(width - 1, x + 1); nx++) {
+                int start = ny * width + nx;
+                if (! occupied[start] || visited[start] == generation) {
+                    continue;
+                }
+                visited[start] = generation;
+                queue[0] = start;
+                int head = 0;
+                int tail = 1;
+                while (head < tail) {
+                    int cell = queue[head++];
+                    parents[cell] = start;
+                    int cellX = cell % width;
+                    int cellY = cell / width;
+                    for (int neighborY = Math.max(0, cellY - 1); neighborY <= Math.min(height - 1, cellY + 1); neighborY++) {
+                        for (int neighborX = Math.max(0, cellX - 1); neighborX <= Math.min(width - 1, cellX + 1); neighborX++) {
+                            int neighbor = neighborY * width + neighborX;
+                            if (occupied[neighbor] && visited[neighbor] != generation) {
+                                visited[neighbor] = generation;
+                                queue[tail++] = neighbor;
+                            }
+                        }
+                    }
+                }
+                sizes[start] = tail;
+                numberOfPatches++;
+            }
+        }
+    }
+
+    private int find(int cell) {
+        while (parents[cell] != cell) {
+            // path halving
+            parents[cell] = parents[parents[cell]];
+            cell = parents[cell];
+        }
+        return cell;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return;
+        }
+        if (sizes[rootA] < sizes[rootB]) {
+            int swap = rootA;
+            rootA = rootB;
+            rootB = swap;
+        }
+        parents[rootB] = rootA;
+        sizes[rootA] += sizes[rootB];
+        numberOfPatches--;
+    }
+
+    private boolean isValid(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+}
@@ -0,0 +1,134 @@
+package edu.asu.commons.foraging.data;
+
+import java.awt.Point;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.asu.commons.event.PersistableEvent;
+import edu.asu.commons.experiment.SaveFileProcessor;
+import edu.asu.commons.experiment.SavedRoundData;
+import edu.asu.commons.foraging.conf.RoundConfiguration;
+import edu.asu.commons.foraging.event.ResourceAddedEvent;
+import edu.asu.commons.foraging.event.ResourcesAddedEvent;
+import edu.asu.commons.foraging.event.TokenCollectedEvent;
+import edu.asu.commons.foraging.event.TokensMovedEvent;
+import edu.asu.commons.foraging.model.GroupDataModel;
+import edu.asu.commons.foraging.model.Resource;
+import edu.asu.commons.foraging.model.ServerDataModel;
+
+/**
+ * $Id$
+ *
+ * Emits per interval spatial statistics of each group's resource field (tokens left, Moran's I,
+ * nearest neighbor index and number of patches).  The statistics are maintained incrementally in a
+ * ResourceSpatialStatistics per group as tokens are added and collected.
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Rev$
+ */
+class ResourceSpatialStatisticsProcessor extends SaveFileProcessor.Base {
+
+    public ResourceSpatialStatisticsProcessor() {
+        setSecondsPerInterval(ForagingSaveFileConverter.DEFAULT_AGGREGATE_TIME_INTERVAL);
+    }
+
+    @Override
+    public void process(SavedRoundData savedRoundData, PrintWriter writer) {
+        ServerDataModel serverDataModel = (ServerDataModel) savedRoundData.getDataModel();
+        serverDataModel.reinitialize((RoundConfiguration) savedRoundData.getRoundParameters());
+        List<GroupDataModel> groups = serverDataModel.getOrderedGroups();
+        Map<GroupDataModel, ResourceSpatialStatistics> statistics = new HashMap<>();
+        for (GroupDataModel group: groups) {
+            statistics.put(group, new ResourceSpatialStatistics(serverDataModel.getBoardWidth(), serverDataModel.getBoardHeight()));
+        }
+        writer.println("Period, Group, Tokens left, Moran's I, Nearest neighbor index, Patches");
+        CsvWriter csv = new CsvWriter(writer, ", ");
+        for (PersistableEvent event: savedRoundData.getActions()) {
+            if (isIntervalElapsed(savedRoundData.getElapsedTimeInSeconds(event))) {
+                writeData(csv, groups, statistics);
+            }
+            if (event instanceof TokenCollectedEvent) {
+                GroupDataModel group = serverDataModel.getGroup(event.getId());
+                ResourceSpatialStatistics groupStatistics = statistics.get(group);
+                if (groupStatistics != null) {
+                    groupStatistics.remove(((TokenCollectedEvent) event).getLocation());
+                }
+            }
+            else if (event instanceof ResourceAddedEvent) {
+                ResourceAddedEvent resourceAddedEvent = (ResourceAddedEvent) event;
+                statistics.get(resourceAddedEvent.getGroup()).add(resourceAddedEvent.getPosition());
+            }
+            else if (event instanceof ResourcesAddedEvent) {
+                ResourcesAddedEvent resourcesAddedEvent = (ResourcesAddedEvent) event;
+                ResourceSpatialStatistics groupStatistics = statistics.get(resourcesAddedEvent.getGroup());
+                for (Resource resource: resourcesAddedEvent.getResources()) {
+                    groupStatistics.add(resource.getPosition());
+                }
+            }
+            else if (event instanceof TokensMovedEvent) {
+                TokensMovedEvent tokensMovedEvent = (TokensMovedEvent) event;
+                ResourceSpatialStatistics groupStatistics = (tokensMovedEvent.getGroup() == null)
+                        ? findGroupStatistics(statistics, tokensMovedEvent)
+                        : statistics.get(tokensMovedEvent.getGroup());
+                if (groupStatistics != null) {
+                    for (Point location: tokensMovedEvent.getOriginalLocations()) {
+                        groupStatistics.remove(location);
+                    }
+                    for (Point location: tokensMovedEvent.getNewLocations()) {
+                        groupStatistics.add(location);
+                    }
+                }
+            }
+        }
+        writeData(csv, groups, statistics);
+        csv.flush();
+    }
+
+    /**
+     * Save files from before TokensMovedEvents carried their group: returns the statistics of the only group whose
+     * field holds all of the original locations, or null if that's ambiguous since every group's field uses the
+     * same coordinates.
+     */
+    private ResourceSpatialStatistics findGroupStatistics(Map<GroupDataModel, ResourceSpatialStatistics> statistics, TokensMovedEvent event) {
+        ResourceSpatialStatistics found = null;
+        for (ResourceSpatialStatistics groupStatistics: statistics.values()) {
+            if (containsAll(groupStatistics, event)) {
+                if (found != null) {
+                    return null;
+                }
+                found = groupStatistics;
+            }
+        }
+        return found;
+    }
+
+    private boolean containsAll(ResourceSpatialStatistics groupStatistics, TokensMovedEvent event) {
+        for (Point location: event.getOriginalLocations()) {
+            if (! groupStatistics.isTokenAt(location.x, location.y)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeData(CsvWriter csv, List<GroupDataModel> groups, Map<GroupDataModel, ResourceSpatialStatistics> statistics) {
+        for (GroupDataModel group: groups) {
+            ResourceSpatialStatistics groupStatistics = statistics.get(group);
+            csv.append(getIntervalEnd())
+                .append(group)
+                .append(groupStatistics.getNumberOfTokens())
+                .append(groupStatistics.getMoransI())
+                .append(groupStatistics.getNearestNeighborIndex())
+                .append(groupStatistics.getNumberOfPatches())
+                .endRow();
+        }
+    }
+
+    @Override
+    public String getOutputFileExtension() {
+        return "-resource-spatial-statistics.txt";
+    }
+
+}
@@ -49,7 +49,8 @@ class SummaryProcessor extends SaveFileProcessor.Base {
             }
         }
 
-        writer.println("Participant, Group, Total Cumulative Tokens, Sanction costs, Sanction penalties");
+        CsvWriter csv = new CsvWriter(writer, ", ");
+        csv.append("Participant").append("Group").append("Total Cumulative Tokens").append("Sanction costs").append("Sanction penalties").endRow();
         for (GroupDataModel group: groups) {
             int totalTokensHarvested = 0;
             ArrayList<ClientData> clientDataList = new ArrayList<ClientData>(group.getClientDataMap().values());
@@ -60,10 +61,10 @@ class SummaryProcessor extends SaveFileProcessor.Base {
             	}
             });
             for (ClientData data : clientDataList) {
-                writer.println(String.format("%s, %s, %s, %s, %s", data, group, data.getTotalTokens(), data.getSanctionCosts(), data.getSanctionPenalties()));
+                csv.append(data).append(group).append(data.getTotalTokens()).append(data.getSanctionCosts()).append(data.getSanctionPenalties()).endRow();
                 totalTokensHarvested += data.getTotalTokens();
             }
-            writer.println(String.format("Group %s, %s, %s", group, group.getResourceDistributionSize(), totalTokensHarvested));
+            csv.append("Group " + group).append(group.getResourceDistributionSize()).append(totalTokensHarvested).endRow();
         }
         Map<GroupDataModel, SortedSet<ChatRequest>> chatRequestMap = new HashMap<GroupDataModel, SortedSet<ChatRequest>>();
         SortedSet<ChatRequest> allChatRequests = savedRoundData.getChatRequests();
@@ -83,25 +84,24 @@ class SummaryProcessor extends SaveFileProcessor.Base {
             for (GroupDataModel group: groups) {
                 SortedSet<ChatRequest> chatRequests = chatRequestMap.get(group);
                 if (chatRequests != null) {
-                    writer.println(group.toString());
+                    csv.append(group).endRow();
                     for (ChatRequest request: chatRequests) {
-                        writer.println(String.format("%s: %s (%s)", request.getSource(), request.toString(), (request.getCreationTime() - first.getCreationTime())/1000L));
+                        // free form transcript line rather than cells
+                        csv.append(request.getSource() + ": " + request + " (" + (request.getCreationTime() - first.getCreationTime())/1000L + ")").endRow();
                     }
                 }
             }
         }
-        writer.println("=========================================");
-        writer.println("Time, Participant, Token Collected?, Chat");
+        csv.append("=========================================").endRow();
+        csv.append("Time").append("Participant").append("Token Collected?").append("Chat").endRow();
         Map<Identifier, RuleVoteRequest> ruleVoteRequests = new HashMap<Identifier, RuleVoteRequest>();
         ArrayList<RuleSelectedUpdateEvent> ruleSelectedEvents = new ArrayList<RuleSelectedUpdateEvent>();
         for (PersistableEvent action: savedRoundData.getActions()) {
             if (action instanceof ChatRequest) {
-                writer.println(String.format("%s, %s, %s, %s", 
-                        savedRoundData.toSecondString(action), action.getId(), 0, action.toString()));
+                csv.append(savedRoundData.toSecondString(action)).append(action.getId()).append(0).append(action).endRow();
             }
             else if (action instanceof TokenCollectedEvent) {
-                writer.println(String.format("%s, %s, %s", 
-                        savedRoundData.toSecondString(action), action.getId(), "token collected"));
+                csv.append(savedRoundData.toSecondString(action)).append(action.getId()).append("token collected").endRow();
             }
             else if (action instanceof RuleVoteRequest) {
                 ruleVoteRequests.put(action.getId(), (RuleVoteRequest) action);
@@ -111,9 +111,9 @@ class SummaryProcessor extends SaveFileProcessor.Base {
             }
         }
         if (! ruleVoteRequests.isEmpty()) {
-            writer.println("=== Selected rules ===");
+            csv.append("=== Selected rules ===").endRow();
             for (RuleSelectedUpdateEvent event: ruleSelectedEvents) {
-                writer.println(event.toString());
+                csv.append(event).endRow();
             }
             for (GroupDataModel group: groups) {
                 ArrayList<ClientData> clientDataList = new ArrayList<ClientData>(group.getClientDataMap().values());
@@ -124,14 +124,15 @@ class SummaryProcessor extends SaveFileProcessor.Base {
                     }
                 });
                 
-                writer.println("=== Voting results for " + group.toString() + "===");
+                csv.append("=== Voting results for " + group.toString() + "===").endRow();
                 for (ClientData data: clientDataList) {
                     RuleVoteRequest request = ruleVoteRequests.get(data.getId());
-                    writer.println(String.format("%s, %s", data.getId(), request.getRule()));
+                    csv.append(data.getId()).append(request.getRule()).endRow();
                 }
                 
             }
         }
+        csv.flush();
     }
     
     @Override
@@ -0,0 +1,147 @@
+package edu.asu.commons.foraging.data;
+
+import java.awt.Point;
+import java.util.Collection;
+
+/**
+ * $Id$
+ *
+ * Incrementally maintains the sum of the neighborhood density dependent token probability over all empty
+ * cells in a single group's resource grid, i.e., the expected number of tokens that would regrow in the next tick.
+ *
+ * The density dependent generator gives an empty cell a probability of rate * (neighbors with tokens / valid neighbors)
+ * using the Moore neighborhood.  Instead of rescanning the grid for every interval we keep a token count for each cell's
+ * neighborhood and, for every possible number of valid neighbors, the sum of those counts over the empty cells.  Adding
+ * or removing a token only touches the 3x3 block around it and the expected token count is then available in constant time
+ * without any floating point drift.
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Rev$
+ */
+class TokenNeighborhoodDensity {
+
+    private final int width;
+    private final int height;
+    private final boolean[] tokens;
+    // number of tokens in each cell's Moore neighborhood, excluding the cell itself
+    private final int[] neighboringTokens;
+    // number of valid cells in each cell's Moore neighborhood, excluding the cell itself
+    private final int[] validNeighbors;
+    // sum of neighboringTokens over all empty cells, indexed by the number of valid neighbors those cells have
+    private final long[] emptyCellNeighboringTokens = new long[9];
+    private int numberOfTokens;
+
+    public TokenNeighborhoodDensity(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.tokens = new boolean[width * height];
+        this.neighboringTokens = new int[width * height];
+        this.validNeighbors = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int neighbors = -1;
+                for (int ny = Math.max(0, y - 1); ny <= Math.min(height - 1, y + 1); ny++) {
+                    neighbors += Math.min(width - 1, x + 1) - Math.max(0, x - 1) + 1;
+                }
+                validNeighbors[y * width + x] = neighbors;
+            }
+        }
+    }
+
+    public TokenNeighborhoodDensity(int width, int height, Collection<Point> tokenPositions) {
+        this(width, height);
+        addAll(tokenPositions);
+    }
+
+    public void addAll(Collection<Point> tokenPositions) {
+        for (Point position: tokenPositions) {
+            add(position);
+        }
+    }
+
+    public boolean add(Point position) {
+        return add(position.x, position.y);
+    }
+
+    public boolean add(int x, int y) {
+        if (! isValid(x, y)) {
+            return false;
+        }
+        int cell = y * width + x;
+        if (tokens[cell]) {
+            return false;
+        }
+        // the cell is no longer empty so its own neighborhood stops contributing.
+        emptyCellNeighboringTokens[validNeighbors[cell]] -= neighboringTokens[cell];
+        tokens[cell] = true;
+        numberOfTokens++;
+        updateNeighbors(x, y, 1);
+        return true;
+    }
+
+    public boolean remove(Point position) {
+        return remove(position.x, position.y);
+    }
+
+    public boolean remove(int x, int y) {
+        if (! isValid(x, y)) {
+            return false;
+        }
+        int cell = y * width + x;
+        if (! tokens[cell]) {
+            return false;
+        }
+        tokens[cell] = false;
+        numberOfTokens--;
+        updateNeighbors(x, y, -1);
+        emptyCellNeighboringTokens[validNeighbors[cell]] += neighboringTokens[cell];
+        return true;
+    }
+
+    private void updateNeighbors(int x, int y, int delta) {
+        for (int ny = Math.max(0, y - 1); ny <= Math.min(height - 1, y + 1); ny++) {
+            for (int nx = Math.max(0, x - 1); nx <= Math.min(width - 1, x + 1); nx++) {
+                if (nx == x && ny == y) {
+                    continue;
+                }
+                int neighbor = ny * width + nx;
+                neighboringTokens[neighbor] += delta;
+                if (! tokens[neighbor]) {
+                    emptyCellNeighboringTokens[validNeighbors[neighbor]] += delta;
+                }
+            }
+        }
+    }
+
+    private boolean isValid(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    public boolean isTokenAt(int x, int y) {
+        return isValid(x, y) && tokens[y * width + x];
+    }
+
+    public int getNumberOfTokens() {
+        return numberOfTokens;
+    }
+
+    /**
+     * Returns the sum over all empty cells of the fraction of their valid neighbors that have a token.
+     */
+    public double getNeighborsTokenRatioSum() {
+        double sum = 0;
+        for (int neighbors = 1; neighbors < emptyCellNeighboringTokens.length; neighbors++) {
+            sum += emptyCellNeighboringTokens[neighbors] / (double) neighbors;
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the expected number of new tokens for the given regrowth rate, i.e., the sum of
+     * rate * neighbors token ratio over all empty cells.
+     */
+    public double getTokenProbabilitySum(double regrowthRate) {
+        return regrowthRate * getNeighborsTokenRatioSum();
+    }
+
+}
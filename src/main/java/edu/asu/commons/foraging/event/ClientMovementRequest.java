@@ -27,6 +27,12 @@ public class ClientMovementRequest extends AbstractEvent implements ClientReques
     
     private Point position;
 
+    // client side System.nanoTime() when the participant pressed the key, only meaningful on the client
+    private final long clientTime = System.nanoTime();
+
+    // assigned by the client's MovementLatencyTracker, echoed back in ClientPositionUpdateEvents
+    private long sequenceNumber;
+
     public Point getPosition() {
         return position;
     }
@@ -44,6 +50,18 @@ public class ClientMovementRequest extends AbstractEvent implements ClientReques
         return direction;
     }
 
+    public long getClientTime() {
+        return clientTime;
+    }
+
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    public void setSequenceNumber(long sequenceNumber) {
+        this.sequenceNumber = sequenceNumber;
+    }
+
     public String toString() {
         return "Client update: " + getId() + "\n\tDirection: " + direction;
     }
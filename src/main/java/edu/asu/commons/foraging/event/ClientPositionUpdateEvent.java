@@ -29,27 +29,69 @@ public class ClientPositionUpdateEvent extends AbstractEvent {
     private final Point[] collectedTokenPositions;
     private final Resource[] addedResources;
     private final Resource[] removedResources;
+    // true if addedResources are all the tokens a client with a limited field of vision can see and replace the
+    // tokens it holds
+    private final boolean resourceSnapshot;
     // FIXME: merge these two using a Pair
     private final Map<Identifier, Integer> clientTokens;
     private final Map<Identifier, Point> clientPositions;
 //    private final List<Point> collectedTokens;
     private final Queue<RealTimeSanctionRequest> latestSanctions;
+    // a copy of the client's own data when this update resynchronizes a client with a limited field of vision,
+    // null otherwise
+    private final ClientData clientData;
     
     private final long timeLeft;
+
+    // the latest movement request from this client applied by the server and how long, in microseconds, the
+    // server took to apply it and then waited before sending this update.  0 if there was no new request.
+    private final long movementSequenceNumber;
+    private final int movementApplyTime;
+    private final int movementWaitTime;
     
     public ClientPositionUpdateEvent(ClientData data, 
             Resource[] addedResources, Resource[] removedResources, 
             Map<Identifier, Integer> clientTokens,
             Map<Identifier, Point> clientPositions, 
             long timeLeft) {
+        this(data, addedResources, removedResources, false, clientTokens, clientPositions, timeLeft);
+    }
+
+    public ClientPositionUpdateEvent(ClientData data,
+            Resource[] addedResources, Resource[] removedResources, boolean resourceSnapshot,
+            Map<Identifier, Integer> clientTokens,
+            Map<Identifier, Point> clientPositions,
+            long timeLeft) {
+        this(data, addedResources, removedResources, resourceSnapshot, null, clientTokens, clientPositions, timeLeft);
+    }
+
+    public ClientPositionUpdateEvent(ClientData data,
+            Resource[] addedResources, Resource[] removedResources, boolean resourceSnapshot,
+            ClientData clientData,
+            Map<Identifier, Integer> clientTokens,
+            Map<Identifier, Point> clientPositions,
+            long timeLeft) {
         super(data.getId());
         this.addedResources = addedResources;
+        this.clientData = clientData;
+        this.resourceSnapshot = resourceSnapshot;
         this.removedResources = removedResources;
         this.clientTokens = clientTokens;
         this.clientPositions = clientPositions;
         this.timeLeft = timeLeft;
         this.latestSanctions = data.getLatestSanctions();
         this.collectedTokenPositions = data.getCollectedTokenPositions().toArray(new Point[0]);
+        long[] movementTrace = data.getMovementTrace();
+        if (movementTrace == null) {
+            this.movementSequenceNumber = 0;
+            this.movementApplyTime = 0;
+            this.movementWaitTime = 0;
+        }
+        else {
+            this.movementSequenceNumber = movementTrace[0];
+            this.movementApplyTime = (int) ((movementTrace[2] - movementTrace[1]) / 1000L);
+            this.movementWaitTime = (int) ((System.nanoTime() - movementTrace[2]) / 1000L);
+        }
     }
 
     public int getCurrentTokens() {
@@ -72,6 +114,22 @@ public class ClientPositionUpdateEvent extends AbstractEvent {
         return removedResources;
     }
     
+    /**
+     * @return true if the added tokens are every token within the client's field of vision and replace all the
+     * tokens it currently holds.
+     */
+    public boolean isResourceSnapshot() {
+        return resourceSnapshot;
+    }
+
+    /**
+     * @return a copy of the client's own data if this update resynchronizes a client with a limited field of vision,
+     * null otherwise.
+     */
+    public ClientData getClientData() {
+        return clientData;
+    }
+
     public Point getClientPosition() {
         return getClientPosition(id);
     }
@@ -95,4 +153,23 @@ public class ClientPositionUpdateEvent extends AbstractEvent {
     public Point[] getCollectedTokenPositions() {
         return collectedTokenPositions;
     }
+
+    public long getMovementSequenceNumber() {
+        return movementSequenceNumber;
+    }
+
+    public int getMovementApplyTime() {
+        return movementApplyTime;
+    }
+
+    public int getMovementWaitTime() {
+        return movementWaitTime;
+    }
+
+    /**
+     * @return microseconds between the server receiving the acknowledged movement request and sending this update.
+     */
+    public int getMovementServerTime() {
+        return movementApplyTime + movementWaitTime;
+    }
 }
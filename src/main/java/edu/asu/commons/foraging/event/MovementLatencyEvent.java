@@ -0,0 +1,74 @@
+package edu.asu.commons.foraging.event;
+
+import edu.asu.commons.event.AbstractPersistableEvent;
+import edu.asu.commons.event.ClientRequest;
+import edu.asu.commons.net.Identifier;
+
+/**
+ * $Id$
+ * 
+ * Batch of end-to-end latency samples for a participant's movement requests, sent periodically by the client and
+ * stored in the save file.  All times are in microseconds, for each sample:
+ * <ul>
+ * <li>queue time: key press until the client's MessageQueue sent the request (includes throttling)</li>
+ * <li>round trip time: request sent until the ClientPositionUpdateEvent acknowledging it arrived</li>
+ * <li>server time: server received the request until it sent the acknowledging update, part of the round trip</li>
+ * <li>render time: acknowledging update arrived until the next repaint of the game board</li>
+ * </ul>
+ * Input to render latency is the sum of queue, round trip and render time.
+ * 
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public class MovementLatencyEvent extends AbstractPersistableEvent implements ClientRequest {
+
+    private static final long serialVersionUID = 2841906315716259447L;
+
+    private final long[] sequenceNumbers;
+    private final int[] queueTimes;
+    private final int[] roundTripTimes;
+    private final int[] serverTimes;
+    private final int[] renderTimes;
+
+    public MovementLatencyEvent(Identifier id, long[] sequenceNumbers, int[] queueTimes, int[] roundTripTimes, int[] serverTimes, int[] renderTimes) {
+        super(id);
+        this.sequenceNumbers = sequenceNumbers;
+        this.queueTimes = queueTimes;
+        this.roundTripTimes = roundTripTimes;
+        this.serverTimes = serverTimes;
+        this.renderTimes = renderTimes;
+    }
+
+    public int size() {
+        return sequenceNumbers.length;
+    }
+
+    public long[] getSequenceNumbers() {
+        return sequenceNumbers;
+    }
+
+    public int[] getQueueTimes() {
+        return queueTimes;
+    }
+
+    public int[] getRoundTripTimes() {
+        return roundTripTimes;
+    }
+
+    public int[] getServerTimes() {
+        return serverTimes;
+    }
+
+    public int[] getRenderTimes() {
+        return renderTimes;
+    }
+
+    public int getInputToRenderTime(int sample) {
+        return queueTimes[sample] + roundTripTimes[sample] + renderTimes[sample];
+    }
+
+    public String toString() {
+        return String.format("%d movement latency samples from %s", size(), getId());
+    }
+
+}
@@ -4,6 +4,7 @@ import java.awt.Point;
 import java.util.Collection;
 
 import edu.asu.commons.event.AbstractPersistableEvent;
+import edu.asu.commons.foraging.model.GroupDataModel;
 import edu.asu.commons.net.Identifier;
 /**
  * $Id$
@@ -17,14 +18,21 @@ import edu.asu.commons.net.Identifier;
 public class TokensMovedEvent extends AbstractPersistableEvent {
 
     private static final long serialVersionUID = -8130009188192973062L;
+    // null in save files written before the group was recorded
+    private final GroupDataModel group;
     private final Collection<Point> originalLocations;
     private final Collection<Point> newLocations;
     
-    public TokensMovedEvent(Collection<Point> originalLocations, Collection<Point> newLocations) {
+    public TokensMovedEvent(GroupDataModel group, Collection<Point> originalLocations, Collection<Point> newLocations) {
         super(Identifier.NULL);
+        this.group = group;
         this.originalLocations = originalLocations;
         this.newLocations = newLocations;
     }
+
+    public GroupDataModel getGroup() {
+        return group;
+    }
     
     public Collection<Point> getOriginalLocations() {
         return originalLocations;
@@ -59,7 +59,7 @@ public class GroupView extends GridView {
 
     @Override
     protected void paintTokens(Graphics2D graphics2D) {
-        super.paintCollection(groupDataModel.getResourcePositions(), graphics2D, scaledTokenImage);
+        paintTokenRuns(graphics2D, toOccupancy(groupDataModel.getResourcePositions()), 0, (int) boardSize.getHeight(), tokenStrip);
     }
 
     public void setGroupDataModel(GroupDataModel groupDataModel) {
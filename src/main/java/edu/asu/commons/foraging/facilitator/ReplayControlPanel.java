@@ -6,7 +6,6 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
 
 import javax.swing.Box;
 import javax.swing.BoxLayout;
@@ -16,6 +15,8 @@ import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JSlider;
 import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 
 import edu.asu.commons.event.EventChannelFactory;
 import edu.asu.commons.event.PersistableEvent;
@@ -28,6 +29,7 @@ import edu.asu.commons.foraging.event.ResourceAddedEvent;
 import edu.asu.commons.foraging.event.ResourcesAddedEvent;
 import edu.asu.commons.foraging.model.ClientData;
 import edu.asu.commons.foraging.model.GroupDataModel;
+import edu.asu.commons.foraging.model.ReplayCheckpointIndex;
 import edu.asu.commons.foraging.model.ServerDataModel;
 
 
@@ -51,7 +53,10 @@ public class ReplayControlPanel extends JPanel {
     private JButton nextRoundButton;
     private JButton previousRoundButton;
     private JLabel replayExperimentFilePath = new JLabel();
+    // scrubs through the round in seconds since its first token was added
     private JSlider slider = new JSlider(); 
+    // set while the slider follows the replay so that only the facilitator's own changes seek
+    private boolean updatingSlider;
     private File replayFile;
 
     private JButton previousFrameButton;
@@ -78,7 +83,15 @@ public class ReplayControlPanel extends JPanel {
         buttonPanel.add(Box.createHorizontalGlue());
         setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
         add(replayExperimentFilePath);
-//        add(slider);
+        slider.setEnabled(false);
+        slider.addChangeListener(new ChangeListener() {
+            public void stateChanged(ChangeEvent event) {
+                if (! updatingSlider && ! slider.getValueIsAdjusting()) {
+                    replayRoundThread.seekSeconds(slider.getValue());
+                }
+            }
+        });
+        add(slider);
         add(buttonPanel);
     }
     
@@ -91,7 +104,7 @@ public class ReplayControlPanel extends JPanel {
         this.replayFile = replayFilePath;
         replayExperimentFilePath.setText(replayFile.getAbsolutePath()); 
         replayRoundThread = new ReplayRoundThread(persister);
-        slider.setValue(0);
+        updateSlider(0, 0, false);
         getPreviousRoundButton().setEnabled(! isFirstRound());
         getNextRoundButton().setEnabled( ! isLastRound() );
         getNextFrameButton().setEnabled(true);
@@ -219,6 +232,18 @@ public class ReplayControlPanel extends JPanel {
         replayRoundThread.play();
     }
     
+    private void updateSlider(int value, int maximum, boolean enabled) {
+        updatingSlider = true;
+        try {
+            slider.setMaximum(maximum);
+            slider.setValue(value);
+            slider.setEnabled(enabled);
+        }
+        finally {
+            updatingSlider = false;
+        }
+    }
+
     private boolean isLastRound() {
         ServerConfiguration configuration = facilitatorWindow.getFacilitator().getServerConfiguration();
         return configuration.isLastRound();
@@ -235,20 +260,21 @@ public class ReplayControlPanel extends JPanel {
         private final List<PersistableEvent> actions;
         private final ServerDataModel serverDataModel;
         private Thread saveGameViewerThread;
-        private ListIterator<PersistableEvent> actionsIterator;
+        // index of the next event to apply, actions.size() once every event was applied
+        private volatile int nextEventIndex;
+        private ReplayCheckpointIndex checkpointIndex;
         private volatile boolean playing;
         private volatile boolean shouldBlock;
         private volatile long offset;
         private volatile long pauseTime;
         private volatile boolean abortedRound;
-        
-        private volatile PersistableEvent currentPersistableEvent;
 
         public ReplayRoundThread(IPersister<ServerConfiguration, RoundConfiguration> persister) {
             this.actions = new ArrayList<PersistableEvent>(persister.getActions());
             // FIXME: provide data model restore functionality in persister
 //            this.serverDataModel = persister.restoreInitialGameState();
             this.serverDataModel = new ServerDataModel(EventChannelFactory.create());
+            serverDataModel.setUndoEnabled(true);
             facilitatorWindow.getFacilitator().setServerDataModel(serverDataModel);
         }
         
@@ -269,6 +295,7 @@ public class ReplayControlPanel extends JPanel {
 //            facilitatorWindow.getFacilitator().getServerConfiguration().resetExperimentRoundConfiguration();
             serverDataModel.clear();
             actions.clear();
+            updatePosition();
             facilitatorWindow.initializeReplay();
         }
         
@@ -306,67 +333,107 @@ public class ReplayControlPanel extends JPanel {
         }
 
         private void step(int duration) {
-            long timeLeft = 0;
-            if (currentPersistableEvent == null) {
-                currentPersistableEvent = actionsIterator.next();
-            }
-            long initialTime = currentPersistableEvent.getCreationTime();
-            while (timeLeft < duration) {
-                serverDataModel.apply(currentPersistableEvent);
-                if (!actionsIterator.hasNext()) {
-                    getNextFrameButton().setEnabled(false);
-                    saveGameViewerThread.interrupt();
-                    break;
+            if (nextEventIndex < actions.size()) {
+                long initialTime = actions.get(nextEventIndex).getCreationTime();
+                while (nextEventIndex < actions.size() && actions.get(nextEventIndex).getCreationTime() - initialTime < duration) {
+                    checkpointIndex.apply(serverDataModel, nextEventIndex++);
                 }
-                currentPersistableEvent = actionsIterator.next();
-                timeLeft = currentPersistableEvent.getCreationTime() - initialTime; 
+            }
+            if (nextEventIndex >= actions.size()) {
+                getNextFrameButton().setEnabled(false);
+                saveGameViewerThread.interrupt();
             }
             getPreviousFrameButton().setEnabled(true);
-            facilitatorWindow.repaint();
+            updatePosition();
         }
         
-        // FIXME: oh goodness
-        // FIXME: deepali must clean this method up.
         private void reverseStep(int duration) {
-            long timeLeft = 0;
-            if (actionsIterator.hasPrevious()) {
-                PersistableEvent previous = actionsIterator.previous();
-                if (previous.equals(currentPersistableEvent)) {
-                    if (actionsIterator.hasPrevious()) {
-                        currentPersistableEvent = actionsIterator.previous();
-                    }
-                    else {
-                        getPreviousFrameButton().setEnabled(false);
-                        return;
-                    }
-                }
-                else {
-                    currentPersistableEvent = previous;
+            int lastAppliedIndex = nextEventIndex - 1;
+            int startIndex = checkpointIndex.getStartIndex();
+            if (lastAppliedIndex < startIndex) {
+                getPreviousFrameButton().setEnabled(false);
+                return;
+            }
+            long targetTime = actions.get(lastAppliedIndex).getCreationTime() - duration;
+            int index = lastAppliedIndex;
+            // reverse events one at a time while the undo journal covers them and fall back to the
+            // nearest checkpoint otherwise
+            while (index >= startIndex && actions.get(index).getCreationTime() > targetTime) {
+                if (! serverDataModel.unapply(actions.get(index))) {
+                    index = seek(targetTime) - 1;
+                    break;
                 }
+                index--;
             }
-            else {
+            setNextEventIndex(index + 1);
+            if (index < startIndex) {
                 getPreviousFrameButton().setEnabled(false);
+            }
+            getNextFrameButton().setEnabled(true);
+            updatePosition();
+        }
+
+        /**
+         * Pauses playback and moves the replayed round to the given number of seconds after its start, as
+         * chosen with the slider.
+         */
+        private void seekSeconds(int seconds) {
+            if (checkpointIndex == null) {
                 return;
             }
-            long initialTime = currentPersistableEvent.getCreationTime();
-            while (timeLeft < duration) {
-                serverDataModel.unapply(currentPersistableEvent);
-                if (actionsIterator.hasPrevious()) {
-                    currentPersistableEvent = actionsIterator.previous();
-                    timeLeft = initialTime - currentPersistableEvent.getCreationTime();
-                }
-                else {
-                    getPreviousFrameButton().setEnabled(false);
-                    facilitatorWindow.repaint();
-                    currentPersistableEvent = actionsIterator.next();
-                    return;
-                }
+            pause();
+            seek(getStartTime() + seconds * 1000L);
+            getPreviousFrameButton().setEnabled(nextEventIndex > checkpointIndex.getStartIndex());
+            getNextFrameButton().setEnabled(nextEventIndex < actions.size());
+            updatePosition();
+        }
+
+        /**
+         * Restores the replayed round to its state right after the last event created at or before the
+         * given time by way of the nearest replay checkpoint.
+         * 
+         * @return the index of the next event to be applied.
+         */
+        private int seek(long time) {
+            int nextIndex = checkpointIndex.seek(serverDataModel, time);
+            setNextEventIndex(nextIndex);
+            return nextIndex;
+        }
+
+        private void setNextEventIndex(int nextIndex) {
+            long previousTime = getNextEventTime();
+            nextEventIndex = nextIndex;
+            // shift the offset so that resuming playback waits for the events we just rewound past.
+            offset += previousTime - getNextEventTime();
+        }
+
+        /**
+         * Returns the creation time of the next event to be applied, or of the last event once all of them were.
+         */
+        private long getNextEventTime() {
+            if (actions.isEmpty()) {
+                return 0;
             }
-            // we looked too far back, advance the current persistable event pointer again to
-            // maintain the invariant that currentPersistableEvent is always the next-event-to-be-applied
-            actionsIterator.next();
-            currentPersistableEvent = actionsIterator.next();
+            return actions.get(Math.min(nextEventIndex, actions.size() - 1)).getCreationTime();
+        }
+
+        private long getStartTime() {
+            return actions.get(checkpointIndex.getStartIndex()).getCreationTime();
+        }
 
+        /**
+         * Moves the slider along with the replay and repaints, must be called on the event dispatch thread.
+         */
+        private void updatePosition() {
+            if (actions.isEmpty() || checkpointIndex == null) {
+                // stopped
+                updateSlider(0, 0, false);
+                facilitatorWindow.repaint();
+                return;
+            }
+            int length = (int) ((actions.get(actions.size() - 1).getCreationTime() - getStartTime()) / 1000L);
+            int position = (int) ((getNextEventTime() - getStartTime()) / 1000L);
+            updateSlider(position, length, true);
             facilitatorWindow.repaint();
         }
 
@@ -399,9 +466,9 @@ public class ReplayControlPanel extends JPanel {
 
                 }
             }
-            actionsIterator = actions.listIterator();
-            while (actionsIterator.hasNext()) {
-                PersistableEvent event = actionsIterator.next();
+            nextEventIndex = 0;
+            while (nextEventIndex < actions.size() - 1) {
+                PersistableEvent event = actions.get(nextEventIndex);
 //                System.err.println("skipping past spurious explicit collection mode requests: " + event);
 //                if (event instanceof FoodAddedEvent) {
 //                    break;
@@ -409,17 +476,15 @@ public class ReplayControlPanel extends JPanel {
                 if (event instanceof ResourceAddedEvent || event instanceof ResourcesAddedEvent) {
                     break;
                 }
+                nextEventIndex++;
             }
-            actionsIterator.previous();
+            checkpointIndex = new ReplayCheckpointIndex(actions);
+            checkpointIndex.initialize(serverDataModel, nextEventIndex);
             facilitatorWindow.initializeReplayRound();
+            updatePosition();
             saveGameViewerThread = new Thread() {
                 public void run() {
-                    // check to see if this is the first time through (null
-                    // actionsIterator) or if we've already completed one run and
-                    // are replaying (i.e., actionsIterator is not null but is
-                    // empty)
-                    currentPersistableEvent = actionsIterator.next();
-                    offset = getTimeOffset(currentPersistableEvent);
+                    offset = getTimeOffset(actions.get(nextEventIndex));
                     final long endTime = System.currentTimeMillis() + 240000L;
                     long timeLeft = 0;
                     // the basic algorithm here is:
@@ -448,19 +513,18 @@ public class ReplayControlPanel extends JPanel {
                                     saveGameViewerThread.wait();
                                 } catch (InterruptedException e) {}
                             }
-                            serverDataModel.apply(currentPersistableEvent);
+                            checkpointIndex.apply(serverDataModel, nextEventIndex++);
                             SwingUtilities.invokeLater(new Runnable() {
                                 public void run() {
                                     facilitatorWindow.updateWindow(endTime - System.currentTimeMillis());
-                                    facilitatorWindow.repaint();
+                                    updatePosition();
                                 }
                             });
-                            if (!actionsIterator.hasNext()) {
+                            if (nextEventIndex >= actions.size()) {
                                 playing = false;
                                 break;
                             }
-                            currentPersistableEvent = actionsIterator.next();
-                            timeLeft = (currentPersistableEvent.getCreationTime() + offset) - System.currentTimeMillis();
+                            timeLeft = (actions.get(nextEventIndex).getCreationTime() + offset) - System.currentTimeMillis();
                         }
                     }
                     getPlayButton().setText("Play");
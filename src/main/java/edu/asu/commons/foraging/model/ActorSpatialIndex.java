@@ -0,0 +1,211 @@
+package edu.asu.commons.foraging.model;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.asu.commons.net.Identifier;
+
+/**
+ * $Id$
+ *
+ * Spatial hash of actor positions on the resource grid.  The board is divided into square buckets of
+ * cellSize x cellSize cells so "which actors are within radius r of p" only looks at the buckets overlapping
+ * the query's bounding square instead of every actor.  Moving an actor is constant time.
+ *
+ * Also keeps a pairwise distance matrix whose rows are only recomputed for actors that moved since the
+ * last time the matrix was read.
+ *
+ * @author <a href='mailto:Allen.Lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public class ActorSpatialIndex {
+
+    public final static int DEFAULT_CELL_SIZE = 4;
+
+    private final int cellSize;
+    private final int columns;
+    private final int rows;
+    private final List<List<Identifier>> buckets;
+    private final Map<Identifier, Integer> slots = new HashMap<>();
+    private int[] xs = new int[8];
+    private int[] ys = new int[8];
+    private int[] bucketIndexes = new int[8];
+    private int size;
+    private double[][] distances = new double[8][8];
+    private boolean[] dirty = new boolean[8];
+    private boolean anyDirty;
+
+    public ActorSpatialIndex(int boardWidth, int boardHeight) {
+        this(boardWidth, boardHeight, DEFAULT_CELL_SIZE);
+    }
+
+    public ActorSpatialIndex(int boardWidth, int boardHeight, int cellSize) {
+        this.cellSize = Math.max(1, cellSize);
+        this.columns = Math.max(1, (boardWidth + this.cellSize - 1) / this.cellSize);
+        this.rows = Math.max(1, (boardHeight + this.cellSize - 1) / this.cellSize);
+        this.buckets = new ArrayList<>(columns * rows);
+        for (int i = 0; i < columns * rows; i++) {
+            buckets.add(new ArrayList<Identifier>(2));
+        }
+    }
+
+    /**
+     * Adds the actor at the given position or moves it there if it is already indexed.
+     */
+    public void put(Identifier id, Point position) {
+        Integer slot = slots.get(id);
+        int bucket = getBucketIndex(position.x, position.y);
+        if (slot == null) {
+            slot = size++;
+            ensureCapacity(size);
+            slots.put(id, slot);
+            buckets.get(bucket).add(id);
+        }
+        else if (xs[slot] == position.x && ys[slot] == position.y) {
+            return;
+        }
+        else if (bucketIndexes[slot] != bucket) {
+            buckets.get(bucketIndexes[slot]).remove(id);
+            buckets.get(bucket).add(id);
+        }
+        xs[slot] = position.x;
+        ys[slot] = position.y;
+        bucketIndexes[slot] = bucket;
+        dirty[slot] = true;
+        anyDirty = true;
+    }
+
+    public void putAll(Map<Identifier, Point> positions) {
+        for (Map.Entry<Identifier, Point> entry: positions.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public boolean contains(Identifier id) {
+        return slots.containsKey(id);
+    }
+
+    public Point getPosition(Identifier id) {
+        Integer slot = slots.get(id);
+        return (slot == null) ? null : new Point(xs[slot], ys[slot]);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the actors whose Euclidean distance to center is at most radius.
+     */
+    public List<Identifier> getActorsWithin(Point center, double radius) {
+        List<Identifier> actors = new ArrayList<>();
+        double radiusSquared = radius * radius;
+        int minimumColumn = toBucketColumn((int) Math.floor(center.x - radius));
+        int maximumColumn = toBucketColumn((int) Math.ceil(center.x + radius));
+        int minimumRow = toBucketRow((int) Math.floor(center.y - radius));
+        int maximumRow = toBucketRow((int) Math.ceil(center.y + radius));
+        for (int row = minimumRow; row <= maximumRow; row++) {
+            for (int column = minimumColumn; column <= maximumColumn; column++) {
+                for (Identifier id: buckets.get(row * columns + column)) {
+                    if (getDistanceSquared(slots.get(id), center) <= radiusSquared) {
+                        actors.add(id);
+                    }
+                }
+            }
+        }
+        return actors;
+    }
+
+    /**
+     * Returns true if any actor other than excluded is within radius of center.
+     */
+    public boolean isAnyActorWithin(Point center, double radius, Identifier excluded) {
+        double radiusSquared = radius * radius;
+        int minimumColumn = toBucketColumn((int) Math.floor(center.x - radius));
+        int maximumColumn = toBucketColumn((int) Math.ceil(center.x + radius));
+        int minimumRow = toBucketRow((int) Math.floor(center.y - radius));
+        int maximumRow = toBucketRow((int) Math.ceil(center.y + radius));
+        for (int row = minimumRow; row <= maximumRow; row++) {
+            for (int column = minimumColumn; column <= maximumColumn; column++) {
+                for (Identifier id: buckets.get(row * columns + column)) {
+                    if (! id.equals(excluded) && getDistanceSquared(slots.get(id), center) <= radiusSquared) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the distance between the two actors from the distance matrix, recomputing the rows of
+     * actors that moved since the matrix was last read.
+     */
+    public double getDistance(Identifier first, Identifier second) {
+        Integer firstSlot = slots.get(first);
+        Integer secondSlot = slots.get(second);
+        if (firstSlot == null || secondSlot == null) {
+            throw new IllegalArgumentException("actor not indexed: " + (firstSlot == null ? first : second));
+        }
+        if (anyDirty) {
+            updateDistances();
+        }
+        return distances[firstSlot][secondSlot];
+    }
+
+    private void updateDistances() {
+        for (int slot = 0; slot < size; slot++) {
+            if (! dirty[slot]) {
+                continue;
+            }
+            for (int other = 0; other < size; other++) {
+                double dx = xs[slot] - xs[other];
+                double dy = ys[slot] - ys[other];
+                double distance = Math.sqrt(dx * dx + dy * dy);
+                distances[slot][other] = distance;
+                distances[other][slot] = distance;
+            }
+            dirty[slot] = false;
+        }
+        anyDirty = false;
+    }
+
+    private double getDistanceSquared(int slot, Point center) {
+        double dx = xs[slot] - center.x;
+        double dy = ys[slot] - center.y;
+        return dx * dx + dy * dy;
+    }
+
+    private int getBucketIndex(int x, int y) {
+        return toBucketRow(y) * columns + toBucketColumn(x);
+    }
+
+    private int toBucketColumn(int x) {
+        return Math.max(0, Math.min(columns - 1, Math.floorDiv(x, cellSize)));
+    }
+
+    private int toBucketRow(int y) {
+        return Math.max(0, Math.min(rows - 1, Math.floorDiv(y, cellSize)));
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= xs.length) {
+            return;
+        }
+        int length = Math.max(capacity, xs.length * 2);
+        xs = Arrays.copyOf(xs, length);
+        ys = Arrays.copyOf(ys, length);
+        bucketIndexes = Arrays.copyOf(bucketIndexes, length);
+        dirty = Arrays.copyOf(dirty, length);
+        double[][] resized = new double[length][length];
+        for (int i = 0; i < distances.length; i++) {
+            System.arraycopy(distances[i], 0, resized[i], 0, distances[i].length);
+        }
+        distances = resized;
+    }
+
+}
@@ -0,0 +1,53 @@
+package edu.asu.commons.foraging.model;
+
+import java.awt.Point;
+
+/**
+ * $Id$
+ *
+ * Grid cell coordinates packed into a single int, x in the high and y in the low 16 bits, both signed so that cells
+ * just off the board (e.g., after moving left from x = 0) are still represented correctly.  Used on the server's
+ * movement and token collection path so that moving a participant doesn't allocate, Points are only created where
+ * they leave the model, e.g., for the UI or the network.
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public final class Cell {
+
+    private Cell() {
+    }
+
+    public static int pack(int x, int y) {
+        return (x << 16) | (y & 0xFFFF);
+    }
+
+    public static int valueOf(Point point) {
+        return pack(point.x, point.y);
+    }
+
+    public static int getX(int cell) {
+        return cell >> 16;
+    }
+
+    public static int getY(int cell) {
+        return (short) cell;
+    }
+
+    public static Point toPoint(int cell) {
+        return new Point(getX(cell), getY(cell));
+    }
+
+    /**
+     * Sets the given point to the coordinates of the cell and returns it.
+     */
+    public static Point toPoint(int cell, Point point) {
+        point.setLocation(getX(cell), getY(cell));
+        return point;
+    }
+
+    public static boolean equals(int cell, Point point) {
+        return getX(cell) == point.x && getY(cell) == point.y;
+    }
+
+}
@@ -2,6 +2,8 @@ package edu.asu.commons.foraging.model;
 
 import java.awt.Color;
 import java.awt.Point;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.LinkedList;
@@ -23,7 +25,7 @@ import edu.asu.commons.util.Duration;
  *
  * @author <a href='mailto:Allen.Lee@asu.edu'>Allen Lee</a>, Deepali Bhagvat
  */
-public class ClientData implements Serializable, Actor {
+public class ClientData implements Serializable, Cloneable, Actor {
 
     private static final long serialVersionUID = 5281922601551921005L;
 
@@ -45,6 +47,9 @@ public class ClientData implements Serializable, Actor {
     // stores the accumulated cost of sanctioning that this user has paid this round.
     private int sanctionCosts;
     private int assignedNumber;
+    // 2D position on the grid, see Cell
+    private int cell;
+    // only set in 3D experiments
     private Point3D position;
 
     private volatile boolean explicitCollectionMode;
@@ -84,15 +89,29 @@ public class ClientData implements Serializable, Actor {
     // this is only used in the Rotating Monitor enforcement mechanism.
     private int tokensCollectedDuringInterval = 0;
 
+    // server side trace of the latest movement request not yet acknowledged in a ClientPositionUpdateEvent
+    private transient long movementSequenceNumber;
+    private transient long movementReceivedAt;
+    private transient long movementAppliedAt;
+
+    // server side record of what this client was sent when its field of vision is limited, reset every round
+    private transient FieldOfVisionInterest fieldOfVisionInterest;
+
+    // server side buffer of movement requests waiting for the next server tick
+    private transient MovementQueue movementQueue;
+
     public ClientData(Identifier id) {
         this.id = id;
     }
 
     public Point getPoint() {
-        return new Point(Math.round(position.x), Math.round(position.y));
+        return Cell.toPoint(cell);
     }
 
     public Point3D getPoint3D() {
+        if (position == null) {
+            return new Point3D(Cell.getX(cell), Cell.getY(cell), 0.0f);
+        }
         return position;
     }
 
@@ -100,12 +119,33 @@ public class ClientData implements Serializable, Actor {
         return getPoint();
     }
 
+    /**
+     * Returns the grid cell this participant occupies packed into an int, see Cell.
+     */
+    public int getCell() {
+        return cell;
+    }
+
+    public void setCell(int cell) {
+        this.cell = cell;
+        this.position = null;
+    }
+
     public void setPosition(Point position) {
-        setPosition(new Point3D((float) position.x, (float) position.y, 0.0f));
+        setCell(Cell.valueOf(position));
     }
 
     public void setPosition(Point3D position) {
         this.position = position;
+        this.cell = Cell.pack(Math.round(position.x), Math.round(position.y));
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // saved before positions were stored as cells
+        if (position != null) {
+            cell = Cell.pack(Math.round(position.x), Math.round(position.y));
+        }
     }
 
     /**
@@ -150,10 +190,32 @@ public class ClientData implements Serializable, Actor {
             // field of vision enabled.
             return true;
         }
-        return circle.contains(subjectPosition);
+        // participants out of sight may not have a position on the client
+        return subjectPosition != null && circle.contains(subjectPosition);
         // could also do return circle == null || circle.contains(point);
     }
 
+    /**
+     * Only used on the server side.
+     */
+    public FieldOfVisionInterest getFieldOfVisionInterest() {
+        if (fieldOfVisionInterest == null) {
+            RoundConfiguration roundConfiguration = getGroupDataModel().getRoundConfiguration();
+            fieldOfVisionInterest = new FieldOfVisionInterest(roundConfiguration.getResourceWidth(), roundConfiguration.getResourceDepth());
+        }
+        return fieldOfVisionInterest;
+    }
+
+    /**
+     * Only used on the server side.
+     */
+    public synchronized MovementQueue getMovementQueue() {
+        if (movementQueue == null) {
+            movementQueue = new MovementQueue();
+        }
+        return movementQueue;
+    }
+
     public Circle getTokensFieldOfVision() {
         if (isTokensFieldOfVisionEnabled()) {
             return new Circle(getPoint(), viewTokensRadius);
@@ -169,6 +231,19 @@ public class ClientData implements Serializable, Actor {
         }
     }
 
+    /**
+     * Reverses addToken(position), only used when stepping backwards through a replay.
+     */
+    void removeToken(Point position) {
+        addTokens(-1);
+        synchronized (collectedTokenPositions) {
+            int index = collectedTokenPositions.lastIndexOf(position);
+            if (index >= 0) {
+                collectedTokenPositions.remove(index);
+            }
+        }
+    }
+
     public void clearCollectedTokens() {
         synchronized (collectedTokenPositions) {
             collectedTokenPositions.clear();
@@ -179,6 +254,36 @@ public class ClientData implements Serializable, Actor {
         return collectedTokenPositions;
     }
 
+    /**
+     * Records when the server received and applied the movement request with the given sequence number
+     * (System.nanoTime() values), replacing any earlier unacknowledged request.
+     */
+    public synchronized void recordMovement(long sequenceNumber, long receivedAt, long appliedAt) {
+        this.movementSequenceNumber = sequenceNumber;
+        this.movementReceivedAt = receivedAt;
+        this.movementAppliedAt = appliedAt;
+    }
+
+    /**
+     * Returns { sequence number, received at, applied at } for the latest unacknowledged movement request or
+     * null if there isn't one.
+     */
+    public synchronized long[] getMovementTrace() {
+        if (movementSequenceNumber == 0) {
+            return null;
+        }
+        return new long[] { movementSequenceNumber, movementReceivedAt, movementAppliedAt };
+    }
+
+    /**
+     * Clears the movement trace once it has been sent to the client, unless a newer request arrived meanwhile.
+     */
+    public synchronized void acknowledgeMovement(long sequenceNumber) {
+        if (movementSequenceNumber == sequenceNumber) {
+            movementSequenceNumber = 0;
+        }
+    }
+
     public int applyMonitorTax() {
         int monitorTax = tokensCollectedDuringInterval / 4;
         subtractTokens(monitorTax);
@@ -378,6 +483,25 @@ public class ClientData implements Serializable, Actor {
         this.groupDataModel = groupDataModel;
     }
 
+    /**
+     * Returns a copy of this participant's data that belongs to the given group instead, so that it can be sent to a
+     * client without dragging the entire group along, e.g., to clients with a limited field of vision.  The copy
+     * doesn't share the sanctions and collected tokens of this tick with the original.
+     */
+    public ClientData copy(GroupDataModel groupDataModel) {
+        try {
+            ClientData copy = (ClientData) super.clone();
+            copy.groupDataModel = groupDataModel;
+            copy.latestSanctions = new LinkedList<>(latestSanctions);
+            copy.collectedTokenPositions = new ArrayList<>(collectedTokenPositions);
+            copy.fieldOfVisionInterest = null;
+            copy.movementQueue = null;
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     public RegulationData getRegulationData() {
         return regulationData;
     }
@@ -422,6 +546,7 @@ public class ClientData implements Serializable, Actor {
     public void initializePosition() {
         RoundConfiguration roundConfiguration = getGroupDataModel().getRoundConfiguration();
         setExplicitCollectionMode(roundConfiguration.isAlwaysInExplicitCollectionMode());
+        fieldOfVisionInterest = null;
         subjectsFieldOfVisionEnabled = roundConfiguration.isSubjectsFieldOfVisionEnabled();
         if (subjectsFieldOfVisionEnabled) {
             viewSubjectsRadius = roundConfiguration.getViewSubjectsRadius();
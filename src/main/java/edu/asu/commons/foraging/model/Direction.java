@@ -59,6 +59,13 @@ public enum Direction {
         return new Point(point.x + dx, point.y + dy);
     }
 
+    /**
+     * Returns the packed Cell that would result from moving in this Direction from the given packed Cell.
+     */
+    public int apply(int cell) {
+        return Cell.pack(Cell.getX(cell) + dx, Cell.getY(cell) + dy);
+    }
+
     public abstract Direction opposite();
 
     public String toString() {
@@ -0,0 +1,136 @@
+package edu.asu.commons.foraging.model;
+
+import java.awt.Point;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.asu.commons.foraging.ui.Circle;
+import edu.asu.commons.foraging.ui.DiskMask;
+import edu.asu.commons.net.Identifier;
+
+/**
+ * $Id$
+ *
+ * Server side interest management for a client with a limited field of vision.  Instead of every token added to or
+ * removed from the group and the positions of every participant, the client is only sent what it can actually see,
+ * so the updates are smaller and don't leak anything outside its field of vision.
+ * <p>
+ * Keeps the set of cells the client currently holds a token for, which is always within its last field of vision.
+ * Every update the tokens that entered the field of vision, either because they were added or because the client
+ * moved towards them, are sent as added and the tokens that left it, either because they were removed or because
+ * the client moved away from them, are sent as removed, so the client only ever holds the tokens it can see.  The
+ * first update after a reset() is a snapshot of the visible tokens that replaces whatever the client held before.
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public class FieldOfVisionInterest {
+
+    private final int width;
+    private final int depth;
+    private final BitSet visibleCells;
+    private final Point cell = new Point();
+    // center and radius of the field of vision the client was last updated with, null until the first update
+    private Point center;
+    private double radius;
+
+    public FieldOfVisionInterest(int width, int depth) {
+        this.width = width;
+        this.depth = depth;
+        this.visibleCells = new BitSet(width * depth);
+    }
+
+    /**
+     * Forgets what the client was sent, the next call to getResourceChanges() returns a snapshot.
+     */
+    public void reset() {
+        visibleCells.clear();
+        center = null;
+    }
+
+    /**
+     * Adds the tokens that entered the given field of vision since the last update to entered and the tokens that
+     * left it to left.  Returns true if entered is a snapshot of every visible token and the client should drop all
+     * the tokens it currently holds before applying it.
+     */
+    public boolean getResourceChanges(Circle fieldOfVision, Map<Point, Resource> resourceDistribution,
+            List<Resource> entered, List<Resource> left) {
+        Point currentCenter = fieldOfVision.getCenter();
+        DiskMask mask = fieldOfVision.getDiskMask();
+        boolean snapshot = center == null;
+        if (!snapshot) {
+            DiskMask previousMask = DiskMask.forRadius(radius);
+            for (int i = 0; i < previousMask.size(); i++) {
+                int x = center.x + previousMask.getOffsetX(i);
+                int y = center.y + previousMask.getOffsetY(i);
+                if (x < 0 || x >= width || y < 0 || y >= depth) {
+                    continue;
+                }
+                int index = y * width + x;
+                if (!visibleCells.get(index)) {
+                    continue;
+                }
+                cell.setLocation(x, y);
+                if (!mask.contains(x - currentCenter.x, y - currentCenter.y) || !resourceDistribution.containsKey(cell)) {
+                    visibleCells.clear(index);
+                    left.add(new Resource(new Point(x, y)));
+                }
+            }
+        }
+        for (int i = 0; i < mask.size(); i++) {
+            int x = currentCenter.x + mask.getOffsetX(i);
+            int y = currentCenter.y + mask.getOffsetY(i);
+            if (x < 0 || x >= width || y < 0 || y >= depth) {
+                continue;
+            }
+            int index = y * width + x;
+            if (visibleCells.get(index)) {
+                continue;
+            }
+            cell.setLocation(x, y);
+            Resource resource = resourceDistribution.get(cell);
+            if (resource != null) {
+                visibleCells.set(index);
+                entered.add(resource);
+            }
+        }
+        center = new Point(currentCenter);
+        radius = fieldOfVision.getRadius();
+        return snapshot;
+    }
+
+    /**
+     * Returns the positions of the participants within the given field of vision and of the given participant itself.
+     * Participants leave the client's view by no longer being in the positions it is sent.
+     */
+    public static Map<Identifier, Point> getVisiblePositions(Identifier id, Circle fieldOfVision, Map<Identifier, Point> positions) {
+        Point center = fieldOfVision.getCenter();
+        DiskMask mask = fieldOfVision.getDiskMask();
+        Map<Identifier, Point> visiblePositions = new HashMap<>();
+        for (Map.Entry<Identifier, Point> entry : positions.entrySet()) {
+            Point position = entry.getValue();
+            if (entry.getKey().equals(id) || mask.contains(position.x - center.x, position.y - center.y)) {
+                visiblePositions.put(entry.getKey(), position);
+            }
+        }
+        return visiblePositions;
+    }
+
+    /**
+     * Returns the tokens collected by the given visible participants, so the client can't tell how well the
+     * participants it can't see are doing.
+     */
+    public static Map<Identifier, Integer> getVisibleTokens(Map<Identifier, Point> visiblePositions, Map<Identifier, Integer> clientTokens) {
+        Map<Identifier, Integer> visibleTokens = new HashMap<>();
+        for (Identifier id : visiblePositions.keySet()) {
+            Integer tokens = clientTokens.get(id);
+            if (tokens != null) {
+                visibleTokens.put(id, tokens);
+            }
+        }
+        return visibleTokens;
+    }
+
+}
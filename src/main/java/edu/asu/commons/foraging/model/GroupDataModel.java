@@ -9,14 +9,18 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import edu.asu.commons.event.EventChannel;
 import edu.asu.commons.experiment.DataModel;
+import edu.asu.commons.foraging.bot.BoardSnapshot;
 import edu.asu.commons.foraging.bot.Bot;
+import edu.asu.commons.foraging.bot.BotNavigator;
 import edu.asu.commons.foraging.bot.BotFactory;
 import edu.asu.commons.foraging.bot.BotType;
 import edu.asu.commons.foraging.bot.BotIdentifier;
@@ -50,6 +54,9 @@ public class GroupDataModel implements Comparable<GroupDataModel>, DataModel<Ser
 
     private static final long serialVersionUID = -4756267788191037505L;
 
+    // bots decide in parallel once a group has at least this many and the server data model allows it
+    public final static int PARALLEL_BOT_DECISION_THRESHOLD = 4;
+
     private transient Logger logger = Logger.getLogger(getClass().getName());
 
     // the subset of clients in ServerDataModel
@@ -57,12 +64,19 @@ public class GroupDataModel implements Comparable<GroupDataModel>, DataModel<Ser
     // FIXME: making this transient causes a NPE in the facilitator, should be transient however.
     private final Map<Point, Resource> resourceDistribution = new HashMap<>();
     private final List<Bot> bots = new ArrayList<>();
+    // shuffles the bot activation order every bot tick, reseeded in addBots
+    private transient Random botActivationRandom;
+    // created by the first bot tick, kept up to date with every token added or removed while holding the
+    // resourceDistribution lock
+    private transient BotNavigator botNavigator;
 
     private final transient Map<Identifier, Resource> resourceOwners = new HashMap<>();
     private transient Set<Resource> removedResources;
     private transient Set<Resource> addedResources;
 
     private transient ServerDataModel serverDataModel;
+    // reused to look up tokens by cell, only touched while holding the resourceDistribution lock
+    private transient Point resourceProbe;
 
     private final long groupId;
     private volatile static long nextGroupId = 0;
@@ -316,14 +330,14 @@ public class GroupDataModel implements Comparable<GroupDataModel>, DataModel<Ser
         }
         getRemovedResources().addAll(resourceDistribution.values());
         getAddedResources().clear();
-        resourceDistribution.clear();
+        clearResources();
     }
 
     /**
      * Perform all cleanup.
      */
     public void cleanupRound() {
-        resourceDistribution.clear();
+        clearResources();
         clearDiffLists();
         activeEnforcementMechanism = EnforcementMechanism.NONE;
         activeSanctionMechanism = SanctionMechanism.NONE;
@@ -335,6 +349,10 @@ public class GroupDataModel implements Comparable<GroupDataModel>, DataModel<Ser
         return resourceDistribution.containsKey(position);
     }
 
+    Resource getResource(Point position) {
+        return resourceDistribution.get(position);
+    }
+
     public void addResource(Point position) {
         addResource(position, 0);
     }
@@ -346,7 +364,7 @@ public class GroupDataModel implements Comparable<GroupDataModel>, DataModel<Ser
     public void addResource(Resource resource) {
         Point position = resource.getPosition();
         synchronized (resourceDistribution) {
-            resourceDistribution.put(position, resource);
+            putResource(position, resource);
         }
         getAddedResources().add(resource);
     }
@@ -355,7 +373,7 @@ public class GroupDataModel implements Comparable<GroupDataModel>, DataModel<Ser
         synchronized (resourceDistribution) {
             for (Point point : locations) {
                 Resource resource = new Resource(point);
-                resourceDistribution.put(point, resource);
+                putResource(point, resource);
                 getAddedResources().add(resource);
             }
         }
@@ -365,7 +383,7 @@ public class GroupDataModel implements Comparable<GroupDataModel>, DataModel<Ser
         synchronized (resourceDistribution) {
             for (Resource resource : resources) {
                 Point position = resource.getPosition();
-                resourceDistribution.put(position, resource);
+                putResource(position, resource);
                 getAddedResources().add(resource);
             }
         }
@@ -374,17 +392,46 @@ public class GroupDataModel implements Comparable<GroupDataModel>, DataModel<Ser
     void moveResources(Collection<Point> removedResources, Collection<Point> addedResources) {
         synchronized (resourceDistribution) {
             for (Point oldLocation : removedResources) {
-                Resource oldResource = resourceDistribution.remove(oldLocation);
+                Resource oldResource = takeResource(oldLocation);
                 getRemovedResources().add(oldResource);
             }
             for (Point newLocation : addedResources) {
                 Resource newResource = new Resource(newLocation);
-                resourceDistribution.put(newLocation, newResource);
+                putResource(newLocation, newResource);
                 getAddedResources().add(newResource);
             }
         }
     }
 
+    /**
+     * Replaces the resource distribution with fresh resources at the given positions without touching
+     * client state or the added / removed resource diffs.  Used to restore replay checkpoints.
+     */
+    void setResourcePositions(Collection<Point> positions) {
+        synchronized (resourceDistribution) {
+            clearResources();
+            for (Point position : positions) {
+                putResource(position, new Resource(position));
+            }
+        }
+    }
+
+    /**
+     * Puts back the given resource at position, or clears the position if resource is null, without
+     * touching the added / removed resource diffs.  Used to reverse events when stepping backwards
+     * through a replay.
+     */
+    void restoreResource(Point position, Resource resource) {
+        synchronized (resourceDistribution) {
+            if (resource == null) {
+                takeResource(position);
+            }
+            else {
+                putResource(position, resource);
+            }
+        }
+    }
+
     /**
      * Currently only invoked when replaying a round and stepping backwards.
      * 
@@ -392,7 +439,32 @@ public class GroupDataModel implements Comparable<GroupDataModel>, DataModel<Ser
      */
     public void removeResource(Point position) {
         synchronized (resourceDistribution) {
-            resourceDistribution.remove(position);
+            takeResource(position);
+        }
+    }
+
+    // putResource and takeResource keep the bot navigator in step and expect the caller to hold the
+    // resourceDistribution lock
+
+    private void putResource(Point position, Resource resource) {
+        if (resourceDistribution.put(position, resource) == null && botNavigator != null) {
+            botNavigator.tokenAdded(position);
+        }
+    }
+
+    private Resource takeResource(Point position) {
+        Resource resource = resourceDistribution.remove(position);
+        if (resource != null && botNavigator != null) {
+            botNavigator.tokenRemoved(position);
+        }
+        return resource;
+    }
+
+    private void clearResources() {
+        synchronized (resourceDistribution) {
+            resourceDistribution.clear();
+            // rebuilt from scratch by the next bot tick
+            botNavigator = null;
         }
     }
 
@@ -498,13 +570,12 @@ public class GroupDataModel implements Comparable<GroupDataModel>, DataModel<Ser
             return;
         }
         ClientData clientData = clients.get(id);
-        Point newPosition = direction.apply(clientData.getPoint());
-        // System.err.println(String.format("Moving client %s in direction %s to position %s", id, direction, newPosition));
-
-        if (serverDataModel.isValidPosition(newPosition)) {
+        // packed cells all the way down so moving doesn't allocate
+        int cell = direction.apply(clientData.getCell());
+        if (serverDataModel.isValidPosition(Cell.getX(cell), Cell.getY(cell))) {
             // check occupancy
-            if (isCellAvailable(newPosition) && isCellAllowed(clientData, newPosition)) {
-                clientData.setPosition(newPosition);
+            if (isCellAvailable(cell) && isCellAllowed(clientData, cell)) {
+                clientData.setCell(cell);
                 // if the client is explicitly collecting, then movement does not automatically
                 // collect a token.
                 if (clientData.isExplicitCollectionMode()) {
@@ -516,12 +587,28 @@ public class GroupDataModel implements Comparable<GroupDataModel>, DataModel<Ser
     }
 
     public boolean isCellAvailable(Point position) {
+        return isCellAvailable(Cell.valueOf(position));
+    }
+
+    /**
+     * Returns true if the given packed Cell has room for another participant or bot.
+     */
+    public boolean isCellAvailable(int cell) {
         RoundConfiguration currentRoundConfiguration = getRoundConfiguration();
         if (currentRoundConfiguration.isOccupancyEnabled()) {
             int maximumOccupancyPerCell = currentRoundConfiguration.getMaximumOccupancyPerCell();
             int currentOccupancy = 0;
-            for (Point otherPosition : getClientPositions().values()) {
-                if (position.equals(otherPosition)) {
+            for (ClientData clientData : clients.values()) {
+                if (clientData.getCell() == cell) {
+                    currentOccupancy++;
+                }
+                if (currentOccupancy >= maximumOccupancyPerCell) {
+                    return false;
+                }
+            }
+            for (Bot bot : bots) {
+                Point botPosition = bot.getPosition();
+                if (botPosition != null && Cell.equals(cell, botPosition)) {
                     currentOccupancy++;
                 }
                 if (currentOccupancy >= maximumOccupancyPerCell) {
@@ -537,10 +624,10 @@ public class GroupDataModel implements Comparable<GroupDataModel>, DataModel<Ser
      * move to the given position (assuming the position is valid and
      * available), based on zone rules.
      */
-    private boolean isCellAllowed(ClientData clientData, Point position) {
+    private boolean isCellAllowed(ClientData clientData, int cell) {
         RoundConfiguration roundConfiguration = getRoundConfiguration();
         if (roundConfiguration.areZonesAssigned() && roundConfiguration.isTravelRestricted(clientData.getZone())) {
-            int positionZone = position.y < serverDataModel.getBoardHeight() / 2 ? 0 : 1;
+            int positionZone = Cell.getY(cell) < serverDataModel.getBoardHeight() / 2 ? 0 : 1;
             if (positionZone != clientData.getZone()) {
                 return false;
             }
@@ -564,24 +651,76 @@ public class GroupDataModel implements Comparable<GroupDataModel>, DataModel<Ser
 
 
     public void collectToken(ClientData clientData) {
-        Point position = clientData.getPoint();
         synchronized (resourceDistribution) {
-            if (resourceDistribution.containsKey(position)) {
-                getRemovedResources().add(resourceDistribution.remove(position));
+            if (resourceProbe == null) {
+                resourceProbe = new Point();
+            }
+            Resource resource = takeResource(Cell.toPoint(clientData.getCell(), resourceProbe));
+            if (resource != null) {
+                getRemovedResources().add(resource);
+                // the collected token's own position, the probe is reused
+                Point position = resource.getPosition();
                 clientData.addToken(position);
                 getEventChannel().handle(new TokenCollectedEvent(clientData.getId(), position));
             }
         }
     }
 
-    public void collectToken(Bot bot) {
+    public boolean collectToken(Bot bot) {
         Point position = bot.getPosition();
         synchronized (resourceDistribution) {
             if (resourceDistribution.containsKey(position)) {
-                getRemovedResources().add(resourceDistribution.remove(position));
+                getRemovedResources().add(takeResource(position));
                 bot.addToken(position);
                 getEventChannel().handle(new TokenCollectedEvent(bot.getId(), position));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Applies an action decided by the given bot, returning false if the move was blocked or there was no longer
+     * a token to harvest.
+     */
+    public boolean apply(Bot bot, Bot.Action action) {
+        switch (action.getType()) {
+            case MOVE:
+                return move(bot, action.getDirection());
+            case HARVEST:
+                return collectToken(bot);
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Applies the token changes recorded since the last bot tick to the group's bot navigator and copies the
+     * cells participants and bots have filled up to the maximum occupancy.  Only called from the bot tick.
+     */
+    public BoardSnapshot createBoardSnapshot() {
+        RoundConfiguration roundConfiguration = getRoundConfiguration();
+        int width = roundConfiguration.getResourceWidth();
+        int depth = roundConfiguration.getResourceDepth();
+        Set<Point> blockedPositions = new HashSet<>();
+        if (roundConfiguration.isOccupancyEnabled()) {
+            int maximumOccupancyPerCell = roundConfiguration.getMaximumOccupancyPerCell();
+            Map<Point, Integer> occupancy = new HashMap<>();
+            for (Point position : getClientPositions().values()) {
+                if (occupancy.merge(position, 1, Integer::sum) >= maximumOccupancyPerCell) {
+                    blockedPositions.add(position);
+                }
+            }
+        }
+        synchronized (resourceDistribution) {
+            if (botNavigator == null || botNavigator.getWidth() != width || botNavigator.getDepth() != depth) {
+                botNavigator = new BotNavigator(width, depth);
+                for (Point position : resourceDistribution.keySet()) {
+                    botNavigator.tokenAdded(position);
+                }
             }
+            botNavigator.applyChanges();
+            return new BoardSnapshot(botNavigator, blockedPositions);
         }
     }
 
@@ -635,7 +774,7 @@ public class GroupDataModel implements Comparable<GroupDataModel>, DataModel<Ser
     }
 
     public void setServerDataModel(ServerDataModel state) {
-        resourceDistribution.clear();
+        clearResources();
         this.serverDataModel = state;
     }
 
@@ -643,6 +782,19 @@ public class GroupDataModel implements Comparable<GroupDataModel>, DataModel<Ser
         return new HashMap<Identifier, ClientData>(clients);
     }
 
+    /**
+     * Returns a copy of this group without its tokens and bots for clients with a limited field of vision, who are
+     * sent what they can see in their next update instead.  Keeps a copy of every participant's ClientData so that
+     * clients can still label their group members by assigned number.
+     */
+    public GroupDataModel createFieldOfVisionView() {
+        GroupDataModel view = new GroupDataModel(serverDataModel, groupId);
+        for (ClientData data : clients.values()) {
+            view.clients.put(data.getId(), data.copy(view));
+        }
+        return view;
+    }
+
     public void resetSanctionCounts() {
         for (ClientData data : clients.values()) {
             data.resetLatestSanctions();
@@ -671,7 +823,9 @@ public class GroupDataModel implements Comparable<GroupDataModel>, DataModel<Ser
             ClientData clientData = clients.get(id);
             clientData.addTokens(getRoundConfiguration().ageToTokens(resource.getAge()));
             Point position = resource.getPosition();
-            getRemovedResources().add(resourceDistribution.remove(position));
+            synchronized (resourceDistribution) {
+                getRemovedResources().add(takeResource(position));
+            }
             resourceOwners.remove(id);
         }
     }
@@ -733,6 +887,18 @@ public class GroupDataModel implements Comparable<GroupDataModel>, DataModel<Ser
         }
     }
 
+    /**
+     * Computes the token changes for a client with the given field of vision against the live token distribution
+     * while holding its lock, i.e., with point lookups over the visible cells instead of copying the whole board.
+     * See FieldOfVisionInterest.getResourceChanges().
+     */
+    public boolean getResourceChanges(FieldOfVisionInterest interest, Circle fieldOfVision,
+            List<Resource> entered, List<Resource> left) {
+        synchronized (resourceDistribution) {
+            return interest.getResourceChanges(fieldOfVision, resourceDistribution, entered, left);
+        }
+    }
+
     /**
      * Only invoked by the client side.
      * 
@@ -746,10 +912,10 @@ public class GroupDataModel implements Comparable<GroupDataModel>, DataModel<Ser
         }
         synchronized (resourceDistribution) {
             for (Resource resource : event.getRemovedTokens()) {
-                resourceDistribution.remove(resource.getPosition());
+                takeResource(resource.getPosition());
             }
             for (Resource resource : event.getAddedTokens()) {
-                resourceDistribution.put(resource.getPosition(), resource);
+                putResource(resource.getPosition(), resource);
             }
         }
     }
@@ -943,6 +1109,7 @@ public class GroupDataModel implements Comparable<GroupDataModel>, DataModel<Ser
                 bot.initialize(serverDataModel.getRoundConfiguration());
                 bots.add(bot);
             }
+            botActivationRandom = new Random(31L * configuration.getBotActivationSeed() + groupId);
         }
     }
 
@@ -954,10 +1121,33 @@ public class GroupDataModel implements Comparable<GroupDataModel>, DataModel<Ser
         return bots.size();
     }
 
+    /**
+     * Runs one bot tick in two phases.  Every bot first decides its action against the same board snapshot
+     * (on the calling thread unless the server data model opts into parallel bot decisions for larger groups),
+     * then the actions are applied one at a time in a freshly shuffled order so
+     * no bot consistently gets first pick of a contested token.  Given the bot-activation-seed the activation
+     * order is reproducible.
+     */
     public void activateBots(boolean resetBotActions) {
-        // FIXME: should do this in parallel or randomize iteration order for > 1 bot
-        for (Bot bot : bots) {
-            bot.act();
+        if (bots.isEmpty()) {
+            return;
+        }
+        if (botActivationRandom == null) {
+            botActivationRandom = new Random(31L * getRoundConfiguration().getBotActivationSeed() + groupId);
+        }
+        List<Bot> activationOrder = new ArrayList<>(bots);
+        Collections.shuffle(activationOrder, botActivationRandom);
+        BoardSnapshot board = createBoardSnapshot();
+        boolean parallel = activationOrder.size() >= PARALLEL_BOT_DECISION_THRESHOLD && serverDataModel.isParallelBotDecisions();
+        Stream<Bot> deciding = parallel
+                ? activationOrder.parallelStream()
+                : activationOrder.stream();
+        // collect() keeps the activation order even when deciding in parallel
+        List<Bot.Action> actions = deciding.map(bot -> bot.decide(board)).collect(Collectors.toList());
+        for (int i = 0; i < activationOrder.size(); i++) {
+            Bot bot = activationOrder.get(i);
+            Bot.Action action = actions.get(i);
+            bot.actionApplied(action, apply(bot, action), board);
             if (resetBotActions) {
                 bot.resetActionsTakenPerSecond();
             }
@@ -0,0 +1,146 @@
+package edu.asu.commons.foraging.model;
+
+/**
+ * $Id$
+ *
+ * Server side ring buffer of the movement requests a client sent since the last server tick.  The network thread
+ * offers requests as they arrive and the experiment thread drains them in one batch per tick, so moves are applied
+ * by the same thread and at the same point of the tick as every other change to the group.  Token collection
+ * requests go through the same buffer so that a client that moves and then collects collects at its new cell.
+ * <p>
+ * Draining enforces a budget of moves per second with a token bucket that holds at most one second's worth of
+ * moves.  Requests over budget, and requests that arrive while the buffer is full, are rejected and counted.
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public class MovementQueue {
+
+    public final static int DEFAULT_CAPACITY = 32;
+
+    public interface MovementHandler {
+        /**
+         * Applies a queued move, receivedAt is the System.nanoTime() at which the request was offered.
+         */
+        public void move(Direction direction, long sequenceNumber, long receivedAt);
+
+        /**
+         * Applies a queued token collection request, in order with the moves around it.
+         */
+        public default void collect(long receivedAt) {
+        }
+    }
+
+    // a null direction marks a token collection request
+    private final Direction[] directions;
+    private final long[] sequenceNumbers;
+    private final long[] receivedAt;
+    private int head;
+    private int size;
+
+    // 0 or less disables the budget
+    private int movesPerSecond;
+    private double allowance;
+    private long lastDrainTime;
+
+    private int overflowRejections;
+    private int rejectedMoves;
+
+    public MovementQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MovementQueue(int capacity) {
+        directions = new Direction[capacity];
+        sequenceNumbers = new long[capacity];
+        receivedAt = new long[capacity];
+    }
+
+    /**
+     * Discards all queued moves and starts over with a full budget of the given number of moves per second.
+     */
+    public synchronized void reset(int movesPerSecond) {
+        head = 0;
+        size = 0;
+        this.movesPerSecond = movesPerSecond;
+        allowance = movesPerSecond;
+        lastDrainTime = 0;
+        overflowRejections = 0;
+        rejectedMoves = 0;
+    }
+
+    /**
+     * Queues a move until the next drain, returns false and rejects it if the buffer is full.
+     */
+    public synchronized boolean offer(Direction direction, long sequenceNumber, long receivedAt) {
+        return add(direction, sequenceNumber, receivedAt);
+    }
+
+    /**
+     * Queues a token collection request behind the moves offered so far, returns false and rejects it if the buffer
+     * is full.  Collection requests don't count against the budget of moves.
+     */
+    public synchronized boolean offerCollection(long receivedAt) {
+        return add(null, 0, receivedAt);
+    }
+
+    private boolean add(Direction direction, long sequenceNumber, long receivedAt) {
+        if (size == directions.length) {
+            overflowRejections++;
+            rejectedMoves++;
+            return false;
+        }
+        int index = (head + size) % directions.length;
+        directions[index] = direction;
+        sequenceNumbers[index] = sequenceNumber;
+        this.receivedAt[index] = receivedAt;
+        size++;
+        return true;
+    }
+
+    /**
+     * Hands every queued move that fits the budget as of now (System.nanoTime()) and every collection request to the
+     * handler in the order they were offered and discards the rest.  Returns the number of requests rejected since
+     * the previous drain.
+     */
+    public synchronized int drain(long now, MovementHandler handler) {
+        if (movesPerSecond > 0 && lastDrainTime != 0) {
+            allowance = Math.min(movesPerSecond, allowance + (now - lastDrainTime) * movesPerSecond / 1.0e9d);
+        }
+        lastDrainTime = now;
+        int rejected = overflowRejections;
+        overflowRejections = 0;
+        for (; size > 0; size--) {
+            int index = head;
+            head = (head + 1) % directions.length;
+            Direction direction = directions[index];
+            directions[index] = null;
+            if (direction == null) {
+                handler.collect(receivedAt[index]);
+                continue;
+            }
+            if (movesPerSecond > 0) {
+                if (allowance < 1) {
+                    rejected++;
+                    rejectedMoves++;
+                    continue;
+                }
+                allowance--;
+            }
+            handler.move(direction, sequenceNumbers[index], receivedAt[index]);
+        }
+        return rejected;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of moves rejected since the last reset.
+     */
+    public synchronized int getRejectedMoves() {
+        return rejectedMoves;
+    }
+
+}
@@ -0,0 +1,110 @@
+package edu.asu.commons.foraging.model;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.asu.commons.foraging.bot.Bot;
+import edu.asu.commons.net.Identifier;
+
+/**
+ * $Id$
+ * 
+ * Compact snapshot of the replayable state of a ServerDataModel: one token bitset per group and the
+ * positions and token counts of every participant and bot.  Restoring a checkpoint and applying the
+ * events that follow it reproduces the state of a forward replay up to that point.
+ * 
+ * Only state changed by ServerDataModel.apply() is captured, resource ages are not preserved so
+ * this is only suitable for the 2D experiment.
+ * 
+ * @author <a href='mailto:Allen.Lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public class ReplayCheckpoint {
+
+    private final static int X = 0;
+    private final static int Y = 1;
+    private final static int CURRENT_TOKENS = 2;
+    private final static int TOTAL_TOKENS = 3;
+    private final static int EXPLICIT_COLLECTION_MODE = 4;
+
+    // index of the next event to apply after restoring this checkpoint
+    private final int eventIndex;
+    private final long time;
+    private final int boardWidth;
+    private final Map<GroupDataModel, BitSet> resources = new HashMap<>();
+    private final Map<Identifier, int[]> clients = new HashMap<>();
+    private final Map<Identifier, int[]> bots = new HashMap<>();
+
+    private ReplayCheckpoint(int eventIndex, long time, int boardWidth) {
+        this.eventIndex = eventIndex;
+        this.time = time;
+        this.boardWidth = boardWidth;
+    }
+
+    public static ReplayCheckpoint capture(ServerDataModel serverDataModel, int eventIndex, long time) {
+        ReplayCheckpoint checkpoint = new ReplayCheckpoint(eventIndex, time, serverDataModel.getBoardWidth());
+        for (GroupDataModel group: serverDataModel.getGroups()) {
+            BitSet tokens = new BitSet(serverDataModel.getBoardWidth() * serverDataModel.getBoardHeight());
+            for (Point position: group.getResourcePositions()) {
+                tokens.set(position.y * checkpoint.boardWidth + position.x);
+            }
+            checkpoint.resources.put(group, tokens);
+            for (ClientData clientData: group.getClientDataMap().values()) {
+                Point position = clientData.getPoint();
+                checkpoint.clients.put(clientData.getId(), new int[] {
+                    position.x, position.y, clientData.getCurrentTokens(), clientData.getTotalTokens(),
+                    clientData.isExplicitCollectionMode() ? 1 : 0
+                });
+            }
+            for (Bot bot: group.getBotMap().values()) {
+                Point position = bot.getPosition();
+                checkpoint.bots.put(bot.getId(), new int[] { position.x, position.y, bot.getCurrentTokens() });
+            }
+        }
+        return checkpoint;
+    }
+
+    public void restore(ServerDataModel serverDataModel) {
+        for (GroupDataModel group: serverDataModel.getGroups()) {
+            BitSet tokens = resources.get(group);
+            List<Point> positions = new ArrayList<>();
+            if (tokens != null) {
+                for (int cell = tokens.nextSetBit(0); cell >= 0; cell = tokens.nextSetBit(cell + 1)) {
+                    positions.add(new Point(cell % boardWidth, cell / boardWidth));
+                }
+            }
+            group.setResourcePositions(positions);
+            for (ClientData clientData: group.getClientDataMap().values()) {
+                int[] state = clients.get(clientData.getId());
+                if (state == null) {
+                    continue;
+                }
+                clientData.setPosition(new Point(state[X], state[Y]));
+                clientData.setCurrentTokens(state[CURRENT_TOKENS]);
+                clientData.setTotalTokens(state[TOTAL_TOKENS]);
+                clientData.setExplicitCollectionMode(state[EXPLICIT_COLLECTION_MODE] == 1);
+            }
+            for (Bot bot: group.getBotMap().values()) {
+                int[] state = bots.get(bot.getId());
+                if (state == null) {
+                    continue;
+                }
+                bot.setCurrentPosition(new Point(state[X], state[Y]));
+                bot.setCurrentTokens(state[CURRENT_TOKENS]);
+            }
+        }
+    }
+
+    public int getEventIndex() {
+        return eventIndex;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+}
@@ -0,0 +1,143 @@
+package edu.asu.commons.foraging.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.asu.commons.event.EventChannel;
+import edu.asu.commons.event.PersistableEvent;
+
+/**
+ * $Id$
+ *
+ * Supports random access into a replayed round.  A checkpoint of the ServerDataModel is captured every
+ * eventsPerCheckpoint events; seeking to a given time restores the nearest checkpoint at or before that
+ * time and only applies the events between the checkpoint and the target.
+ *
+ * Only the initial checkpoint is captured up front, the rest are captured the first time forward playback or
+ * a seek replays past them, so the index never replays more of the round than the caller asked for.
+ *
+ * @author <a href='mailto:Allen.Lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public class ReplayCheckpointIndex {
+
+    public final static int DEFAULT_EVENTS_PER_CHECKPOINT = 500;
+
+    private final List<PersistableEvent> actions;
+    private final int eventsPerCheckpoint;
+    private final List<ReplayCheckpoint> checkpoints = new ArrayList<>();
+
+    public ReplayCheckpointIndex(List<PersistableEvent> actions) {
+        this(actions, DEFAULT_EVENTS_PER_CHECKPOINT);
+    }
+
+    public ReplayCheckpointIndex(List<PersistableEvent> actions, int eventsPerCheckpoint) {
+        this.actions = actions;
+        this.eventsPerCheckpoint = Math.max(1, eventsPerCheckpoint);
+    }
+
+    /**
+     * Captures the initial checkpoint.  The server data model must be in the state it would be in right
+     * before the event at startIndex is applied.
+     */
+    public void initialize(ServerDataModel serverDataModel, int startIndex) {
+        checkpoints.clear();
+        checkpoints.add(ReplayCheckpoint.capture(serverDataModel, startIndex, getTime(startIndex)));
+    }
+
+    /**
+     * Restores the server data model to its state right after the last event created at or before the
+     * given time was applied.
+     *
+     * @return the index of the next event to apply.
+     */
+    public int seek(ServerDataModel serverDataModel, long time) {
+        // events are ordered by creation time, binary search for the first one created after the given time
+        int low = getStartIndex();
+        int high = actions.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (actions.get(middle).getCreationTime() <= time) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return seekToIndex(serverDataModel, low);
+    }
+
+    /**
+     * Restores the server data model to its state right before the event at the given index is applied.
+     *
+     * @return the index of the next event to apply.
+     */
+    public int seekToIndex(ServerDataModel serverDataModel, int targetIndex) {
+        if (checkpoints.isEmpty()) {
+            throw new IllegalStateException("replay checkpoint index must be initialized before use");
+        }
+        targetIndex = Math.max(getStartIndex(), Math.min(targetIndex, actions.size()));
+        ReplayCheckpoint checkpoint = checkpoints.get(0);
+        // checkpoints are ordered by event index so we can binary search for the closest preceding one
+        int low = 0;
+        int high = checkpoints.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            ReplayCheckpoint candidate = checkpoints.get(middle);
+            if (candidate.getEventIndex() <= targetIndex) {
+                checkpoint = candidate;
+                low = middle + 1;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+        EventChannel channel = serverDataModel.getEventChannel();
+        serverDataModel.setNullEventChannel();
+        try {
+            checkpoint.restore(serverDataModel);
+            // the undo journal no longer matches the model, rebuild it from the checkpoint onwards
+            serverDataModel.clearUndoRecords();
+            for (int index = checkpoint.getEventIndex(); index < targetIndex; index++) {
+                apply(serverDataModel, index);
+            }
+        }
+        finally {
+            serverDataModel.channel = channel;
+        }
+        return targetIndex;
+    }
+
+    /**
+     * Applies the event at the given index during forward playback.  At every checkpoint boundary the undo journal
+     * is capped to the events since the previous checkpoint, stepping back any further restores a checkpoint, and
+     * the checkpoint is captured if this is the first time the replay got this far.
+     */
+    public void apply(ServerDataModel serverDataModel, int index) {
+        serverDataModel.apply(actions.get(index));
+        int nextIndex = index + 1;
+        int eventsSinceStart = nextIndex - getStartIndex();
+        if (eventsSinceStart > 0 && eventsSinceStart % eventsPerCheckpoint == 0) {
+            serverDataModel.trimUndoRecords(eventsPerCheckpoint);
+            if (nextIndex == checkpoints.get(checkpoints.size() - 1).getEventIndex() + eventsPerCheckpoint) {
+                checkpoints.add(ReplayCheckpoint.capture(serverDataModel, nextIndex, getTime(nextIndex)));
+            }
+        }
+    }
+
+    private long getTime(int index) {
+        if (actions.isEmpty()) {
+            return 0;
+        }
+        return actions.get(Math.min(index, actions.size() - 1)).getCreationTime();
+    }
+
+    public int getStartIndex() {
+        return checkpoints.isEmpty() ? 0 : checkpoints.get(0).getEventIndex();
+    }
+
+    public int getNumberOfCheckpoints() {
+        return checkpoints.size();
+    }
+
+}
@@ -62,6 +62,16 @@ public class ResourceDispenser {
         }
     }
 
+    /**
+     * Notified after each group's resources have regrown, e.g., to time the regrowth per group.
+     */
+    public interface RegrowthListener {
+        /**
+         * @param startTime System.nanoTime() right before the group's resources started regrowing
+         */
+        public void regrown(GroupDataModel group, Set<Resource> resources, long startTime);
+    }
+
     private final ServerDataModel serverDataModel;
 
     private final Random random = new Random();
@@ -129,10 +139,23 @@ public class ResourceDispenser {
         return generateResources(getCurrentResourceGenerator());
     }
 
+    public Map<GroupDataModel, Set<Resource>> generateResources(RegrowthListener listener) {
+        return generateResources(getCurrentResourceGenerator(), listener);
+    }
+
     public Map<GroupDataModel, Set<Resource>> generateResources(ResourceGenerator generator) {
+        return generateResources(generator, null);
+    }
+
+    public Map<GroupDataModel, Set<Resource>> generateResources(ResourceGenerator generator, RegrowthListener listener) {
         Map<GroupDataModel, Set<Resource>> map = new HashMap<>();
         for (GroupDataModel group : serverDataModel.getGroups()) {
-            map.put(group, generator.generate(group));
+            long startTime = (listener == null) ? 0 : System.nanoTime();
+            Set<Resource> resources = generator.generate(group);
+            map.put(group, resources);
+            if (listener != null) {
+                listener.regrown(group, resources, startTime);
+            }
         }
         return map;
     }
@@ -5,9 +5,11 @@ import java.awt.Point;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.text.NumberFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -59,6 +61,10 @@ public class ServerDataModel extends ForagingDataModel {
     private transient Logger logger = Logger.getLogger( getClass().getName() );
     private transient Random random = new Random();
     private transient boolean dirty = false;
+    // undo journal for apply(), most recently applied event last.  null unless undo is enabled.
+    private transient Deque<UndoRecord> undoRecords;
+    // bots decide on the common fork join pool instead of the calling thread, see GroupDataModel.activateBots()
+    private transient boolean parallelBotDecisions;
     
 	// Maps client Identifiers to the GroupDataModel that the client belongs to 
     private final Map<Identifier, GroupDataModel> clientsToGroups = new HashMap<Identifier, GroupDataModel>();
@@ -81,6 +87,20 @@ public class ServerDataModel extends ForagingDataModel {
 		this.dirty = dirty;
 	}
 
+    public boolean isParallelBotDecisions() {
+        return parallelBotDecisions;
+    }
+
+    /**
+     * Off by default.  A bot's decision is a handful of lookups, so splitting a tick across the JVM wide common
+     * fork join pool only pays off for groups with many bots, and the pool is shared with everything else in the
+     * JVM, e.g., the other sessions a ForagingSessionManager hosts.  Only set it for a single simulation that has
+     * the machine to itself, and measure with the BotBenchmark parallelBotDecisions parameter first.
+     */
+    public void setParallelBotDecisions(boolean parallelBotDecisions) {
+        this.parallelBotDecisions = parallelBotDecisions;
+    }
+
     /**
      * Invoked when we try to reconstruct a server game state given a time-ordered Set of
      * PersistableEvents that was previously saved.  
@@ -89,6 +109,7 @@ public class ServerDataModel extends ForagingDataModel {
         // now we write the actual game action...
         // iterate through all stored Persistable Actions, executing them onto
         // the ForagerServerGameState.
+        UndoRecord undoRecord = (undoRecords == null) ? null : new UndoRecord(event);
         if (event instanceof AddClientEvent) {
             AddClientEvent addClientEvent = (AddClientEvent) event;
             ClientData clientData = addClientEvent.getClientData();
@@ -101,19 +122,54 @@ public class ServerDataModel extends ForagingDataModel {
         }
         else if (event instanceof ResourcesAddedEvent) {
             ResourcesAddedEvent resourcesAddedEvent = (ResourcesAddedEvent) event;
+            if (undoRecord != null) {
+                undoRecord.recordResources(resourcesAddedEvent.getGroup(), getPositions(resourcesAddedEvent.getResources()));
+            }
             addResources(resourcesAddedEvent.getGroup(), resourcesAddedEvent.getResources());
             setDirty(true);
         }
         else if (event instanceof MovementEvent) {
             MovementEvent movementEvent = (MovementEvent) event;
+            GroupDataModel group = getGroup(movementEvent.getId());
+            Point target = null;
+            if (undoRecord != null) {
+                Point position = getActor(group, movementEvent.getId()).getPosition();
+                target = movementEvent.getDirection().apply(position);
+                undoRecord.position = new Point(position);
+                undoRecord.recordResources(group, Collections.singletonList(target));
+            }
             moveClient(movementEvent.getId(), movementEvent.getDirection());
+            if (undoRecord != null) {
+                // the movement collected a token if the token at the target cell disappeared
+                undoRecord.flag = undoRecord.resources[0] != null && ! group.isResourceAt(target);
+            }
             setDirty(true);
         }
         else if (event instanceof ResourceAddedEvent) {
             ResourceAddedEvent resourceAddedEvent = (ResourceAddedEvent) event;
+            if (undoRecord != null) {
+                undoRecord.recordResources(resourceAddedEvent.getGroup(), Collections.singletonList(resourceAddedEvent.getPosition()));
+            }
             addResource(resourceAddedEvent.getGroup(), resourceAddedEvent.getResource());
             setDirty(true);
         } 
+        else if (event instanceof TokensMovedEvent) {
+            TokensMovedEvent tokensMovedEvent = (TokensMovedEvent) event;
+            GroupDataModel group = tokensMovedEvent.getGroup();
+            if (group == null) {
+                // older save files don't record the group the tokens moved in
+                logger.warning("unapplied event without a group:" + event);
+            }
+            else {
+                if (undoRecord != null) {
+                    List<Point> positions = new ArrayList<>(tokensMovedEvent.getOriginalLocations());
+                    positions.addAll(tokensMovedEvent.getNewLocations());
+                    undoRecord.recordResources(group, positions);
+                }
+                group.moveResources(tokensMovedEvent.getOriginalLocations(), tokensMovedEvent.getNewLocations());
+                setDirty(true);
+            }
+        }
         else if (event instanceof RealTimeSanctionRequest) {
             // currently unhandled.
         	setDirty(true);
@@ -124,16 +180,28 @@ public class ServerDataModel extends ForagingDataModel {
         }
         else if (event instanceof TokenCollectedEvent) {
             TokenCollectedEvent tokenCollectedEvent = (TokenCollectedEvent) event;
-            getGroup(event.getId()).removeResource(tokenCollectedEvent.getLocation());
+            GroupDataModel group = getGroup(event.getId());
+            if (undoRecord != null) {
+                // usually a no-op since the preceding MovementEvent already collected the token.
+                undoRecord.recordResources(group, Collections.singletonList(tokenCollectedEvent.getLocation()));
+            }
+            group.removeResource(tokenCollectedEvent.getLocation());
             setDirty(true);
         }
         else if (event instanceof ExplicitCollectionModeRequest) {
             ExplicitCollectionModeRequest request = (ExplicitCollectionModeRequest) event;
-            getClientData(request.getId()).setExplicitCollectionMode(request.isExplicitCollectionMode());
+            ClientData clientData = getClientData(request.getId());
+            if (undoRecord != null) {
+                undoRecord.flag = clientData.isExplicitCollectionMode();
+            }
+            clientData.setExplicitCollectionMode(request.isExplicitCollectionMode());
         }
         else {
             logger.warning("unapplied event:" + event);
         }
+        if (undoRecord != null) {
+            undoRecords.addLast(undoRecord);
+        }
     }
 
     public synchronized void removeClient(Identifier id) {
@@ -177,7 +245,7 @@ public class ServerDataModel extends ForagingDataModel {
     public void moveResources(GroupDataModel group, Collection<Point> removedPoints, Collection<Point> addedPoints) {
         // first remove all resources
         group.moveResources(removedPoints, addedPoints);
-        channel.handle(new TokensMovedEvent(removedPoints, addedPoints));
+        channel.handle(new TokensMovedEvent(group, removedPoints, addedPoints));
     }
 
     public void addResources(GroupDataModel group, Set<Resource> resources) {
@@ -402,8 +470,143 @@ public class ServerDataModel extends ForagingDataModel {
         random = new Random();
     }
 
-    public void unapply(PersistableEvent persistableEvent) {
-        logger.warning("unapply() not implemented yet: " + persistableEvent);
+    /**
+     * Turns on journaling of the state needed to reverse events passed to apply() so that
+     * a replay can step backwards via unapply() at constant cost per event.  Disabling it
+     * discards the journal.
+     */
+    public void setUndoEnabled(boolean enabled) {
+        undoRecords = enabled ? new ArrayDeque<UndoRecord>() : null;
+    }
+
+    public boolean isUndoEnabled() {
+        return undoRecords != null;
+    }
+
+    /**
+     * Discards the undo journal, must be invoked whenever the model state is replaced wholesale,
+     * e.g., after restoring a ReplayCheckpoint.
+     */
+    public void clearUndoRecords() {
+        if (undoRecords != null) {
+            undoRecords.clear();
+        }
+    }
+
+    /**
+     * Discards all but the given number of most recently journaled events so that the journal doesn't grow with
+     * the round, e.g., at replay checkpoint boundaries, where older events are reversed by restoring a checkpoint
+     * instead.
+     */
+    public void trimUndoRecords(int size) {
+        if (undoRecords != null) {
+            while (undoRecords.size() > size) {
+                undoRecords.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * Reverses the most recently applied event, which must be the given event.
+     * 
+     * @return false if the event could not be reversed, i.e., undo journaling is disabled, the
+     * event was not the last one applied or it has no inverse (AddClientEvent, ResetTokenDistributionRequest).
+     * The model is left untouched in that case and callers should fall back to a ReplayCheckpoint.
+     */
+    public boolean unapply(PersistableEvent event) {
+        if (undoRecords == null || undoRecords.isEmpty() || undoRecords.peekLast().event != event) {
+            return false;
+        }
+        UndoRecord undoRecord = undoRecords.peekLast();
+        if (event instanceof MovementEvent) {
+            GroupDataModel group = getGroup(event.getId());
+            Actor actor = getActor(group, event.getId());
+            Point target = actor.getPosition();
+            if (actor instanceof Bot) {
+                Bot bot = (Bot) actor;
+                bot.setCurrentPosition(undoRecord.position);
+                if (undoRecord.flag) {
+                    bot.setCurrentTokens(bot.getCurrentTokens() - 1);
+                }
+            }
+            else {
+                ClientData clientData = (ClientData) actor;
+                clientData.setPosition(undoRecord.position);
+                if (undoRecord.flag) {
+                    clientData.removeToken(target);
+                }
+            }
+            undoRecord.restoreResources();
+        }
+        else if (event instanceof ResourcesAddedEvent
+                || event instanceof ResourceAddedEvent
+                || event instanceof TokensMovedEvent
+                || event instanceof TokenCollectedEvent) {
+            undoRecord.restoreResources();
+        }
+        else if (event instanceof ExplicitCollectionModeRequest) {
+            getClientData(event.getId()).setExplicitCollectionMode(undoRecord.flag);
+        }
+        else if (event instanceof RealTimeSanctionRequest) {
+            // apply() doesn't modify any state for sanction requests so there is nothing to reverse.
+        }
+        else {
+            logger.warning("no inverse available for " + event);
+            return false;
+        }
+        undoRecords.removeLast();
+        setDirty(true);
+        return true;
+    }
+
+    private Actor getActor(GroupDataModel group, Identifier id) {
+        if (id instanceof BotIdentifier) {
+            return group.getBot((BotIdentifier) id);
+        }
+        return group.getClientData(id);
+    }
+
+    private static List<Point> getPositions(Collection<Resource> resources) {
+        List<Point> positions = new ArrayList<>(resources.size());
+        for (Resource resource: resources) {
+            positions.add(resource.getPosition());
+        }
+        return positions;
+    }
+
+    /**
+     * The state overwritten by a single applied event.
+     */
+    private static class UndoRecord {
+        private final PersistableEvent event;
+        // previous actor position for movement events
+        private Point position;
+        // whether a movement collected a token or the previous explicit collection mode
+        private boolean flag;
+        private GroupDataModel group;
+        private Point[] positions;
+        // the resources that were at positions before the event was applied, null for empty cells
+        private Resource[] resources;
+
+        UndoRecord(PersistableEvent event) {
+            this.event = event;
+        }
+
+        void recordResources(GroupDataModel group, List<Point> positions) {
+            this.group = group;
+            this.positions = positions.toArray(new Point[positions.size()]);
+            this.resources = new Resource[this.positions.length];
+            for (int i = 0; i < this.positions.length; i++) {
+                resources[i] = group.getResource(this.positions[i]);
+            }
+        }
+
+        void restoreResources() {
+            // restore in reverse order so the first recorded state wins when a position was recorded twice
+            for (int i = positions.length - 1; i >= 0; i--) {
+                group.restoreResource(positions[i], resources[i]);
+            }
+        }
     }
 
     public TrustGameResult calculateTrustGame(ClientData playerOne, ClientData playerTwo) {
@@ -0,0 +1,229 @@
+package edu.asu.commons.foraging.server;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.logging.Logger;
+
+import edu.asu.commons.event.Event;
+import edu.asu.commons.event.EventTypeChannel;
+import edu.asu.commons.event.PersistableEvent;
+import edu.asu.commons.event.RoundStartedMarkerEvent;
+import edu.asu.commons.foraging.bot.Bot;
+import edu.asu.commons.foraging.bot.BotType;
+import edu.asu.commons.foraging.conf.RoundConfiguration;
+import edu.asu.commons.foraging.conf.ServerConfiguration;
+import edu.asu.commons.foraging.event.MovementEvent;
+import edu.asu.commons.foraging.event.TokenCollectedEvent;
+import edu.asu.commons.foraging.model.ClientData;
+import edu.asu.commons.foraging.model.GroupDataModel;
+import edu.asu.commons.foraging.model.ResourceDispenser;
+import edu.asu.commons.foraging.model.ServerDataModel;
+import edu.asu.commons.net.Identifier;
+
+/**
+ * $Id$
+ *
+ * Runs a single bot-only round headlessly on a virtual clock: every simulated second the bots in each group act
+ * BOT_TICKS_PER_SECOND times (the server's 100ms bot tick) and the resource dispenser regrows once (the server's
+ * 1s tick), with no sleeping in between so a round finishes as fast as the CPU allows.
+ *
+ * The round parameters come from an existing configuration directory with any overrides applied on top via
+ * setProperty, and bots are always added using the round's bot-type and bots-per-group.  ServerDataModel only
+ * knows about groups through their participants, so each group is anchored by a single idle participant that
+ * never moves or collects tokens.
+ *
+ * If a save directory is given the round is persisted through ForagingPersister exactly like a live round so the
+ * usual save file processors can be run over it.  Event timestamps are wall clock times, so elapsed times in those
+ * save files are compressed accordingly; the virtual second of each event is not recoverable from the save file.
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Rev$
+ */
+public class BotSimulation implements Callable<BotSimulation.Result> {
+
+    public final static int BOT_TICKS_PER_SECOND = 10;
+
+    private final static Logger logger = Logger.getLogger(BotSimulation.class.getName());
+
+    private final String configurationDirectory;
+    private final int roundIndex;
+    private final Map<String, String> parameters;
+    private final int numberOfGroups;
+    private final File saveDirectory;
+
+    /**
+     * @param configurationDirectory directory or classpath resource containing server.xml and the round files
+     * @param roundIndex index of the round whose parameters should be simulated
+     * @param parameters round configuration properties to override, e.g., regrowth-rate, bot-type, resource-width
+     * @param numberOfGroups number of independent groups to simulate in this round
+     * @param saveDirectory where to persist the round or null to skip writing a save file
+     */
+    public BotSimulation(String configurationDirectory, int roundIndex, Map<String, String> parameters, int numberOfGroups, File saveDirectory) {
+        this.configurationDirectory = configurationDirectory;
+        this.roundIndex = roundIndex;
+        this.parameters = Collections.unmodifiableMap(new LinkedHashMap<String, String>(parameters));
+        this.numberOfGroups = numberOfGroups;
+        this.saveDirectory = saveDirectory;
+    }
+
+    @Override
+    public Result call() {
+        long startTime = System.nanoTime();
+        ServerConfiguration serverConfiguration = new ServerConfiguration(configurationDirectory);
+        List<RoundConfiguration> allParameters = serverConfiguration.getAllParameters();
+        if (roundIndex < 0 || roundIndex >= allParameters.size()) {
+            throw new IllegalArgumentException("no round " + roundIndex + " in " + configurationDirectory);
+        }
+        RoundConfiguration roundConfiguration = allParameters.get(roundIndex);
+        for (Map.Entry<String, String> entry: parameters.entrySet()) {
+            roundConfiguration.setProperty(entry.getKey(), entry.getValue());
+        }
+        final ForagingPersister persister;
+        if (saveDirectory == null) {
+            persister = null;
+        }
+        else {
+            serverConfiguration.setProperty("save-dir", saveDirectory.getPath());
+            persister = new ForagingPersister(serverConfiguration);
+            persister.initialize(roundConfiguration);
+        }
+        final Result result = new Result(parameters, numberOfGroups);
+        ServerDataModel serverDataModel = new ServerDataModel(new EventTypeChannel() {
+            public void handle(Event event) {
+                if (event instanceof MovementEvent) {
+                    result.moves++;
+                }
+                else if (event instanceof TokenCollectedEvent) {
+                    result.tokensCollected++;
+                }
+                if (persister != null && event instanceof PersistableEvent) {
+                    persister.store((PersistableEvent) event);
+                }
+            }
+        });
+        serverDataModel.setRoundConfiguration(roundConfiguration);
+        BotType botType = BotType.valueOf(roundConfiguration.getBotType());
+        int botsPerGroup = roundConfiguration.getBotsPerGroup();
+        for (int groupId = 1; groupId <= numberOfGroups; groupId++) {
+            GroupDataModel group = new GroupDataModel(serverDataModel, groupId);
+            serverDataModel.addClientToGroup(createIdleParticipant(), group);
+            group.addBots(botsPerGroup, botType);
+        }
+        ResourceDispenser resourceDispenser = new ResourceDispenser(serverDataModel);
+        resourceDispenser.initialize();
+        clearDiffLists(serverDataModel);
+        if (persister != null) {
+            persister.store(new RoundStartedMarkerEvent());
+        }
+
+        long duration = roundConfiguration.getDuration();
+        for (long second = 0; second < duration; second++) {
+            for (int tick = 1; tick <= BOT_TICKS_PER_SECOND; tick++) {
+                // bots reset their actions taken every BOT_TICKS_PER_SECOND ticks, same as ForagingServer
+                boolean resetBotActions = (tick == BOT_TICKS_PER_SECOND);
+                for (GroupDataModel group: serverDataModel.getGroups()) {
+                    group.activateBots(resetBotActions);
+                }
+                clearDiffLists(serverDataModel);
+            }
+            resourceDispenser.generateResources();
+            clearDiffLists(serverDataModel);
+        }
+
+        result.seconds = duration;
+        for (GroupDataModel group: serverDataModel.getGroups()) {
+            result.tokensLeft += group.getResourceDistributionSize();
+            for (Bot bot: group.getBotMap().values()) {
+                result.botTokens += bot.getCurrentTokens();
+            }
+        }
+        if (persister != null) {
+            persister.persist(serverDataModel);
+        }
+        result.elapsedTime = System.nanoTime() - startTime;
+        logger.fine("finished simulation " + result);
+        return result;
+    }
+
+    private void clearDiffLists(ServerDataModel serverDataModel) {
+        for (GroupDataModel group: serverDataModel.getGroups()) {
+            group.clearDiffLists();
+        }
+    }
+
+    // Identifier.Base hands out ids from a shared counter
+    private static synchronized ClientData createIdleParticipant() {
+        return new ClientData(new Identifier.Base());
+    }
+
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Totals over all groups in a single simulated round.
+     */
+    public static class Result {
+        private final Map<String, String> parameters;
+        private final int numberOfGroups;
+        private long seconds;
+        private long moves;
+        private long tokensCollected;
+        private long botTokens;
+        private long tokensLeft;
+        private long elapsedTime;
+
+        Result(Map<String, String> parameters, int numberOfGroups) {
+            this.parameters = parameters;
+            this.numberOfGroups = numberOfGroups;
+        }
+
+        public Map<String, String> getParameters() {
+            return parameters;
+        }
+
+        public int getNumberOfGroups() {
+            return numberOfGroups;
+        }
+
+        /**
+         * Returns the number of simulated seconds.
+         */
+        public long getSeconds() {
+            return seconds;
+        }
+
+        public long getMoves() {
+            return moves;
+        }
+
+        public long getTokensCollected() {
+            return tokensCollected;
+        }
+
+        public long getBotTokens() {
+            return botTokens;
+        }
+
+        public long getTokensLeft() {
+            return tokensLeft;
+        }
+
+        /**
+         * Returns the wall clock time taken by the simulation in nanoseconds.
+         */
+        public long getElapsedTime() {
+            return elapsedTime;
+        }
+
+        public String toString() {
+            return String.format("%s groups=%d seconds=%d moves=%d tokens collected=%d tokens left=%d (%d ms)",
+                    parameters, numberOfGroups, seconds, moves, tokensCollected, tokensLeft, elapsedTime / 1000000L);
+        }
+    }
+
+}
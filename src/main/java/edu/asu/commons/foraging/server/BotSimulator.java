@@ -0,0 +1,63 @@
+package edu.asu.commons.foraging.server;
+
+import java.io.File;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * $Id$
+ *
+ * Command line front end for the common bot-only experiment: a grid ParameterSweep over regrowth rate, bot type
+ * and board size, replicated as many times as requested.  Parameters that aren't given keep the values from the
+ * round configuration.  Use a sweep specification file with ParameterSweep directly for anything else.
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Rev$
+ */
+public class BotSimulator {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: java " + BotSimulator.class.getName() + " <configuration-directory> <output-directory>"
+                    + " [round=0] [regrowth-rate=0.01,0.02] [bot-type=AGGRESSIVE,RANDOM] [board-size=13,28]"
+                    + " [replications=1] [groups=1] [threads=n] [save]");
+            System.exit(0);
+        }
+        // bots and resource generators log every tick
+        Logger.getLogger("edu.asu.commons.foraging").setLevel(Level.WARNING);
+        ParameterSweep sweep = new ParameterSweep(args[0], new File(args[1]));
+        for (int i = 2; i < args.length; i++) {
+            String argument = args[i];
+            String value = argument.substring(argument.indexOf('=') + 1);
+            if (argument.startsWith("round=")) {
+                sweep.setRoundIndex(Integer.parseInt(value));
+            }
+            else if (argument.startsWith("regrowth-rate=")) {
+                sweep.addParameter("regrowth-rate", value);
+            }
+            else if (argument.startsWith("bot-type=")) {
+                sweep.addParameter("bot-type", value.toUpperCase());
+            }
+            else if (argument.startsWith("board-size=")) {
+                sweep.addParameter(ParameterSweep.BOARD_SIZE, value);
+            }
+            else if (argument.startsWith("replications=")) {
+                sweep.setReplications(Integer.parseInt(value));
+            }
+            else if (argument.startsWith("groups=")) {
+                sweep.setNumberOfGroups(Integer.parseInt(value));
+            }
+            else if (argument.startsWith("threads=")) {
+                sweep.setNumberOfThreads(Integer.parseInt(value));
+            }
+            else if ("save".equals(argument)) {
+                sweep.setSaveEnabled(true);
+            }
+            else {
+                System.err.println("Ignoring unrecognized argument " + argument);
+            }
+        }
+        sweep.run();
+    }
+
+}
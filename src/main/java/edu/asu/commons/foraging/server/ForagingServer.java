@@ -2,10 +2,12 @@ package edu.asu.commons.foraging.server;
 
 import java.awt.Point;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -44,6 +46,7 @@ import edu.asu.commons.foraging.event.HarvestResourceRequest;
 import edu.asu.commons.foraging.event.ImposeStrategyEvent;
 import edu.asu.commons.foraging.event.LockResourceEvent;
 import edu.asu.commons.foraging.event.LockResourceRequest;
+import edu.asu.commons.foraging.event.MovementLatencyEvent;
 import edu.asu.commons.foraging.event.PostRoundSanctionRequest;
 import edu.asu.commons.foraging.event.PostRoundSanctionUpdateEvent;
 import edu.asu.commons.foraging.event.QuizCompletedEvent;
@@ -67,12 +70,15 @@ import edu.asu.commons.foraging.event.UnlockResourceRequest;
 import edu.asu.commons.foraging.model.ClientData;
 import edu.asu.commons.foraging.model.Direction;
 import edu.asu.commons.foraging.model.EnforcementMechanism;
+import edu.asu.commons.foraging.model.FieldOfVisionInterest;
 import edu.asu.commons.foraging.model.GroupDataModel;
+import edu.asu.commons.foraging.model.MovementQueue;
 import edu.asu.commons.foraging.model.Resource;
 import edu.asu.commons.foraging.model.ResourceDispenser;
 import edu.asu.commons.foraging.model.ServerDataModel;
 import edu.asu.commons.foraging.model.TrustGameResult;
 import edu.asu.commons.foraging.rules.Strategy;
+import edu.asu.commons.foraging.server.ServerMetrics.GroupMetric;
 import edu.asu.commons.foraging.ui.Circle;
 import edu.asu.commons.net.Dispatcher;
 import edu.asu.commons.net.Identifier;
@@ -94,6 +100,8 @@ public class ForagingServer extends AbstractExperiment<ServerConfiguration, Roun
 
     private final Map<Identifier, ClientData> clients = new HashMap<>();
     private final HashSet<Identifier> synchronizedClients = new HashSet<>();
+    // clients with a limited field of vision whose next update is a snapshot of their view plus their own ClientData
+    private final HashSet<Identifier> resynchronizedClients = new HashSet<>();
 
     public final static int SYNCHRONIZATION_FREQUENCY = 60;
     public final static int SERVER_SLEEP_INTERVAL = 75;
@@ -108,6 +116,11 @@ public class ForagingServer extends AbstractExperiment<ServerConfiguration, Roun
 
     private Persister<ServerConfiguration, RoundConfiguration> persister;
 
+    private final ServerMetrics metrics = new ServerMetrics();
+
+    // shared with the other sessions hosted by a ForagingSessionManager, null for a standalone server
+    private final ScheduledExecutorService scheduler;
+
     private volatile int numberOfSubmittedQuizzes;
     private volatile int numberOfCompletedSanctions;
     private volatile int numberOfCompletedAgentDesigns;
@@ -127,8 +140,18 @@ public class ForagingServer extends AbstractExperiment<ServerConfiguration, Roun
     }
 
     public ForagingServer(ServerConfiguration configuration) {
+        this(configuration, null, null);
+    }
+
+    /**
+     * Creates a server for one of several sessions hosted in the same process, identified by the given session name,
+     * that runs its timers on the given shared scheduler instead of creating its own threads.
+     */
+    public ForagingServer(ServerConfiguration configuration, String session, ScheduledExecutorService scheduler) {
         super(configuration);
+        this.scheduler = scheduler;
         persister = new ForagingPersister(getEventChannel(), configuration);
+        metrics.register(session);
     }
 
     @Override
@@ -153,6 +176,8 @@ public class ForagingServer extends AbstractExperiment<ServerConfiguration, Roun
         } else if (input.equals("skip-post-round-sanction")) {
             System.out.println("Skipping post round sanctioning");
             Utils.notify(facilitatorSignal);
+        } else if (input.equals("metrics")) {
+            System.out.println(metrics.getReport());
         } else if (input.equals("process-savefiles")) {
             System.out.print("Please enter the save directory path: ");
             try {
@@ -350,8 +375,21 @@ public class ForagingServer extends AbstractExperiment<ServerConfiguration, Roun
                     if (serverState == ServerState.IN_BETWEEN_ROUNDS)
                         return;
                     Identifier id = event.getId();
-                    Direction direction = event.getDirection();
-                    serverDataModel.moveClient(id, direction);
+                    ClientData clientData = clients.get(id);
+                    if (clientData == null) {
+                        return;
+                    }
+                    // applied by the experiment thread at the start of the next tick, see applyMovements()
+                    clientData.getMovementQueue().offer(event.getDirection(), event.getSequenceNumber(), System.nanoTime());
+                    metrics.movementRequested(serverDataModel.getGroup(id), id);
+                }
+            });
+            addEventProcessor(new EventTypeProcessor<MovementLatencyEvent>(MovementLatencyEvent.class) {
+                public void handle(MovementLatencyEvent event) {
+                    // late reports would end up in the next round's save file
+                    if (serverState == ServerState.ROUND_IN_PROGRESS) {
+                        persister.store(event);
+                    }
                 }
             });
 
@@ -362,12 +400,26 @@ public class ForagingServer extends AbstractExperiment<ServerConfiguration, Roun
             });
             addEventProcessor(new EventTypeProcessor<CollectTokenRequest>(CollectTokenRequest.class) {
                 @Override
-                public void handleInExperimentThread(CollectTokenRequest event) {
+                public void handle(CollectTokenRequest event) {
+                    if (event.isSinglePlayer() || serverState == ServerState.IN_BETWEEN_ROUNDS) {
+                        return;
+                    }
                     ClientData clientData = clients.get(event.getId());
+                    if (clientData != null) {
+                        // queued behind the client's moves so that move then collect collects at the new cell, see
+                        // applyMovements()
+                        clientData.getMovementQueue().offerCollection(System.nanoTime());
+                    }
+                }
+
+                @Override
+                public void handleInExperimentThread(CollectTokenRequest event) {
                     if (event.isSinglePlayer()) {
+                        // single player rounds don't queue moves, the client sends its own position along
+                        ClientData clientData = clients.get(event.getId());
                         clientData.setPosition(event.getPosition());
+                        serverDataModel.handleTokenCollectionRequest(clientData);
                     }
-                    serverDataModel.handleTokenCollectionRequest(clientData);
                 }
             });
             addEventProcessor(new EventTypeProcessor<ResetTokenDistributionRequest>(ResetTokenDistributionRequest.class) {
@@ -710,14 +762,16 @@ public class ForagingServer extends AbstractExperiment<ServerConfiguration, Roun
                             transmit(new BeginChatRoundRequest(id, clientData.getGroupDataModel()));
                         }
                         // start a thread of execution to count down from chat duration, starting now
-                        ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
+                        ScheduledExecutorService executor = (scheduler == null) ? Executors.newScheduledThreadPool(1) : scheduler;
                         int chatDuration = currentRoundConfiguration.getChatDuration();
                         executor.schedule(() -> {
                             for (Identifier id : clients.keySet()) {
                                 transmit(new ShowInstructionsRequest(id));
                             }
                             sendFacilitatorMessage("SYSTEM NOTICE: Dedicated chat round ended, ready to start the next round (Round -> Start)");
-                            executor.shutdown();
+                            if (executor != scheduler) {
+                                executor.shutdown();
+                            }
                         }, chatDuration, TimeUnit.SECONDS);
 
                     }
@@ -914,12 +968,33 @@ public class ForagingServer extends AbstractExperiment<ServerConfiguration, Roun
                 Utils.waitOn(facilitatorSignal);
             }
             persister.persist(serverDataModel);
+            for (ClientData data : clients.values()) {
+                int rejectedMoves = data.getMovementQueue().getRejectedMoves();
+                if (rejectedMoves > 0) {
+                    getLogger().warning(data.getId() + " exceeded the movement budget, rejected moves: " + rejectedMoves);
+                }
+            }
+            writeMetrics();
             cleanupRound();
             // FIXME: make sure this is needed and document.
             // Utils.sleep(2000);
             advanceToNextRound();
         }
 
+        private void writeMetrics() {
+            if (! metrics.isRecording()) {
+                return;
+            }
+            File metricsFile = new File(getConfiguration().getMetricsDirectory(),
+                    String.format("round-%d-%tY%<tm%<td-%<tH%<tM%<tS-metrics.txt", getConfiguration().getCurrentRoundIndex(), new Date()));
+            try {
+                metrics.writeReport(metricsFile);
+                sendFacilitatorMessage(metrics.getSummary() + ", full report in " + metricsFile);
+            } catch (IOException exception) {
+                sendFacilitatorMessage("Unable to write server metrics to " + metricsFile, exception);
+            }
+        }
+
         private void cleanupRound() {
             numberOfSubmittedQuizzes = 0;
             groupsInitialized = false;
@@ -991,28 +1066,46 @@ public class ForagingServer extends AbstractExperiment<ServerConfiguration, Roun
                 processSinglePlayerRound();
                 return;
             }
+            long tickStartTime = System.nanoTime();
             secondTick.onTick(
                     (duration) -> {
                         for (ClientData data : clients.values()) {
                             if (shouldSynchronize(data, duration)) {
-                                getLogger().info("Sending full sync to: " + data.getId());
-                                transmit(new SynchronizeClientEvent(data, currentRoundDuration.getTimeLeft()));
-                                synchronizedClients.add(data.getId());
+                                if (isFieldOfVisionLimited(data)) {
+                                    // a full sync carries the entire group, resynchronize with the next update instead
+                                    getLogger().info("Resynchronizing field of vision of: " + data.getId());
+                                    data.getFieldOfVisionInterest().reset();
+                                    resynchronizedClients.add(data.getId());
+                                }
+                                else {
+                                    getLogger().info("Sending full sync to: " + data.getId());
+                                    transmit(new SynchronizeClientEvent(data, currentRoundDuration.getTimeLeft()));
+                                    synchronizedClients.add(data.getId());
+                                }
                             }
                         }
-                        resourceDispenser.generateResources();
+                        resourceDispenser.generateResources((group, resources, startTime) ->
+                                metrics.recordDuration(group, GroupMetric.REGROWTH_DURATION, startTime));
+                        int reportInterval = getConfiguration().getMetricsReportInterval();
+                        if (metrics.isRecording() && reportInterval > 0 && duration.isModulo(reportInterval)) {
+                            sendFacilitatorMessage(metrics.getSummary());
+                        }
                     });
             if (botGroupsEnabled) {
                 botTick.onTick((duration) -> {
                     for (GroupDataModel group : serverDataModel.getGroups()) {
+                        long botTickStartTime = System.nanoTime();
                         // only activate bots every 100 ms, otherwise they frontload all their actions.
                         // and clear all bot action taken counters every 1 s
                         boolean resetBotActions = duration.isModulo(10);
                         group.activateBots(resetBotActions);
+                        metrics.recordDuration(group, GroupMetric.BOT_TICK_DURATION, botTickStartTime);
                     }
                 });
             }
             for (GroupDataModel group : serverDataModel.getGroups()) {
+                long groupTickStartTime = System.nanoTime();
+                applyMovements(group);
                 Set<Resource> addedTokensSet = group.getAddedResources();
                 Resource[] addedResources = addedTokensSet.toArray(new Resource[addedTokensSet.size()]);
                 Set<Resource> removedTokensSet = group.getRemovedResources();
@@ -1024,8 +1117,41 @@ public class ForagingServer extends AbstractExperiment<ServerConfiguration, Roun
                         // skip this update, then remove them from the sync set.
                         synchronizedClients.remove(id);
                     } else {
-                        transmit(new ClientPositionUpdateEvent(data, addedResources, removedResources, clientTokens, clientPositions,
-                                currentRoundDuration.getTimeLeft()));
+                        Resource[] clientAddedResources = addedResources;
+                        Resource[] clientRemovedResources = removedResources;
+                        boolean resynchronize = resynchronizedClients.remove(id);
+                        boolean resourceSnapshot = false;
+                        Map<Identifier, Integer> visibleTokens = clientTokens;
+                        Map<Identifier, Point> visiblePositions = clientPositions;
+                        // limited fields of vision only get the tokens and participants entering, leaving or within view
+                        Circle tokensFieldOfVision = data.getTokensFieldOfVision();
+                        if (tokensFieldOfVision != null) {
+                            List<Resource> entered = new ArrayList<>();
+                            List<Resource> left = new ArrayList<>();
+                            resourceSnapshot = group.getResourceChanges(data.getFieldOfVisionInterest(), tokensFieldOfVision, entered, left);
+                            clientAddedResources = entered.toArray(new Resource[entered.size()]);
+                            clientRemovedResources = left.toArray(new Resource[left.size()]);
+                        }
+                        else if (resynchronize) {
+                            // only the participants are out of sight, resynchronize with a snapshot of every token
+                            Collection<Resource> resources = group.getResourceDistribution().values();
+                            clientAddedResources = resources.toArray(new Resource[resources.size()]);
+                            clientRemovedResources = new Resource[0];
+                            resourceSnapshot = true;
+                        }
+                        Circle subjectsFieldOfVision = data.getSubjectsFieldOfVision();
+                        if (subjectsFieldOfVision != null) {
+                            visiblePositions = FieldOfVisionInterest.getVisiblePositions(id, subjectsFieldOfVision, clientPositions);
+                            visibleTokens = FieldOfVisionInterest.getVisibleTokens(visiblePositions, clientTokens);
+                        }
+                        ClientPositionUpdateEvent update = new ClientPositionUpdateEvent(data, clientAddedResources, clientRemovedResources,
+                                resourceSnapshot, resynchronize ? data.copy(null) : null, visibleTokens, visiblePositions,
+                                currentRoundDuration.getTimeLeft());
+                        transmit(update);
+                        if (update.getMovementSequenceNumber() > 0) {
+                            data.acknowledgeMovement(update.getMovementSequenceNumber());
+                        }
+                        metrics.updateTransmitted(group, id, update);
                     }
                     // post-process cleanup of transient data structures on ClientData
                     data.clearCollectedTokens();
@@ -1033,11 +1159,40 @@ public class ForagingServer extends AbstractExperiment<ServerConfiguration, Roun
                 });
                 // after transmitting all the changes to the group, make sure to cleanup
                 group.clearDiffLists();
+                metrics.endTick(group, groupTickStartTime);
             }
             // FIXME: reduce network traffic by only sending diffs / selective updates to the facilitator
             if (shouldUpdateFacilitator()) {
                 transmit(new FacilitatorUpdateEvent(getFacilitatorId(), serverDataModel, currentRoundDuration.getTimeLeft()));
             }
+            metrics.recordTick(tickStartTime);
+        }
+
+        /**
+         * Applies the movement and token collection requests the group's participants sent since the last tick, in
+         * the order they were sent and within their moves per second budget.
+         */
+        private void applyMovements(GroupDataModel group) {
+            long now = System.nanoTime();
+            group.getClientDataMap().forEach((id, data) -> {
+                int rejected = data.getMovementQueue().drain(now, new MovementQueue.MovementHandler() {
+                    @Override
+                    public void move(Direction direction, long sequenceNumber, long receivedAt) {
+                        serverDataModel.moveClient(id, direction);
+                        if (sequenceNumber > 0) {
+                            data.recordMovement(sequenceNumber, receivedAt, System.nanoTime());
+                        }
+                    }
+
+                    @Override
+                    public void collect(long receivedAt) {
+                        serverDataModel.handleTokenCollectionRequest(data);
+                    }
+                });
+                if (rejected > 0) {
+                    metrics.movementsRejected(group, id, rejected);
+                }
+            });
         }
 
         private boolean shouldUpdateFacilitator() {
@@ -1046,6 +1201,10 @@ public class ForagingServer extends AbstractExperiment<ServerConfiguration, Roun
             return false;
         }
 
+        private boolean isFieldOfVisionLimited(ClientData data) {
+            return data.isTokensFieldOfVisionEnabled() || data.isSubjectsFieldOfVisionEnabled();
+        }
+
         private boolean shouldSynchronize(ClientData data, Duration duration) {
             long startCount = duration.getStartCount();
             int assignedNumber = data.getAssignedNumber();
@@ -1133,12 +1292,25 @@ public class ForagingServer extends AbstractExperiment<ServerConfiguration, Roun
             singlePlayer = roundConfiguration.isSinglePlayer();
             botGroupsEnabled = roundConfiguration.isBotGroupsEnabled();
             persister.store(new RoundStartedMarkerEvent());
+            int movesPerSecond = roundConfiguration.getMaximumMovesPerSecond();
+            for (ClientData data : clients.values()) {
+                data.getMovementQueue().reset(movesPerSecond);
+            }
             // send RoundStartedEvents to all connected clients
             serverState = ServerState.ROUND_IN_PROGRESS;
+            resynchronizedClients.clear();
+            Map<GroupDataModel, GroupDataModel> fieldOfVisionViews = new HashMap<>();
             for (Map.Entry<Identifier, ClientData> entry : clients.entrySet()) {
                 Identifier id = entry.getKey();
                 ClientData data = entry.getValue();
-                transmit(new RoundStartedEvent(id, data.getGroupDataModel()));
+                GroupDataModel group = data.getGroupDataModel();
+                if (isFieldOfVisionLimited(data)) {
+                    // leave out the group's tokens, the first update is a snapshot of what this client can see
+                    data.getFieldOfVisionInterest().reset();
+                    resynchronizedClients.add(id);
+                    group = fieldOfVisionViews.computeIfAbsent(group, GroupDataModel::createFieldOfVisionView);
+                }
+                transmit(new RoundStartedEvent(id, group));
             }
 
             // start timers
@@ -1147,6 +1319,12 @@ public class ForagingServer extends AbstractExperiment<ServerConfiguration, Roun
                 monitorRotationInterval = Math.max(Duration.toSeconds(currentRoundDuration.getTimeLeft()) / roundConfiguration.getClientsPerGroup(), 1);
                 getLogger().info("monitor rotation interval: " + monitorRotationInterval);
             }
+            if (getConfiguration().isMetricsEnabled()) {
+                metrics.startRound(serverDataModel.getOrderedGroups());
+            }
+            else {
+                metrics.clear();
+            }
             currentRoundDuration.start();
             transmit(new FacilitatorUpdateEvent(getFacilitatorId(), serverDataModel, currentRoundDuration.getTimeLeft()));
             secondTick.start();
@@ -0,0 +1,178 @@
+package edu.asu.commons.foraging.server;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import edu.asu.commons.foraging.conf.ServerConfiguration;
+
+/**
+ * $Id$
+ *
+ * Hosts several independent experiment sessions, e.g., for parallel sessions in adjacent labs, in a single server
+ * process instead of one JVM per session.  Every session is a regular ForagingServer with its own configuration
+ * directory, and with it its own port, persistence directory, facilitator and experiment thread.  The sessions share
+ * the JVM's warmed up code and a small scheduler for timers.  Bots decide on each session's own experiment thread.
+ * <p>
+ * Sessions are named after their configuration directory and must listen on different ports and save to different
+ * persistence directories.  Their ServerMetrics are registered with JMX under their session name.
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Rev$
+ */
+public class ForagingSessionManager {
+
+    private final static Logger logger = Logger.getLogger(ForagingSessionManager.class.getName());
+
+    public final static int DEFAULT_SCHEDULER_THREADS = 2;
+
+    private final Map<String, ForagingServer> sessions = new LinkedHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    public ForagingSessionManager() {
+        this(DEFAULT_SCHEDULER_THREADS);
+    }
+
+    public ForagingSessionManager(int schedulerThreads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = (runnable) -> {
+            Thread thread = new Thread(runnable, "foraging-session-scheduler-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        scheduler = Executors.newScheduledThreadPool(Math.max(1, schedulerThreads), threadFactory);
+    }
+
+    /**
+     * Adds a session for the given configuration directory, throwing an IllegalArgumentException if it would clash
+     * with a session that was already added.  The session isn't started until start() or start(session) is invoked.
+     */
+    public synchronized ForagingServer addSession(String configurationDirectory) {
+        ServerConfiguration configuration = new ServerConfiguration(configurationDirectory);
+        String session = new File(configurationDirectory).getName();
+        if (sessions.containsKey(session)) {
+            throw new IllegalArgumentException("A session named " + session + " already exists");
+        }
+        for (Map.Entry<String, ForagingServer> entry : sessions.entrySet()) {
+            ServerConfiguration other = entry.getValue().getConfiguration();
+            if (other.getServerPort() == configuration.getServerPort()) {
+                throw new IllegalArgumentException(String.format("Session %s uses port %d which is already used by session %s",
+                        session, configuration.getServerPort(), entry.getKey()));
+            }
+            if (new File(other.getPersistenceDirectory()).equals(new File(configuration.getPersistenceDirectory()))) {
+                throw new IllegalArgumentException(String.format("Session %s saves to %s which is already used by session %s",
+                        session, configuration.getPersistenceDirectory(), entry.getKey()));
+            }
+        }
+        ForagingServer server = new ForagingServer(configuration, session, scheduler);
+        sessions.put(session, server);
+        logger.info(String.format("Added session %s on port %d", session, configuration.getServerPort()));
+        return server;
+    }
+
+    public synchronized ForagingServer getSession(String session) {
+        return sessions.get(session);
+    }
+
+    public synchronized Map<String, ForagingServer> getSessions() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(sessions));
+    }
+
+    public synchronized void start() {
+        for (String session : sessions.keySet()) {
+            start(session);
+        }
+    }
+
+    public synchronized void start(String session) {
+        ForagingServer server = sessions.get(session);
+        if (server == null) {
+            throw new IllegalArgumentException("No session named " + session);
+        }
+        if (!server.isRunning()) {
+            server.start();
+            logger.info("Started session " + session);
+        }
+    }
+
+    /**
+     * Stops every session and the shared scheduler.
+     */
+    public synchronized void stop() {
+        for (Map.Entry<String, ForagingServer> entry : sessions.entrySet()) {
+            if (entry.getValue().isRunning()) {
+                entry.getValue().stop();
+                logger.info("Stopped session " + entry.getKey());
+            }
+        }
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Reads commands from standard input: "sessions" lists the hosted sessions, "&lt;session&gt; &lt;command&gt;"
+     * passes the command on to that session's server, e.g., "t1 skip-quiz", and "quit" stops every session.
+     */
+    public void repl() {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+        try {
+            String line;
+            System.out.print("sessions> ");
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.equals("quit")) {
+                    stop();
+                    return;
+                }
+                else if (line.equals("sessions")) {
+                    getSessions().forEach((session, server) -> System.out.println(String.format("\t%s: port %d, %s",
+                            session, server.getConfiguration().getServerPort(), server.isRunning() ? "running" : "stopped")));
+                }
+                else if (!line.isEmpty()) {
+                    int separator = line.indexOf(' ');
+                    ForagingServer server = (separator < 0) ? null : getSession(line.substring(0, separator));
+                    if (server == null) {
+                        System.out.println("Usage: sessions | quit | <session> <command>");
+                    }
+                    else {
+                        server.processReplInput(line.substring(separator + 1).trim(), reader);
+                    }
+                }
+                System.out.print("sessions> ");
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static void main(String[] args) {
+        boolean interactive = false;
+        ForagingSessionManager manager = new ForagingSessionManager();
+        for (String argument : args) {
+            if (argument.equals("-i") || argument.equals("--interactive")) {
+                interactive = true;
+            }
+            else {
+                manager.addSession(argument);
+            }
+        }
+        if (manager.getSessions().isEmpty()) {
+            System.err.println("Usage: java " + ForagingSessionManager.class.getName() + " [-i] <configuration-directory>...");
+            System.exit(0);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(manager::stop));
+        manager.start();
+        if (interactive) {
+            manager.repl();
+        }
+    }
+
+}
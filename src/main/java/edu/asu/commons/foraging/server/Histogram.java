@@ -0,0 +1,115 @@
+package edu.asu.commons.foraging.server;
+
+import java.util.Arrays;
+
+/**
+ * $Id$
+ *
+ * Fixed size log-linear histogram of non-negative long values in the spirit of HdrHistogram: every power of two
+ * range is split into 2^SUB_BUCKET_BITS linear sub-buckets, so recording is a couple of bit operations and an
+ * array increment and percentiles are accurate to within 1 / 2^SUB_BUCKET_BITS (about 3%) of the true value.
+ * Values below 2^(SUB_BUCKET_BITS + 1) are recorded exactly.
+ *
+ * Not thread safe, values should be recorded from a single thread.  Reads from other threads may see a
+ * slightly stale histogram, which is fine for monitoring.
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Rev$
+ */
+public class Histogram {
+
+    private final static int SUB_BUCKET_BITS = 5;
+    private final static int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[(64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+    private long totalCount;
+    private long sum;
+    private long minimum = Long.MAX_VALUE;
+    private long maximum;
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts[getIndex(value)]++;
+        totalCount++;
+        sum += value;
+        if (value < minimum) {
+            minimum = value;
+        }
+        if (value > maximum) {
+            maximum = value;
+        }
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        sum = 0;
+        minimum = Long.MAX_VALUE;
+        maximum = 0;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMinimum() {
+        return (totalCount == 0) ? 0 : minimum;
+    }
+
+    public long getMaximum() {
+        return maximum;
+    }
+
+    public double getMean() {
+        return (totalCount == 0) ? 0.0d : sum / (double) totalCount;
+    }
+
+    /**
+     * Returns the smallest recorded bucket's upper bound such that at least percentile percent of all recorded
+     * values are less than or equal to it, capped at the maximum recorded value.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long threshold = Math.max(1, (long) Math.ceil((Math.min(percentile, 100.0d) / 100.0d) * totalCount));
+        long seen = 0;
+        for (int index = 0; index < counts.length; index++) {
+            seen += counts[index];
+            if (seen >= threshold) {
+                return Math.min(getHighestValue(index), maximum);
+            }
+        }
+        return maximum;
+    }
+
+    static int getIndex(long value) {
+        if (value < SUB_BUCKETS << 1) {
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long getHighestValue(int index) {
+        if (index < SUB_BUCKETS << 1) {
+            return index;
+        }
+        int shift = (index / SUB_BUCKETS) - 1;
+        long subBucket = (index % SUB_BUCKETS) + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    public String toString() {
+        return String.format("n=%d mean=%.1f p50=%d p90=%d p99=%d max=%d", totalCount, getMean(),
+                getValueAtPercentile(50), getValueAtPercentile(90), getValueAtPercentile(99), maximum);
+    }
+
+}
@@ -0,0 +1,513 @@
+package edu.asu.commons.foraging.server;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * $Id$
+ *
+ * Runs replicated BotSimulations over a grid or Latin hypercube design of round configuration properties, e.g.,
+ * regrowth-rate, initial-distribution, bots-per-group or token-movement-probability, on top of a base round from an
+ * existing configuration directory.  "board-size" is shorthand for setting both resource-width and resource-depth.
+ * <p>
+ * Each parameter is either a comma separated list of values or a numeric range written as min:max.  Grid designs
+ * take the cartesian product of all value lists, and ranges need a step count (min:max:steps) to be used in a grid.
+ * Latin hypercube designs draw the requested number of samples so that every parameter's range (or value list) is
+ * split into that many equally likely strata and each stratum is used exactly once.  Ranges whose bounds are both
+ * integers are sampled as integers.
+ * <p>
+ * Runs are scheduled on a fixed thread pool and one row per run is appended to sweep-results.txt as soon as it
+ * finishes.  The sweep specification is saved next to the results; running the same specification into the same
+ * output directory again skips every design point / replication already in the results file, so an interrupted
+ * sweep picks up where it left off.
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Rev$
+ */
+public class ParameterSweep {
+
+    public final static String RESULTS_FILE_NAME = "sweep-results.txt";
+    public final static String SPECIFICATION_FILE_NAME = "sweep.properties";
+    public final static String BOARD_SIZE = "board-size";
+    public final static String PARAMETER_PREFIX = "parameter.";
+
+    private final static String SEPARATOR = ", ";
+    private final static List<String> RESULT_COLUMNS = Arrays.asList(
+            "Groups", "Seconds", "Moves", "Tokens collected", "Bot tokens", "Tokens left", "Elapsed ms");
+
+    private final static Logger logger = Logger.getLogger(ParameterSweep.class.getName());
+
+    public enum Design {
+        GRID, LATIN_HYPERCUBE;
+
+        public static Design find(String name) {
+            return valueOf(name.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    /**
+     * A swept round configuration property, either a list of discrete values or a numeric range.
+     */
+    static class Parameter {
+        private final String name;
+        private final String specification;
+        private final List<String> values;
+        private final double minimum;
+        private final double maximum;
+        private final int steps;
+        private final boolean integer;
+
+        private Parameter(String name, String specification, List<String> values, double minimum, double maximum, int steps, boolean integer) {
+            this.name = name;
+            this.specification = specification;
+            this.values = values;
+            this.minimum = minimum;
+            this.maximum = maximum;
+            this.steps = steps;
+            this.integer = integer;
+        }
+
+        /**
+         * Parses "a,b,c" as a list of values and "min:max" or "min:max:steps" as a numeric range.
+         */
+        static Parameter parse(String name, String specification) {
+            String trimmed = specification.trim();
+            if (trimmed.contains(":")) {
+                String[] bounds = trimmed.split(":");
+                if (bounds.length < 2 || bounds.length > 3) {
+                    throw new IllegalArgumentException(name + ": ranges are written as min:max or min:max:steps, not " + specification);
+                }
+                double minimum = Double.parseDouble(bounds[0].trim());
+                double maximum = Double.parseDouble(bounds[1].trim());
+                if (maximum < minimum) {
+                    throw new IllegalArgumentException(name + ": range maximum is less than its minimum " + specification);
+                }
+                int steps = (bounds.length == 3) ? Integer.parseInt(bounds[2].trim()) : 0;
+                boolean integer = isInteger(bounds[0]) && isInteger(bounds[1]);
+                return new Parameter(name, trimmed, null, minimum, maximum, steps, integer);
+            }
+            List<String> values = new ArrayList<String>();
+            for (String value: trimmed.split(",")) {
+                if (! value.trim().isEmpty()) {
+                    values.add(value.trim());
+                }
+            }
+            if (values.isEmpty()) {
+                throw new IllegalArgumentException(name + ": no values given");
+            }
+            return new Parameter(name, trimmed, Collections.unmodifiableList(values), 0, 0, 0, false);
+        }
+
+        private static boolean isInteger(String bound) {
+            try {
+                Long.parseLong(bound.trim());
+                return true;
+            }
+            catch (NumberFormatException exception) {
+                return false;
+            }
+        }
+
+        String getName() {
+            return name;
+        }
+
+        String getSpecification() {
+            return specification;
+        }
+
+        boolean isRange() {
+            return values == null;
+        }
+
+        List<String> getGridValues() {
+            if (! isRange()) {
+                return values;
+            }
+            if (steps <= 0) {
+                throw new IllegalArgumentException(name + ": grid designs need a step count for ranges, e.g., " + specification + ":5");
+            }
+            List<String> gridValues = new ArrayList<String>();
+            for (int step = 0; step < steps; step++) {
+                double fraction = (steps == 1) ? 0 : step / (double) (steps - 1);
+                gridValues.add(format(minimum + fraction * (maximum - minimum)));
+            }
+            return gridValues;
+        }
+
+        /**
+         * Maps a quantile in [0, 1) onto this parameter's range or value list.
+         */
+        String sample(double quantile) {
+            if (! isRange()) {
+                return values.get(Math.min(values.size() - 1, (int) (quantile * values.size())));
+            }
+            if (integer) {
+                // every integer in [minimum, maximum] is equally likely
+                return String.valueOf((long) Math.min(maximum, Math.floor(minimum + quantile * (maximum - minimum + 1))));
+            }
+            return format(minimum + quantile * (maximum - minimum));
+        }
+
+        private String format(double value) {
+            return integer ? String.valueOf(Math.round(value)) : String.valueOf(value);
+        }
+    }
+
+    private final String configurationDirectory;
+    private final File outputDirectory;
+    private final Map<String, Parameter> parameters = new LinkedHashMap<String, Parameter>();
+    private Design design = Design.GRID;
+    private int samples = 10;
+    private long seed = 1L;
+    private int roundIndex = 0;
+    private int replications = 1;
+    private int numberOfGroups = 1;
+    private boolean saveEnabled = false;
+    private int numberOfThreads = Runtime.getRuntime().availableProcessors();
+
+    public ParameterSweep(String configurationDirectory, File outputDirectory) {
+        this.configurationDirectory = configurationDirectory;
+        this.outputDirectory = outputDirectory;
+    }
+
+    /**
+     * Reads a sweep specification, e.g.,
+     * <pre>
+     * configuration=configuration/asu/2011/t1
+     * round=1
+     * design=latin-hypercube
+     * samples=50
+     * seed=42
+     * replications=10
+     * parameter.regrowth-rate=0.005:0.05
+     * parameter.board-size=13,21,28
+     * parameter.bots-per-group=1:4
+     * </pre>
+     * Parameters are swept in alphabetical order.
+     */
+    public static ParameterSweep load(Properties specification, File outputDirectory) {
+        String configurationDirectory = specification.getProperty("configuration");
+        if (configurationDirectory == null) {
+            throw new IllegalArgumentException("sweep specification is missing the configuration directory");
+        }
+        ParameterSweep sweep = new ParameterSweep(configurationDirectory, outputDirectory);
+        sweep.setDesign(Design.find(specification.getProperty("design", Design.GRID.name())));
+        sweep.setSamples(Integer.parseInt(specification.getProperty("samples", "10")));
+        sweep.setSeed(Long.parseLong(specification.getProperty("seed", "1")));
+        sweep.setRoundIndex(Integer.parseInt(specification.getProperty("round", "0")));
+        sweep.setReplications(Integer.parseInt(specification.getProperty("replications", "1")));
+        sweep.setNumberOfGroups(Integer.parseInt(specification.getProperty("groups", "1")));
+        sweep.setSaveEnabled(Boolean.parseBoolean(specification.getProperty("save", "false")));
+        Map<String, String> sortedParameters = new TreeMap<String, String>();
+        for (String key: specification.stringPropertyNames()) {
+            if (key.startsWith(PARAMETER_PREFIX)) {
+                sortedParameters.put(key.substring(PARAMETER_PREFIX.length()), specification.getProperty(key));
+            }
+        }
+        for (Map.Entry<String, String> entry: sortedParameters.entrySet()) {
+            sweep.addParameter(entry.getKey(), entry.getValue());
+        }
+        return sweep;
+    }
+
+    public static ParameterSweep load(File specificationFile, File outputDirectory) throws IOException {
+        Properties specification = new Properties();
+        try (Reader reader = new FileReader(specificationFile)) {
+            specification.load(reader);
+        }
+        return load(specification, outputDirectory);
+    }
+
+    /**
+     * Returns the specification that determines this sweep's design points and runs, i.e., everything but the
+     * number of threads.
+     */
+    public Properties toProperties() {
+        Properties specification = new Properties();
+        specification.setProperty("configuration", configurationDirectory);
+        specification.setProperty("design", design.name());
+        specification.setProperty("samples", String.valueOf(samples));
+        specification.setProperty("seed", String.valueOf(seed));
+        specification.setProperty("round", String.valueOf(roundIndex));
+        specification.setProperty("replications", String.valueOf(replications));
+        specification.setProperty("groups", String.valueOf(numberOfGroups));
+        specification.setProperty("save", String.valueOf(saveEnabled));
+        for (Parameter parameter: parameters.values()) {
+            specification.setProperty(PARAMETER_PREFIX + parameter.getName(), parameter.getSpecification());
+        }
+        return specification;
+    }
+
+    public void addParameter(String name, String specification) {
+        parameters.put(name, Parameter.parse(name, specification));
+    }
+
+    /**
+     * Returns the swept parameter values of every design point, in a deterministic order for a given specification.
+     */
+    public List<Map<String, String>> createDesignPoints() {
+        List<Map<String, String>> points = new ArrayList<Map<String, String>>();
+        if (design == Design.GRID) {
+            points.add(new LinkedHashMap<String, String>());
+            for (Parameter parameter: parameters.values()) {
+                List<Map<String, String>> expanded = new ArrayList<Map<String, String>>();
+                for (Map<String, String> point: points) {
+                    for (String value: parameter.getGridValues()) {
+                        Map<String, String> expandedPoint = new LinkedHashMap<String, String>(point);
+                        expandedPoint.put(parameter.getName(), value);
+                        expanded.add(expandedPoint);
+                    }
+                }
+                points = expanded;
+            }
+            return points;
+        }
+        Random random = new Random(seed);
+        for (int sample = 0; sample < samples; sample++) {
+            points.add(new LinkedHashMap<String, String>());
+        }
+        for (Parameter parameter: parameters.values()) {
+            List<Integer> strata = new ArrayList<Integer>(samples);
+            for (int stratum = 0; stratum < samples; stratum++) {
+                strata.add(stratum);
+            }
+            Collections.shuffle(strata, random);
+            for (int sample = 0; sample < samples; sample++) {
+                double quantile = (strata.get(sample) + random.nextDouble()) / samples;
+                points.get(sample).put(parameter.getName(), parameter.sample(quantile));
+            }
+        }
+        return points;
+    }
+
+    List<String> getColumnNames() {
+        List<String> columnNames = new ArrayList<String>();
+        columnNames.add("Point");
+        columnNames.add("Replication");
+        columnNames.addAll(parameters.keySet());
+        columnNames.addAll(RESULT_COLUMNS);
+        return columnNames;
+    }
+
+    public void run() throws IOException, InterruptedException {
+        if (! outputDirectory.isDirectory() && ! outputDirectory.mkdirs()) {
+            throw new IOException("Unable to create output directory " + outputDirectory);
+        }
+        File resultsFile = new File(outputDirectory, RESULTS_FILE_NAME);
+        File specificationFile = new File(outputDirectory, SPECIFICATION_FILE_NAME);
+        Properties specification = toProperties();
+        String header = String.join(SEPARATOR, getColumnNames());
+        Set<String> completedRuns = new HashSet<String>();
+        if (resultsFile.exists()) {
+            Properties previousSpecification = new Properties();
+            if (specificationFile.exists()) {
+                try (Reader reader = new FileReader(specificationFile)) {
+                    previousSpecification.load(reader);
+                }
+            }
+            if (! specification.equals(previousSpecification)) {
+                throw new IOException(resultsFile + " was written by a different sweep specification, use a new output directory");
+            }
+            completedRuns = resume(resultsFile, header);
+        }
+        else {
+            try (Writer writer = new FileWriter(specificationFile)) {
+                specification.store(writer, "parameter sweep specification");
+            }
+            try (PrintWriter writer = new PrintWriter(new FileWriter(resultsFile))) {
+                writer.println(header);
+            }
+        }
+
+        List<Map<String, String>> points = createDesignPoints();
+        // point and replication of every submitted run
+        Map<Future<BotSimulation.Result>, int[]> runs = new HashMap<Future<BotSimulation.Result>, int[]>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, numberOfThreads));
+        try (PrintWriter writer = new PrintWriter(new FileWriter(resultsFile, true))) {
+            CompletionService<BotSimulation.Result> completionService = new ExecutorCompletionService<BotSimulation.Result>(executor);
+            for (int point = 0; point < points.size(); point++) {
+                for (int replication = 0; replication < replications; replication++) {
+                    if (completedRuns.contains(point + SEPARATOR + replication)) {
+                        continue;
+                    }
+                    File saveDirectory = saveEnabled ? new File(outputDirectory, "point-" + point + "-replication-" + replication) : null;
+                    BotSimulation simulation = new BotSimulation(configurationDirectory, roundIndex, toRoundParameters(points.get(point)), numberOfGroups, saveDirectory);
+                    runs.put(completionService.submit(simulation), new int[] { point, replication });
+                }
+            }
+            logger.info(String.format("%d design points x %d replications, %d runs already completed, %d to go",
+                    points.size(), replications, completedRuns.size(), runs.size()));
+            int failures = 0;
+            for (int completed = 0; completed < runs.size(); completed++) {
+                Future<BotSimulation.Result> future = completionService.take();
+                int[] run = runs.get(future);
+                try {
+                    writer.println(toRow(run[0], run[1], points.get(run[0]), future.get()));
+                    writer.flush();
+                }
+                catch (ExecutionException exception) {
+                    failures++;
+                    logger.log(Level.SEVERE, String.format("point %d replication %d failed", run[0], run[1]), exception.getCause());
+                }
+            }
+            logger.info(String.format("finished %d runs (%d failed), results in %s", runs.size(), failures, resultsFile));
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the "point, replication" keys of every complete row in the results file and drops any partially
+     * written trailing row so new rows can be appended.  A row is only complete once its line terminator has been
+     * written, the last value of an unterminated row may have been cut short.
+     */
+    Set<String> resume(File resultsFile, String header) throws IOException {
+        int numberOfColumns = getColumnNames().size();
+        List<String> lines = new ArrayList<String>();
+        StringBuilder line = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new FileReader(resultsFile))) {
+            int character;
+            while ((character = reader.read()) != -1) {
+                if (character == '\n') {
+                    int length = line.length();
+                    lines.add((length > 0 && line.charAt(length - 1) == '\r') ? line.substring(0, length - 1) : line.toString());
+                    line.setLength(0);
+                }
+                else {
+                    line.append((char) character);
+                }
+            }
+        }
+        if (lines.isEmpty() || ! header.equals(lines.get(0))) {
+            String columns = lines.isEmpty() ? line.toString() : lines.get(0);
+            throw new IOException(resultsFile + " has unexpected columns " + columns + ", expected " + header);
+        }
+        if (line.length() > 0) {
+            logger.warning("dropping unterminated row " + line);
+        }
+        List<String> rows = new ArrayList<String>();
+        Set<String> completedRuns = new HashSet<String>();
+        for (String row: lines.subList(1, lines.size())) {
+            String[] columns = row.split(SEPARATOR);
+            if (columns.length != numberOfColumns) {
+                logger.warning("dropping incomplete row " + row);
+                continue;
+            }
+            rows.add(row);
+            completedRuns.add(columns[0] + SEPARATOR + columns[1]);
+        }
+        try (PrintWriter writer = new PrintWriter(new FileWriter(resultsFile))) {
+            writer.println(header);
+            for (String row: rows) {
+                writer.println(row);
+            }
+        }
+        return completedRuns;
+    }
+
+    private String toRow(int point, int replication, Map<String, String> parameterValues, BotSimulation.Result result) {
+        List<String> columns = new ArrayList<String>();
+        columns.add(String.valueOf(point));
+        columns.add(String.valueOf(replication));
+        columns.addAll(parameterValues.values());
+        columns.add(String.valueOf(result.getNumberOfGroups()));
+        columns.add(String.valueOf(result.getSeconds()));
+        columns.add(String.valueOf(result.getMoves()));
+        columns.add(String.valueOf(result.getTokensCollected()));
+        columns.add(String.valueOf(result.getBotTokens()));
+        columns.add(String.valueOf(result.getTokensLeft()));
+        columns.add(String.valueOf(result.getElapsedTime() / 1000000L));
+        return String.join(SEPARATOR, columns);
+    }
+
+    static Map<String, String> toRoundParameters(Map<String, String> point) {
+        Map<String, String> roundParameters = new LinkedHashMap<String, String>();
+        for (Map.Entry<String, String> entry: point.entrySet()) {
+            if (BOARD_SIZE.equals(entry.getKey())) {
+                roundParameters.put("resource-width", entry.getValue());
+                roundParameters.put("resource-depth", entry.getValue());
+            }
+            else {
+                roundParameters.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return roundParameters;
+    }
+
+    public void setDesign(Design design) {
+        this.design = design;
+    }
+
+    public void setSamples(int samples) {
+        this.samples = samples;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public void setRoundIndex(int roundIndex) {
+        this.roundIndex = roundIndex;
+    }
+
+    public void setReplications(int replications) {
+        this.replications = replications;
+    }
+
+    public void setNumberOfGroups(int numberOfGroups) {
+        this.numberOfGroups = numberOfGroups;
+    }
+
+    public void setSaveEnabled(boolean saveEnabled) {
+        this.saveEnabled = saveEnabled;
+    }
+
+    public void setNumberOfThreads(int numberOfThreads) {
+        this.numberOfThreads = numberOfThreads;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: java " + ParameterSweep.class.getName() + " <sweep.properties> <output-directory> [threads=n]");
+            System.exit(0);
+        }
+        // bots and resource generators log every tick
+        Logger.getLogger("edu.asu.commons.foraging").setLevel(Level.WARNING);
+        ParameterSweep sweep = load(new File(args[0]), new File(args[1]));
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].startsWith("threads=")) {
+                sweep.setNumberOfThreads(Integer.parseInt(args[i].substring("threads=".length())));
+            }
+        }
+        sweep.run();
+    }
+
+}
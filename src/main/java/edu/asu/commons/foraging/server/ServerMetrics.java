@@ -0,0 +1,389 @@
+package edu.asu.commons.foraging.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import edu.asu.commons.event.Event;
+import edu.asu.commons.foraging.model.ClientData;
+import edu.asu.commons.foraging.model.GroupDataModel;
+import edu.asu.commons.net.Identifier;
+
+/**
+ * $Id$
+ *
+ * Per round, per group metrics for the server's hot path: tick, regrowth and bot tick durations, events and
+ * (sampled) bytes transmitted, movement requests received and rejected per tick and the latency between a client's
+ * movement request and the next position update sent to that client.  Everything is kept in Histograms and primitive
+ * arrays allocated at the start of the round so recording never allocates except when sampling an update's
+ * serialized size.
+ *
+ * All recording happens in the experiment thread except movementRequested(), which is called from the network
+ * thread and only touches atomic arrays.  The per round state is swapped in as a whole so readers on other
+ * threads (JMX, the REPL) never see a half initialized round.
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Rev$
+ */
+public class ServerMetrics implements ServerMetricsMBean {
+
+    private final static Logger logger = Logger.getLogger(ServerMetrics.class.getName());
+
+    public final static String OBJECT_NAME = "edu.asu.commons.foraging:type=ServerMetrics";
+
+    // serialize one in every SAMPLE_INTERVAL position updates per group to estimate bytes on the wire
+    final static int SAMPLE_INTERVAL = 50;
+
+    enum GroupMetric {
+        TICK_DURATION("tick duration (us)"),
+        REGROWTH_DURATION("regrowth duration (us)"),
+        BOT_TICK_DURATION("bot tick duration (us)"),
+        EVENTS_TRANSMITTED("events transmitted per tick"),
+        UPDATE_SIZE("sampled position update size (bytes)"),
+        MOVEMENT_REQUESTS("movement requests per tick"),
+        MOVEMENTS_REJECTED("movement requests rejected per tick"),
+        MOVEMENT_LATENCY("movement request to update latency (us)");
+
+        private final String label;
+
+        GroupMetric(String label) {
+            this.label = label;
+        }
+
+        public String toString() {
+            return label;
+        }
+    }
+
+    private static class RoundMetrics {
+        private final List<GroupDataModel> groups;
+        private final Map<GroupDataModel, Integer> groupIndexes = new IdentityHashMap<>();
+        private final List<Identifier> clients = new ArrayList<>();
+        private final Map<Identifier, Integer> clientIndexes = new HashMap<>();
+        private final Histogram tickDuration = new Histogram();
+        private final Histogram[][] histograms;
+        private final long[] eventsThisTick;
+        private final long[] lastSampledUpdateSize;
+        private final long[] updatesSinceSample;
+        private final long[] eventsTransmitted;
+        private final long[] estimatedBytesTransmitted;
+        private final long[] movementsRejectedThisTick;
+        private final long[] movementsRejected;
+        private final AtomicIntegerArray movementRequests;
+        // System.nanoTime() of the oldest movement request not yet followed by a position update, 0 if none
+        private final AtomicLongArray movementRequestedAt;
+
+        RoundMetrics(Collection<GroupDataModel> groups) {
+            this.groups = new ArrayList<>(groups);
+            for (GroupDataModel group: this.groups) {
+                groupIndexes.put(group, groupIndexes.size());
+                for (ClientData clientData: group.getClientDataMap().values()) {
+                    clientIndexes.put(clientData.getId(), clients.size());
+                    clients.add(clientData.getId());
+                }
+            }
+            int numberOfGroups = this.groups.size();
+            histograms = new Histogram[GroupMetric.values().length][numberOfGroups];
+            for (Histogram[] metricHistograms: histograms) {
+                for (int i = 0; i < numberOfGroups; i++) {
+                    metricHistograms[i] = new Histogram();
+                }
+            }
+            eventsThisTick = new long[numberOfGroups];
+            lastSampledUpdateSize = new long[numberOfGroups];
+            updatesSinceSample = new long[numberOfGroups];
+            movementRequests = new AtomicIntegerArray(numberOfGroups);
+            movementsRejectedThisTick = new long[numberOfGroups];
+            eventsTransmitted = new long[clients.size()];
+            estimatedBytesTransmitted = new long[clients.size()];
+            movementsRejected = new long[clients.size()];
+            movementRequestedAt = new AtomicLongArray(clients.size());
+        }
+
+        int getGroupIndex(GroupDataModel group) {
+            Integer index = groupIndexes.get(group);
+            return (index == null) ? -1 : index;
+        }
+
+        int getClientIndex(Identifier id) {
+            Integer index = clientIndexes.get(id);
+            return (index == null) ? -1 : index;
+        }
+
+        Histogram get(GroupMetric metric, int groupIndex) {
+            return histograms[metric.ordinal()][groupIndex];
+        }
+    }
+
+    private static class ByteCountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            count += length;
+        }
+    }
+
+    private volatile RoundMetrics round;
+
+    /**
+     * Registers this instance with the platform MBean server so it can be inspected via JMX.
+     */
+    public void register() {
+        register(null);
+    }
+
+    /**
+     * Registers this instance with the platform MBean server under the given session name, so that every session
+     * hosted by a ForagingSessionManager shows up separately.  A null session registers the plain OBJECT_NAME.
+     */
+    public void register(String session) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(session == null ? OBJECT_NAME : OBJECT_NAME + ",session=" + ObjectName.quote(session));
+            if (! server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException exception) {
+            logger.warning("Unable to register server metrics with JMX: " + exception);
+        }
+    }
+
+    /**
+     * Discards the previous round's metrics and starts recording for the given groups.
+     */
+    public void startRound(Collection<GroupDataModel> groups) {
+        round = new RoundMetrics(groups);
+    }
+
+    /**
+     * Discards all metrics, recording is a no-op until the next call to startRound().
+     */
+    public void clear() {
+        round = null;
+    }
+
+    public boolean isRecording() {
+        return round != null;
+    }
+
+    public void recordTick(long startTime) {
+        RoundMetrics current = round;
+        if (current != null) {
+            current.tickDuration.record(toMicroseconds(System.nanoTime() - startTime));
+        }
+    }
+
+    /**
+     * Records the time elapsed since startTime (from System.nanoTime()) for the group.
+     */
+    public void recordDuration(GroupDataModel group, GroupMetric metric, long startTime) {
+        record(group, metric, toMicroseconds(System.nanoTime() - startTime));
+    }
+
+    public void record(GroupDataModel group, GroupMetric metric, long value) {
+        RoundMetrics current = round;
+        if (current == null) {
+            return;
+        }
+        int groupIndex = current.getGroupIndex(group);
+        if (groupIndex >= 0) {
+            current.get(metric, groupIndex).record(value);
+        }
+    }
+
+    /**
+     * Called from the network thread for every ClientMovementRequest.
+     */
+    public void movementRequested(GroupDataModel group, Identifier id) {
+        RoundMetrics current = round;
+        if (current == null) {
+            return;
+        }
+        int groupIndex = current.getGroupIndex(group);
+        int clientIndex = current.getClientIndex(id);
+        if (groupIndex >= 0) {
+            current.movementRequests.incrementAndGet(groupIndex);
+        }
+        if (clientIndex >= 0) {
+            current.movementRequestedAt.compareAndSet(clientIndex, 0, System.nanoTime());
+        }
+    }
+
+    /**
+     * Records movement requests from the given client that were rejected for exceeding its budget.
+     */
+    public void movementsRejected(GroupDataModel group, Identifier id, int rejected) {
+        RoundMetrics current = round;
+        if (current == null) {
+            return;
+        }
+        int groupIndex = current.getGroupIndex(group);
+        int clientIndex = current.getClientIndex(id);
+        if (groupIndex >= 0) {
+            current.movementsRejectedThisTick[groupIndex] += rejected;
+        }
+        if (clientIndex >= 0) {
+            current.movementsRejected[clientIndex] += rejected;
+        }
+    }
+
+    /**
+     * Records a position update sent to the given client.
+     */
+    public void updateTransmitted(GroupDataModel group, Identifier id, Event update) {
+        RoundMetrics current = round;
+        if (current == null) {
+            return;
+        }
+        int groupIndex = current.getGroupIndex(group);
+        int clientIndex = current.getClientIndex(id);
+        if (groupIndex < 0 || clientIndex < 0) {
+            return;
+        }
+        current.eventsThisTick[groupIndex]++;
+        if (current.updatesSinceSample[groupIndex]++ % SAMPLE_INTERVAL == 0) {
+            long size = getSerializedSize(update);
+            if (size > 0) {
+                current.lastSampledUpdateSize[groupIndex] = size;
+                current.get(GroupMetric.UPDATE_SIZE, groupIndex).record(size);
+            }
+        }
+        current.eventsTransmitted[clientIndex]++;
+        current.estimatedBytesTransmitted[clientIndex] += current.lastSampledUpdateSize[groupIndex];
+        long requestedAt = current.movementRequestedAt.getAndSet(clientIndex, 0);
+        if (requestedAt != 0) {
+            current.get(GroupMetric.MOVEMENT_LATENCY, groupIndex).record(toMicroseconds(System.nanoTime() - requestedAt));
+        }
+    }
+
+    /**
+     * Finishes the group's part of a server tick that started at startTime.
+     */
+    public void endTick(GroupDataModel group, long startTime) {
+        RoundMetrics current = round;
+        if (current == null) {
+            return;
+        }
+        int groupIndex = current.getGroupIndex(group);
+        if (groupIndex < 0) {
+            return;
+        }
+        current.get(GroupMetric.TICK_DURATION, groupIndex).record(toMicroseconds(System.nanoTime() - startTime));
+        current.get(GroupMetric.EVENTS_TRANSMITTED, groupIndex).record(current.eventsThisTick[groupIndex]);
+        current.eventsThisTick[groupIndex] = 0;
+        current.get(GroupMetric.MOVEMENT_REQUESTS, groupIndex).record(current.movementRequests.getAndSet(groupIndex, 0));
+        current.get(GroupMetric.MOVEMENTS_REJECTED, groupIndex).record(current.movementsRejectedThisTick[groupIndex]);
+        current.movementsRejectedThisTick[groupIndex] = 0;
+    }
+
+    @Override
+    public long getNumberOfTicks() {
+        RoundMetrics current = round;
+        return (current == null) ? 0 : current.tickDuration.getTotalCount();
+    }
+
+    @Override
+    public long getTickDuration99thPercentile() {
+        RoundMetrics current = round;
+        return (current == null) ? 0 : current.tickDuration.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getMaximumTickDuration() {
+        RoundMetrics current = round;
+        return (current == null) ? 0 : current.tickDuration.getMaximum();
+    }
+
+    @Override
+    public long getMovementLatency99thPercentile() {
+        RoundMetrics current = round;
+        long latency = 0;
+        if (current != null) {
+            for (int i = 0; i < current.groups.size(); i++) {
+                latency = Math.max(latency, current.get(GroupMetric.MOVEMENT_LATENCY, i).getValueAtPercentile(99));
+            }
+        }
+        return latency;
+    }
+
+    /**
+     * Returns a one line summary suitable for the facilitator console.
+     */
+    @Override
+    public String getSummary() {
+        return String.format("server metrics: %d ticks, tick p99 %dus max %dus, worst group movement latency p99 %dus",
+                getNumberOfTicks(), getTickDuration99thPercentile(), getMaximumTickDuration(),
+                getMovementLatency99thPercentile());
+    }
+
+    @Override
+    public String getReport() {
+        RoundMetrics current = round;
+        if (current == null) {
+            return "No server metrics recorded.";
+        }
+        StringBuilder builder = new StringBuilder();
+        builder.append("server tick duration (us): ").append(current.tickDuration).append('\n');
+        for (GroupMetric metric: GroupMetric.values()) {
+            builder.append(metric).append('\n');
+            for (int i = 0; i < current.groups.size(); i++) {
+                builder.append('\t').append(current.groups.get(i)).append(": ").append(current.get(metric, i)).append('\n');
+            }
+        }
+        builder.append("events transmitted, estimated bytes transmitted, movement requests rejected per client\n");
+        for (int i = 0; i < current.clients.size(); i++) {
+            builder.append('\t').append(current.clients.get(i)).append(": ").append(current.eventsTransmitted[i])
+                .append(", ").append(current.estimatedBytesTransmitted[i])
+                .append(", ").append(current.movementsRejected[i]).append('\n');
+        }
+        return builder.toString();
+    }
+
+    public void writeReport(File file) throws IOException {
+        File directory = file.getParentFile();
+        if (directory != null && ! directory.isDirectory() && ! directory.mkdirs()) {
+            throw new IOException("Couldn't create metrics directory " + directory);
+        }
+        try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+            writer.print(getReport());
+        }
+    }
+
+    private static long getSerializedSize(Event event) {
+        ByteCountingOutputStream bytes = new ByteCountingOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(event);
+        } catch (IOException exception) {
+            logger.warning("Unable to sample serialized size of " + event + ": " + exception);
+            return -1;
+        }
+        return bytes.count;
+    }
+
+    private static long toMicroseconds(long nanoseconds) {
+        return nanoseconds / 1000L;
+    }
+
+}
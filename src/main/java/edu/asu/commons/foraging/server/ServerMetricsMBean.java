@@ -0,0 +1,26 @@
+package edu.asu.commons.foraging.server;
+
+/**
+ * $Id$
+ *
+ * JMX view of the current (or most recently completed) round's ServerMetrics, e.g., via jconsole.
+ * Durations are in microseconds.
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Rev$
+ */
+public interface ServerMetricsMBean {
+
+    long getNumberOfTicks();
+
+    long getTickDuration99thPercentile();
+
+    long getMaximumTickDuration();
+
+    long getMovementLatency99thPercentile();
+
+    String getSummary();
+
+    String getReport();
+
+}
@@ -7,7 +7,8 @@ import java.io.Serializable;
  * $Id$
  * 
  * Simple Circle class given a Point center and radius and providing methods to detect
- * if a point is within the circle.
+ * if a point is within the circle.  Containment is looked up in the shared DiskMask
+ * for the radius.
  * 
  * @author <a href='mailto:Allen.Lee@asu.edu'>Allen Lee</a>
  * @version $Revision$
@@ -18,6 +19,7 @@ public class Circle implements Serializable {
 	
 	private Point center;
     private final double radius;
+    private transient DiskMask diskMask;
     
     public Circle(Point center, double radius) {
         this.center = center;
@@ -28,11 +30,26 @@ public class Circle implements Serializable {
         if (point == null) {
             return false;
         }
-        return center.distance(point) <= radius;
+        return getDiskMask().contains(point.x - center.x, point.y - center.y);
     }
     
     public void setCenter(Point center) {
         this.center = center;
     }
+
+    public Point getCenter() {
+        return center;
+    }
+
+    public double getRadius() {
+        return radius;
+    }
+
+    public DiskMask getDiskMask() {
+        if (diskMask == null) {
+            diskMask = DiskMask.forRadius(radius);
+        }
+        return diskMask;
+    }
     
 }
@@ -0,0 +1,96 @@
+package edu.asu.commons.foraging.ui;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * $Id$
+ *
+ * Precomputed offsets of the grid cells within a given radius of a center cell, i.e., the cells a Circle contains.
+ * Membership tests are a table lookup instead of a square root, and callers that need every visible cell walk the
+ * offsets instead of testing every token or every cell on the board.  Masks are immutable and shared per radius.
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public final class DiskMask {
+
+    private final static ConcurrentMap<Double, DiskMask> MASKS = new ConcurrentHashMap<>();
+
+    private final double radius;
+    private final int extent;
+    private final int side;
+    private final boolean[] cells;
+    private final int[] offsetsX;
+    private final int[] offsetsY;
+
+    public static DiskMask forRadius(double radius) {
+        return MASKS.computeIfAbsent(radius, DiskMask::new);
+    }
+
+    private DiskMask(double radius) {
+        this.radius = radius;
+        this.extent = Math.max(0, (int) Math.ceil(radius));
+        this.side = 2 * extent + 1;
+        this.cells = new boolean[side * side];
+        int size = 0;
+        for (int dy = -extent; dy <= extent; dy++) {
+            for (int dx = -extent; dx <= extent; dx++) {
+                // same test as Point.distance(point) <= radius so masks agree with the original Circle
+                if (Math.sqrt(dx * dx + dy * dy) <= radius) {
+                    cells[(dy + extent) * side + dx + extent] = true;
+                    size++;
+                }
+            }
+        }
+        offsetsX = new int[size];
+        offsetsY = new int[size];
+        int index = 0;
+        for (int dy = -extent; dy <= extent; dy++) {
+            for (int dx = -extent; dx <= extent; dx++) {
+                if (cells[(dy + extent) * side + dx + extent]) {
+                    offsetsX[index] = dx;
+                    offsetsY[index] = dy;
+                    index++;
+                }
+            }
+        }
+    }
+
+    public double getRadius() {
+        return radius;
+    }
+
+    /**
+     * Returns the largest offset along either axis of any cell in the mask.
+     */
+    public int getExtent() {
+        return extent;
+    }
+
+    /**
+     * Returns true if the cell at the given offset from the center is within the radius.
+     */
+    public boolean contains(int dx, int dy) {
+        if (dx < -extent || dx > extent || dy < -extent || dy > extent) {
+            return false;
+        }
+        return cells[(dy + extent) * side + dx + extent];
+    }
+
+    /**
+     * Returns the number of cells in the mask, offsets are indexed from 0 to size() - 1 in row major order.
+     */
+    public int size() {
+        return offsetsX.length;
+    }
+
+    public int getOffsetX(int index) {
+        return offsetsX[index];
+    }
+
+    public int getOffsetY(int index) {
+        return offsetsY[index];
+    }
+
+}
@@ -0,0 +1,75 @@
+package edu.asu.commons.foraging.ui;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * $Id$
+ *
+ * Frame time metrics for the game board.  Counts the model updates received from the network, the frames in which
+ * the render loop found changes to draw, and how long the resulting paints took, so that bursty update traffic being
+ * coalesced into display frames and slow paints on the lab machines show up in the client log at the end of a round.
+ *
+ * Called from the network and event dispatch threads, all methods are synchronized and cheap.
+ *
+ * @author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public class FrameStatistics {
+
+    private int updates;
+    private int frames;
+    private int paints;
+    private long totalPaintTime;
+    private long maximumPaintTime;
+    private long lastFrameTime;
+    private long maximumFrameInterval;
+
+    public synchronized void updateReceived() {
+        updates++;
+    }
+
+    /**
+     * Invoked by the render loop for every frame that had changes to draw.
+     */
+    public synchronized void frameRendered() {
+        long now = System.nanoTime();
+        if (frames > 0) {
+            maximumFrameInterval = Math.max(maximumFrameInterval, now - lastFrameTime);
+        }
+        lastFrameTime = now;
+        frames++;
+    }
+
+    public synchronized void painted(long paintTime) {
+        paints++;
+        totalPaintTime += paintTime;
+        maximumPaintTime = Math.max(maximumPaintTime, paintTime);
+    }
+
+    public synchronized int getUpdates() {
+        return updates;
+    }
+
+    public synchronized int getFrames() {
+        return frames;
+    }
+
+    public synchronized int getPaints() {
+        return paints;
+    }
+
+    public synchronized void clear() {
+        updates = frames = paints = 0;
+        totalPaintTime = maximumPaintTime = lastFrameTime = maximumFrameInterval = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d updates rendered in %d frames, %d paints (mean %.2f ms, max %.2f ms), longest interval between frames %d ms",
+                updates, frames, paints,
+                paints == 0 ? 0.0d : totalPaintTime / (paints * 1.0e6d),
+                maximumPaintTime / 1.0e6d,
+                TimeUnit.NANOSECONDS.toMillis(maximumFrameInterval));
+    }
+
+}
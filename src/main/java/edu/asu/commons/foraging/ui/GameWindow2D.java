@@ -5,6 +5,8 @@ import java.awt.CardLayout;
 import java.awt.Color;
 import java.awt.Component;
 import java.awt.Dimension;
+import java.awt.DisplayMode;
+import java.awt.GraphicsConfiguration;
 import java.awt.Point;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
@@ -22,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
 import javax.swing.Box;
@@ -120,6 +123,15 @@ public class GameWindow2D implements GameWindow {
 
     private Timer timer;
 
+    // repaints the game board at most once per display frame, see update()
+    private Timer renderTimer;
+    // set by update() whenever the data model changed, cleared once per frame by the render timer
+    private final AtomicBoolean modelChanged = new AtomicBoolean();
+    private volatile long roundTimeLeft;
+    // label contents as of the last rendered frame, only accessed from the event dispatch thread
+    private long displayedSecondsLeft = -1;
+    private String displayedInformationLabelText;
+
     // voting components
     private JPanel votingPanel;
     private VotingForm votingForm;
@@ -133,6 +145,9 @@ public class GameWindow2D implements GameWindow {
 
     private final static Logger logger = Logger.getLogger(GameWindow2D.class.getName());
 
+    // frame rate of the render timer when the display doesn't report its refresh rate
+    private final static int DEFAULT_REFRESH_RATE = 60;
+
     // private EnergyLevel energyLevel;
 
     public GameWindow2D(ForagingClient client) {
@@ -149,18 +164,68 @@ public class GameWindow2D implements GameWindow {
 
     /**
      * Instead of invoking specific update methods we invoke just a single
-     * method, update() after we're done changing state.
+     * method, update() after we're done changing state. The render timer picks
+     * up the changes on the next display frame, so bursts of updates from the
+     * server are coalesced into a single repaint.
      */
     public void update(final long roundTimeLeft) {
-        SwingUtilities.invokeLater(new Runnable() {
-            public void run() {
-                informationLabel.setText(getInformationLabelText());
-                timeLeftLabel.setText(getTimeLeftLabelText(roundTimeLeft));
-                // FIXME: subjectView.repaint() causes graphical glitches here
-                // only when we transition from 3D -> 2D experiment. Find out why.
-                getPanel().repaint();
+        this.roundTimeLeft = roundTimeLeft;
+        subjectView.getFrameStatistics().updateReceived();
+        modelChanged.set(true);
+    }
+
+    private void startRenderTimer() {
+        stopRenderTimer();
+        int refreshRate = DisplayMode.REFRESH_RATE_UNKNOWN;
+        GraphicsConfiguration graphicsConfiguration = subjectView.getGraphicsConfiguration();
+        if (graphicsConfiguration != null) {
+            refreshRate = graphicsConfiguration.getDevice().getDisplayMode().getRefreshRate();
+        }
+        if (refreshRate == DisplayMode.REFRESH_RATE_UNKNOWN) {
+            refreshRate = DEFAULT_REFRESH_RATE;
+        }
+        displayedSecondsLeft = -1;
+        displayedInformationLabelText = null;
+        subjectView.getFrameStatistics().clear();
+        renderTimer = new Timer(Math.max(1, 1000 / refreshRate), new ActionListener() {
+            public void actionPerformed(ActionEvent event) {
+                renderFrame();
             }
         });
+        renderTimer.start();
+        // render whatever arrived before the timer started
+        modelChanged.set(true);
+    }
+
+    private void stopRenderTimer() {
+        if (renderTimer != null) {
+            renderTimer.stop();
+            renderTimer = null;
+            logger.info("game board rendering: " + subjectView.getFrameStatistics());
+        }
+    }
+
+    /**
+     * Invoked by the render timer on the event dispatch thread, redraws the parts of the
+     * game window that changed since the last frame.
+     */
+    private void renderFrame() {
+        if (!modelChanged.getAndSet(false)) {
+            return;
+        }
+        subjectView.getFrameStatistics().frameRendered();
+        long timeLeft = roundTimeLeft;
+        if (timeLeft / 1000L != displayedSecondsLeft) {
+            displayedSecondsLeft = timeLeft / 1000L;
+            timeLeftLabel.setText(getTimeLeftLabelText(timeLeft));
+        }
+        String informationLabelText = getInformationLabelText();
+        if (!informationLabelText.equals(displayedInformationLabelText)) {
+            displayedInformationLabelText = informationLabelText;
+            informationLabel.setText(informationLabelText);
+        }
+        // only repaints the cells that changed
+        subjectView.repaintChanges();
     }
 
     /**
@@ -306,7 +371,9 @@ public class GameWindow2D implements GameWindow {
                     } else {
                         double radius = dataModel.getRoundConfiguration().getViewSubjectsRadius();
                         Circle fieldOfVision = new Circle(clientPosition, radius);
-                        if (fieldOfVision.contains(dataModel.getClientPosition(id))) {
+                        // participants out of sight may not be in the positions sent by the server at all
+                        Point position = dataModel.getClientPosition(id);
+                        if (position != null && fieldOfVision.contains(position)) {
                             formatString = " [%d : %d] ";
                             builder.append(String.format(formatString, dataModel.getAssignedNumber(id), dataModel.getCurrentTokens(id)));
                         } else {
@@ -543,8 +610,7 @@ public class GameWindow2D implements GameWindow {
                 else if (singlePlayer) {
                     dataModel.moveClient(direction);
                     event = new MovementEvent(client.getId(), direction);
-                    subjectView.repaint();
-//                    SwingUtilities.invokeLater(() -> subjectView.repaint());
+                    modelChanged.set(true);
                 }
                 else {
                     event = new ClientMovementRequest(client.getId(), direction);
@@ -591,6 +657,7 @@ public class GameWindow2D implements GameWindow {
                 // by the server no new clients can connect because the round
                 // has begun.
                 update(configuration.getRoundDuration().getTimeLeft());
+                startRenderTimer();
                 if (configuration.isInRoundChatEnabled()) {
                     // FIXME: use separate chat panel for in round chat
                     System.err.println("in round chat was enabled");
@@ -898,6 +965,7 @@ public class GameWindow2D implements GameWindow {
         }
         Runnable runnable = new Runnable() {
             public void run() {
+                stopRenderTimer();
                 if (inRoundChatPanel != null) {
                     getPanel().remove(inRoundChatPanel);
                     // inRoundChatPanel = null;
@@ -5,15 +5,20 @@ import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
 import java.awt.Image;
 import java.awt.Paint;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.TexturePaint;
+import java.awt.Transparency;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.awt.image.ImageObserver;
 import java.io.IOException;
+import java.util.BitSet;
 import java.util.Collection;
 
 import javax.imageio.ImageIO;
@@ -41,16 +46,19 @@ public abstract class GridView extends JPanel {
     protected Image tokenImage, otherSubjectImage, selfImage, selfExplicitCollectionModeImage, beingSanctionedImage,
             sanctioningImage, monitorImage;
 
-    protected Image scaledTokenImage, scaledOtherSubjectImage, scaledSelfImage, scaledSelfExplicitCollectionModeImage,
+    protected BufferedImage scaledTokenImage, scaledOtherSubjectImage, scaledSelfImage, scaledSelfExplicitCollectionModeImage,
             scaledBeingSanctionedImage, scaledSanctioningImage, scaledMonitorImage;
 
     // The following are different versions of the images above to be shown in
     // Zone B.
     protected Image tokenImageB, otherSubjectImageB, selfImageB, selfExplicitCollectionModeImageB,
             beingSanctionedImageB, sanctioningImageB, monitorImageB;
-    protected Image scaledTokenImageB, scaledOtherSubjectImageB, scaledSelfImageB,
+    protected BufferedImage scaledTokenImageB, scaledOtherSubjectImageB, scaledSelfImageB,
             scaledSelfExplicitCollectionModeImageB, scaledBeingSanctionedImageB, scaledSanctioningImageB,
             scaledMonitorImageB;
+
+    // the scaled token images repeated across a row of the board, see createTokenStrip()
+    protected BufferedImage tokenStrip, tokenStripB;
     
     private Paint background;
     
@@ -83,8 +91,6 @@ public abstract class GridView extends JPanel {
         setPreferredSize(screenSize);
     }
 
-    public final static int IMAGE_SCALING_STRATEGY = Image.SCALE_SMOOTH;
-
     public void setImageSizes() {
         if (boardSize == null)
             return;
@@ -110,30 +116,83 @@ public abstract class GridView extends JPanel {
 
         setPreferredSize(screenSize);
         // FIXME: reduce code duplication
-        // get scaled instances of the originals
-        int cellWidth = (int) dw;
-        int cellHeight = (int) dh;
-
-        scaledTokenImage = tokenImage.getScaledInstance(cellWidth, cellHeight, IMAGE_SCALING_STRATEGY);
-        scaledOtherSubjectImage = otherSubjectImage.getScaledInstance(cellWidth, cellHeight, IMAGE_SCALING_STRATEGY);
-        scaledSelfImage = selfImage.getScaledInstance(cellWidth, cellHeight, IMAGE_SCALING_STRATEGY);
-        scaledSelfExplicitCollectionModeImage = selfExplicitCollectionModeImage.getScaledInstance(cellWidth, cellHeight,
-                IMAGE_SCALING_STRATEGY);
-        scaledBeingSanctionedImage = beingSanctionedImage.getScaledInstance(cellWidth, cellHeight,
-                IMAGE_SCALING_STRATEGY);
-        scaledSanctioningImage = sanctioningImage.getScaledInstance(cellWidth, cellHeight, IMAGE_SCALING_STRATEGY);
-        scaledMonitorImage = monitorImage.getScaledInstance(cellWidth, cellHeight, IMAGE_SCALING_STRATEGY);
+        // render cell sized sprites of the originals
+        int cellWidth = Math.max(1, (int) dw);
+        int cellHeight = Math.max(1, (int) dh);
+
+        scaledTokenImage = createSprite(tokenImage, cellWidth, cellHeight);
+        scaledOtherSubjectImage = createSprite(otherSubjectImage, cellWidth, cellHeight);
+        scaledSelfImage = createSprite(selfImage, cellWidth, cellHeight);
+        scaledSelfExplicitCollectionModeImage = createSprite(selfExplicitCollectionModeImage, cellWidth, cellHeight);
+        scaledBeingSanctionedImage = createSprite(beingSanctionedImage, cellWidth, cellHeight);
+        scaledSanctioningImage = createSprite(sanctioningImage, cellWidth, cellHeight);
+        scaledMonitorImage = createSprite(monitorImage, cellWidth, cellHeight);
 
         // Scale the Zone B images
-        scaledTokenImageB = tokenImageB.getScaledInstance(cellWidth, cellHeight, IMAGE_SCALING_STRATEGY);
-        scaledOtherSubjectImageB = otherSubjectImageB.getScaledInstance(cellWidth, cellHeight, IMAGE_SCALING_STRATEGY);
-        scaledSelfImageB = selfImageB.getScaledInstance(cellWidth, cellHeight, IMAGE_SCALING_STRATEGY);
-        scaledSelfExplicitCollectionModeImageB = selfExplicitCollectionModeImageB.getScaledInstance(cellWidth,
-                cellHeight, IMAGE_SCALING_STRATEGY);
-        scaledBeingSanctionedImageB = beingSanctionedImageB.getScaledInstance(cellWidth, cellHeight,
-                IMAGE_SCALING_STRATEGY);
-        scaledSanctioningImageB = sanctioningImageB.getScaledInstance(cellWidth, cellHeight, IMAGE_SCALING_STRATEGY);
-        scaledMonitorImageB = monitorImageB.getScaledInstance(cellWidth, cellHeight, IMAGE_SCALING_STRATEGY);
+        scaledTokenImageB = createSprite(tokenImageB, cellWidth, cellHeight);
+        scaledOtherSubjectImageB = createSprite(otherSubjectImageB, cellWidth, cellHeight);
+        scaledSelfImageB = createSprite(selfImageB, cellWidth, cellHeight);
+        scaledSelfExplicitCollectionModeImageB = createSprite(selfExplicitCollectionModeImageB, cellWidth, cellHeight);
+        scaledBeingSanctionedImageB = createSprite(beingSanctionedImageB, cellWidth, cellHeight);
+        scaledSanctioningImageB = createSprite(sanctioningImageB, cellWidth, cellHeight);
+        scaledMonitorImageB = createSprite(monitorImageB, cellWidth, cellHeight);
+
+        tokenStrip = createTokenStrip(scaledTokenImage);
+        tokenStripB = createTokenStrip(scaledTokenImageB);
+    }
+
+    /**
+     * Returns a copy of the given image scaled to the given size in an image compatible with the screen, which Java2D
+     * can cache in video memory, unlike the ToolkitImages returned by Image.getScaledInstance().
+     */
+    protected BufferedImage createSprite(Image image, int width, int height) {
+        Image source = image;
+        int sourceWidth = image.getWidth(null);
+        int sourceHeight = image.getHeight(null);
+        // halve large images in steps first, a single bilinear pass loses detail when shrinking to less than half
+        while (sourceWidth / 2 >= width && sourceHeight / 2 >= height) {
+            sourceWidth /= 2;
+            sourceHeight /= 2;
+            source = drawScaled(source, sourceWidth, sourceHeight);
+        }
+        return drawScaled(source, width, height);
+    }
+
+    private BufferedImage drawScaled(Image source, int width, int height) {
+        BufferedImage scaled = createCompatibleImage(width, height);
+        Graphics2D graphics2D = scaled.createGraphics();
+        graphics2D.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics2D.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        graphics2D.drawImage(source, 0, 0, width, height, null);
+        graphics2D.dispose();
+        return scaled;
+    }
+
+    /**
+     * Returns the given sprite repeated in every column of a row of the board, spaced exactly like scaleX() spaces
+     * cells, so that a run of adjacent tokens can be drawn with a single unscaled copy, see paintTokenRuns().
+     */
+    protected BufferedImage createTokenStrip(BufferedImage sprite) {
+        int columns = (int) boardSize.getWidth();
+        BufferedImage strip = createCompatibleImage(scaleX(columns - 1) - xoffset + sprite.getWidth(), sprite.getHeight());
+        Graphics2D graphics2D = strip.createGraphics();
+        for (int column = 0; column < columns; column++) {
+            graphics2D.drawImage(sprite, scaleX(column) - xoffset, 0, null);
+        }
+        graphics2D.dispose();
+        return strip;
+    }
+
+    protected BufferedImage createCompatibleImage(int width, int height) {
+        if (GraphicsEnvironment.isHeadless()) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        if (configuration == null) {
+            // not added to a window yet
+            configuration = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+        }
+        return configuration.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
     }
 
     /**
@@ -232,17 +291,31 @@ public abstract class GridView extends JPanel {
     protected void paintComponent(Graphics graphics) {
         Graphics2D graphics2D = (Graphics2D) graphics;
         graphics2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        // FIXME: can be made more efficient.
-        // Could just update the parts that have changed (tokens removed,
-        // subjects moved)
-        // paint the background
-        paintBackground(graphics2D);
-        // paint resources
-        paintTokens(graphics2D);
+        // paint the background and resources
+        paintTokenLayer(graphics2D);
         // paint subjects last (covering up tokens as needed)
         paintSubjects(graphics2D);
     }
 
+    /**
+     * Paints the background and tokens underneath the subjects.  Subclasses can override this to keep the token layer
+     * in a back buffer and only redraw the cells that changed, see SubjectView.
+     */
+    protected void paintTokenLayer(Graphics2D graphics2D) {
+        paintBackground(graphics2D);
+        paintTokens(graphics2D);
+    }
+
+    /**
+     * Returns the screen area covered by the given cell. Adjacent cells share no pixels and leave no gaps, unlike
+     * scaleX/Y(point) plus getCellWidth/Height().
+     */
+    protected Rectangle getCellBounds(Point cell) {
+        int x = scaleX(cell.x);
+        int y = scaleY(cell.y);
+        return new Rectangle(x, y, scaleX(cell.x + 1) - x, scaleY(cell.y + 1) - y);
+    }
+
     /**
      * Uses filled s
      * 
@@ -291,6 +364,48 @@ public abstract class GridView extends JPanel {
         }
     }
 
+    /**
+     * Returns the cells in the given collection as a bitset indexed by y * board width + x.
+     */
+    protected BitSet toOccupancy(Collection<Point> points) {
+        int columns = (int) boardSize.getWidth();
+        int rows = (int) boardSize.getHeight();
+        BitSet occupancy = new BitSet(columns * rows);
+        for (Point point : points) {
+            if (point.x >= 0 && point.x < columns && point.y >= 0 && point.y < rows) {
+                occupancy.set(point.y * columns + point.x);
+            }
+        }
+        return occupancy;
+    }
+
+    /**
+     * Draws the occupied cells of the given rows, copying each horizontal run of adjacent tokens from the token strip
+     * in one piece instead of drawing every token on its own.
+     * 
+     * @param occupancy
+     *            occupied cells indexed by y * board width + x
+     * @param strip
+     *            the token strip created by createTokenStrip()
+     */
+    protected void paintTokenRuns(Graphics2D graphics2D, BitSet occupancy, int fromRow, int toRow, BufferedImage strip) {
+        int columns = (int) boardSize.getWidth();
+        int height = strip.getHeight();
+        int spriteWidth = strip.getWidth() - (scaleX(columns - 1) - xoffset);
+        for (int row = fromRow; row < toRow; row++) {
+            int rowStart = row * columns;
+            int rowEnd = rowStart + columns;
+            int y = scaleY(row);
+            for (int start = occupancy.nextSetBit(rowStart); start >= 0 && start < rowEnd; start = occupancy.nextSetBit(start)) {
+                int end = Math.min(occupancy.nextClearBit(start), rowEnd);
+                int sourceStart = scaleX(start - rowStart) - xoffset;
+                int sourceEnd = scaleX(end - 1 - rowStart) - xoffset + spriteWidth;
+                graphics2D.drawImage(strip, sourceStart + xoffset, y, sourceEnd + xoffset, y + height, sourceStart, 0, sourceEnd, height, null);
+                start = end;
+            }
+        }
+    }
+
     protected int getCellWidth() {
         return (int) dw;
     }
@@ -331,4 +446,12 @@ public abstract class GridView extends JPanel {
         graphics2D.fillRect(xoffset, yoffset, actualWidth, actualHeight);
     }
 
+    /**
+     * Paints the background of a single cell.
+     */
+    protected void paintBackground(Graphics2D graphics2D, Rectangle cellBounds) {
+        graphics2D.setPaint(background);
+        graphics2D.fill(cellBounds);
+    }
+
 }
@@ -5,20 +5,27 @@ import java.awt.Color;
 import java.awt.Composite;
 import java.awt.Dimension;
 import java.awt.FontMetrics;
+import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.Paint;
 import java.awt.Point;
 import java.awt.Rectangle;
+import java.awt.RenderingHints;
 import java.awt.Shape;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Line2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 
 import edu.asu.commons.foraging.client.ClientDataModel;
+import edu.asu.commons.foraging.client.ResourceGrid;
 import edu.asu.commons.foraging.conf.RoundConfiguration;
 import edu.asu.commons.net.Identifier;
 import edu.asu.commons.util.Duration;
@@ -28,6 +35,11 @@ import edu.asu.commons.util.Duration;
  * <p>
  * This class encapsulates the client's view of the game board. Used by the
  * ForagerGameWindow to render the current state of the game.
+ * </p>
+ * <p>
+ * The background and tokens are kept in a VolatileImage back buffer and only the
+ * cells that changed since the last paint are redrawn into it, see repaintChanges().
+ * Subjects are composited on top of it on every paint.
  * 
  * <br/>
  * FIXME: refactor field of vision
@@ -82,6 +94,17 @@ public class SubjectView extends GridView {
     private Color sanctionedParticipantColor;
     private Color sanctionerParticipantColor;
 
+    // back buffer holding the background and tokens
+    private VolatileImage tokenLayer;
+    private boolean tokenLayerValid;
+    // token sprites used when tokens are painted as colored squares instead of images
+    private BufferedImage coloredTokenImage, coloredTokenStrip;
+    // cells to redraw into the token layer on the next paint, only accessed from the event dispatch thread
+    private final Set<Point> dirtyCells = new HashSet<>();
+    private final FrameStatistics frameStatistics = new FrameStatistics();
+
+    // the position the fields of vision were centered on when the token layer was last brought up to date
+    private Point fieldOfVisionCenter;
 
     public SubjectView(Dimension screenSize, ClientDataModel dataModel) {
         super(screenSize);
@@ -126,6 +149,86 @@ public class SubjectView extends GridView {
         if (tokenFieldOfVisionEnabled || subjectFieldOfVisionEnabled) {
             fieldOfVisionOffset = (dw * 0.3d);
         }
+        dirtyCells.clear();
+        fieldOfVisionCenter = null;
+        tokenLayerValid = false;
+        repaint();
+    }
+
+    @Override
+    public void setImageSizes() {
+        super.setImageSizes();
+        if (boardSize != null) {
+            coloredTokenImage = createCompatibleImage(scaledTokenImage.getWidth(), scaledTokenImage.getHeight());
+            Graphics2D graphics2D = coloredTokenImage.createGraphics();
+            graphics2D.setPaint(TOKEN_COLOR);
+            graphics2D.fillRect(0, 0, coloredTokenImage.getWidth(), coloredTokenImage.getHeight());
+            graphics2D.dispose();
+            coloredTokenStrip = createTokenStrip(coloredTokenImage);
+        }
+        tokenLayerValid = false;
+    }
+
+    /**
+     * Repaints the cells whose tokens or occupants changed in the data model since the last invocation, or the
+     * entire board if the data model received a new token distribution. Must be invoked on the event dispatch thread.
+     */
+    public void repaintChanges() {
+        if (boardSize == null) {
+            return;
+        }
+        Set<Point> changedCells = new HashSet<>();
+        boolean allCellsChanged = dataModel.drainChangedCells(changedCells);
+        if (tokenFieldOfVisionEnabled || subjectFieldOfVisionEnabled) {
+            Point center = dataModel.getCurrentPosition();
+            if (center != null && !center.equals(fieldOfVisionCenter)) {
+                // tokens come into and go out of view as the fields of vision move along with this participant
+                if (fieldOfVisionCenter != null) {
+                    addFieldOfVisionCells(changedCells, fieldOfVisionCenter);
+                }
+                addFieldOfVisionCells(changedCells, center);
+                fieldOfVisionCenter = new Point(center);
+            }
+        }
+        if (allCellsChanged) {
+            tokenLayerValid = false;
+            repaint();
+            return;
+        }
+        for (Point cell : changedCells) {
+            dirtyCells.add(cell);
+            Rectangle bounds = getCellBounds(cell);
+            // antialiased avatars can bleed a pixel into neighboring cells
+            bounds.grow(1, 1);
+            repaint(bounds);
+        }
+    }
+
+    private void addFieldOfVisionCells(Set<Point> cells, Point center) {
+        // covers both fields of vision plus the offset the subject field of vision is drawn with
+        int radius = (int) Math.ceil(Math.max(viewTokensRadius, viewSubjectsRadius)) + 1;
+        int minX = Math.max(0, center.x - radius);
+        int maxX = Math.min((int) boardSize.getWidth() - 1, center.x + radius);
+        int minY = Math.max(0, center.y - radius);
+        int maxY = Math.min((int) boardSize.getHeight() - 1, center.y + radius);
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                cells.add(new Point(x, y));
+            }
+        }
+    }
+
+    public FrameStatistics getFrameStatistics() {
+        return frameStatistics;
+    }
+
+    @Override
+    protected void paintComponent(Graphics graphics) {
+        long start = System.nanoTime();
+        super.paintComponent(graphics);
+        frameStatistics.painted(System.nanoTime() - start);
+        // completes end-to-end latency samples for movement requests acknowledged since the last repaint
+        dataModel.getMovementLatencyTracker().rendered();
     }
 
     public void collectTokens(Point... positions) {
@@ -138,44 +241,134 @@ public class SubjectView extends GridView {
         }
     }
 
-    protected void paintTokens(Graphics2D graphics2D) {
-
-        // When showing the resource zones, paint top and bottom tokens using different images,
-        // and draw a line between the zones.
-        HashSet<Point> resourcePositionsA = new HashSet<>();
-        HashSet<Point> resourcePositionsB = new HashSet<>();
-        int midHeight = (int) boardSize.getHeight() / 2;
-        if (showResourceZones) {
-            for (Point point : dataModel.getResourcePositions()) {
-                if (point.y < midHeight) {
-                    resourcePositionsA.add(point);
-                } else {
-                    resourcePositionsB.add(point);
+    @Override
+    protected void paintTokenLayer(Graphics2D graphics2D) {
+        int width = getWidth();
+        int height = getHeight();
+        while (width > 0 && height > 0) {
+            if (tokenLayer == null || tokenLayer.getWidth() != width || tokenLayer.getHeight() != height) {
+                if (tokenLayer != null) {
+                    tokenLayer.flush();
                 }
+                tokenLayer = createVolatileImage(width, height);
+                tokenLayerValid = false;
+                if (tokenLayer == null) {
+                    // not displayable yet, paint directly
+                    super.paintTokenLayer(graphics2D);
+                    break;
+                }
+            }
+            int status = tokenLayer.validate(getGraphicsConfiguration());
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                tokenLayer.flush();
+                tokenLayer = null;
+                continue;
             }
-            double lineY = scaleYDouble((double) midHeight);
+            if (status == VolatileImage.IMAGE_RESTORED) {
+                tokenLayerValid = false;
+            }
+            updateTokenLayer();
+            graphics2D.drawImage(tokenLayer, 0, 0, null);
+            if (!tokenLayer.contentsLost()) {
+                break;
+            }
+            tokenLayerValid = false;
+        }
+        // When showing the resource zones, draw a line between the zones.
+        if (showResourceZones) {
+            double lineY = scaleYDouble((double) getMidHeight());
             graphics2D.setColor(Color.WHITE);
             graphics2D.draw(new Line2D.Double(0, lineY, scaleXDouble(boardSize.getWidth()), lineY));
         }
-        // three cases - show all food on the game board, show all food within
-        // visible radius of the current player, or don't show any food.
-        // UAA added resource zones support for 2014 experiments
+    }
+
+    /**
+     * Redraws the dirty cells into the token layer or all of it if it isn't valid.
+     */
+    private void updateTokenLayer() {
+        Graphics2D layerGraphics = tokenLayer.createGraphics();
+        try {
+            layerGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            if (!tokenLayerValid) {
+                layerGraphics.setColor(getBackground());
+                layerGraphics.fillRect(0, 0, tokenLayer.getWidth(), tokenLayer.getHeight());
+                super.paintTokenLayer(layerGraphics);
+            } else if (!dirtyCells.isEmpty()) {
+                setTokenFieldOfVisionCenter();
+                for (Point cell : dirtyCells) {
+                    paintBackground(layerGraphics, getCellBounds(cell));
+                    if (dataModel.isResourceAt(cell)) {
+                        paintToken(layerGraphics, cell);
+                    }
+                }
+            }
+            dirtyCells.clear();
+            tokenLayerValid = true;
+        } finally {
+            layerGraphics.dispose();
+        }
+    }
+
+    protected void paintTokens(Graphics2D graphics2D) {
+        setTokenFieldOfVisionCenter();
+        ResourceGrid resourceGrid = dataModel.getResourceGrid();
+        if (resourceGrid.getWidth() != (int) boardSize.getWidth()) {
+            // token positions for a different board, a new distribution is on its way
+            return;
+        }
+        int rows = Math.min((int) boardSize.getHeight(), resourceGrid.getDepth());
+        BitSet occupancy;
         if (tokenFieldOfVisionEnabled) {
-            viewTokensField.setCenter(dataModel.getCurrentPosition());
-            if (showResourceZones) {
-                paintCollection(resourcePositionsA, graphics2D, scaledTokenImage, this, viewTokensField);
-                paintCollection(resourcePositionsB, graphics2D, scaledTokenImageB, this, viewTokensField);
-            } else {
-                paintCollection(dataModel.getResourcePositions(), graphics2D, scaledTokenImage, this, viewTokensField);
+            // only show the tokens within the visible radius of the current player, walking just the visible cells
+            int columns = resourceGrid.getWidth();
+            occupancy = new BitSet(columns * rows);
+            Point center = viewTokensField.getCenter();
+            DiskMask mask = viewTokensField.getDiskMask();
+            for (int i = 0; i < mask.size(); i++) {
+                int x = center.x + mask.getOffsetX(i);
+                int y = center.y + mask.getOffsetY(i);
+                if (y < rows && resourceGrid.isResourceAt(x, y)) {
+                    occupancy.set(y * columns + x);
+                }
             }
-        } else if (showResourceZones) {
-            paintCollection(resourcePositionsA, graphics2D, scaledTokenImage);
-            paintCollection(resourcePositionsB, graphics2D, scaledTokenImageB);
-        } else if (useTokenImage) {
-            paintCollection(dataModel.getResourcePositions(), graphics2D, scaledTokenImage);
         } else {
-            paintCollection(dataModel.getResourcePositions(), graphics2D, TOKEN_COLOR);
+            occupancy = resourceGrid.toBitSet();
         }
+        if (showResourceZones) {
+            paintTokenRuns(graphics2D, occupancy, 0, getMidHeight(), tokenStrip);
+            paintTokenRuns(graphics2D, occupancy, getMidHeight(), rows, tokenStripB);
+        } else {
+            paintTokenRuns(graphics2D, occupancy, 0, rows, getTokenImage() == scaledTokenImage ? tokenStrip : coloredTokenStrip);
+        }
+    }
+
+    private void setTokenFieldOfVisionCenter() {
+        if (tokenFieldOfVisionEnabled) {
+            viewTokensField.setCenter(fieldOfVisionCenter == null ? dataModel.getCurrentPosition() : fieldOfVisionCenter);
+        }
+    }
+
+    private void paintToken(Graphics2D graphics2D, Point point) {
+        // three cases - show all food on the game board, show all food within
+        // visible radius of the current player, or don't show any food.
+        // UAA added resource zones support for 2014 experiments, top and bottom
+        // tokens are painted using different images.
+        if (tokenFieldOfVisionEnabled && !viewTokensField.contains(point)) {
+            return;
+        }
+        Image image = (showResourceZones && point.y >= getMidHeight()) ? scaledTokenImageB : getTokenImage();
+        graphics2D.drawImage(image, scaleX(point.x), scaleY(point.y), null);
+    }
+
+    private BufferedImage getTokenImage() {
+        if (showResourceZones || tokenFieldOfVisionEnabled || useTokenImage) {
+            return scaledTokenImage;
+        }
+        return coloredTokenImage;
+    }
+
+    private int getMidHeight() {
+        return (int) boardSize.getHeight() / 2;
     }
 
     private void animateCollectedTokens(Graphics2D graphics2D) {
@@ -225,7 +418,7 @@ public class SubjectView extends GridView {
             } else {
                 image = scaledTokenImage;
             }
-            graphics2D.drawImage(image, x, y, width, height, null);
+            graphics2D.drawImage(image, x, y, null);
         } else {
             graphics2D.fillRect(x, y, width, height);
         }
@@ -246,8 +439,9 @@ public class SubjectView extends GridView {
             double y = scaleYDouble(topLeftCorner.y) + fieldOfVisionOffset;
             double diameter = (dw * radius * 2.0d) + fieldOfVisionOffset;
             Ellipse2D.Double circle = new Ellipse2D.Double(x, y, diameter, diameter);
-            // clip the rendered part of the Field of vision circle that crosses the playing boundary
-            graphics2D.setClip(circle);
+            // clip the rendered part of the Field of vision circle that crosses the playing boundary,
+            // keeping the clip of the cells being repainted
+            graphics2D.clip(circle);
             Rectangle bounds = new Rectangle(getPreferredSize());
             graphics2D.clip(bounds);
             Paint originalPaint = graphics2D.getPaint();
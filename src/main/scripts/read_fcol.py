@@ -0,0 +1,141 @@
+"""
+$Id$
+
+Reads the columnar exports (*-columnar.fcol) written by the foraging save file converter, see
+edu.asu.commons.foraging.data.ColumnarTable for the file layout.  Only needs the standard library:
+
+    import read_fcol
+    tables = read_fcol.read_fcol("round-0.save-columnar.fcol")
+    events = tables["events"]            # column name -> list of values, None for nulls
+    events_frame = read_fcol.to_data_frames(tables)["events"]    # if pandas is installed
+
+Running it as a script prints every table tab separated.
+
+@author <a href='mailto:allen.lee@asu.edu'>Allen Lee</a>
+@version $Rev$
+"""
+
+import struct
+import sys
+import zlib
+from collections import OrderedDict
+
+MAGIC = b"FCOL"
+FORMAT_VERSION = 1
+TIMESTAMP, INT, DOUBLE, DICTIONARY, STRING = range(5)
+
+
+class _Input(object):
+
+    def __init__(self, data):
+        self.data = data
+        self.position = 0
+
+    def read(self, length):
+        if self.position + length > len(self.data):
+            raise ValueError("truncated columnar export")
+        value = self.data[self.position:self.position + length]
+        self.position += length
+        return value
+
+    def read_byte(self):
+        return self.read(1)[0]
+
+    def read_int(self):
+        return struct.unpack(">i", self.read(4))[0]
+
+    def read_var_long(self):
+        zigzag = 0
+        shift = 0
+        while True:
+            b = self.read_byte()
+            zigzag |= (b & 0x7F) << shift
+            shift += 7
+            if not b & 0x80:
+                break
+        return (zigzag >> 1) ^ -(zigzag & 1)
+
+    def read_string(self, length=None):
+        if length is None:
+            length = self.read_var_long()
+        return self.read(length).decode("utf-8")
+
+
+def _read_column(column_type, data, rows):
+    column = _Input(zlib.decompress(data))
+    if column_type == DOUBLE:
+        return list(struct.unpack(">%dd" % rows, column.read(8 * rows)))
+    if column_type == STRING:
+        values = []
+        for _ in range(rows):
+            length = column.read_var_long()
+            values.append(None if length == 0 else column.read_string(length - 1))
+        return values
+    dictionary = None
+    if column_type == DICTIONARY:
+        # index 0 stands for null
+        dictionary = [None] + [column.read_string() for _ in range(column.read_var_long())]
+    values = []
+    previous = 0
+    for _ in range(rows):
+        value = column.read_var_long()
+        if column_type == TIMESTAMP:
+            value += previous
+            previous = value
+        values.append(value)
+    if dictionary is not None:
+        values = [dictionary[index] for index in values]
+    return values
+
+
+def read_fcol(path):
+    """
+    Returns an OrderedDict of table name to an OrderedDict of column name to the list of the column's values.
+    """
+    with open(path, "rb") as stream:
+        data = _Input(stream.read())
+    if data.read(len(MAGIC)) != MAGIC:
+        raise ValueError("%s is not a columnar export file" % path)
+    version = data.read_byte()
+    if version != FORMAT_VERSION:
+        raise ValueError("unsupported columnar export version %d" % version)
+    tables = OrderedDict()
+    for _ in range(data.read_int()):
+        name = data.read_string()
+        rows = data.read_int()
+        columns = OrderedDict()
+        for _ in range(data.read_int()):
+            column_name = data.read_string()
+            column_type = data.read_byte()
+            columns[column_name] = _read_column(column_type, data.read(data.read_int()), rows)
+        tables[name] = columns
+    return tables
+
+
+def to_data_frames(tables):
+    import pandas
+    return OrderedDict((name, pandas.DataFrame(columns)) for name, columns in tables.items())
+
+
+def _format(value):
+    if value is None:
+        return "NA"
+    if isinstance(value, float):
+        return "%.17g" % value
+    return str(value)
+
+
+def main(arguments):
+    if len(arguments) != 1:
+        sys.stderr.write("Usage: python read_fcol.py <columnar-export.fcol>\n")
+        return 1
+    for name, columns in read_fcol(arguments[0]).items():
+        print("# " + name)
+        print("\t".join(columns.keys()))
+        for row in zip(*columns.values()):
+            print("\t".join(_format(value) for value in row))
+    return 0
+
+
+if __name__ == "__main__":
+    sys.exit(main(sys.argv[1:]))
@@ -0,0 +1,101 @@
+package edu.asu.commons.foraging.bot;
+
+import java.awt.Point;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import edu.asu.commons.foraging.model.Direction;
+
+import static org.junit.Assert.*;
+
+/**
+ * $Id$
+ *
+ * @author <a href='mailto:Allen.Lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public class BotNavigatorTest {
+
+    private final static int WIDTH = 13;
+    private final static int DEPTH = 9;
+
+    @Test
+    public void testIncrementalUpdatesMatchFullSearch() {
+        Random random = new Random(0);
+        BotNavigator navigator = new BotNavigator(WIDTH, DEPTH);
+        Set<Point> tokens = new HashSet<Point>();
+        for (int update = 0; update < 300; update++) {
+            // add and remove a handful of tokens between updates, sometimes the same one twice, sometimes
+            // clearing the board
+            if (update % 50 == 49) {
+                for (Point point: tokens) {
+                    navigator.tokenRemoved(point);
+                }
+                tokens.clear();
+            }
+            for (int i = random.nextInt(6); i > 0; i--) {
+                Point point = new Point(random.nextInt(WIDTH), random.nextInt(DEPTH));
+                if (tokens.remove(point)) {
+                    navigator.tokenRemoved(point);
+                }
+                else {
+                    tokens.add(point);
+                    navigator.tokenAdded(point);
+                }
+            }
+            navigator.applyChanges();
+            assertEquals(tokens.size(), navigator.getNumberOfTokens());
+            Set<Point> positions = new HashSet<Point>();
+            for (int i = 0; i < navigator.getNumberOfTokens(); i++) {
+                positions.add(navigator.getToken(i));
+            }
+            assertEquals(tokens, positions);
+            for (int y = 0; y < DEPTH; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    assertEquals("distance at " + x + "," + y + " after update " + update,
+                            getDistance(tokens, x, y), navigator.getDistance(new Point(x, y)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNextStepRoutesAroundBlockedCells() {
+        BotNavigator navigator = new BotNavigator(WIDTH, DEPTH);
+        navigator.tokenAdded(new Point(0, 4));
+        navigator.applyChanges();
+        Point position = new Point(3, 4);
+        BoardSnapshot open = new BoardSnapshot(navigator, Collections.<Point>emptySet());
+        assertEquals(Direction.LEFT, navigator.getNextStep(position, open));
+        BoardSnapshot blocked = new BoardSnapshot(navigator, Collections.singleton(new Point(2, 4)));
+        // going right leads straight back, going up leads on to (2,3)
+        assertEquals(Direction.UP, navigator.getNextStep(position, blocked));
+        Set<Point> walled = new HashSet<Point>();
+        walled.add(new Point(2, 4));
+        walled.add(new Point(3, 3));
+        walled.add(new Point(3, 5));
+        BoardSnapshot surrounded = new BoardSnapshot(navigator, walled);
+        assertEquals(Direction.NONE, navigator.getNextStep(position, surrounded));
+        assertEquals(Direction.NONE, navigator.getNextStep(new Point(0, 4), open));
+        navigator.tokenRemoved(new Point(0, 4));
+        // recorded changes only show up once applied
+        assertTrue(open.isResourceAt(new Point(0, 4)));
+        navigator.applyChanges();
+        assertFalse(navigator.hasTokens());
+        assertFalse(open.isResourceAt(new Point(0, 4)));
+        assertEquals(BotNavigator.UNREACHABLE, navigator.getDistance(position));
+    }
+
+    private int getDistance(Set<Point> tokens, int x, int y) {
+        int distance = BotNavigator.UNREACHABLE;
+        for (Point token: tokens) {
+            distance = Math.min(distance, Math.abs(token.x - x) + Math.abs(token.y - y));
+        }
+        return distance;
+    }
+
+}
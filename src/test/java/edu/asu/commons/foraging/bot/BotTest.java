@@ -0,0 +1,54 @@
+package edu.asu.commons.foraging.bot;
+
+import java.awt.Point;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import edu.asu.commons.foraging.model.Direction;
+
+import static org.junit.Assert.*;
+
+/**
+ * $Id$
+ *
+ * @author <a href='mailto:Allen.Lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public class BotTest {
+
+    @Test
+    public void testDecideDoesNotNeedTheGroup() {
+        Set<Point> tokens = new HashSet<Point>();
+        tokens.add(new Point(2, 2));
+        tokens.add(new Point(7, 2));
+        BoardSnapshot board = new BoardSnapshot(tokens, 10, 10);
+        Bot bot = new CustomBot(10, 1.0d, 1.0d);
+        bot.setCurrentPosition(new Point(4, 2));
+        // nearest token is at (2, 2)
+        Bot.Action action = bot.decide(board);
+        assertEquals(Bot.Action.Type.MOVE, action.getType());
+        assertEquals(Direction.LEFT, action.getDirection());
+        // decide() doesn't move the bot, the group applies the action
+        assertEquals(new Point(4, 2), bot.getPosition());
+        bot.actionApplied(action, true, board);
+        bot.setCurrentPosition(new Point(2, 2));
+        // every move is followed by a one tick wait
+        assertSame(Bot.Action.NONE, bot.decide(board));
+        assertSame(Bot.Action.HARVEST, bot.decide(board));
+    }
+
+    @Test
+    public void testActionsPerSecond() {
+        BoardSnapshot board = new BoardSnapshot(new HashSet<Point>(), 10, 10);
+        Bot bot = new CustomBot(0, 1.0d, 1.0d);
+        bot.setCurrentPosition(new Point(0, 0));
+        bot.decide(board);
+        bot.setTicksToWait(0);
+        assertSame(Bot.Action.NONE, bot.decide(board));
+        bot.resetActionsTakenPerSecond();
+        assertEquals(Bot.Action.Type.MOVE, bot.decide(board).getType());
+    }
+
+}
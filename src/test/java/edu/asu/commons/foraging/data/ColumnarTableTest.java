@@ -0,0 +1,157 @@
+package edu.asu.commons.foraging.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import edu.asu.commons.foraging.data.ColumnarTable.ColumnType;
+
+import static org.junit.Assert.*;
+
+/**
+ * $Id$
+ * 
+ * @author <a href='mailto:Allen.Lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public class ColumnarTableTest {
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        ColumnarTable table = new ColumnarTable("events")
+            .addColumn("time", ColumnType.TIMESTAMP)
+            .addColumn("id", ColumnType.DICTIONARY)
+            .addColumn("x", ColumnType.INT)
+            .addColumn("probability", ColumnType.DOUBLE);
+        long start = 1418946022123L;
+        for (int i = 0; i < 500; i++) {
+            table.append(start + i * 17).append(i % 7 == 0 ? null : "client-" + (i % 5)).append(i % 3 - 1).append(i / 3.0d).endRow();
+        }
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        ColumnarTable.write(stream, table, ColumnarExportProcessor.createIntervalTable());
+        List<ColumnarTable> tables = ColumnarTable.read(new ByteArrayInputStream(stream.toByteArray()));
+        assertEquals(2, tables.size());
+        ColumnarTable copy = tables.get(0);
+        assertEquals("events", copy.getName());
+        assertEquals(table.getColumnNames(), copy.getColumnNames());
+        assertEquals(500, copy.getRowCount());
+        for (int i = 0; i < 500; i++) {
+            assertEquals(table.getLong("time", i), copy.getLong("time", i));
+            assertEquals(table.getString("id", i), copy.getString("id", i));
+            assertEquals(table.getLong("x", i), copy.getLong("x", i));
+            assertEquals(table.getDouble("probability", i), copy.getDouble("probability", i), 0.0d);
+        }
+        assertNull(copy.getString("id", 0));
+        assertEquals(0, tables.get(1).getRowCount());
+        assertEquals(ColumnType.TIMESTAMP, tables.get(1).getColumnType("interval_end"));
+    }
+
+    @Test
+    public void testLongStrings() throws IOException {
+        ColumnarTable table = new ColumnarTable("events")
+            .addColumn("type", ColumnType.DICTIONARY)
+            .addColumn("detail", ColumnType.STRING);
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < 70000) {
+            builder.append("chat message \u00e9\u4e2d ");
+        }
+        String longString = builder.toString();
+        table.append(longString).append(longString).endRow();
+        table.append("ChatRequest").append(null).endRow();
+        table.append(null).append("").endRow();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        ColumnarTable.write(stream, table);
+        ColumnarTable copy = ColumnarTable.read(new ByteArrayInputStream(stream.toByteArray())).get(0);
+        assertEquals(ColumnType.STRING, copy.getColumnType("detail"));
+        assertEquals(longString, copy.getString("type", 0));
+        assertEquals(longString, copy.getString("detail", 0));
+        assertEquals("ChatRequest", copy.getString("type", 1));
+        assertNull(copy.getString("detail", 1));
+        assertNull(copy.getString("type", 2));
+        assertEquals("", copy.getString("detail", 2));
+    }
+
+    @Test
+    public void testIncompleteRowsAreRejected() {
+        ColumnarTable table = ColumnarExportProcessor.createIntervalTable();
+        table.append(5000L).append("client-1").append(1);
+        try {
+            table.endRow();
+            fail("row is missing columns");
+        }
+        catch (IllegalStateException expected) {
+        }
+        try {
+            // tokens is an INT column
+            table.append("three");
+            fail("appended a string to an INT column");
+        }
+        catch (IllegalArgumentException expected) {
+        }
+        assertEquals(0, table.getRowCount());
+    }
+
+    @Test
+    public void testPythonReader() throws IOException, InterruptedException {
+        assertReaderOutput("python3", "src/main/scripts/read_fcol.py");
+    }
+
+    @Test
+    public void testRReader() throws IOException, InterruptedException {
+        assertReaderOutput("Rscript", "src/main/scripts/read_fcol.R");
+    }
+
+    /**
+     * Runs the reader script over an export with every column type and compares what it prints with the table.
+     */
+    private void assertReaderOutput(String interpreter, String script) throws IOException, InterruptedException {
+        ColumnarTable events = new ColumnarTable("events")
+            .addColumn("time", ColumnType.TIMESTAMP)
+            .addColumn("id", ColumnType.DICTIONARY)
+            .addColumn("x", ColumnType.INT)
+            .addColumn("probability", ColumnType.DOUBLE)
+            .addColumn("detail", ColumnType.STRING);
+        events.append(1418946022123L).append("client-1").append(-1).append(0.25d).append("a, b\tc").endRow();
+        events.append(1418946022100L).append(null).append(7).append(1 / 3.0d).append(null).endRow();
+        events.append(1418946025000L).append("client-1").append(0).append(-2.5d).append("").endRow();
+        File file = File.createTempFile("columnar", ".fcol");
+        file.deleteOnExit();
+        try (OutputStream stream = new FileOutputStream(file)) {
+            ColumnarTable.write(stream, events, ColumnarExportProcessor.createIntervalTable());
+        }
+        Process process;
+        try {
+            process = new ProcessBuilder(interpreter, script, file.getPath()).redirectErrorStream(true).start();
+        }
+        catch (IOException exception) {
+            Assume.assumeNoException(interpreter + " is not installed", exception);
+            return;
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream stream = process.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+        }
+        String printed = output.toString("UTF-8");
+        assertEquals(printed, 0, process.waitFor());
+        assertEquals("# events\n"
+                + "time\tid\tx\tprobability\tdetail\n"
+                + "1418946022123\tclient-1\t-1\t0.25\ta, b\tc\n"
+                + "1418946022100\tNA\t7\t0.33333333333333331\tNA\n"
+                + "1418946025000\tclient-1\t0\t-2.5\t\n"
+                + "# intervals\n"
+                + "interval_end\tid\tgroup\tmoves\ttokens\ttokens_left\n", printed);
+    }
+
+}
@@ -0,0 +1,116 @@
+package edu.asu.commons.foraging.data;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * $Id$
+ * 
+ * @author <a href='mailto:Allen.Lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public class ConversionManifestTest {
+
+    private File directory;
+    private File saveFile;
+    private SummaryProcessor processor;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("conversion-manifest").toFile();
+        File sessionDirectory = new File(directory, "session-1");
+        sessionDirectory.mkdir();
+        saveFile = new File(sessionDirectory, "round-0.save");
+        write(saveFile, "round data");
+        processor = new SummaryProcessor();
+    }
+
+    @Test
+    public void testUnchangedSaveFileIsSkipped() throws IOException {
+        File outputFile = ForagingSaveFileConverter.getOutputFile(saveFile, processor);
+        ConversionManifest manifest = ConversionManifest.load(directory);
+        String hash = manifest.getHash(saveFile);
+        assertTrue(manifest.isStale(saveFile, hash, processor, outputFile));
+        write(outputFile, "summary");
+        manifest.markConverted(saveFile, hash, processor);
+        manifest.save();
+
+        manifest = ConversionManifest.load(directory);
+        assertEquals(hash, manifest.getHash(saveFile));
+        assertFalse(manifest.isStale(saveFile, hash, processor, outputFile));
+        // missing outputs are always regenerated
+        outputFile.delete();
+        assertTrue(manifest.isStale(saveFile, hash, processor, outputFile));
+    }
+
+    @Test
+    public void testModifiedSaveFileIsStale() throws IOException {
+        File outputFile = ForagingSaveFileConverter.getOutputFile(saveFile, processor);
+        write(outputFile, "summary");
+        ConversionManifest manifest = ConversionManifest.load(directory);
+        String hash = manifest.getHash(saveFile);
+        manifest.markConverted(saveFile, hash, processor);
+        write(saveFile, "different round data");
+        String modifiedHash = manifest.getHash(saveFile);
+        assertNotEquals(hash, modifiedHash);
+        assertTrue(manifest.isStale(saveFile, modifiedHash, processor, outputFile));
+    }
+
+    @Test
+    public void testRewriteWithinTimestampResolutionIsStale() throws IOException {
+        ConversionManifest manifest = ConversionManifest.load(directory);
+        long lastModified = saveFile.lastModified();
+        String hash = manifest.getHash(saveFile);
+        // same length and last modified time, e.g., rewritten by the server right after we hashed it
+        write(saveFile, "ROUND DATA");
+        saveFile.setLastModified(lastModified);
+        assertNotEquals(hash, manifest.getHash(saveFile));
+    }
+
+    @Test
+    public void testChangedProcessorConfigurationIsStale() throws IOException {
+        MultiResolutionAggregateProcessor aggregates = new MultiResolutionAggregateProcessor("1,5,30/5");
+        File outputFile = ForagingSaveFileConverter.getOutputFile(saveFile, aggregates);
+        write(outputFile, "aggregates");
+        ConversionManifest manifest = ConversionManifest.load(directory);
+        String hash = manifest.getHash(saveFile);
+        manifest.markConverted(saveFile, hash, aggregates);
+        manifest.save();
+
+        manifest = ConversionManifest.load(directory);
+        // same windows written differently are still up to date
+        assertFalse(manifest.isStale(saveFile, hash, new MultiResolutionAggregateProcessor(" 1, 5 ,30/5"), outputFile));
+        assertTrue(manifest.isStale(saveFile, hash, new MultiResolutionAggregateProcessor("1,5,10"), outputFile));
+        assertTrue(manifest.isStale(saveFile, hash, new MultiResolutionAggregateProcessor("1,5,30/10"), outputFile));
+    }
+
+    @After
+    public void tearDown() {
+        delete(directory);
+    }
+
+    private void write(File file, String contents) throws IOException {
+        try (FileOutputStream stream = new FileOutputStream(file)) {
+            stream.write(contents.getBytes("UTF-8"));
+        }
+    }
+
+    private void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child: files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+}
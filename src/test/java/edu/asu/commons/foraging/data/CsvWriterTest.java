@@ -0,0 +1,41 @@
+package edu.asu.commons.foraging.data;
+
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * $Id$
+ * 
+ * @author <a href='mailto:Allen.Lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public class CsvWriterTest {
+
+    private final static String NEWLINE = System.lineSeparator();
+
+    @Test
+    public void testFormatting() {
+        StringWriter output = new StringWriter();
+        // small buffer to exercise draining
+        CsvWriter csv = new CsvWriter(output, ",", 8);
+        csv.append(1418946022123L).append(-42).append(0).append(Long.MIN_VALUE).append(0.25d).endRow();
+        csv.append("plain").append("a, b").append("say \"hi\"").append("two\nlines").appendQuoted("[x]").append((Object) null).endRow();
+        csv.flush();
+        assertEquals("1418946022123,-42,0,-9223372036854775808,0.25" + NEWLINE
+                + "plain,\"a, b\",\"say \"\"hi\"\"\",\"two\nlines\",\"[x]\",null" + NEWLINE, output.toString());
+    }
+
+    @Test
+    public void testLegacySeparatorIsNotQuoted() {
+        StringWriter output = new StringWriter();
+        CsvWriter csv = new CsvWriter(output, ", ", 8);
+        csv.append(-42).append("a, b").append("say \"hi\"").appendQuoted("{x=1, y=2}").endRow();
+        csv.flush();
+        // matches the String.format(...) lines the legacy processors printed
+        assertEquals("-42, a, b, say \"hi\", \"{x=1, y=2}\"" + NEWLINE, output.toString());
+    }
+
+}
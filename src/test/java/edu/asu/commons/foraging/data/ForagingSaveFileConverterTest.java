@@ -0,0 +1,75 @@
+package edu.asu.commons.foraging.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.asu.commons.experiment.SaveFileProcessor;
+import edu.asu.commons.foraging.server.BotSimulation;
+
+import static org.junit.Assert.*;
+
+/**
+ * $Id$
+ *
+ * @author <a href='mailto:Allen.Lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public class ForagingSaveFileConverterTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("save-file-converter").toFile();
+        Map<String, String> parameters = new LinkedHashMap<String, String>();
+        parameters.put("duration", "30");
+        parameters.put("bot-type", "AGGRESSIVE");
+        parameters.put("bots-per-group", "3");
+        // two groups so that every event has to be applied to the right group
+        new BotSimulation("configuration/asu/2011/t1", 4, parameters, 2, directory).call();
+    }
+
+    @Test
+    public void testProcessorsSharingASaveFileMatchSeparateConversions() throws IOException {
+        List<File> saveFiles = ForagingSaveFileConverter.findSaveFiles(directory, false);
+        assertEquals(1, saveFiles.size());
+        File saveFile = saveFiles.get(0);
+        // both processors replay token regrowth into their own per group state
+        List<SaveFileProcessor> processors = Arrays.asList(new ResourceOverTimeProcessor(), new ResourceSpatialStatisticsProcessor());
+        ForagingSaveFileConverter.convert(directory, processors, false, true);
+        for (SaveFileProcessor processor: processors) {
+            File outputFile = ForagingSaveFileConverter.getOutputFile(saveFile, processor);
+            String shared = new String(Files.readAllBytes(outputFile.toPath()), "UTF-8");
+            ForagingSaveFileConverter.convert(directory, Collections.singletonList(processor), false, true);
+            String separate = new String(Files.readAllBytes(outputFile.toPath()), "UTF-8");
+            assertFalse(separate.isEmpty());
+            assertEquals(processor.getOutputFileExtension(), separate, shared);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        delete(directory);
+    }
+
+    private void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child: files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+}
@@ -0,0 +1,44 @@
+package edu.asu.commons.foraging.data;
+
+import org.junit.Test;
+
+import edu.asu.commons.foraging.data.IntervalAggregator.SeriesType;
+import edu.asu.commons.foraging.data.IntervalAggregator.Window;
+
+import static org.junit.Assert.*;
+
+/**
+ * $Id$
+ * 
+ * @author <a href='mailto:Allen.Lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public class IntervalAggregatorTest {
+
+    @Test
+    public void testWindows() {
+        IntervalAggregator aggregator = new IntervalAggregator();
+        aggregator.addSeries("moves", SeriesType.COUNTER);
+        aggregator.addSeries("tokens left", SeriesType.GAUGE);
+        // one move per second for seconds 0 - 11, tokens left drop by one every 4 seconds
+        for (int second = 0; second < 12; second++) {
+            aggregator.increment("moves", second, 1);
+            if (second % 4 == 0) {
+                aggregator.set("tokens left", second, 100 - second);
+            }
+        }
+        assertEquals(12, aggregator.getNumberOfSeconds());
+
+        Window five = Window.parse("5");
+        assertArrayEquals(new long[] { 5, 10, 15 }, aggregator.getWindowEnds(five));
+        assertArrayEquals(new long[] { 5, 5, 2 }, aggregator.aggregate("moves", five));
+        assertArrayEquals(new long[] { 96, 92, 92 }, aggregator.aggregate("tokens left", five));
+
+        Window sliding = Window.parse("6/3");
+        assertTrue(sliding.isSliding());
+        assertArrayEquals(new long[] { 3, 6, 9, 12 }, aggregator.getWindowEnds(sliding));
+        assertArrayEquals(new long[] { 3, 6, 6, 6 }, aggregator.aggregate("moves", sliding));
+        assertEquals(2, Window.parseAll("1, 30/5").size());
+    }
+
+}
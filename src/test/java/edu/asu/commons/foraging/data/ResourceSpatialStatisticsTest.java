@@ -0,0 +1,189 @@
+package edu.asu.commons.foraging.data;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * $Id$
+ *
+ * @author <a href='mailto:Allen.Lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public class ResourceSpatialStatisticsTest {
+
+    private final static int WIDTH = 11;
+    private final static int HEIGHT = 8;
+    private final static Random RNG = new Random(0);
+
+    @Test
+    public void testIncrementalStatisticsMatchFullScan() {
+        Set<Point> tokens = new HashSet<Point>();
+        ResourceSpatialStatistics statistics = new ResourceSpatialStatistics(WIDTH, HEIGHT);
+        assertTrue(Double.isNaN(statistics.getMoransI()));
+        assertEquals(0, statistics.getNumberOfPatches());
+        for (int i = 0; i < 1500; i++) {
+            Point point = new Point(RNG.nextInt(WIDTH), RNG.nextInt(HEIGHT));
+            if (RNG.nextInt(3) > 0) {
+                assertEquals(tokens.add(point), statistics.add(point));
+            }
+            else {
+                assertEquals(tokens.remove(point), statistics.remove(point));
+            }
+            assertEquals(tokens.size(), statistics.getNumberOfTokens());
+            if (i % 10 == 0) {
+                assertEquals(countPatches(tokens), statistics.getNumberOfPatches());
+                if (! tokens.isEmpty() && tokens.size() < WIDTH * HEIGHT) {
+                    assertEquals(getMoransI(tokens), statistics.getMoransI(), 1e-9);
+                }
+                if (tokens.size() > 1) {
+                    assertEquals(getNearestNeighborIndex(tokens), statistics.getNearestNeighborIndex(), 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNearestNeighborIndex() {
+        ResourceSpatialStatistics statistics = new ResourceSpatialStatistics(WIDTH, HEIGHT);
+        statistics.add(0, 0);
+        assertTrue(Double.isNaN(statistics.getNearestNeighborIndex()));
+        statistics.add(3, 4);
+        // both tokens are 5 apart, expected distance for 2 tokens over 88 cells is 0.5 / sqrt(2/88)
+        assertEquals(5.0d / (0.5d / Math.sqrt(2.0d / (WIDTH * HEIGHT))), statistics.getNearestNeighborIndex(), 1e-9);
+        statistics.add(4, 4);
+        // (3,4) and (4,4) are 1 apart, (0,0) is still 5 away from (3,4)
+        assertEquals((7.0d / 3.0d) / (0.5d / Math.sqrt(3.0d / (WIDTH * HEIGHT))), statistics.getNearestNeighborIndex(), 1e-9);
+    }
+
+    @Test
+    public void testClientSpatialDistribution() {
+        ClientSpatialDistribution distribution = new ClientSpatialDistribution(new Dimension(WIDTH, HEIGHT));
+        int[] rows = new int[HEIGHT];
+        int[] columns = new int[WIDTH];
+        for (int i = 0; i < 200; i++) {
+            Point point = new Point(RNG.nextInt(WIDTH), RNG.nextInt(HEIGHT));
+            distribution.add(point);
+            rows[point.y]++;
+            columns[point.x]++;
+        }
+        distribution.calculateStandardDeviation();
+        assertEquals(standardDeviation(rows), distribution.rowStandardDeviation, 1e-9);
+        assertEquals(standardDeviation(columns), distribution.columnStandardDeviation, 1e-9);
+        distribution.zeroRowColumnCounts();
+        distribution.calculateStandardDeviation();
+        assertEquals(0.0d, distribution.rowStandardDeviation, 0.0d);
+    }
+
+    private double standardDeviation(int[] counts) {
+        double mean = 0;
+        for (int count: counts) {
+            mean += count;
+        }
+        mean /= counts.length;
+        double sumOfSquares = 0;
+        for (int count: counts) {
+            sumOfSquares += (count - mean) * (count - mean);
+        }
+        return Math.sqrt(sumOfSquares / counts.length);
+    }
+
+    private double getMoransI(Set<Point> tokens) {
+        int n = WIDTH * HEIGHT;
+        double mean = tokens.size() / (double) n;
+        double numerator = 0;
+        double weight = 0;
+        double denominator = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                double xi = tokens.contains(new Point(x, y)) ? 1 - mean : -mean;
+                denominator += xi * xi;
+                for (int ny = y - 1; ny <= y + 1; ny++) {
+                    for (int nx = x - 1; nx <= x + 1; nx++) {
+                        if ((nx == x && ny == y) || nx < 0 || ny < 0 || nx >= WIDTH || ny >= HEIGHT) {
+                            continue;
+                        }
+                        double xj = tokens.contains(new Point(nx, ny)) ? 1 - mean : -mean;
+                        numerator += xi * xj;
+                        weight++;
+                    }
+                }
+            }
+        }
+        return (n / weight) * (numerator / denominator);
+    }
+
+    @Test
+    public void testSparseFieldMatchesFullScan() {
+        // few tokens far apart exercise the nearest neighbor updates over large distances and patches splitting up
+        Set<Point> tokens = new HashSet<Point>();
+        ResourceSpatialStatistics statistics = new ResourceSpatialStatistics(WIDTH, HEIGHT);
+        for (int i = 0; i < 500; i++) {
+            Point point = new Point(RNG.nextInt(WIDTH), RNG.nextInt(HEIGHT));
+            if (tokens.size() < 6 && RNG.nextBoolean()) {
+                assertEquals(tokens.add(point), statistics.add(point));
+            }
+            else if (! tokens.isEmpty()) {
+                Point token = tokens.iterator().next();
+                tokens.remove(token);
+                assertTrue(statistics.remove(token));
+            }
+            assertEquals(countPatches(tokens), statistics.getNumberOfPatches());
+            if (tokens.size() > 1) {
+                assertEquals(getNearestNeighborIndex(tokens), statistics.getNearestNeighborIndex(), 1e-9);
+            }
+            else {
+                assertTrue(Double.isNaN(statistics.getNearestNeighborIndex()));
+            }
+        }
+    }
+
+    private double getNearestNeighborIndex(Set<Point> tokens) {
+        double totalDistance = 0;
+        for (Point token: tokens) {
+            double nearest = Double.MAX_VALUE;
+            for (Point other: tokens) {
+                if (! other.equals(token)) {
+                    nearest = Math.min(nearest, token.distance(other));
+                }
+            }
+            totalDistance += nearest;
+        }
+        double expected = 0.5d / Math.sqrt(tokens.size() / (double) (WIDTH * HEIGHT));
+        return (totalDistance / tokens.size()) / expected;
+    }
+
+    private int countPatches(Set<Point> tokens) {
+        Set<Point> visited = new HashSet<Point>();
+        int patches = 0;
+        for (Point token: tokens) {
+            if (! visited.add(token)) {
+                continue;
+            }
+            patches++;
+            Deque<Point> queue = new ArrayDeque<Point>();
+            queue.add(token);
+            while (! queue.isEmpty()) {
+                Point point = queue.poll();
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        Point neighbor = new Point(point.x + dx, point.y + dy);
+                        if (tokens.contains(neighbor) && visited.add(neighbor)) {
+                            queue.add(neighbor);
+                        }
+                    }
+                }
+            }
+        }
+        return patches;
+    }
+
+}
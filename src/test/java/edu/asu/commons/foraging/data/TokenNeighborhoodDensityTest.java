@@ -0,0 +1,69 @@
+package edu.asu.commons.foraging.data;
+
+import java.awt.Point;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * $Id$
+ * 
+ * @author <a href='mailto:Allen.Lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public class TokenNeighborhoodDensityTest {
+
+    private final static int WIDTH = 13;
+    private final static int HEIGHT = 7;
+    private final static Random RNG = new Random(0);
+
+    @Test
+    public void testIncrementalSumMatchesFullScan() {
+        Set<Point> tokens = new HashSet<Point>();
+        TokenNeighborhoodDensity density = new TokenNeighborhoodDensity(WIDTH, HEIGHT);
+        assertEquals(0.0d, density.getNeighborsTokenRatioSum(), 0.0d);
+        for (int i = 0; i < 2000; i++) {
+            Point point = new Point(RNG.nextInt(WIDTH), RNG.nextInt(HEIGHT));
+            if (RNG.nextBoolean()) {
+                assertEquals(tokens.add(point), density.add(point));
+            }
+            else {
+                assertEquals(tokens.remove(point), density.remove(point));
+            }
+            assertEquals(tokens.size(), density.getNumberOfTokens());
+            assertEquals(getNeighborsTokenRatioSum(tokens), density.getNeighborsTokenRatioSum(), 1e-9);
+        }
+        assertEquals(0.3d * getNeighborsTokenRatioSum(tokens), density.getTokenProbabilitySum(0.3d), 1e-9);
+    }
+
+    // same computation as the neighborhood density dependent resource generator, summed over every empty cell
+    private double getNeighborsTokenRatioSum(Set<Point> tokens) {
+        double sum = 0;
+        for (int x = 0; x < WIDTH; x++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                if (tokens.contains(new Point(x, y))) {
+                    continue;
+                }
+                double neighborsWithTokens = 0;
+                double maxNeighbors = -1;
+                for (int nx = x - 1; nx < x + 2; nx++) {
+                    for (int ny = y - 1; ny < y + 2; ny++) {
+                        if (nx >= 0 && nx < WIDTH && ny >= 0 && ny < HEIGHT) {
+                            maxNeighbors++;
+                            if (tokens.contains(new Point(nx, ny))) {
+                                neighborsWithTokens++;
+                            }
+                        }
+                    }
+                }
+                sum += neighborsWithTokens / maxNeighbors;
+            }
+        }
+        return sum;
+    }
+
+}
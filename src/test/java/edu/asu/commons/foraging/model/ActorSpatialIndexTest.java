@@ -0,0 +1,71 @@
+package edu.asu.commons.foraging.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.asu.commons.net.Identifier;
+
+public class ActorSpatialIndexTest {
+
+    private final static int WIDTH = 29;
+    private final static int HEIGHT = 23;
+
+    @Test
+    public void testQueriesMatchFullScan() {
+        Random random = new Random(7);
+        ActorSpatialIndex index = new ActorSpatialIndex(WIDTH, HEIGHT, 3);
+        Map<Identifier, Point> positions = new HashMap<Identifier, Point>();
+        List<Identifier> ids = new ArrayList<Identifier>();
+        for (int i = 0; i < 20; i++) {
+            Identifier id = new Identifier.Mock();
+            ids.add(id);
+            Point position = new Point(random.nextInt(WIDTH), random.nextInt(HEIGHT));
+            positions.put(id, position);
+            index.put(id, position);
+        }
+        assertEquals(ids.size(), index.size());
+        for (int i = 0; i < 500; i++) {
+            Identifier id = ids.get(random.nextInt(ids.size()));
+            Point position = new Point(random.nextInt(WIDTH), random.nextInt(HEIGHT));
+            positions.put(id, position);
+            index.put(id, position);
+
+            Point center = new Point(random.nextInt(WIDTH), random.nextInt(HEIGHT));
+            double radius = random.nextInt(8) + random.nextDouble();
+            HashSet<Identifier> expected = new HashSet<Identifier>();
+            for (Map.Entry<Identifier, Point> entry: positions.entrySet()) {
+                if (center.distance(entry.getValue()) <= radius) {
+                    expected.add(entry.getKey());
+                }
+            }
+            assertEquals(expected, new HashSet<Identifier>(index.getActorsWithin(center, radius)));
+            expected.remove(id);
+            assertEquals(! expected.isEmpty(), index.isAnyActorWithin(center, radius, id));
+
+            Identifier other = ids.get(random.nextInt(ids.size()));
+            assertEquals(positions.get(id).distance(positions.get(other)), index.getDistance(id, other), 0.0d);
+        }
+    }
+
+    @Test
+    public void testOutOfBoundsQuery() {
+        ActorSpatialIndex index = new ActorSpatialIndex(WIDTH, HEIGHT);
+        Identifier id = new Identifier.Mock();
+        index.put(id, new Point(0, 0));
+        assertTrue(index.isAnyActorWithin(new Point(-2, -2), 3, null));
+        assertFalse(index.isAnyActorWithin(new Point(-2, -2), 3, id));
+        assertTrue(index.getActorsWithin(new Point(WIDTH + 5, HEIGHT + 5), 2).isEmpty());
+    }
+
+}
@@ -0,0 +1,33 @@
+package edu.asu.commons.foraging.model;
+
+import java.awt.Point;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * $Id$
+ *
+ * @author <a href='mailto:Allen.Lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public class CellTest {
+
+    @Test
+    public void testPackedCellsMatchPoints() {
+        for (int x = -2; x < 130; x++) {
+            for (int y = -2; y < 130; y++) {
+                Point point = new Point(x, y);
+                int cell = Cell.valueOf(point);
+                assertEquals(x, Cell.getX(cell));
+                assertEquals(y, Cell.getY(cell));
+                assertEquals(point, Cell.toPoint(cell));
+                for (Direction direction : Direction.values()) {
+                    assertEquals(direction.apply(point), Cell.toPoint(direction.apply(cell)));
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+package edu.asu.commons.foraging.model;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import edu.asu.commons.foraging.ui.Circle;
+import edu.asu.commons.foraging.ui.DiskMask;
+import edu.asu.commons.net.Identifier;
+
+import static org.junit.Assert.*;
+
+/**
+ * $Id$
+ *
+ * @author <a href='mailto:Allen.Lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public class FieldOfVisionInterestTest {
+
+    private final static int WIDTH = 20;
+    private final static int DEPTH = 15;
+
+    @Test
+    public void testDiskMaskMatchesDistance() {
+        for (double radius : new double[] { 0, 1, 2.5, 3, 6.7 }) {
+            DiskMask mask = DiskMask.forRadius(radius);
+            int size = 0;
+            for (int dy = -10; dy <= 10; dy++) {
+                for (int dx = -10; dx <= 10; dx++) {
+                    boolean inside = new Point(0, 0).distance(new Point(dx, dy)) <= radius;
+                    assertEquals("radius " + radius + " at " + dx + "," + dy, inside, mask.contains(dx, dy));
+                    if (inside) {
+                        size++;
+                    }
+                }
+            }
+            assertEquals(size, mask.size());
+            assertSame(mask, DiskMask.forRadius(radius));
+        }
+    }
+
+    @Test
+    public void testClientHoldsExactlyTheVisibleTokens() {
+        Random random = new Random(7);
+        Map<Point, Resource> resourceDistribution = new HashMap<>();
+        Set<Point> clientTokens = new HashSet<>();
+        // the client starts out with the full distribution of the round
+        for (int i = 0; i < 60; i++) {
+            Point point = new Point(random.nextInt(WIDTH), random.nextInt(DEPTH));
+            resourceDistribution.put(point, new Resource(point));
+            clientTokens.add(point);
+        }
+        FieldOfVisionInterest interest = new FieldOfVisionInterest(WIDTH, DEPTH);
+        Point position = new Point(WIDTH / 2, DEPTH / 2);
+        double radius = 3;
+        for (int tick = 0; tick < 500; tick++) {
+            for (int i = random.nextInt(4); i > 0; i--) {
+                Point point = new Point(random.nextInt(WIDTH), random.nextInt(DEPTH));
+                if (resourceDistribution.remove(point) == null) {
+                    resourceDistribution.put(point, new Resource(point));
+                }
+            }
+            Direction direction = Direction.values()[random.nextInt(Direction.values().length)];
+            Point next = direction.apply(position);
+            if (next.x >= 0 && next.x < WIDTH && next.y >= 0 && next.y < DEPTH) {
+                position = next;
+            }
+            if (tick == 250) {
+                interest.reset();
+            }
+            Circle fieldOfVision = new Circle(position, radius);
+            List<Resource> entered = new ArrayList<>();
+            List<Resource> left = new ArrayList<>();
+            boolean snapshot = interest.getResourceChanges(fieldOfVision, resourceDistribution, entered, left);
+            assertEquals(tick == 0 || tick == 250, snapshot);
+            if (snapshot) {
+                assertTrue(left.isEmpty());
+                clientTokens.clear();
+            }
+            assertTrue(entered.size() <= DiskMask.forRadius(radius).size());
+            for (Resource resource : left) {
+                assertTrue(clientTokens.remove(resource.getPosition()));
+            }
+            for (Resource resource : entered) {
+                assertTrue(clientTokens.add(resource.getPosition()));
+            }
+            for (int y = 0; y < DEPTH; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    Point point = new Point(x, y);
+                    boolean visible = fieldOfVision.contains(point) && resourceDistribution.containsKey(point);
+                    assertEquals("tick " + tick + " at " + point, visible, clientTokens.contains(point));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testVisiblePositions() {
+        Identifier self = new Identifier.Mock();
+        Identifier near = new Identifier.Mock();
+        Identifier far = new Identifier.Mock();
+        Map<Identifier, Point> positions = new HashMap<>();
+        positions.put(self, new Point(5, 5));
+        positions.put(near, new Point(7, 5));
+        positions.put(far, new Point(12, 5));
+        Map<Identifier, Point> visible = FieldOfVisionInterest.getVisiblePositions(self, new Circle(new Point(5, 5), 2), positions);
+        assertEquals(2, visible.size());
+        assertTrue(visible.containsKey(self));
+        assertTrue(visible.containsKey(near));
+        Map<Identifier, Integer> tokens = new HashMap<>();
+        tokens.put(self, 3);
+        tokens.put(near, 4);
+        tokens.put(far, 5);
+        Map<Identifier, Integer> visibleTokens = FieldOfVisionInterest.getVisibleTokens(visible, tokens);
+        assertEquals(2, visibleTokens.size());
+        assertFalse(visibleTokens.containsKey(far));
+    }
+
+}
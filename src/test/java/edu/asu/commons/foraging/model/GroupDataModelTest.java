@@ -1,12 +1,16 @@
 package edu.asu.commons.foraging.model;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.awt.Point;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -14,6 +18,8 @@ import java.util.Set;
 import org.junit.Before;
 import org.junit.Test;
 
+import edu.asu.commons.foraging.bot.Bot;
+import edu.asu.commons.foraging.bot.BotType;
 import edu.asu.commons.foraging.conf.RoundConfiguration;
 import edu.asu.commons.foraging.conf.ServerConfiguration;
 import edu.asu.commons.foraging.rules.Strategy;
@@ -51,6 +57,78 @@ public class GroupDataModelTest {
         }
     }
 
+    @Test
+    public void testContestedTokensGoToOneBotPerTickDeterminedBySeed() {
+        RoundConfiguration roundConfiguration = serverDataModel.getRoundConfiguration();
+        roundConfiguration.setProperty("robot-harvest-probability", "1.0");
+        serverDataModel.setNullEventChannel();
+        Set<List<Integer>> outcomes = new HashSet<List<Integer>>();
+        for (int seed = 0; seed < 10; seed++) {
+            roundConfiguration.setProperty("bot-activation-seed", String.valueOf(seed));
+            List<Integer> winners = harvestContestedTokens(5, false);
+            assertEquals("same seed should give the same outcome", winners, harvestContestedTokens(5, false));
+            assertEquals("parallel decisions should give the same outcome", winners, harvestContestedTokens(5, true));
+            outcomes.add(winners);
+        }
+        assertTrue("the winners should vary with the seed", outcomes.size() > 1);
+    }
+
+    @Test
+    public void testContestedTokensAreSharedEvenlyAcrossTicks() {
+        RoundConfiguration roundConfiguration = serverDataModel.getRoundConfiguration();
+        roundConfiguration.setProperty("robot-harvest-probability", "1.0");
+        serverDataModel.setNullEventChannel();
+        int ticks = 1200;
+        List<Integer> winners = harvestContestedTokens(ticks, false);
+        Map<Integer, Integer> wins = new HashMap<Integer, Integer>();
+        for (Integer winner: winners) {
+            wins.merge(winner, 1, Integer::sum);
+        }
+        int numberOfBots = serverDataModel.getOrderedGroups().get(0).getBotMap().size();
+        assertEquals("every bot should get first pick some of the time", numberOfBots, wins.size());
+        double expected = ticks / (double) numberOfBots;
+        for (Map.Entry<Integer, Integer> entry: wins.entrySet()) {
+            assertTrue("bot " + entry.getKey() + " won " + entry.getValue() + " of " + ticks + " ticks",
+                    Math.abs(entry.getValue() - expected) < expected * 0.25d);
+        }
+    }
+
+    /**
+     * Adds fresh bots to the first group, puts all of them and a single token on the same cell for the given number
+     * of bot ticks and checks that exactly one bot collects the token every tick.
+     *
+     * @return the number of the bot that got the token in each tick
+     */
+    private List<Integer> harvestContestedTokens(int ticks, boolean parallelBotDecisions) {
+        serverDataModel.setParallelBotDecisions(parallelBotDecisions);
+        GroupDataModel group = serverDataModel.getOrderedGroups().get(0);
+        // enough bots to decide in parallel when asked to
+        group.addBots(GroupDataModel.PARALLEL_BOT_DECISION_THRESHOLD + 2, BotType.CUSTOM);
+        Point token = new Point(1, 1);
+        Collection<Bot> bots = group.getBotMap().values();
+        for (Bot bot: bots) {
+            bot.setCurrentPosition(new Point(token));
+        }
+        List<Integer> winners = new ArrayList<Integer>();
+        int tokensCollected = 0;
+        for (int tick = 0; tick < ticks; tick++) {
+            group.addResource(token);
+            group.activateBots(true);
+            assertFalse(group.isResourceAt(token));
+            int total = 0;
+            Bot winner = null;
+            for (Bot bot: bots) {
+                total += bot.getCurrentTokens();
+                if (bot.getCurrentTokens() > Collections.frequency(winners, bot.getBotNumber())) {
+                    winner = bot;
+                }
+            }
+            assertEquals("exactly one bot should get the token", ++tokensCollected, total);
+            winners.add(winner.getBotNumber());
+        }
+        return winners;
+    }
+
     private void addClients(int numberOfParticipants) {
         serverDataModel.clear();
         for (int i = 0; i < numberOfParticipants; i++) {
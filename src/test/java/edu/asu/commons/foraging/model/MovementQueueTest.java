@@ -0,0 +1,95 @@
+package edu.asu.commons.foraging.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * $Id$
+ *
+ * @author <a href='mailto:Allen.Lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public class MovementQueueTest {
+
+    private final static long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testDrainsInOrder() {
+        MovementQueue queue = new MovementQueue(4);
+        queue.reset(0);
+        List<Long> applied = new ArrayList<>();
+        for (int round = 0; round < 3; round++) {
+            for (long sequenceNumber = 1; sequenceNumber <= 3; sequenceNumber++) {
+                assertTrue(queue.offer(Direction.UP, sequenceNumber, 0));
+            }
+            applied.clear();
+            assertEquals(0, queue.drain(SECOND * (round + 1), (direction, sequenceNumber, receivedAt) -> applied.add(sequenceNumber)));
+            assertEquals(3, applied.size());
+            assertEquals(Long.valueOf(1), applied.get(0));
+            assertEquals(Long.valueOf(3), applied.get(2));
+            assertEquals(0, queue.size());
+        }
+    }
+
+    @Test
+    public void testCollectsAfterPrecedingMoves() {
+        MovementQueue queue = new MovementQueue(8);
+        // a budget of one move, collection requests don't count against it
+        queue.reset(1);
+        int[] cell = { Cell.pack(5, 5) };
+        List<Integer> collectedAt = new ArrayList<>();
+        MovementQueue.MovementHandler handler = new MovementQueue.MovementHandler() {
+            public void move(Direction direction, long sequenceNumber, long receivedAt) {
+                cell[0] = direction.apply(cell[0]);
+            }
+
+            public void collect(long receivedAt) {
+                collectedAt.add(cell[0]);
+            }
+        };
+        assertTrue(queue.offerCollection(0));
+        assertTrue(queue.offer(Direction.RIGHT, 1, 0));
+        assertTrue(queue.offerCollection(0));
+        assertTrue(queue.offer(Direction.RIGHT, 2, 0));
+        assertTrue(queue.offerCollection(0));
+        assertEquals(1, queue.drain(SECOND, handler));
+        assertEquals(3, collectedAt.size());
+        assertEquals(Cell.pack(5, 5), collectedAt.get(0).intValue());
+        assertEquals(Cell.pack(6, 5), collectedAt.get(1).intValue());
+        // the second move was over budget, so the last collection happens where the client actually is
+        assertEquals(Cell.pack(6, 5), collectedAt.get(2).intValue());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testRejectsOverflowAndMovesOverBudget() {
+        MovementQueue queue = new MovementQueue(8);
+        queue.reset(5);
+        List<Direction> applied = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            queue.offer(Direction.LEFT, i + 1, 0);
+        }
+        // 2 overflowed the buffer, 3 of the remaining 8 are over the initial budget of 5
+        assertEquals(5, queue.drain(SECOND, (direction, sequenceNumber, receivedAt) -> applied.add(direction)));
+        assertEquals(5, applied.size());
+        // a tenth of a second later half a move has accumulated
+        queue.offer(Direction.RIGHT, 11, 0);
+        assertEquals(1, queue.drain(SECOND + SECOND / 10, (direction, sequenceNumber, receivedAt) -> applied.add(direction)));
+        // the budget never accumulates more than one second's worth of moves
+        for (int i = 0; i < 8; i++) {
+            queue.offer(Direction.DOWN, i + 12, 0);
+        }
+        assertEquals(3, queue.drain(SECOND * 10, (direction, sequenceNumber, receivedAt) -> applied.add(direction)));
+        assertEquals(10, applied.size());
+        assertEquals(Direction.DOWN, applied.get(9));
+        assertEquals(9, queue.getRejectedMoves());
+        queue.reset(5);
+        assertEquals(0, queue.getRejectedMoves());
+    }
+
+}
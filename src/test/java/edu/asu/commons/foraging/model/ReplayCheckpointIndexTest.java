@@ -0,0 +1,160 @@
+package edu.asu.commons.foraging.model;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.asu.commons.event.PersistableEvent;
+import edu.asu.commons.foraging.conf.RoundConfiguration;
+import edu.asu.commons.foraging.conf.ServerConfiguration;
+import edu.asu.commons.foraging.event.MovementEvent;
+import edu.asu.commons.foraging.event.ResourceAddedEvent;
+import edu.asu.commons.foraging.event.ResourcesAddedEvent;
+import edu.asu.commons.foraging.event.TokensMovedEvent;
+import edu.asu.commons.net.Identifier;
+
+import static org.junit.Assert.*;
+
+/**
+ * $Id$
+ *
+ * @author <a href='mailto:Allen.Lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public class ReplayCheckpointIndexTest {
+
+    private final static int EVENTS_PER_CHECKPOINT = 7;
+
+    private ServerDataModel serverDataModel;
+    private GroupDataModel group;
+    private List<PersistableEvent> actions;
+    // the state of a linear replay right before each event is applied, and after the last one
+    private List<String> states;
+
+    @Before
+    public void setUp() {
+        serverDataModel = new ServerDataModel();
+        ServerConfiguration serverConfiguration = new ServerConfiguration("configuration/asu/2011/t1");
+        RoundConfiguration roundConfiguration = serverConfiguration.getAllParameters().get(4);
+        serverDataModel.setRoundConfiguration(roundConfiguration);
+        for (int i = 0; i < roundConfiguration.getClientsPerGroup(); i++) {
+            serverDataModel.addClient(new ClientData(new Identifier.Mock()));
+        }
+        group = serverDataModel.getOrderedGroups().get(0);
+        for (ClientData clientData : group.getClientDataMap().values()) {
+            clientData.setExplicitCollectionMode(false);
+        }
+        serverDataModel.setUndoEnabled(true);
+        actions = createActions(new Random(31));
+    }
+
+    @Test
+    public void testSeekMatchesLinearReplay() {
+        ReplayCheckpointIndex checkpointIndex = new ReplayCheckpointIndex(actions, EVENTS_PER_CHECKPOINT);
+        checkpointIndex.initialize(serverDataModel, 0);
+        replayLinearly(checkpointIndex);
+        // only checkpoints up to the end of the linear replay exist
+        assertEquals(actions.size() / EVENTS_PER_CHECKPOINT + 1, checkpointIndex.getNumberOfCheckpoints());
+        int[] targets = { 0, 37, 12, actions.size(), 3, 59, 59, 21, 1, actions.size() - 1 };
+        for (int target : targets) {
+            assertEquals(target, checkpointIndex.seekToIndex(serverDataModel, target));
+            assertEquals("seeking to " + target, states.get(target), describe());
+        }
+    }
+
+    @Test
+    public void testSeekBeforeReplayingCapturesCheckpointsOnTheWay() {
+        ReplayCheckpointIndex checkpointIndex = new ReplayCheckpointIndex(actions, EVENTS_PER_CHECKPOINT);
+        checkpointIndex.initialize(serverDataModel, 0);
+        replayLinearly(checkpointIndex);
+        // a fresh index only knows about the initial state and builds the rest while seeking
+        checkpointIndex.seekToIndex(serverDataModel, 0);
+        checkpointIndex = new ReplayCheckpointIndex(actions, EVENTS_PER_CHECKPOINT);
+        checkpointIndex.initialize(serverDataModel, 0);
+        assertEquals(1, checkpointIndex.getNumberOfCheckpoints());
+        int target = 2 * EVENTS_PER_CHECKPOINT + 3;
+        checkpointIndex.seekToIndex(serverDataModel, target);
+        assertEquals(states.get(target), describe());
+        assertEquals(3, checkpointIndex.getNumberOfCheckpoints());
+        for (int index = actions.size(); index >= 0; index -= 5) {
+            checkpointIndex.seekToIndex(serverDataModel, index);
+            assertEquals("seeking back to " + index, states.get(index), describe());
+        }
+    }
+
+    @Test
+    public void testSeekByTime() {
+        ReplayCheckpointIndex checkpointIndex = new ReplayCheckpointIndex(actions, EVENTS_PER_CHECKPOINT);
+        checkpointIndex.initialize(serverDataModel, 0);
+        replayLinearly(checkpointIndex);
+        for (int index : new int[] { 40, 5, actions.size() - 1, 0, 26 }) {
+            long time = actions.get(index).getCreationTime();
+            int nextIndex = checkpointIndex.seek(serverDataModel, time);
+            // the next event to apply is the first one created after the given time
+            assertTrue(nextIndex > index);
+            assertTrue(nextIndex == actions.size() || actions.get(nextIndex).getCreationTime() > time);
+            assertTrue(actions.get(nextIndex - 1).getCreationTime() <= time);
+            assertEquals(states.get(nextIndex), describe());
+        }
+    }
+
+    private void replayLinearly(ReplayCheckpointIndex checkpointIndex) {
+        states = new ArrayList<>();
+        serverDataModel.setNullEventChannel();
+        for (int index = 0; index < actions.size(); index++) {
+            states.add(describe());
+            checkpointIndex.apply(serverDataModel, index);
+        }
+        states.add(describe());
+    }
+
+    private List<PersistableEvent> createActions(Random random) {
+        List<PersistableEvent> actions = new ArrayList<>();
+        int width = serverDataModel.getBoardWidth();
+        int height = serverDataModel.getBoardHeight();
+        Set<Resource> resources = new HashSet<>();
+        for (int i = 0; i < width * height / 4; i++) {
+            resources.add(new Resource(new Point(random.nextInt(width), random.nextInt(height))));
+        }
+        actions.add(new ResourcesAddedEvent(group, resources));
+        List<Identifier> ids = new ArrayList<>(group.getClientIdentifiers());
+        Direction[] directions = Direction.values();
+        for (int i = 0; i < 80; i++) {
+            if (i % 10 == 9) {
+                actions.add(new ResourceAddedEvent(group, new Resource(new Point(random.nextInt(width), random.nextInt(height)))));
+            }
+            else if (i % 15 == 14) {
+                Point from = new Point(random.nextInt(width), random.nextInt(height));
+                Point to = new Point(random.nextInt(width), random.nextInt(height));
+                actions.add(new TokensMovedEvent(group, Collections.singletonList(from), Collections.singletonList(to)));
+            }
+            else {
+                Identifier id = ids.get(random.nextInt(ids.size()));
+                actions.add(new MovementEvent(id, directions[random.nextInt(directions.length)]));
+            }
+        }
+        return actions;
+    }
+
+    private String describe() {
+        TreeSet<String> state = new TreeSet<>();
+        for (Point position : group.getResourcePositions()) {
+            state.add("token " + position.x + "," + position.y);
+        }
+        for (ClientData clientData : group.getClientDataMap().values()) {
+            Point position = clientData.getPosition();
+            state.add(String.format("participant %d at %d,%d with %d tokens", clientData.getAssignedNumber(), position.x,
+                    position.y, clientData.getCurrentTokens()));
+        }
+        return state.toString();
+    }
+
+}
@@ -0,0 +1,107 @@
+package edu.asu.commons.foraging.model;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.asu.commons.event.PersistableEvent;
+import edu.asu.commons.foraging.conf.RoundConfiguration;
+import edu.asu.commons.foraging.conf.ServerConfiguration;
+import edu.asu.commons.foraging.event.ExplicitCollectionModeRequest;
+import edu.asu.commons.foraging.event.MovementEvent;
+import edu.asu.commons.foraging.event.ResourceAddedEvent;
+import edu.asu.commons.foraging.event.ResourcesAddedEvent;
+import edu.asu.commons.foraging.event.TokensMovedEvent;
+import edu.asu.commons.net.Identifier;
+
+import static org.junit.Assert.*;
+
+/**
+ * $Id$
+ *
+ * @author <a href='mailto:Allen.Lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public class ServerDataModelTest {
+
+    private ServerDataModel serverDataModel;
+    private GroupDataModel group;
+    private ClientData clientData;
+
+    @Before
+    public void setUp() {
+        serverDataModel = new ServerDataModel();
+        ServerConfiguration serverConfiguration = new ServerConfiguration("configuration/asu/2011/t1");
+        RoundConfiguration roundConfiguration = serverConfiguration.getAllParameters().get(4);
+        serverDataModel.setRoundConfiguration(roundConfiguration);
+        for (int i = 0; i < roundConfiguration.getClientsPerGroup(); i++) {
+            serverDataModel.addClient(new ClientData(new Identifier.Mock()));
+        }
+        group = serverDataModel.getOrderedGroups().get(0);
+        clientData = group.getClientDataMap().values().iterator().next();
+        clientData.setExplicitCollectionMode(false);
+        serverDataModel.setUndoEnabled(true);
+    }
+
+    @Test
+    public void testUnapplyReversesApply() {
+        List<PersistableEvent> events = createEvents();
+        List<String> states = new ArrayList<>();
+        for (PersistableEvent event : events) {
+            states.add(describe());
+            serverDataModel.apply(event);
+        }
+        // the first move collected the token to the right of the participant
+        assertEquals(1, clientData.getCurrentTokens());
+        for (int i = events.size() - 1; i >= 0; i--) {
+            assertTrue(serverDataModel.unapply(events.get(i)));
+            assertEquals("state before " + events.get(i), states.get(i), describe());
+        }
+        assertFalse(serverDataModel.unapply(events.get(0)));
+    }
+
+    @Test
+    public void testTrimmedJournalOnlyReversesRecentEvents() {
+        List<PersistableEvent> events = createEvents();
+        for (PersistableEvent event : events) {
+            serverDataModel.apply(event);
+        }
+        serverDataModel.trimUndoRecords(2);
+        int last = events.size() - 1;
+        assertTrue(serverDataModel.unapply(events.get(last)));
+        assertTrue(serverDataModel.unapply(events.get(last - 1)));
+        assertFalse(serverDataModel.unapply(events.get(last - 2)));
+    }
+
+    private List<PersistableEvent> createEvents() {
+        Identifier id = clientData.getId();
+        Point right = Direction.RIGHT.apply(clientData.getPosition());
+        Set<Resource> resources = new HashSet<>(Arrays.asList(new Resource(right), new Resource(new Point(0, 0))));
+        return Arrays.asList(
+                new ResourcesAddedEvent(group, resources),
+                new MovementEvent(id, Direction.RIGHT),
+                new TokensMovedEvent(group, Collections.singletonList(new Point(0, 0)), Collections.singletonList(new Point(1, 0))),
+                new ResourceAddedEvent(group, new Resource(new Point(2, 0))),
+                new ExplicitCollectionModeRequest(id, true),
+                new MovementEvent(id, Direction.LEFT));
+    }
+
+    private String describe() {
+        TreeSet<String> tokens = new TreeSet<>();
+        for (Point position : group.getResourcePositions()) {
+            tokens.add(position.x + "," + position.y);
+        }
+        Point position = clientData.getPosition();
+        return String.format("tokens %s, participant at %d,%d with %d tokens, explicit collection %s", tokens,
+                position.x, position.y, clientData.getCurrentTokens(), clientData.isExplicitCollectionMode());
+    }
+
+}
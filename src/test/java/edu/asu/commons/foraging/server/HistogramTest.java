@@ -0,0 +1,52 @@
+package edu.asu.commons.foraging.server;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * $Id$
+ *
+ * @author <a href='mailto:Allen.Lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public class HistogramTest {
+
+    @Test
+    public void testBucketBoundaries() {
+        for (long value = 0; value < 1 << 20; value++) {
+            int index = Histogram.getIndex(value);
+            assertTrue(value <= Histogram.getHighestValue(index));
+            assertTrue(index == 0 || value > Histogram.getHighestValue(index - 1));
+        }
+        assertTrue(Histogram.getIndex(Long.MAX_VALUE) >= 0);
+    }
+
+    @Test
+    public void testPercentilesWithinPrecision() {
+        Random random = new Random(0);
+        Histogram histogram = new Histogram();
+        long[] values = new long[10000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.abs(random.nextGaussian() * 5000);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        assertEquals(values.length, histogram.getTotalCount());
+        assertEquals(values[0], histogram.getMinimum());
+        assertEquals(values[values.length - 1], histogram.getMaximum());
+        for (double percentile: new double[] { 50, 90, 99, 100 }) {
+            long expected = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long actual = histogram.getValueAtPercentile(percentile);
+            assertTrue(actual >= expected);
+            assertTrue(actual <= expected + Math.max(1, expected / 32));
+        }
+        histogram.reset();
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+}
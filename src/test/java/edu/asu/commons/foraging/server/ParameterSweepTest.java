@@ -0,0 +1,95 @@
+package edu.asu.commons.foraging.server;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * $Id$
+ *
+ * @author <a href='mailto:Allen.Lee@asu.edu'>Allen Lee</a>
+ * @version $Revision$
+ */
+public class ParameterSweepTest {
+
+    @Test
+    public void testGridDesign() {
+        ParameterSweep sweep = new ParameterSweep("configuration/asu/2011/t1", new File("target"));
+        sweep.addParameter("regrowth-rate", "0.01:0.05:3");
+        sweep.addParameter("bot-type", "AGGRESSIVE,RANDOM");
+        List<Map<String, String>> points = sweep.createDesignPoints();
+        assertEquals(6, points.size());
+        assertEquals("0.01", points.get(0).get("regrowth-rate"));
+        assertEquals("AGGRESSIVE", points.get(0).get("bot-type"));
+        assertEquals("RANDOM", points.get(5).get("bot-type"));
+        assertEquals(0.05d, Double.parseDouble(points.get(5).get("regrowth-rate")), 1e-9);
+    }
+
+    @Test
+    public void testLatinHypercubeUsesEveryStratumOnce() {
+        int samples = 20;
+        Properties specification = new Properties();
+        specification.setProperty("configuration", "configuration/asu/2011/t1");
+        specification.setProperty("design", "latin-hypercube");
+        specification.setProperty("samples", String.valueOf(samples));
+        specification.setProperty("seed", "42");
+        specification.setProperty("parameter.initial-distribution", "0.1:0.5");
+        specification.setProperty("parameter.bots-per-group", "1:20");
+        ParameterSweep sweep = ParameterSweep.load(specification, new File("target"));
+        List<Map<String, String>> points = sweep.createDesignPoints();
+        assertEquals(samples, points.size());
+        Set<Integer> strata = new HashSet<Integer>();
+        Set<String> botsPerGroup = new HashSet<String>();
+        for (Map<String, String> point: points) {
+            double initialDistribution = Double.parseDouble(point.get("initial-distribution"));
+            assertTrue(initialDistribution >= 0.1d && initialDistribution < 0.5d);
+            strata.add((int) ((initialDistribution - 0.1d) / 0.4d * samples));
+            botsPerGroup.add(point.get("bots-per-group"));
+        }
+        assertEquals(samples, strata.size());
+        // one integer per stratum when the range has exactly as many integers as samples
+        assertEquals(samples, botsPerGroup.size());
+        assertEquals(points, ParameterSweep.load(specification, new File("target")).createDesignPoints());
+        assertEquals(specification.getProperty("parameter.bots-per-group"), sweep.toProperties().getProperty("parameter.bots-per-group"));
+    }
+
+    @Test
+    public void testResumeDropsIncompleteRows() throws IOException {
+        ParameterSweep sweep = new ParameterSweep("configuration/asu/2011/t1", new File("target"));
+        sweep.addParameter("regrowth-rate", "0.01,0.02");
+        String header = String.join(", ", sweep.getColumnNames());
+        File resultsFile = File.createTempFile("sweep-results", ".txt");
+        resultsFile.deleteOnExit();
+        try (PrintWriter writer = new PrintWriter(new FileWriter(resultsFile))) {
+            writer.println(header);
+            writer.println("0, 0, 0.01, 1, 240, 1000, 50, 50, 120, 12");
+            writer.println("1, 0, 0.02, 1, 240, 1000, 50, 50, 120, 12");
+            writer.print("0, 1, 0.01, 1, 24");
+        }
+        Set<String> completedRuns = sweep.resume(resultsFile, header);
+        assertEquals(2, completedRuns.size());
+        assertTrue(completedRuns.contains("1, 0"));
+        assertFalse(completedRuns.contains("0, 1"));
+        assertEquals(completedRuns, sweep.resume(resultsFile, header));
+        // cut off within the last value, every column is there but the row was never terminated
+        try (PrintWriter writer = new PrintWriter(new FileWriter(resultsFile, true))) {
+            writer.print("0, 1, 0.01, 1, 240, 1000, 50, 50, 120, 1");
+        }
+        assertEquals(completedRuns, sweep.resume(resultsFile, header));
+        try (PrintWriter writer = new PrintWriter(new FileWriter(resultsFile, true))) {
+            writer.println("0, 1, 0.01, 1, 240, 1000, 50, 50, 120, 12");
+        }
+        assertTrue(sweep.resume(resultsFile, header).contains("0, 1"));
+    }
+
+}